@@ -0,0 +1,210 @@
+import benchmarks.BankingFixture;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BankingFixtureImpl - populated banking data for the JMH benchmarks
+ * Accounts are built through Account.fromFileString with one shared password
+ * hash, so building 100k accounts takes milliseconds instead of 100k PBKDF2 runs.
+ */
+public class BankingFixtureImpl implements BankingFixture {
+    private static final String PASSWORD = "benchmark1";
+    private static final double OPENING_BALANCE = 1_000_000_000;
+    private static final OperationMetrics BENCHMARK_METRICS = MetricsRegistry.operation("benchmark.empty");
+
+    private BankingService bankingService;
+    private AuthenticationService authService;
+    private Map<String, Customer> customers;
+    private Map<String, Account> accounts;
+    private List<Transaction> transactions;
+    private String[] accountNumbers;
+    private Account hotAccount;
+    private String lastCustomerName;
+    private RateLimiter rateLimiter;
+    private String[] limiterKeys;
+
+    private String customerLine;
+    private String accountLine;
+    private String transactionLine;
+
+    @Override
+    public void setUp(int accountCount, int transactionCount) {
+        String passwordHash = PasswordHasher.hash(PASSWORD);
+        String today = LocalDate.now().toString();
+
+        customers = new HashMap<>();
+        accounts = new HashMap<>();
+        accountNumbers = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            String customerId = String.format("CUST%06d", 100001 + i);
+            String accountNumber = String.format("ACC%06d", 100001 + i);
+            lastCustomerName = "Customer " + i;
+
+            Customer customer = new Customer(customerId, lastCustomerName, "customer" + i + "@example.com",
+                                             "9000000000", "Street " + i);
+            Account account = Account.fromFileString(accountNumber + "," + passwordHash + "," + customerId + "," +
+                    (i % 2 == 0 ? "SAVINGS" : "CURRENT") + "," + OPENING_BALANCE + "," + today + ",true", customer);
+            customers.put(customerId, customer);
+            accounts.put(accountNumber, account);
+            accountNumbers[i] = accountNumber;
+        }
+
+        transactions = new ArrayList<>(transactionCount);
+        for (int i = 0; i < transactionCount; i++) {
+            transactions.add(new Transaction("TXN" + (1_000_000_000L + i), accountNumbers[i % accountCount],
+                    i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL", 100 + i % 1000, OPENING_BALANCE, "Benchmark"));
+        }
+
+        bankingService = new BankingService();
+        bankingService.loadData(customers, accounts, transactions);
+        authService = new AuthenticationService(bankingService);
+        hotAccount = accounts.get(accountNumbers[0]);
+
+        customerLine = customers.values().iterator().next().toFileString();
+        accountLine = hotAccount.toFileString();
+        transactionLine = transactions.isEmpty()
+                ? new Transaction("TXN1", accountNumbers[0], "DEPOSIT", 1, 1, "Benchmark").toFileString()
+                : transactions.get(0).toFileString();
+    }
+
+    @Override
+    public int accountCount() {
+        return accountNumbers.length;
+    }
+
+    @Override
+    public double accountDeposit(double amount) throws Exception {
+        return hotAccount.deposit(amount).getBalanceAfter();
+    }
+
+    @Override
+    public double accountWithdraw(double amount) throws Exception {
+        return hotAccount.withdraw(amount).getBalanceAfter();
+    }
+
+    @Override
+    public void transfer(int fromIndex, int toIndex, double amount) throws Exception {
+        bankingService.transfer(accountNumbers[fromIndex], accountNumbers[toIndex], amount);
+    }
+
+    // Drops ledger entries appended by a measurement iteration so memory stays flat
+    @Override
+    public void resetLedger() {
+        bankingService.loadData(customers, accounts, transactions);
+    }
+
+    @Override
+    public Object getAccountsByType(String accountType) {
+        return bankingService.getAccountsByType(accountType);
+    }
+
+    @Override
+    public Object findCustomerByName(String name) {
+        return bankingService.findCustomerByName(name);
+    }
+
+    @Override
+    public String lastCustomerName() {
+        return lastCustomerName;
+    }
+
+    @Override
+    public double getTotalBalance() {
+        return bankingService.getTotalBalance();
+    }
+
+    @Override
+    public boolean login(int index) throws Exception {
+        return authService.login(accountNumbers[index], PASSWORD);
+    }
+
+    @Override
+    public void setCredentialCacheEnabled(boolean enabled) {
+        bankingService.getCredentialCache().setEnabled(enabled);
+    }
+
+    @Override
+    public String dataDirectory() {
+        return FileHandler.getDataDirectory();
+    }
+
+    @Override
+    public boolean saveCustomers() {
+        return FileHandler.saveCustomers(customers);
+    }
+
+    @Override
+    public boolean saveAccounts() {
+        return FileHandler.saveAccounts(accounts);
+    }
+
+    @Override
+    public boolean saveTransactions() {
+        return FileHandler.saveTransactions(transactions);
+    }
+
+    @Override
+    public Object loadCustomers() {
+        return FileHandler.loadCustomers();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object loadAccounts(Object loadedCustomers) {
+        return FileHandler.loadAccounts((Map<String, Customer>) loadedCustomers);
+    }
+
+    @Override
+    public Object loadTransactions() {
+        return FileHandler.loadTransactions();
+    }
+
+    @Override
+    public long recordMetric() {
+        long start = BENCHMARK_METRICS.start();
+        BENCHMARK_METRICS.record(start, true);
+        return start;
+    }
+
+    @Override
+    public void setMetricsEnabled(boolean enabled) {
+        MetricsRegistry.setEnabled(enabled);
+    }
+
+    @Override
+    public void setUpRateLimiter(int keyCount) {
+        rateLimiter = new RateLimiter("bench", 1e9, 1_000_000, 1e9, 1_000_000);
+        limiterKeys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            limiterKeys[i] = String.format("ACC%06d", 1001 + i);
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(int index) {
+        return rateLimiter.tryAcquire(limiterKeys[index]);
+    }
+
+    @Override
+    public long rateLimiterRejections() {
+        return rateLimiter.getRejectedPerKeyCount() + rateLimiter.getRejectedGlobalCount();
+    }
+
+    @Override
+    public Object parseCustomer() {
+        return Customer.fromFileString(customerLine);
+    }
+
+    @Override
+    public Object parseAccount(Object customer) {
+        return Account.fromFileString(accountLine, (Customer) customer);
+    }
+
+    @Override
+    public Object parseTransaction() {
+        return Transaction.fromFileString(transactionLine);
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Account.deposit / Account.withdraw on a single hot account
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountBenchmark {
+    private BankingFixture fixture;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = Fixtures.load();
+        fixture.setUp(1, 0);
+    }
+
+    @Benchmark
+    public double deposit() throws Exception {
+        return fixture.accountDeposit(1);
+    }
+
+    @Benchmark
+    public double withdraw() throws Exception {
+        return fixture.accountWithdraw(1);
+    }
+}
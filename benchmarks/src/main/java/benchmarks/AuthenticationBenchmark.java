@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AuthenticationService.login with and without the verified-credential cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+    @Param({"true", "false"})
+    public boolean credentialCache;
+
+    @Param({"100"})
+    public int accounts;
+
+    private BankingFixture fixture;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = Fixtures.load();
+        fixture.setUp(accounts, 0);
+        fixture.setCredentialCacheEnabled(credentialCache);
+    }
+
+    @Benchmark
+    public boolean login() throws Exception {
+        return fixture.login(ThreadLocalRandom.current().nextInt(accounts));
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+/**
+ * BankingFixture - the operations the JMH benchmarks measure
+ *
+ * The application lives in the unnamed package, which code in a named package
+ * cannot reference, while JMH refuses benchmarks in the unnamed package. The
+ * implementation (BankingFixtureImpl, unnamed package) calls the application
+ * directly; benchmarks load it once via {@link Fixtures#load()} and call it
+ * through this interface, a monomorphic call the JIT inlines.
+ */
+public interface BankingFixture {
+    /**
+     * Build a populated BankingService with the given number of accounts,
+     * customers and ledger transactions, without hashing a password per account
+     */
+    void setUp(int accountCount, int transactionCount) throws Exception;
+
+    int accountCount();
+
+    // Account
+    double accountDeposit(double amount) throws Exception;
+
+    double accountWithdraw(double amount) throws Exception;
+
+    // BankingService
+    void transfer(int fromIndex, int toIndex, double amount) throws Exception;
+
+    void resetLedger();
+
+    Object getAccountsByType(String accountType);
+
+    Object findCustomerByName(String name);
+
+    String lastCustomerName();
+
+    double getTotalBalance();
+
+    // AuthenticationService
+    boolean login(int index) throws Exception;
+
+    void setCredentialCacheEnabled(boolean enabled);
+
+    // FileHandler
+    /**
+     * Directory FileHandler reads and writes, fixed when it is first used
+     */
+    String dataDirectory();
+
+    boolean saveCustomers();
+
+    boolean saveAccounts();
+
+    boolean saveTransactions();
+
+    Object loadCustomers();
+
+    Object loadAccounts(Object customers);
+
+    Object loadTransactions();
+
+    // MetricsRegistry
+    /**
+     * Time an empty operation through OperationMetrics and return its start stamp
+     */
+    long recordMetric();
+
+    void setMetricsEnabled(boolean enabled);
+
+    // RateLimiter
+    /**
+     * A limiter over keyCount account keys, with limits so high nothing is rejected
+     */
+    void setUpRateLimiter(int keyCount);
+
+    boolean tryAcquire(int index);
+
+    long rateLimiterRejections();
+
+    // fromFileString parsers
+    Object parseCustomer();
+
+    Object parseAccount(Object customer);
+
+    Object parseTransaction();
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BankingService transfer and the collection-scanning queries, by account count
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankingServiceBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int accounts;
+
+    private BankingFixture fixture;
+    private String lastCustomerName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = Fixtures.load();
+        fixture.setUp(accounts, 0);
+        lastCustomerName = fixture.lastCustomerName();
+    }
+
+    // transfer appends to the global ledger; start every iteration from an empty one
+    @Setup(Level.Iteration)
+    public void resetLedger() {
+        fixture.resetLedger();
+    }
+
+    @Benchmark
+    public void transfer() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        fixture.transfer(from, to, 1);
+    }
+
+    @Benchmark
+    public Object getAccountsByType() {
+        return fixture.getAccountsByType("SAVINGS");
+    }
+
+    @Benchmark
+    public Object findCustomerByNameHit() {
+        return fixture.findCustomerByName(lastCustomerName);
+    }
+
+    @Benchmark
+    public Object findCustomerByNameMiss() {
+        return fixture.findCustomerByName("No Such Customer");
+    }
+
+    @Benchmark
+    public double getTotalBalance() {
+        return fixture.getTotalBalance();
+    }
+}
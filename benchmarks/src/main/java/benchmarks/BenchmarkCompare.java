@@ -0,0 +1,118 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BenchmarkCompare - compares two JMH CSV result files (-rf csv)
+ *
+ * Usage: java -cp benchmarks.jar benchmarks.BenchmarkCompare base.csv new.csv [thresholdPercent]
+ *
+ * Prints the change for every benchmark/parameter combination found in both
+ * files and exits with status 1 if any got worse by more than the threshold
+ * (default 10%). Lower is better for time modes, higher for throughput.
+ */
+public final class BenchmarkCompare {
+    private BenchmarkCompare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkCompare base.csv new.csv [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Result> base = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "base", "new", "change");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = base.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            Result after = entry.getValue();
+            double change = (after.score - before.score) / before.score * 100.0;
+            boolean higherIsBetter = "thrpt".equals(after.mode);
+            boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.score, after.score,
+                              change, after.unit, regressed ? "  REGRESSION" : "");
+        }
+
+        System.out.println(regressions == 0 ? "No regressions beyond " + threshold + "%"
+                                             : regressions + " regression(s) beyond " + threshold + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static Map<String, Result> read(String path) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        Map<String, Result> results = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return results;
+        }
+
+        List<String> header = split(lines.get(0));
+        int benchmark = header.indexOf("Benchmark");
+        int mode = header.indexOf("Mode");
+        int score = header.indexOf("Score");
+        int unit = header.indexOf("Unit");
+
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> columns = split(line);
+            if (columns.size() != header.size()) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(columns.get(benchmark));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ") && !columns.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(columns.get(i));
+                }
+            }
+            results.put(key.toString(), new Result(columns.get(mode), Double.parseDouble(columns.get(score)),
+                                                   columns.get(unit)));
+        }
+        return results;
+    }
+
+    // Splits one CSV line, honouring double-quoted fields
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static final class Result {
+        private final String mode;
+        private final double score;
+        private final String unit;
+
+        Result(String mode, double score, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FileHandler save and load paths, by data size
+ * Files are written to a temporary data directory (FileHandler's banking.dataDir
+ * property, set before FileHandler loads in the fork), never to the real data/.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileHandlerBenchmark {
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    @Param({"10"})
+    public int transactionsPerAccount;
+
+    private BankingFixture fixture;
+    private Object customers;
+    private Path dataDirectory;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataDirectory = Files.createTempDirectory("filehandler-bench");
+        System.setProperty("banking.dataDir", dataDirectory.toString());
+        fixture = Fixtures.load();
+        if (!new File(fixture.dataDirectory()).getCanonicalFile().equals(dataDirectory.toFile().getCanonicalFile())) {
+            throw new IllegalStateException("FileHandler already writes to " + fixture.dataDirectory());
+        }
+        fixture.setUp(accounts, accounts * transactionsPerAccount);
+        fixture.saveCustomers();
+        fixture.saveAccounts();
+        fixture.saveTransactions();
+        customers = fixture.loadCustomers();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dataDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public boolean saveAccounts() {
+        return fixture.saveAccounts();
+    }
+
+    @Benchmark
+    public boolean saveTransactions() {
+        return fixture.saveTransactions();
+    }
+
+    @Benchmark
+    public Object loadCustomers() {
+        return fixture.loadCustomers();
+    }
+
+    @Benchmark
+    public Object loadAccounts() {
+        return fixture.loadAccounts(customers);
+    }
+
+    @Benchmark
+    public Object loadTransactions() {
+        return fixture.loadTransactions();
+    }
+}
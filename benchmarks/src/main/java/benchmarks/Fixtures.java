@@ -0,0 +1,19 @@
+package benchmarks;
+
+/**
+ * Fixtures - loads the unnamed-package BankingFixture implementation
+ */
+public final class Fixtures {
+    private static final String IMPLEMENTATION = "BankingFixtureImpl";
+
+    private Fixtures() {
+    }
+
+    public static BankingFixture load() {
+        try {
+            return (BankingFixture) Class.forName(IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load " + IMPLEMENTATION + ": " + e.getMessage(), e);
+        }
+    }
+}
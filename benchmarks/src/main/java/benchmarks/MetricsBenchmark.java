@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-sample cost of OperationMetrics.start/record around an empty operation,
+ * with recording enabled and disabled; run with -t 4 to see contended cost
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private BankingFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load();
+        fixture.setMetricsEnabled(enabled);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.setMetricsEnabled(true);
+    }
+
+    @Benchmark
+    public long record() {
+        return fixture.recordMetric();
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Customer, Account and Transaction fromFileString parsers, per line
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    private BankingFixture fixture;
+    private Object customer;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = Fixtures.load();
+        fixture.setUp(1, 1);
+        customer = fixture.parseCustomer();
+    }
+
+    @Benchmark
+    public Object parseCustomer() {
+        return fixture.parseCustomer();
+    }
+
+    @Benchmark
+    public Object parseAccount() {
+        return fixture.parseAccount(customer);
+    }
+
+    @Benchmark
+    public Object parseTransaction() {
+        return fixture.parseTransaction();
+    }
+}
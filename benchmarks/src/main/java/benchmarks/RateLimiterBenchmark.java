@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call cost of RateLimiter.tryAcquire: the bucket lookup plus two CAS
+ * operations, with limits high enough that nothing is rejected; run with -t 4
+ * to see contended cost
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+    @Param({"10000"})
+    public int accounts;
+
+    private BankingFixture fixture;
+
+    // Each thread walks the keys in order from its own position
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+    }
+
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.load();
+        fixture.setUpRateLimiter(accounts);
+    }
+
+    // A new bucket can reject once if creating it stalls (e.g. a GC pause); more than a few skews the score
+    @TearDown
+    public void tearDown() {
+        long rejected = fixture.rateLimiterRejections();
+        if (rejected != 0) {
+            System.out.println("rejected: " + rejected);
+        }
+    }
+
+    @Benchmark
+    public boolean tryAcquire(Cursor cursor) {
+        int index = cursor.index;
+        cursor.index = index + 1 == accounts ? 0 : index + 1;
+        return fixture.tryAcquire(index);
+    }
+}
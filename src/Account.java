@@ -1,30 +1,45 @@
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Account class representing a bank account
  * Demonstrates encapsulation, composition, and business logic
+ * Balance and history are guarded by the account's own monitor, so one account
+ * can be used from several threads at once.
  */
 public class Account {
     private String accountNumber;
-    private String password;
+    private volatile String password; // PBKDF2 hash, never plain text
     private Customer customer;
     private String accountType; // SAVINGS, CURRENT
+    private final String currency; // ISO code, balance and postings are in this currency
     private double balance;
     private LocalDate dateCreated;
-    private boolean isActive;
+    private volatile boolean isActive;
     private List<Transaction> transactionHistory;
     private static final int MAX_TRANSACTION_HISTORY = 10;
     
     // Constructor
     public Account(String accountNumber, String password, Customer customer, 
                    String accountType, double initialDeposit) {
+        this(accountNumber, password, customer, accountType, initialDeposit, FxRateTable.BASE_CURRENCY);
+    }
+    
+    // Constructor for an account held in another currency
+    public Account(String accountNumber, String password, Customer customer,
+                   String accountType, double initialDeposit, String currency) {
+        this(accountNumber, customer, accountType, initialDeposit, currency);
+        this.password = PasswordHasher.hash(password);
+    }
+    
+    // Constructor used when the password hash is supplied separately
+    private Account(String accountNumber, Customer customer, String accountType, double initialDeposit,
+                    String currency) {
         this.accountNumber = accountNumber;
-        this.password = password;
         this.customer = customer;
         this.accountType = accountType;
+        this.currency = currency;
         this.balance = initialDeposit;
         this.dateCreated = LocalDate.now();
         this.isActive = true;
@@ -36,6 +51,15 @@ public class Account {
         }
     }
     
+    // Account whose password was hashed elsewhere (bulk import), skipping the slow hash
+    static Account withPasswordHash(String accountNumber, String passwordHash, Customer customer,
+                                    String accountType, double initialDeposit) {
+        Account account = new Account(accountNumber, customer, accountType, initialDeposit,
+                                      FxRateTable.BASE_CURRENCY);
+        account.password = passwordHash;
+        return account;
+    }
+    
     // Getters and Setters
     public String getAccountNumber() {
         return accountNumber;
@@ -45,12 +69,18 @@ public class Account {
         this.accountNumber = accountNumber;
     }
     
+    // Returns the stored password hash
     public String getPassword() {
         return password;
     }
     
     public void setPassword(String password) {
-        this.password = password;
+        this.password = PasswordHasher.hash(password);
+    }
+    
+    // Replace the stored hash with one computed (or saved) elsewhere
+    void setPasswordHash(String passwordHash) {
+        this.password = passwordHash;
     }
     
     public Customer getCustomer() {
@@ -69,7 +99,11 @@ public class Account {
         this.accountType = accountType;
     }
     
-    public double getBalance() {
+    public String getCurrency() {
+        return currency;
+    }
+    
+    public synchronized double getBalance() {
         return balance;
     }
     
@@ -89,44 +123,91 @@ public class Account {
         isActive = active;
     }
     
-    public List<Transaction> getTransactionHistory() {
+    public synchronized List<Transaction> getTransactionHistory() {
         return new ArrayList<>(transactionHistory); // Return copy to maintain encapsulation
     }
     
+    // Overwrite balance and status with state rebuilt from the event store
+    synchronized void restoreState(double balance, boolean active) {
+        this.balance = balance;
+        this.isActive = active;
+    }
+    
     // Business methods
     public boolean authenticate(String password) {
-        return this.password.equals(password);
+        return PasswordHasher.verify(password, this.password);
     }
     
-    public void deposit(double amount) throws InvalidAmountException {
+    /**
+     * Checks of a credit (kind is "Deposit" or "Transfer"); BankingService runs them
+     * before journaling the change, so a rejected change never reaches the event store
+     */
+    synchronized void checkCredit(double amount, String kind) throws InvalidAmountException {
         if (amount <= 0) {
-            throw new InvalidAmountException("Deposit amount must be positive");
+            throw new InvalidAmountException(kind + " amount must be positive");
         }
         if (!isActive) {
             throw new AccountInactiveException("Account is inactive");
         }
-        
-        balance += amount;
-        addTransaction("DEPOSIT", amount, "Cash deposit");
     }
     
-    public void withdraw(double amount) throws InsufficientBalanceException, InvalidAmountException {
-        if (amount <= 0) {
-            throw new InvalidAmountException("Withdrawal amount must be positive");
-        }
-        if (!isActive) {
-            throw new AccountInactiveException("Account is inactive");
-        }
+    // Checks of a debit ("Withdrawal" or "Transfer"), as checkCredit plus the balance
+    synchronized void checkDebit(double amount, String kind) throws InsufficientBalanceException, InvalidAmountException {
+        checkCredit(amount, kind);
         if (balance < amount) {
             throw new InsufficientBalanceException("Insufficient balance. Available: " + balance);
         }
+    }
+    
+    // Returns the recorded transaction so callers never need to re-read the history
+    public synchronized Transaction deposit(double amount) throws InvalidAmountException {
+        checkCredit(amount, "Deposit");
+        
+        balance += amount;
+        return addTransaction("DEPOSIT", amount, "Cash deposit");
+    }
+    
+    public synchronized Transaction withdraw(double amount) throws InsufficientBalanceException, InvalidAmountException {
+        checkDebit(amount, "Withdrawal");
         
         balance -= amount;
-        addTransaction("WITHDRAWAL", amount, "Cash withdrawal");
+        return addTransaction("WITHDRAWAL", amount, "Cash withdrawal");
+    }
+    
+    // Debit leg of a transfer; both legs carry the same transfer reference
+    public synchronized Transaction transferOut(double amount, String toAccountNumber, String transferReference)
+            throws InsufficientBalanceException, InvalidAmountException {
+        checkDebit(amount, "Transfer");
+        
+        balance -= amount;
+        Transaction transaction = addTransaction("TRANSFER_OUT", amount, "Transfer to " + toAccountNumber);
+        transaction.setReference(transferReference);
+        return transaction;
+    }
+    
+    // Credit leg of a transfer
+    public synchronized Transaction transferIn(double amount, String fromAccountNumber, String transferReference)
+            throws InvalidAmountException {
+        checkCredit(amount, "Transfer");
+        
+        balance += amount;
+        Transaction transaction = addTransaction("TRANSFER_IN", amount, "Transfer from " + fromAccountNumber);
+        transaction.setReference(transferReference);
+        return transaction;
+    }
+    
+    // Interest posted by the bank's accrual run; unlike deposit() it is not a customer operation
+    public synchronized Transaction creditInterest(double amount, String description) throws InvalidAmountException {
+        if (amount <= 0) {
+            throw new InvalidAmountException("Interest amount must be positive");
+        }
+        
+        balance += amount;
+        return addTransaction("INTEREST", amount, description);
     }
     
     // Private method to add transaction to history
-    private void addTransaction(String type, double amount, String description) {
+    private Transaction addTransaction(String type, double amount, String description) {
         String transactionId = generateTransactionId();
         Transaction transaction = new Transaction(transactionId, accountNumber, type, 
                                                 amount, balance, description);
@@ -136,6 +217,7 @@ public class Account {
             transactionHistory.remove(0);
         }
         transactionHistory.add(transaction);
+        return transaction;
     }
     
     // Generate unique transaction ID
@@ -145,41 +227,44 @@ public class Account {
     
     // Display account information
     public void displayAccountInfo() {
-        System.out.println("┌─────────────────────────────────────────────────────────┐");
-        System.out.println("│                   ACCOUNT INFORMATION                   │");
-        System.out.println("├─────────────────────────────────────────────────────────┤");
-        System.out.println("│ Account Number: " + String.format("%-35s", accountNumber) + " │");
-        System.out.println("│ Account Type:   " + String.format("%-35s", accountType) + " │");
-        System.out.println("│ Balance:        " + String.format("₹%-34.2f", balance) + " │");
-        System.out.println("│ Date Created:   " + String.format("%-35s", dateCreated.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"))) + " │");
-        System.out.println("│ Status:         " + String.format("%-35s", isActive ? "Active" : "Inactive") + " │");
-        System.out.println("├─────────────────────────────────────────────────────────┤");
-        System.out.println("│                  CUSTOMER INFORMATION                   │");
-        System.out.println("├─────────────────────────────────────────────────────────┤");
-        System.out.println("│ Name:           " + String.format("%-35s", customer.getName()) + " │");
-        System.out.println("│ Customer ID:    " + String.format("%-35s", customer.getCustomerId()) + " │");
-        System.out.println("│ Email:          " + String.format("%-35s", customer.getEmail()) + " │");
-        System.out.println("│ Phone:          " + String.format("%-35s", customer.getPhone()) + " │");
-        System.out.println("└─────────────────────────────────────────────────────────┘");
-    }
-    
-    // Display transaction history
+        TableWriter table = new TableWriter(51); // label and value, inside the 57-wide box
+        table.line("┌─────────────────────────────────────────────────────────┐");
+        table.line("│                   ACCOUNT INFORMATION                   │");
+        table.line("├─────────────────────────────────────────────────────────┤");
+        table.row().text("Account Number: " + accountNumber).end();
+        table.row().text("Account Type:   " + accountType).end();
+        table.row().text("Balance:        " + FxRateTable.format(getBalance(), currency)).end();
+        table.row().text("Date Created:   " + dateCreated.format(TableWriter.DATE)).end();
+        table.row().text("Status:         " + (isActive ? "Active" : "Inactive")).end();
+        table.line("├─────────────────────────────────────────────────────────┤");
+        table.line("│                  CUSTOMER INFORMATION                   │");
+        table.line("├─────────────────────────────────────────────────────────┤");
+        table.row().text("Name:           " + customer.getName()).end();
+        table.row().text("Customer ID:    " + customer.getCustomerId()).end();
+        table.row().text("Email:          " + customer.getEmail()).end();
+        table.row().text("Phone:          " + customer.getPhone()).end();
+        table.line("└─────────────────────────────────────────────────────────┘");
+        table.flush();
+    }
+    
+    // Display transaction history (rendered from a copy, so printing never holds the account lock)
     public void displayTransactionHistory() {
-        if (transactionHistory.isEmpty()) {
+        List<Transaction> history = getTransactionHistory();
+        if (history.isEmpty()) {
             System.out.println("No transactions found.");
             return;
         }
         
-        System.out.println("┌──────────────┬────────────┬────────────┬────────────┬─────────────────────┐");
-        System.out.println("│ Transaction  │    Type    │   Amount   │  Balance   │      Timestamp      │");
-        System.out.println("│      ID      │            │            │   After    │                     │");
-        System.out.println("├──────────────┼────────────┼────────────┼────────────┼─────────────────────┤");
-        
-        for (Transaction transaction : transactionHistory) {
-            transaction.displayTransaction();
+        TableWriter table = Transaction.newTable();
+        table.top();
+        table.line("│     Transaction     │     Type     │   Amount   │  Balance   │      Timestamp      │");
+        table.line("│         ID          │              │            │   After    │                     │");
+        table.separator();
+        for (Transaction transaction : history) {
+            transaction.appendTo(table);
         }
-        
-        System.out.println("└──────────────┴────────────┴────────────┴────────────┴─────────────────────┘");
+        table.bottom();
+        table.flush();
     }
     
     @Override
@@ -188,24 +273,30 @@ public class Account {
                 "accountNumber='" + accountNumber + '\'' +
                 ", customer=" + customer.getName() +
                 ", accountType='" + accountType + '\'' +
+                ", currency='" + currency + '\'' +
                 ", balance=" + balance +
                 ", dateCreated=" + dateCreated +
                 ", isActive=" + isActive +
                 '}';
     }
     
-    // Method to convert account to file string format
-    public String toFileString() {
-        return accountNumber + "," + password + "," + customer.getCustomerId() + "," + 
-               accountType + "," + balance + "," + dateCreated + "," + isActive;
+    // Method to convert account to file string format (currency only when not rupees,
+    // so existing files keep their seven fields)
+    public synchronized String toFileString() {
+        String line = accountNumber + "," + password + "," + customer.getCustomerId() + "," + 
+                      accountType + "," + balance + "," + dateCreated + "," + isActive;
+        return FxRateTable.BASE_CURRENCY.equals(currency) ? line : line + "," + currency;
     }
     
     // Static method to create account from file string (requires customer lookup)
     public static Account fromFileString(String fileString, Customer customer) {
         String[] parts = fileString.split(",");
-        if (parts.length == 7) {
-            Account account = new Account(parts[0], parts[1], customer, parts[3], 
-                                        Double.parseDouble(parts[4]));
+        if (parts.length == 7 || parts.length == 8) {
+            String currency = parts.length == 8 ? parts[7] : FxRateTable.BASE_CURRENCY;
+            Account account = new Account(parts[0], customer, parts[3], Double.parseDouble(parts[4]), currency);
+            
+            // Migrate plain text passwords from older files by hashing them on load
+            account.password = PasswordHasher.isHashed(parts[1]) ? parts[1] : PasswordHasher.hash(parts[1]);
             account.setDateCreated(LocalDate.parse(parts[5]));
             account.setActive(Boolean.parseBoolean(parts[6]));
             return account;
@@ -0,0 +1,92 @@
+/**
+ * AccountEvent class - one immutable fact in the event-sourced account model
+ * Every BankingService mutation is appended to the EventStore as one of these;
+ * folding an account's events in sequence order rebuilds its state at any point.
+ */
+public final class AccountEvent {
+    public enum Type {
+        OPENED,            // amount is the opening balance, reference the account type
+        DEPOSITED,
+        WITHDRAWN,
+        TRANSFERRED_OUT,   // reference is the recipient account
+        TRANSFERRED_IN,    // reference is the sending account
+        PASSWORD_CHANGED,
+        DEACTIVATED,
+        ACTIVATED,
+        DETAILS            // reference is the customer and account records; see BankingService.loadFromEvents
+    }
+
+    private final long sequence;
+    private final String accountNumber;
+    private final Type type;
+    private final double amount;
+    private final long timestamp; // epoch milliseconds
+    private final String reference;
+
+    // Constructor
+    public AccountEvent(long sequence, String accountNumber, Type type, double amount,
+                        long timestamp, String reference) {
+        this.sequence = sequence;
+        this.accountNumber = accountNumber;
+        this.type = type;
+        this.amount = amount;
+        this.timestamp = timestamp;
+        this.reference = reference == null ? "" : reference;
+    }
+
+    // Getters
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountEvent{" +
+                "sequence=" + sequence +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", type=" + type +
+                ", amount=" + amount +
+                ", timestamp=" + timestamp +
+                ", reference='" + reference + '\'' +
+                '}';
+    }
+
+    // Method to convert event to file string format
+    public String toFileString() {
+        return sequence + "," + accountNumber + "," + type + "," + amount + "," + timestamp + "," + reference;
+    }
+
+    // Static method to create event from file string; null for a malformed or torn line
+    public static AccountEvent fromFileString(String fileString) {
+        String[] parts = fileString.split(",", -1);
+        if (parts.length != 6) {
+            return null;
+        }
+        try {
+            return new AccountEvent(Long.parseLong(parts[0]), parts[1], Type.valueOf(parts[2]),
+                                    Double.parseDouble(parts[3]), Long.parseLong(parts[4]), parts[5]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
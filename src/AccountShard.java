@@ -0,0 +1,430 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * AccountShard class - one hash partition of the account space
+ * Owns its accounts, customers, ledger slice and event store, and changes them
+ * only on its own single-threaded executor, so no two shards ever share a lock.
+ * Methods documented "shard thread only" must run inside submit(); everything
+ * else is safe from any thread.
+ *
+ * Cross-shard transfers use two phases. prepareDebit reserves the amount on the
+ * source account (later withdrawals see the reduced available balance) and
+ * prepareCredit pins the destination (it cannot be deactivated). Once both are
+ * prepared, commitDebit and commitCredit apply the transfer and can no longer
+ * fail; otherwise abort releases whatever was prepared.
+ *
+ * Every change is checked, then journaled, then applied to the Account, so an
+ * event store failure leaves memory as the journal has it.
+ */
+public class AccountShard {
+    private final int id;
+    private final File directory; // null for an in-memory shard
+    private final ExecutorService executor;
+    private final EventStore eventStore;
+
+    // Written on the shard thread; concurrent maps so lookups need not hop threads
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Customer> customers = new ConcurrentHashMap<>();
+
+    // Shard thread only
+    private final List<Transaction> ledger = new ArrayList<>();
+    private final Map<Long, PreparedTransfer> prepared = new HashMap<>();
+    private final Map<String, Double> heldAmounts = new HashMap<>();
+    private final Map<String, Integer> pinnedAccounts = new HashMap<>();
+
+    // Constructor for an in-memory shard
+    public AccountShard(int id) {
+        this(id, null, new EventStore());
+    }
+
+    private AccountShard(int id, File directory, EventStore eventStore) {
+        this.id = id;
+        this.directory = directory;
+        this.eventStore = eventStore;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-shard-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open (or create) a shard persisted under directory: customers.txt, accounts.txt,
+     * transactions.txt and an events/ store whose history overrides saved balances
+     */
+    public static AccountShard open(int id, String directory) throws IOException {
+        File dir = new File(directory);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create shard directory " + directory);
+        }
+        AccountShard shard = new AccountShard(id, dir,
+                EventStore.open(new File(dir, "events").getPath(), 4, EventStore.DEFAULT_SNAPSHOT_INTERVAL, 4));
+        shard.load();
+        return shard;
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    // Account operations (shard thread only)
+
+    public Account createAccount(String accountNumber, Customer customer, String accountType,
+                                 double initialDeposit, String password) {
+        Account account = new Account(accountNumber, password, customer, accountType, initialDeposit);
+        eventStore.append(accountNumber, AccountEvent.Type.OPENED, initialDeposit, accountType);
+        customers.put(customer.getCustomerId(), customer);
+        accounts.put(accountNumber, account);
+        persistNewAccount(account);
+        if (initialDeposit > 0) {
+            List<Transaction> history = account.getTransactionHistory();
+            if (!history.isEmpty()) {
+                ledger.add(history.get(history.size() - 1));
+            }
+        }
+        return account;
+    }
+
+    // Take over an existing account, e.g. one migrated from a BankingService. Shards move
+    // the same amount on both legs of a transfer, so only rupee accounts are accepted.
+    public void addAccount(Account account) {
+        if (!FxRateTable.BASE_CURRENCY.equals(account.getCurrency())) {
+            throw new IllegalArgumentException("Account " + account.getAccountNumber() + " is held in "
+                                               + account.getCurrency() + "; shards hold only "
+                                               + FxRateTable.BASE_CURRENCY + " accounts");
+        }
+        eventStore.append(account.getAccountNumber(), AccountEvent.Type.OPENED, account.getBalance(),
+                          account.getAccountType());
+        if (!account.isActive()) {
+            eventStore.append(account.getAccountNumber(), AccountEvent.Type.DEACTIVATED, 0, null);
+        }
+        customers.put(account.getCustomer().getCustomerId(), account.getCustomer());
+        accounts.put(account.getAccountNumber(), account);
+        persistNewAccount(account);
+    }
+
+    public Account getAccount(String accountNumber) throws AccountNotFoundException {
+        Account account = accounts.get(accountNumber);
+        if (account == null) {
+            throw new AccountNotFoundException("Account not found", accountNumber);
+        }
+        return account;
+    }
+
+    public Transaction deposit(String accountNumber, double amount)
+            throws AccountNotFoundException, InvalidAmountException {
+        Account account = getAccount(accountNumber);
+        account.checkCredit(amount, "Deposit");
+        eventStore.append(accountNumber, AccountEvent.Type.DEPOSITED, amount, null);
+        Transaction transaction = account.deposit(amount);
+        ledger.add(transaction);
+        return transaction;
+    }
+
+    public Transaction withdraw(String accountNumber, double amount)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        Account account = getAccount(accountNumber);
+        account.checkDebit(amount, "Withdrawal");
+        checkAvailable(account, amount);
+        eventStore.append(accountNumber, AccountEvent.Type.WITHDRAWN, amount, null);
+        Transaction transaction = account.withdraw(amount);
+        ledger.add(transaction);
+        return transaction;
+    }
+
+    // Both accounts live on this shard, so the transfer is a single local step
+    public void transferLocal(String fromAccountNumber, String toAccountNumber, double amount)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        Account fromAccount = getAccount(fromAccountNumber);
+        Account toAccount = getAccount(toAccountNumber);
+        if (!toAccount.isActive()) {
+            throw new AccountInactiveException("Recipient account is inactive", toAccountNumber);
+        }
+        fromAccount.checkDebit(amount, "Transfer");
+        toAccount.checkCredit(amount, "Transfer");
+        checkAvailable(fromAccount, amount);
+
+        // Both events first; if the credit cannot be journaled, the debit is
+        // reversed in the store too and neither balance changes
+        eventStore.append(fromAccountNumber, AccountEvent.Type.TRANSFERRED_OUT, amount, toAccountNumber);
+        try {
+            eventStore.append(toAccountNumber, AccountEvent.Type.TRANSFERRED_IN, amount, fromAccountNumber);
+        } catch (RuntimeException e) {
+            eventStore.append(fromAccountNumber, AccountEvent.Type.TRANSFERRED_IN, amount, toAccountNumber);
+            throw e;
+        }
+        String transferReference = Transaction.newTransferReference();
+        ledger.add(fromAccount.transferOut(amount, toAccountNumber, transferReference));
+        ledger.add(toAccount.transferIn(amount, fromAccountNumber, transferReference));
+    }
+
+    public void setActive(String accountNumber, boolean active) throws AccountNotFoundException {
+        Account account = getAccount(accountNumber);
+        if (!active && pinnedAccounts.containsKey(accountNumber)) {
+            throw new IllegalStateException("Account " + accountNumber + " has a transfer in progress");
+        }
+        eventStore.append(accountNumber, active ? AccountEvent.Type.ACTIVATED : AccountEvent.Type.DEACTIVATED, 0, null);
+        account.setActive(active);
+    }
+
+    // Two-phase transfer (shard thread only); reference goes on the committed
+    // TRANSFERRED_OUT/IN event and is normally the other account's number, and
+    // transferReference links the TRANSFER_OUT and TRANSFER_IN legs
+
+    public void prepareDebit(long transferId, String accountNumber, String counterparty, String reference,
+                             String transferReference, double amount)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        Account account = getAccount(accountNumber);
+        if (amount <= 0) {
+            throw new InvalidAmountException("Withdrawal amount must be positive");
+        }
+        if (!account.isActive()) {
+            throw new AccountInactiveException("Account is inactive", accountNumber);
+        }
+        checkAvailable(account, amount);
+        heldAmounts.merge(accountNumber, amount, Double::sum);
+        pinnedAccounts.merge(accountNumber, 1, Integer::sum);
+        prepared.put(transferId, new PreparedTransfer(accountNumber, counterparty, reference, transferReference, amount,
+                                                      true));
+    }
+
+    public void prepareCredit(long transferId, String accountNumber, String counterparty, String reference,
+                              String transferReference, double amount)
+            throws AccountNotFoundException {
+        Account account = getAccount(accountNumber);
+        if (!account.isActive()) {
+            throw new AccountInactiveException("Recipient account is inactive", accountNumber);
+        }
+        pinnedAccounts.merge(accountNumber, 1, Integer::sum);
+        prepared.put(transferId, new PreparedTransfer(accountNumber, counterparty, reference, transferReference, amount,
+                                                      false));
+    }
+
+    // The event is journaled before the transfer is released, so a failed append
+    // leaves it prepared and the commit can be retried
+    public void commitDebit(long transferId) throws InsufficientBalanceException, InvalidAmountException {
+        PreparedTransfer transfer = preparedTransfer(transferId);
+        eventStore.append(transfer.accountNumber, AccountEvent.Type.TRANSFERRED_OUT, transfer.amount,
+                          transfer.reference);
+        release(transferId);
+        Account account = accounts.get(transfer.accountNumber);
+        ledger.add(account.transferOut(transfer.amount, transfer.counterparty, transfer.transferReference));
+    }
+
+    public void commitCredit(long transferId) throws InvalidAmountException {
+        PreparedTransfer transfer = preparedTransfer(transferId);
+        eventStore.append(transfer.accountNumber, AccountEvent.Type.TRANSFERRED_IN, transfer.amount,
+                          transfer.reference);
+        release(transferId);
+        Account account = accounts.get(transfer.accountNumber);
+        ledger.add(account.transferIn(transfer.amount, transfer.counterparty, transfer.transferReference));
+    }
+
+    // Forget a prepared transfer, if this shard prepared it at all
+    public void abort(long transferId) {
+        if (prepared.containsKey(transferId)) {
+            release(transferId);
+        }
+    }
+
+    private PreparedTransfer preparedTransfer(long transferId) {
+        PreparedTransfer transfer = prepared.get(transferId);
+        if (transfer == null) {
+            throw new IllegalStateException("Transfer " + transferId + " is not prepared on shard " + id);
+        }
+        return transfer;
+    }
+
+    private PreparedTransfer release(long transferId) {
+        PreparedTransfer transfer = preparedTransfer(transferId);
+        prepared.remove(transferId);
+        if (transfer.debit) {
+            heldAmounts.computeIfPresent(transfer.accountNumber,
+                    (k, held) -> held - transfer.amount > 1e-9 ? held - transfer.amount : null);
+        }
+        pinnedAccounts.computeIfPresent(transfer.accountNumber, (k, count) -> count > 1 ? count - 1 : null);
+        return transfer;
+    }
+
+    // Balance minus amounts reserved by prepared outgoing transfers
+    private void checkAvailable(Account account, double amount) throws InsufficientBalanceException {
+        double available = account.getBalance() - heldAmounts.getOrDefault(account.getAccountNumber(), 0.0);
+        if (available < amount) {
+            throw new InsufficientBalanceException("Insufficient balance. Available: " + available);
+        }
+    }
+
+    // Queries
+
+    public List<Account> getAccounts() {
+        return new ArrayList<>(accounts.values());
+    }
+
+    public List<Customer> getCustomers() {
+        return new ArrayList<>(customers.values());
+    }
+
+    // Shard thread only
+    public List<Transaction> getLedger() {
+        return new ArrayList<>(ledger);
+    }
+
+    // Shard thread only
+    public double getTotalBalance() {
+        double total = 0;
+        for (Account account : accounts.values()) {
+            total += account.getBalance();
+        }
+        return total;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    public EventStore getEventStore() {
+        return eventStore;
+    }
+
+    // Persistence
+
+    /**
+     * Write customers, accounts and the ledger slice to the shard directory (shard thread only)
+     */
+    public boolean save() {
+        if (directory == null) {
+            return true;
+        }
+        try {
+            writeLines(new File(directory, "customers.txt"), customers.values(), Customer::toFileString);
+            writeLines(new File(directory, "accounts.txt"), accounts.values(), Account::toFileString);
+            writeLines(new File(directory, "transactions.txt"), ledger, Transaction::toFileString);
+            eventStore.snapshotAll();
+            return true;
+        } catch (IOException e) {
+            System.err.println("❌ Error saving shard " + id + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Append a new account and its customer right away, so it survives until the next save();
+    // load() lets the last line of an account win and takes balances from the event store
+    private void persistNewAccount(Account account) {
+        if (directory == null) {
+            return;
+        }
+        try (BufferedWriter customersFile = new BufferedWriter(new FileWriter(new File(directory, "customers.txt"), true));
+             BufferedWriter accountsFile = new BufferedWriter(new FileWriter(new File(directory, "accounts.txt"), true))) {
+            customersFile.write(account.getCustomer().toFileString());
+            customersFile.newLine();
+            accountsFile.write(account.toFileString());
+            accountsFile.newLine();
+        } catch (IOException e) {
+            System.err.println("❌ Error saving new account " + account.getAccountNumber() + ": " + e.getMessage());
+        }
+    }
+
+    private <T> void writeLines(File file, Iterable<T> items, Function<T, String> format)
+            throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (T item : items) {
+                writer.write(format.apply(item));
+                writer.newLine();
+            }
+        }
+    }
+
+    // Runs before the executor sees any task, so it may touch shard-thread state
+    private void load() throws IOException {
+        for (String line : readLines(new File(directory, "customers.txt"))) {
+            Customer customer = Customer.fromFileString(line);
+            if (customer != null) {
+                customers.put(customer.getCustomerId(), customer);
+            }
+        }
+        for (String line : readLines(new File(directory, "accounts.txt"))) {
+            String[] parts = line.split(",");
+            Customer customer = parts.length >= 3 ? customers.get(parts[2]) : null;
+            Account account = customer == null ? null : Account.fromFileString(line, customer);
+            if (account != null) {
+                AccountState state = eventStore.getState(account.getAccountNumber());
+                if (state != null) {
+                    account.restoreState(state.getBalance(), state.isActive());
+                }
+                accounts.put(account.getAccountNumber(), account);
+            }
+        }
+        for (String line : readLines(new File(directory, "transactions.txt"))) {
+            Transaction transaction = Transaction.fromFileString(line);
+            if (transaction != null) {
+                ledger.add(transaction);
+            }
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Stop accepting work, finish queued tasks and close the event store
+     */
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        eventStore.close();
+    }
+
+    // One side of a prepared cross-shard transfer
+    private static final class PreparedTransfer {
+        private final String accountNumber;
+        private final String counterparty;
+        private final String reference;
+        private final String transferReference;
+        private final double amount;
+        private final boolean debit;
+
+        PreparedTransfer(String accountNumber, String counterparty, String reference, String transferReference,
+                         double amount, boolean debit) {
+            this.accountNumber = accountNumber;
+            this.counterparty = counterparty;
+            this.reference = reference;
+            this.transferReference = transferReference;
+            this.amount = amount;
+            this.debit = debit;
+        }
+    }
+}
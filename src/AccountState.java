@@ -0,0 +1,124 @@
+/**
+ * AccountState class - account state derived by folding AccountEvents
+ * Holds the balance, active flag, the sequence of the last applied event and
+ * the latest DETAILS record, so a store alone can rebuild its accounts.
+ * Not thread-safe on its own; EventStore guards each instance with its
+ * partition lock and only hands out copies.
+ */
+public class AccountState {
+    private final String accountNumber;
+    private double balance;
+    private boolean active;
+    private long version;     // sequence of the last applied event
+    private long eventCount;
+    private String details;   // reference of the last DETAILS event, null before one
+
+    // Constructor
+    public AccountState(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    /**
+     * Apply one event of this account
+     */
+    public void apply(AccountEvent event) {
+        switch (event.getType()) {
+            case OPENED:
+                balance = event.getAmount();
+                active = true;
+                break;
+            case DEPOSITED:
+            case TRANSFERRED_IN:
+                balance += event.getAmount();
+                break;
+            case WITHDRAWN:
+            case TRANSFERRED_OUT:
+                balance -= event.getAmount();
+                break;
+            case DEACTIVATED:
+                active = false;
+                break;
+            case ACTIVATED:
+                active = true;
+                break;
+            case DETAILS:
+                details = event.getReference();
+                break;
+            case PASSWORD_CHANGED:
+                break;
+        }
+        version = event.getSequence();
+        eventCount++;
+    }
+
+    public AccountState copy() {
+        AccountState copy = new AccountState(accountNumber);
+        copy.balance = balance;
+        copy.active = active;
+        copy.version = version;
+        copy.eventCount = eventCount;
+        copy.details = details;
+        return copy;
+    }
+
+    // Getters
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountState{" +
+                "accountNumber='" + accountNumber + '\'' +
+                ", balance=" + balance +
+                ", active=" + active +
+                ", version=" + version +
+                ", eventCount=" + eventCount +
+                '}';
+    }
+
+    // Method to convert state to snapshot file string format
+    public String toFileString() {
+        String line = accountNumber + "," + balance + "," + active + "," + version + "," + eventCount;
+        return details == null ? line : line + "," + details;
+    }
+
+    // Static method to create state from snapshot file string
+    public static AccountState fromFileString(String fileString) {
+        String[] parts = fileString.split(",");
+        if (parts.length != 5 && parts.length != 6) {
+            return null;
+        }
+        try {
+            AccountState state = new AccountState(parts[0]);
+            state.balance = Double.parseDouble(parts[1]);
+            state.active = Boolean.parseBoolean(parts[2]);
+            state.version = Long.parseLong(parts[3]);
+            state.eventCount = Long.parseLong(parts[4]);
+            state.details = parts.length == 6 ? parts[5] : null;
+            return state;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
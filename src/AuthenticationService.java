@@ -1,5 +1,5 @@
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * AuthenticationService class for handling user authentication
@@ -12,10 +12,13 @@ public class AuthenticationService {
     private static final int MAX_LOGIN_ATTEMPTS = 3;
     private static final long LOCKOUT_DURATION = 300000; // 5 minutes in milliseconds
     
+    private static final OperationMetrics LOGIN_METRICS = MetricsRegistry.operation("auth.login");
+    private static final OperationMetrics CHANGE_PASSWORD_METRICS = MetricsRegistry.operation("auth.changePassword");
+    
     public AuthenticationService(BankingService bankingService) {
         this.bankingService = bankingService;
-        this.loginAttempts = new HashMap<>();
-        this.lockedAccounts = new HashMap<>();
+        this.loginAttempts = new ConcurrentHashMap<>();
+        this.lockedAccounts = new ConcurrentHashMap<>();
     }
     
     /**
@@ -23,6 +26,32 @@ public class AuthenticationService {
      */
     public boolean login(String accountNumber, String password) throws InvalidCredentialsException, 
                                                                       AccountNotFoundException {
+        long start = LOGIN_METRICS.start();
+        LoginEvent event = new LoginEvent();
+        event.begin();
+        String outcome = "FAILURE";
+        int attempts = 0;
+        boolean success = false;
+        try {
+            success = attemptLogin(accountNumber, password);
+            outcome = success ? "SUCCESS" : "FAILURE";
+            return success;
+        } catch (AccountNotFoundException e) {
+            outcome = "NOT_FOUND";
+            throw e;
+        } catch (InvalidCredentialsException e) {
+            // Rejections of an already locked account carry no attempt count
+            attempts = e.getAttemptCount();
+            outcome = attempts == 0 ? "LOCKED" : attempts >= MAX_LOGIN_ATTEMPTS ? "LOCKOUT" : "FAILURE";
+            throw e;
+        } finally {
+            LOGIN_METRICS.record(start, success);
+            event.complete(accountNumber, outcome, attempts);
+        }
+    }
+    
+    private boolean attemptLogin(String accountNumber, String password) throws InvalidCredentialsException, 
+                                                                             AccountNotFoundException {
         // Check if account is locked
         if (isAccountLocked(accountNumber)) {
             long remainingTime = getRemainingLockTime(accountNumber);
@@ -48,8 +77,7 @@ public class AuthenticationService {
             
         } catch (InvalidCredentialsException e) {
             // Increment failed login attempts
-            int attempts = loginAttempts.getOrDefault(accountNumber, 0) + 1;
-            loginAttempts.put(accountNumber, attempts);
+            int attempts = loginAttempts.merge(accountNumber, 1, Integer::sum);
             
             if (attempts >= MAX_LOGIN_ATTEMPTS) {
                 // Lock account
@@ -71,16 +99,16 @@ public class AuthenticationService {
      * Check if account is currently locked
      */
     public boolean isAccountLocked(String accountNumber) {
-        if (!lockedAccounts.containsKey(accountNumber)) {
+        Long lockTime = lockedAccounts.get(accountNumber);
+        if (lockTime == null) {
             return false;
         }
         
-        long lockTime = lockedAccounts.get(accountNumber);
         long currentTime = System.currentTimeMillis();
         
         // Check if lockout period has expired
         if (currentTime - lockTime >= LOCKOUT_DURATION) {
-            lockedAccounts.remove(accountNumber);
+            lockedAccounts.remove(accountNumber, lockTime);
             return false;
         }
         
@@ -91,11 +119,11 @@ public class AuthenticationService {
      * Get remaining lock time in milliseconds
      */
     public long getRemainingLockTime(String accountNumber) {
-        if (!lockedAccounts.containsKey(accountNumber)) {
+        Long lockTime = lockedAccounts.get(accountNumber);
+        if (lockTime == null) {
             return 0;
         }
         
-        long lockTime = lockedAccounts.get(accountNumber);
         long currentTime = System.currentTimeMillis();
         long elapsed = currentTime - lockTime;
         
@@ -139,11 +167,22 @@ public class AuthenticationService {
      */
     public boolean changePassword(String accountNumber, String currentPassword, String newPassword) 
                                  throws AccountNotFoundException, InvalidCredentialsException {
+        long start = CHANGE_PASSWORD_METRICS.start();
+        boolean success = false;
+        try {
+            success = attemptChangePassword(accountNumber, currentPassword, newPassword);
+            return success;
+        } finally {
+            CHANGE_PASSWORD_METRICS.record(start, success);
+        }
+    }
+    
+    private boolean attemptChangePassword(String accountNumber, String currentPassword, String newPassword) 
+                                         throws AccountNotFoundException, InvalidCredentialsException {
         
         // Verify current password
         if (!bankingService.authenticateAccount(accountNumber, currentPassword)) {
-            int attempts = loginAttempts.getOrDefault(accountNumber, 0) + 1;
-            loginAttempts.put(accountNumber, attempts);
+            int attempts = loginAttempts.merge(accountNumber, 1, Integer::sum);
             
             throw new InvalidCredentialsException("Current password is incorrect", accountNumber, attempts);
         }
@@ -0,0 +1,473 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BackupStore class - incremental, deduplicated backups of the banking data files
+ * Each data file is cut into chunks of LINES_PER_CHUNK lines. A chunk is stored
+ * once, under the SHA-256 of its bytes (chunks/ab/abcd...), and a backup is just a
+ * manifest listing the chunks of customers.txt, accounts.txt and transactions.txt.
+ * Unchanged chunks are shared by every backup that contains them.
+ *
+ * The ledger only grows, so the full chunks of the last backup are remembered and
+ * the next backup serializes and hashes only the transactions after them: backing
+ * up the ledger costs time proportional to what is new. Customers and accounts are
+ * re-hashed each time, but only changed chunks are written. The sealed prefix is
+ * recorded in each manifest and read back from the newest one by a new store, so
+ * this holds across restarts and for the one-shot CLI too.
+ *
+ * Layout:
+ *   backups/chunks/ab/abcd...             chunk contents
+ *   backups/backup_20240101-120000-000.manifest
+ *     #backup,<epochMillis>
+ *     sealed,<transactions>,<lastTransactionId>   (leading ledger chunks the next backup reuses)
+ *     file,<name>,<lines>
+ *     chunk,<sha256>,<lines>,<bytes>     (chunks of the file above, in order)
+ *
+ * Usage: java BackupStore backup | list | verify <backup> | restore <backup|yyyy-MM-ddTHH:mm> <directory> | prune <keep>
+ */
+public class BackupStore {
+    private static final int LINES_PER_CHUNK = 1024;
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    public static final String CUSTOMERS = "customers.txt";
+    public static final String ACCOUNTS = "accounts.txt";
+    public static final String TRANSACTIONS = "transactions.txt";
+
+    private final File directory;
+    private final File chunkDirectory;
+
+    // Full ledger chunks of the last backup, reused while the ledger still starts with them
+    private final List<Chunk> sealedChunks = new ArrayList<>();
+    private int sealedTransactions;
+    private String sealedLastTransactionId;
+    private boolean sealedLoaded;
+
+    private long lastBytesWritten;
+    private int lastChunksWritten;
+    private long lastLinesHashed;
+
+    // Constructor
+    public BackupStore(String directory) {
+        this.directory = new File(directory);
+        this.chunkDirectory = new File(this.directory, "chunks");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java BackupStore backup | list | verify <backup> | "
+                               + "restore <backup|yyyy-MM-ddTHH:mm> <directory> | prune <keep>");
+            return;
+        }
+        BackupStore store = FileHandler.getBackupStore();
+        switch (args[0]) {
+            case "backup": {
+                Map<String, Customer> customers = FileHandler.loadCustomers();
+                Map<String, Account> accounts = FileHandler.loadAccounts(customers);
+                FileHandler.backupData(customers, accounts, FileHandler.loadTransactions());
+                break;
+            }
+            case "list":
+                for (String name : store.listBackups()) {
+                    System.out.println(name);
+                }
+                break;
+            case "verify": {
+                List<String> problems = store.verify(args[1]);
+                if (problems.isEmpty()) {
+                    System.out.println("✅ " + args[1] + " verified");
+                } else {
+                    problems.forEach(problem -> System.out.println("❌ " + problem));
+                }
+                break;
+            }
+            case "restore": {
+                String name = args[1].startsWith("backup_") ? args[1] : store.findBackupAt(LocalDateTime.parse(args[1]));
+                if (name == null) {
+                    System.out.println("❌ No backup at or before " + args[1]);
+                } else {
+                    store.restore(name, args[2]);
+                    System.out.println("✅ Restored " + name + " to " + args[2]);
+                }
+                break;
+            }
+            case "prune":
+                System.out.println("🗑️ Removed " + store.prune(Integer.parseInt(args[1])) + " backups");
+                break;
+            default:
+                System.out.println("❌ Unknown command: " + args[0]);
+        }
+    }
+
+    // Backup
+
+    /**
+     * Write a backup of the given data and return its name
+     */
+    public synchronized String backup(Collection<Customer> customers, Collection<Account> accounts,
+                                      List<Transaction> transactions) throws IOException {
+        lastBytesWritten = 0;
+        lastChunksWritten = 0;
+        lastLinesHashed = 0;
+        if (!sealedLoaded) {
+            loadSealedState();
+        }
+        Map<String, List<Chunk>> files = new LinkedHashMap<>();
+        files.put(CUSTOMERS, writeChunks(customers.stream().map(Customer::toFileString).iterator()));
+        files.put(ACCOUNTS, writeChunks(accounts.stream().map(Account::toFileString).iterator()));
+        files.put(TRANSACTIONS, backupLedger(transactions));
+
+        long now = System.currentTimeMillis();
+        String name = "backup_" + NAME_FORMAT.format(LocalDateTime.now());
+        File manifest = new File(directory, name + MANIFEST_SUFFIX);
+        for (int suffix = 1; manifest.exists(); suffix++) {
+            manifest = new File(directory, name + "-" + suffix + MANIFEST_SUFFIX);
+        }
+
+        StringBuilder content = new StringBuilder("#backup,").append(now).append('\n');
+        if (sealedTransactions > 0) {
+            content.append("sealed,").append(sealedTransactions).append(',').append(sealedLastTransactionId).append('\n');
+        }
+        for (Map.Entry<String, List<Chunk>> file : files.entrySet()) {
+            long lines = 0;
+            for (Chunk chunk : file.getValue()) {
+                lines += chunk.lines;
+            }
+            content.append("file,").append(file.getKey()).append(',').append(lines).append('\n');
+            for (Chunk chunk : file.getValue()) {
+                content.append(chunk.toFileString()).append('\n');
+            }
+        }
+        // The manifest goes last, so a backup never refers to a chunk that is not on disk
+        writeAtomically(manifest, content.toString().getBytes(StandardCharsets.UTF_8));
+        return manifest.getName().substring(0, manifest.getName().length() - MANIFEST_SUFFIX.length());
+    }
+
+    // Chunks of the ledger, reusing the sealed ones if the ledger still begins with them
+    private List<Chunk> backupLedger(List<Transaction> transactions) throws IOException {
+        boolean reusable = sealedTransactions > 0 && transactions.size() >= sealedTransactions
+                && transactions.get(sealedTransactions - 1).getTransactionId().equals(sealedLastTransactionId);
+        if (!reusable) {
+            sealedChunks.clear();
+            sealedTransactions = 0;
+            sealedLastTransactionId = null;
+        }
+
+        List<Transaction> tail = transactions.subList(sealedTransactions, transactions.size());
+        List<Chunk> newChunks = writeChunks(tail.stream().map(Transaction::toFileString).iterator());
+        List<Chunk> chunks = new ArrayList<>(sealedChunks);
+        chunks.addAll(newChunks);
+
+        // Only full chunks are sealed; a partial last chunk is cut again next time
+        for (Chunk chunk : newChunks) {
+            if (chunk.lines < LINES_PER_CHUNK) {
+                break;
+            }
+            sealedChunks.add(chunk);
+            sealedTransactions += chunk.lines;
+        }
+        sealedLastTransactionId = sealedTransactions == 0 ? null
+                : transactions.get(sealedTransactions - 1).getTransactionId();
+        return chunks;
+    }
+
+    // Seed the sealed prefix from the newest manifest; stays empty if its chunks are gone
+    private void loadSealedState() throws IOException {
+        sealedLoaded = true;
+        List<String> backups = listBackups();
+        if (backups.isEmpty()) {
+            return;
+        }
+        Manifest manifest = readManifest(backups.get(backups.size() - 1));
+        List<Chunk> ledger = manifest.files.get(TRANSACTIONS);
+        if (manifest.sealedTransactions == 0 || ledger == null) {
+            return;
+        }
+        List<Chunk> prefix = new ArrayList<>();
+        int lines = 0;
+        for (Chunk chunk : ledger) {
+            if (lines >= manifest.sealedTransactions) {
+                break;
+            }
+            if (!chunkFile(chunk.hash).exists()) {
+                return;
+            }
+            prefix.add(chunk);
+            lines += chunk.lines;
+        }
+        if (lines == manifest.sealedTransactions) {
+            sealedChunks.addAll(prefix);
+            sealedTransactions = lines;
+            sealedLastTransactionId = manifest.sealedLastTransactionId;
+        }
+    }
+
+    private List<Chunk> writeChunks(Iterator<String> lines) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int count = 0;
+        while (lines.hasNext()) {
+            buffer.write((lines.next() + "\n").getBytes(StandardCharsets.UTF_8));
+            lastLinesHashed++;
+            if (++count == LINES_PER_CHUNK) {
+                chunks.add(storeChunk(buffer.toByteArray(), count));
+                buffer.reset();
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            chunks.add(storeChunk(buffer.toByteArray(), count));
+        }
+        return chunks;
+    }
+
+    private Chunk storeChunk(byte[] content, int lines) throws IOException {
+        String hash = sha256(content);
+        File file = chunkFile(hash);
+        if (!file.exists()) {
+            writeAtomically(file, content);
+            lastBytesWritten += content.length;
+            lastChunksWritten++;
+        }
+        return new Chunk(hash, lines, content.length);
+    }
+
+    // Reading backups
+
+    /**
+     * Names of all backups, oldest first
+     */
+    public List<String> listBackups() {
+        String[] names = directory.list((dir, name) -> name.startsWith("backup_") && name.endsWith(MANIFEST_SUFFIX));
+        List<String> backups = new ArrayList<>();
+        if (names != null) {
+            Arrays.sort(names);
+            for (String name : names) {
+                backups.add(name.substring(0, name.length() - MANIFEST_SUFFIX.length()));
+            }
+        }
+        return backups;
+    }
+
+    /**
+     * Newest backup taken at or before the given time, or null
+     */
+    public String findBackupAt(LocalDateTime time) throws IOException {
+        long limit = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String found = null;
+        for (String name : listBackups()) {
+            if (readManifest(name).createdMillis <= limit) {
+                found = name;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Check that every chunk of a backup exists and still has its hash; returns the
+     * problems found (empty if the backup is intact)
+     */
+    public List<String> verify(String name) throws IOException {
+        List<String> problems = new ArrayList<>();
+        Manifest manifest = readManifest(name);
+        for (Map.Entry<String, List<Chunk>> file : manifest.files.entrySet()) {
+            for (Chunk chunk : file.getValue()) {
+                File chunkFile = chunkFile(chunk.hash);
+                if (!chunkFile.exists()) {
+                    problems.add(file.getKey() + ": missing chunk " + chunk.hash);
+                } else if (!sha256(Files.readAllBytes(chunkFile.toPath())).equals(chunk.hash)) {
+                    problems.add(file.getKey() + ": corrupt chunk " + chunk.hash);
+                }
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Rebuild the data files of a backup in targetDirectory, checking every chunk;
+     * the existing files are replaced only once a file has been rebuilt completely
+     */
+    public void restore(String name, String targetDirectory) throws IOException {
+        Manifest manifest = readManifest(name);
+        File target = new File(targetDirectory);
+        if (!target.exists() && !target.mkdirs()) {
+            throw new IOException("Cannot create directory " + target);
+        }
+        for (Map.Entry<String, List<Chunk>> file : manifest.files.entrySet()) {
+            File restored = new File(target, file.getKey());
+            File temp = new File(target, file.getKey() + ".restore");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                for (Chunk chunk : file.getValue()) {
+                    byte[] content = Files.readAllBytes(chunkFile(chunk.hash).toPath());
+                    if (!sha256(content).equals(chunk.hash)) {
+                        throw new IOException("Corrupt chunk " + chunk.hash + " in " + name);
+                    }
+                    out.write(content);
+                }
+            }
+            Files.move(temp.toPath(), restored.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Keep the newest backups and delete the chunks no remaining backup uses;
+     * returns the number of backups deleted
+     */
+    public synchronized int prune(int keep) throws IOException {
+        List<String> backups = listBackups();
+        int removed = 0;
+        for (int i = 0; i < backups.size() - keep; i++) {
+            Files.delete(new File(directory, backups.get(i) + MANIFEST_SUFFIX).toPath());
+            removed++;
+        }
+        if (removed == 0) {
+            return 0;
+        }
+
+        Set<String> referenced = new HashSet<>();
+        for (String name : listBackups()) {
+            for (List<Chunk> chunks : readManifest(name).files.values()) {
+                for (Chunk chunk : chunks) {
+                    referenced.add(chunk.hash);
+                }
+            }
+        }
+        File[] prefixes = chunkDirectory.listFiles(File::isDirectory);
+        if (prefixes != null) {
+            for (File prefix : prefixes) {
+                File[] chunks = prefix.listFiles();
+                if (chunks != null) {
+                    for (File chunk : chunks) {
+                        if (!referenced.contains(chunk.getName())) {
+                            Files.delete(chunk.toPath());
+                        }
+                    }
+                }
+            }
+        }
+        // Sealed ledger chunks always belong to the newest backup, which is never pruned
+        if (keep <= 0) {
+            sealedChunks.clear();
+            sealedTransactions = 0;
+            sealedLastTransactionId = null;
+        }
+        return removed;
+    }
+
+    // Bytes and chunks the last backup had to write (the rest was already stored)
+    public long getLastBytesWritten() {
+        return lastBytesWritten;
+    }
+
+    public int getLastChunksWritten() {
+        return lastChunksWritten;
+    }
+
+    // Lines the last backup serialized and hashed; the reused ledger prefix is not counted
+    public long getLastLinesHashed() {
+        return lastLinesHashed;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    private Manifest readManifest(String name) throws IOException {
+        File file = new File(directory, name + MANIFEST_SUFFIX);
+        if (!file.exists()) {
+            throw new IOException("Backup not found: " + name);
+        }
+        Manifest manifest = new Manifest();
+        List<Chunk> current = null;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            String[] parts = line.split(",");
+            if (parts[0].equals("#backup")) {
+                manifest.createdMillis = Long.parseLong(parts[1]);
+            } else if (parts[0].equals("sealed")) {
+                manifest.sealedTransactions = Integer.parseInt(parts[1]);
+                manifest.sealedLastTransactionId = parts[2];
+            } else if (parts[0].equals("file")) {
+                current = new ArrayList<>();
+                manifest.files.put(parts[1], current);
+            } else if (parts[0].equals("chunk") && current != null) {
+                current.add(new Chunk(parts[1], Integer.parseInt(parts[2]), Long.parseLong(parts[3])));
+            }
+        }
+        return manifest;
+    }
+
+    private File chunkFile(String hash) {
+        return new File(new File(chunkDirectory, hash.substring(0, 2)), hash);
+    }
+
+    private static void writeAtomically(File file, byte[] content) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(content);
+            out.getChannel().force(false);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // One stored chunk of a data file
+    private static final class Chunk {
+        private final String hash;
+        private final int lines;
+        private final long bytes;
+
+        Chunk(String hash, int lines, long bytes) {
+            this.hash = hash;
+            this.lines = lines;
+            this.bytes = bytes;
+        }
+
+        String toFileString() {
+            return "chunk," + hash + "," + lines + "," + bytes;
+        }
+    }
+
+    // Parsed backup manifest
+    private static final class Manifest {
+        private long createdMillis;
+        private int sealedTransactions;
+        private String sealedLastTransactionId;
+        private final Map<String, List<Chunk>> files = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,493 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BalanceIndex class - order statistics over account balances, kept current on every posting
+ *
+ * Subscribes to the event store's change stream and, for each balance-changing
+ * event, moves the account within its currency's ranking before the posting
+ * returns. A ranking is a log-linear histogram of balances (one bucket per
+ * paise below 16, then 16 buckets per power of two) whose buckets also hold
+ * their accounts, so a posting costs two map updates whatever the account
+ * count; most postings stay in their bucket and cost one.
+ *   - counts and percentiles walk the fixed ~1k bucket counters: constant time,
+ *   - range counts add whole buckets and scan the one partial bucket: exact,
+ *   - top-N sorts only the highest non-empty buckets until it has N accounts,
+ *   - percentiles report a bucket's midpoint: within about 3% of the true balance.
+ * A sorted index (skip list) made each posting pay a log(n) insert and delete
+ * at random places in memory, several times the cost of the posting itself.
+ *
+ * Postings to one account reach the index in order (the event store calls
+ * listeners under the account's partition lock), and the move is done in one
+ * ConcurrentHashMap.compute, so each account is always indexed at one balance
+ * once its posting returns. A query running alongside postings sees each of
+ * them either before or after the move, like any ConcurrentHashMap read, and
+ * top-N never lists an account twice.
+ *
+ * Balances in different currencies are ranked separately; queries without a
+ * currency are over rupee accounts.
+ *
+ * Usage: java BalanceIndex bench [accounts] [postings]
+ */
+public class BalanceIndex implements EventStore.Listener {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int SORT_RUNS = 5;
+    private static final int INDEX_RUNS = 2_000;
+    private static final Comparator<Position> BY_BALANCE_DESCENDING =
+            Comparator.comparingLong((Position position) -> position.paise).reversed()
+                      .thenComparing(position -> position.accountNumber);
+
+    private final BankingService bankingService;
+    private final EventStore eventStore;
+    private final Map<String, Position> positions = new ConcurrentHashMap<>();
+    private final Map<String, Ranking> rankings = new ConcurrentHashMap<>();
+
+    // Constructor - indexes every current balance, then follows the change stream
+    public BalanceIndex(BankingService bankingService) {
+        this.bankingService = bankingService;
+        this.eventStore = bankingService.getEventStore();
+
+        // Subscribe first so nothing is missed; the version check drops stale seeds
+        eventStore.addListener(this);
+        bankingService.streamAccounts().forEach(account -> {
+            AccountState state = eventStore.getState(account.getAccountNumber());
+            if (state != null) {
+                update(state);
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || !args[0].equals("bench")) {
+            System.out.println("Usage: java BalanceIndex bench [accounts] [postings]");
+            return;
+        }
+        bench(args.length > 1 ? Integer.parseInt(args[1]) : 200_000, args.length > 2 ? Integer.parseInt(args[2]) : 200_000);
+    }
+
+    // Change stream (called by appending threads under an event store partition lock)
+
+    @Override
+    public void onAppend(AccountEvent event) {
+        long delta;
+        switch (event.getType()) {
+            case DEPOSITED:
+            case TRANSFERRED_IN:
+                delta = Math.round(event.getAmount() * 100);
+                break;
+            case WITHDRAWN:
+            case TRANSFERRED_OUT:
+                delta = -Math.round(event.getAmount() * 100);
+                break;
+            case OPENED:
+                delta = 0;
+                break;
+            default:
+                return;
+        }
+        long sequence = event.getSequence();
+        boolean opened = event.getType() == AccountEvent.Type.OPENED;
+        positions.compute(event.getAccountNumber(), (accountNumber, old) -> {
+            if (old == null || opened) {
+                // The state already includes the event, and the partition lock is ours,
+                // so reading it cannot block
+                AccountState state = eventStore.getState(accountNumber);
+                return state == null ? old : place(accountNumber, old, state);
+            }
+            return old.version >= sequence ? old : place(accountNumber, old, old.paise + delta, sequence);
+        });
+    }
+
+    @Override
+    public void onClear() {
+        positions.clear();
+        rankings.clear();
+    }
+
+    private void update(AccountState state) {
+        positions.compute(state.getAccountNumber(), (accountNumber, old) -> place(accountNumber, old, state));
+    }
+
+    private Position place(String accountNumber, Position old, AccountState state) {
+        if (old != null && old.version >= state.getVersion()) {
+            return old;
+        }
+        return place(accountNumber, old, Math.round(state.getBalance() * 100), state.getVersion());
+    }
+
+    // Called inside positions.compute, so moves of one account never interleave
+    private Position place(String accountNumber, Position old, long paise, long version) {
+        if (old != null && old.paise == paise) {
+            return new Position(accountNumber, paise, old.ranking, version);
+        }
+        Ranking ranking = old != null ? old.ranking
+                                      : rankings.computeIfAbsent(currencyOf(accountNumber), currency -> new Ranking());
+        Position position = new Position(accountNumber, paise, ranking, version);
+        ranking.move(old, position);
+        return position;
+    }
+
+    private String currencyOf(String accountNumber) {
+        try {
+            return bankingService.getAccount(accountNumber).getCurrency();
+        } catch (AccountNotFoundException e) {
+            return FxRateTable.BASE_CURRENCY; // replaced by loadData since the event
+        }
+    }
+
+    public void close() {
+        eventStore.removeListener(this);
+    }
+
+    // Queries - never take account or event store locks
+
+    public List<Entry> top(int n) {
+        return top(n, FxRateTable.BASE_CURRENCY);
+    }
+
+    /**
+     * The n highest balances in the currency, highest first
+     */
+    public List<Entry> top(int n, String currency) {
+        Ranking ranking = rankings.get(currency);
+        if (ranking == null || n <= 0) {
+            return Collections.emptyList();
+        }
+        List<Entry> top = new ArrayList<>(Math.min(n, 1024));
+        List<Position> bucketPositions = new ArrayList<>();
+        for (int bucket = BUCKETS - 1; bucket >= 0 && top.size() < n; bucket--) {
+            if (ranking.counts.get(bucket) == 0) {
+                continue;
+            }
+            bucketPositions.clear();
+            for (Position position : ranking.buckets[bucket].values()) {
+                // Mid-move an account is briefly in two buckets; keep the one it is indexed at
+                Position current = positions.get(position.accountNumber);
+                if (current != null && current.paise == position.paise) {
+                    bucketPositions.add(position);
+                }
+            }
+            bucketPositions.sort(BY_BALANCE_DESCENDING);
+            for (int i = 0; i < bucketPositions.size() && top.size() < n; i++) {
+                top.add(new Entry(bucketPositions.get(i).paise, bucketPositions.get(i).accountNumber));
+            }
+        }
+        return top;
+    }
+
+    public long countAtLeast(double rupees) {
+        return countBetween(rupees, Double.POSITIVE_INFINITY, FxRateTable.BASE_CURRENCY);
+    }
+
+    /**
+     * Accounts in the currency with min <= balance < max
+     */
+    public long countBetween(double min, double max, String currency) {
+        Ranking ranking = rankings.get(currency);
+        if (ranking == null || !(min < max)) {
+            return 0;
+        }
+        long below = Double.isInfinite(max) ? ranking.size() : ranking.countBelow(toPaise(max));
+        return below - ranking.countBelow(toPaise(min));
+    }
+
+    public double percentile(double percent) {
+        return percentile(percent, FxRateTable.BASE_CURRENCY);
+    }
+
+    /**
+     * Approximate balance at the percentile (0-100) of the currency's accounts; 0 when there are none
+     */
+    public double percentile(double percent, String currency) {
+        Ranking ranking = rankings.get(currency);
+        long total = ranking == null ? 0 : ranking.size();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percent)) / 100.0 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += ranking.counts.get(bucket);
+            if (seen >= rank) {
+                long lower = bucketLower(bucket);
+                long upper = bucketLower(bucket + 1);
+                return (lower + (upper - lower - 1) / 2) / 100.0;
+            }
+        }
+        List<Entry> highest = top(1, currency); // buckets mid-update: fall back to the maximum
+        return highest.isEmpty() ? 0 : highest.get(0).getBalance();
+    }
+
+    public long size(String currency) {
+        Ranking ranking = rankings.get(currency);
+        return ranking == null ? 0 : ranking.size();
+    }
+
+    public List<String> getCurrencies() {
+        List<String> currencies = new ArrayList<>(rankings.keySet());
+        Collections.sort(currencies);
+        return currencies;
+    }
+
+    // Buckets: values below 16 paise have one each; above, 16 per power of two
+
+    private static int bucketOf(long paise) {
+        if (paise < SUB_BUCKETS) {
+            return (int) Math.max(0, paise);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(paise);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((paise >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long bucketLower(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket >= BUCKETS) {
+            return Long.MAX_VALUE;
+        }
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - SUB_BUCKET_BITS);
+    }
+
+    private static long toPaise(double rupees) {
+        return rupees >= Long.MAX_VALUE / 100.0 ? Long.MAX_VALUE : (long) Math.ceil(rupees * 100 - 1e-6);
+    }
+
+    // Reports
+
+    public void displaySummary(int topN) {
+        for (String currency : getCurrencies()) {
+            String symbol = FxRateTable.symbol(currency);
+            System.out.println("┌─────────────────────────────────────────────────────────┐");
+            System.out.printf("│ %-55s │%n", "BALANCES IN " + currency + " (" + size(currency) + " accounts)");
+            System.out.println("├─────────────────────────────────────────────────────────┤");
+            System.out.printf("│ %-55s │%n", String.format("p50 %s%.2f   p90 %s%.2f   p99 %s%.2f",
+                    symbol, percentile(50, currency), symbol, percentile(90, currency), symbol, percentile(99, currency)));
+            double lower = 0;
+            for (double upper = 1_000; upper <= 1e10; upper *= 10) {
+                long count = countBetween(lower, upper, currency);
+                if (count > 0) {
+                    System.out.printf("│   %-20s %-32d │%n", String.format("< %s%,.0f", symbol, upper), count);
+                }
+                lower = upper;
+            }
+            System.out.println("├─────────────┬───────────────────────────────────────────┤");
+            for (Entry entry : top(topN, currency)) {
+                System.out.printf("│ %-11s │ %-41s │%n", entry.accountNumber,
+                                  String.format("%s%,.2f", symbol, entry.getBalance()));
+            }
+            System.out.println("└─────────────┴───────────────────────────────────────────┘");
+        }
+    }
+
+    /**
+     * Index against sorting getAllAccounts() for the same queries, and the cost
+     * the index adds to each deposit
+     */
+    private static void bench(int accountCount, int postings) throws Exception {
+        MetricsRegistry.setEnabled(false);
+        // Built from one precomputed hash; createAccount would run PBKDF2 per account
+        String passwordHash = PasswordHasher.hash("bench123");
+        Random random = new Random(42);
+        Map<String, Customer> customers = new HashMap<>();
+        Map<String, Account> accounts = new HashMap<>();
+        String[] numbers = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            Customer customer = new Customer(String.format("CUST%06d", 1001 + i), "Bench " + i,
+                                             "bench@example.com", "0000000000", "Bench St");
+            customers.put(customer.getCustomerId(), customer);
+            numbers[i] = String.format("ACC%06d", 1001 + i);
+            // Log-uniform balances from ₹1 to ₹1Cr
+            double balance = Math.floor(Math.pow(10, random.nextDouble() * 7) * 100) / 100;
+            Account account = Account.fromFileString(numbers[i] + "," + passwordHash + "," + customer.getCustomerId()
+                    + ",SAVINGS," + balance + "," + LocalDate.now() + ",true", customer);
+            accounts.put(account.getAccountNumber(), account);
+        }
+        BankingService service = new BankingService();
+        service.loadData(customers, accounts, new ArrayList<>());
+
+        System.out.printf("%,d accounts%n", accountCount);
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            LatencyHistogram without = deposit(service, numbers, postings, random);
+            BalanceIndex index = new BalanceIndex(service);
+            LatencyHistogram with = deposit(service, numbers, postings, random);
+
+            // Sorting is slow enough to time a few runs; index queries are averaged over many
+            long[] sortNanos = new long[3];
+            long checksum = 0;
+            for (int query = 0; query < SORT_RUNS; query++) {
+                long start = System.nanoTime();
+                List<Account> sorted = service.getAllAccounts();
+                sorted.sort((a, b) -> Double.compare(b.getBalance(), a.getBalance()));
+                checksum += sorted.subList(0, 100).size();
+                sortNanos[0] += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                checksum += service.getAllAccounts().stream().filter(a -> a.getBalance() >= 1_000_000).count();
+                sortNanos[1] += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                checksum += (long) sortedPercentile(service, 99);
+                sortNanos[2] += System.nanoTime() - start;
+            }
+            long[] indexNanos = new long[3];
+            for (int query = 0; query < INDEX_RUNS; query++) {
+                long start = System.nanoTime();
+                checksum += index.top(100).size();
+                indexNanos[0] += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                checksum += index.countAtLeast(1_000_000);
+                indexNanos[1] += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                checksum += (long) index.percentile(99);
+                indexNanos[2] += System.nanoTime() - start;
+            }
+            if (round == 1) {
+                String[] labels = {"top 100", "count >= ₹10L", "p99 balance"};
+                for (int i = 0; i < labels.length; i++) {
+                    System.out.printf("  %-14s sort/scan %9.1f µs   index %7.1f µs%n", labels[i],
+                                      sortNanos[i] / SORT_RUNS / 1000.0, indexNanos[i] / INDEX_RUNS / 1000.0);
+                }
+                System.out.printf("  deposit        p50 %5.2f -> %5.2f µs   p99 %5.2f -> %5.2f µs%n",
+                                  without.getValueAtPercentile(50) / 1000.0, with.getValueAtPercentile(50) / 1000.0,
+                                  without.getValueAtPercentile(99) / 1000.0, with.getValueAtPercentile(99) / 1000.0);
+                System.out.printf("  check: exact p99 ₹%.2f, index ₹%.2f (%d)%n", sortedPercentile(service, 99),
+                                  index.percentile(99), checksum % 10);
+            }
+            index.close();
+        }
+    }
+
+    private static LatencyHistogram deposit(BankingService service, String[] numbers, int postings, Random random)
+            throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < postings; i++) {
+            String accountNumber = numbers[random.nextInt(numbers.length)];
+            long start = System.nanoTime();
+            service.deposit(accountNumber, 1 + random.nextInt(5000));
+            histogram.record(System.nanoTime() - start);
+        }
+        return histogram;
+    }
+
+    private static double sortedPercentile(BankingService service, double percent) {
+        double[] balances = service.getAllAccounts().stream().mapToDouble(Account::getBalance).toArray();
+        Arrays.sort(balances);
+        return balances[(int) Math.ceil(percent / 100 * balances.length) - 1];
+    }
+
+    /**
+     * Ranking class - one currency's histogram, each bucket with its accounts
+     */
+    private static final class Ranking {
+        private final Map<String, Position>[] buckets;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder size = new LongAdder();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Ranking() {
+            buckets = new Map[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new ConcurrentHashMap<>();
+            }
+        }
+
+        // Add the new position before dropping the old one, so the account is never missing
+        void move(Position old, Position position) {
+            int to = bucketOf(position.paise);
+            buckets[to].put(position.accountNumber, position);
+            if (old == null) {
+                counts.incrementAndGet(to);
+                size.increment();
+                return;
+            }
+            int from = bucketOf(old.paise);
+            if (from != to) {
+                counts.incrementAndGet(to);
+                counts.decrementAndGet(from);
+                buckets[from].remove(old.accountNumber, old);
+            }
+        }
+
+        long size() {
+            return size.sum();
+        }
+
+        // Accounts below paise: whole buckets from the counts, the partial one by scanning it
+        long countBelow(long paise) {
+            if (paise <= 0) {
+                return 0;
+            }
+            int bucket = bucketOf(paise);
+            long count = 0;
+            for (int i = 0; i < bucket; i++) {
+                count += counts.get(i);
+            }
+            if (bucketLower(bucket) < paise) {
+                for (Position position : buckets[bucket].values()) {
+                    if (position.paise < paise) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    // Where an account is indexed, and the event sequence it reflects
+    private static final class Position {
+        private final String accountNumber;
+        private final long paise;
+        private final Ranking ranking;
+        private final long version;
+
+        Position(String accountNumber, long paise, Ranking ranking, long version) {
+            this.accountNumber = accountNumber;
+            this.paise = paise;
+            this.ranking = ranking;
+            this.version = version;
+        }
+    }
+
+    /**
+     * One indexed balance
+     */
+    public static final class Entry {
+        private final long paise;
+        private final String accountNumber;
+
+        Entry(long paise, String accountNumber) {
+            this.paise = paise;
+            this.accountNumber = accountNumber;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public double getBalance() {
+            return paise / 100.0;
+        }
+
+        @Override
+        public String toString() {
+            return accountNumber + "=" + getBalance();
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.Scanner;
 import java.util.List;
 
@@ -7,14 +8,44 @@ import java.util.List;
  */
 public class BankingApp {
     private static BankingService bankingService;
+    private static ReportingReadModel readModel;
+    private static BalanceIndex balanceIndex;
     private static AuthenticationService authService;
+    private static SessionManager sessionManager;
     private static Scanner scanner;
     private static String currentLoggedInAccount = null;
+    private static String currentSessionToken = null;
+    private static final int ACCOUNTS_PAGE_SIZE = 20;
     
     public static void main(String[] args) {
         // Initialize services
-        bankingService = new BankingService();
+        try {
+            bankingService = BankingService.open();
+        } catch (IOException e) {
+            System.out.println("❌ Event store not opened, changes are kept only until exit: " + e.getMessage());
+            bankingService = new BankingService();
+        }
+        try {
+            bankingService.setFxRates(FxRateTable.open());
+        } catch (IOException e) {
+            System.out.println("❌ FX rates not loaded, only rupee transfers available: " + e.getMessage());
+        }
+        try {
+            bankingService.setVelocityMonitor(VelocityMonitor.open());
+        } catch (IOException e) {
+            System.out.println("❌ Velocity rules not loaded, using the default limits: " + e.getMessage());
+            bankingService.setVelocityMonitor(VelocityMonitor.withDefaultRules());
+        }
+        try {
+            bankingService.setIdempotencyCache(IdempotencyCache.open());
+        } catch (IOException e) {
+            System.out.println("❌ Idempotency journal not opened, retries are only recognised until exit: "
+                               + e.getMessage());
+        }
+        readModel = new ReportingReadModel(bankingService);
+        balanceIndex = new BalanceIndex(bankingService);
         authService = new AuthenticationService(bankingService);
+        sessionManager = new SessionManager(authService);
         scanner = new Scanner(System.in);
         
         // Display welcome message
@@ -24,6 +55,10 @@ public class BankingApp {
         boolean running = true;
         while (running) {
             try {
+                if (currentLoggedInAccount != null) {
+                    checkSession();
+                }
+                
                 if (currentLoggedInAccount == null) {
                     // Show main menu for non-authenticated users
                     displayMainMenu();
@@ -43,6 +78,11 @@ public class BankingApp {
         }
         
         scanner.close();
+        try {
+            bankingService.getIdempotencyCache().close(); // writes the queued keys
+        } catch (IOException e) {
+            System.out.println("❌ Could not close the idempotency journal: " + e.getMessage());
+        }
         System.out.println("Thank you for using our Banking System!");
     }
     
@@ -66,7 +106,8 @@ public class BankingApp {
         System.out.println("│ 3. View All Accounts (Demo)                            │");
         System.out.println("│ 4. Banking Statistics                                   │");
         System.out.println("│ 5. Security Status                                      │");
-        System.out.println("│ 6. Exit                                                 │");
+        System.out.println("│ 6. Performance Metrics                                  │");
+        System.out.println("│ 7. Exit                                                 │");
         System.out.println("└─────────────────────────────────────────────────────────┘");
     }
     
@@ -78,7 +119,7 @@ public class BankingApp {
             System.out.println("├─────────────────────────────────────────────────────────┤");
             System.out.printf("│ Welcome, %-43s │%n", account.getCustomer().getName());
             System.out.printf("│ Account: %-43s │%n", currentLoggedInAccount);
-            System.out.printf("│ Balance: ₹%-42.2f │%n", account.getBalance());
+            System.out.printf("│ Balance: %-43s │%n", FxRateTable.format(account.getBalance(), account.getCurrency()));
             System.out.println("├─────────────────────────────────────────────────────────┤");
             System.out.println("│ 1. View Account Details                                 │");
             System.out.println("│ 2. Deposit Money                                        │");
@@ -112,6 +153,9 @@ public class BankingApp {
                 viewSecurityStatus();
                 break;
             case 6:
+                viewPerformanceMetrics();
+                break;
+            case 7:
                 return false; // Exit application
             default:
                 System.out.println("❌ Invalid choice! Please try again.");
@@ -207,10 +251,9 @@ public class BankingApp {
             String accountNumber = getStringInput("Enter account number: ");
             String password = getStringInput("Enter password: ");
             
-            if (authService.login(accountNumber, password)) {
-                currentLoggedInAccount = accountNumber;
-                System.out.println("✅ Login successful! Welcome back!");
-            }
+            currentSessionToken = sessionManager.login(accountNumber, password);
+            currentLoggedInAccount = accountNumber;
+            System.out.println("✅ Login successful! Welcome back!");
             
         } catch (InvalidCredentialsException | AccountNotFoundException e) {
             System.out.println("❌ " + e.getMessage());
@@ -234,15 +277,16 @@ public class BankingApp {
         System.out.println("└─────────────────────────────────────────────────────────┘");
         
         try {
-            double amount = getDoubleInput("Enter deposit amount: ₹");
+            String symbol = currentSymbol();
+            double amount = getDoubleInput("Enter deposit amount: " + symbol);
             double balanceBefore = bankingService.getBalance(currentLoggedInAccount);
             
             bankingService.deposit(currentLoggedInAccount, amount);
             double balanceAfter = bankingService.getBalance(currentLoggedInAccount);
             
             System.out.println("✅ Deposit successful!");
-            System.out.printf("💰 Previous Balance: ₹%.2f%n", balanceBefore);
-            System.out.printf("💰 New Balance: ₹%.2f%n", balanceAfter);
+            System.out.printf("💰 Previous Balance: %s%.2f%n", symbol, balanceBefore);
+            System.out.printf("💰 New Balance: %s%.2f%n", symbol, balanceAfter);
             
         } catch (AccountNotFoundException | InvalidAmountException e) {
             System.out.println("❌ " + e.getMessage());
@@ -256,16 +300,17 @@ public class BankingApp {
         System.out.println("└─────────────────────────────────────────────────────────┘");
         
         try {
+            String symbol = currentSymbol();
             double currentBalance = bankingService.getBalance(currentLoggedInAccount);
-            System.out.printf("💰 Available Balance: ₹%.2f%n", currentBalance);
+            System.out.printf("💰 Available Balance: %s%.2f%n", symbol, currentBalance);
             
-            double amount = getDoubleInput("Enter withdrawal amount: ₹");
+            double amount = getDoubleInput("Enter withdrawal amount: " + symbol);
             
             bankingService.withdraw(currentLoggedInAccount, amount);
             double newBalance = bankingService.getBalance(currentLoggedInAccount);
             
             System.out.println("✅ Withdrawal successful!");
-            System.out.printf("💰 New Balance: ₹%.2f%n", newBalance);
+            System.out.printf("💰 New Balance: %s%.2f%n", symbol, newBalance);
             
         } catch (AccountNotFoundException | InsufficientBalanceException | InvalidAmountException e) {
             System.out.println("❌ " + e.getMessage());
@@ -279,15 +324,22 @@ public class BankingApp {
         System.out.println("└─────────────────────────────────────────────────────────┘");
         
         try {
+            Account account = bankingService.getAccount(currentLoggedInAccount);
+            String symbol = FxRateTable.symbol(account.getCurrency());
             double currentBalance = bankingService.getBalance(currentLoggedInAccount);
-            System.out.printf("💰 Available Balance: ₹%.2f%n", currentBalance);
+            System.out.printf("💰 Available Balance: %s%.2f%n", symbol, currentBalance);
             
             String toAccount = getStringInput("Enter recipient account number: ");
-            double amount = getDoubleInput("Enter transfer amount: ₹");
+            double amount = getDoubleInput("Enter transfer amount: " + symbol);
             
             // Verify recipient account exists
             Account recipientAccount = bankingService.getAccount(toAccount);
             System.out.println("📋 Recipient: " + recipientAccount.getCustomer().getName());
+            if (!recipientAccount.getCurrency().equals(account.getCurrency())) {
+                double received = bankingService.getFxRates().getSnapshot()
+                        .convert(amount, account.getCurrency(), recipientAccount.getCurrency());
+                System.out.println("💱 Recipient receives about " + FxRateTable.format(received, recipientAccount.getCurrency()));
+            }
             
             String confirm = getStringInput("Confirm transfer? (yes/no): ");
             if (!confirm.toLowerCase().startsWith("y")) {
@@ -299,7 +351,7 @@ public class BankingApp {
             double newBalance = bankingService.getBalance(currentLoggedInAccount);
             
             System.out.println("✅ Transfer successful!");
-            System.out.printf("💰 New Balance: ₹%.2f%n", newBalance);
+            System.out.printf("💰 New Balance: %s%.2f%n", symbol, newBalance);
             
         } catch (AccountNotFoundException | InsufficientBalanceException | InvalidAmountException e) {
             System.out.println("❌ " + e.getMessage());
@@ -335,6 +387,9 @@ public class BankingApp {
             }
             
             if (authService.changePassword(currentLoggedInAccount, currentPassword, newPassword)) {
+                // End every existing session for this account and start a fresh one
+                sessionManager.invalidateAccountSessions(currentLoggedInAccount);
+                currentSessionToken = sessionManager.login(currentLoggedInAccount, newPassword);
                 System.out.println("✅ Password changed successfully!");
             }
             
@@ -346,25 +401,50 @@ public class BankingApp {
     // Logout
     private static void logout() {
         System.out.println("👋 Logging out... Thank you for banking with us!");
+        sessionManager.logout(currentSessionToken);
+        currentSessionToken = null;
         currentLoggedInAccount = null;
     }
     
+    // Session check - drops back to the main menu once the session has expired
+    private static void checkSession() {
+        try {
+            currentLoggedInAccount = sessionManager.validateSession(currentSessionToken);
+        } catch (InvalidCredentialsException e) {
+            System.out.println("⏰ " + e.getMessage() + ". Please login again.");
+            currentSessionToken = null;
+            currentLoggedInAccount = null;
+        }
+    }
+    
     // View All Accounts (Demo feature)
     private static void viewAllAccounts() {
         System.out.println("\n📋 ALL ACCOUNTS (Demo View)");
-        bankingService.displayAllAccounts();
+        readModel.displayAllAccounts(ACCOUNTS_PAGE_SIZE,
+                () -> !getStringInput("Press Enter for the next page, or q to stop: ").equalsIgnoreCase("q"));
     }
     
     // View Banking Statistics
     private static void viewBankingStatistics() {
         System.out.println("\n📊 BANKING STATISTICS");
-        bankingService.displayBankingStatistics();
+        readModel.displayBankingStatistics();
+        balanceIndex.displaySummary(5);
     }
     
     // View Security Status
     private static void viewSecurityStatus() {
         System.out.println("\n🔒 SECURITY STATUS");
         authService.displaySecurityStatus();
+        VelocityMonitor monitor = bankingService.getVelocityMonitor();
+        if (monitor != null) {
+            monitor.displayReport();
+        }
+    }
+    
+    // View Performance Metrics
+    private static void viewPerformanceMetrics() {
+        System.out.println("\n⏱️  PERFORMANCE METRICS");
+        MetricsRegistry.displayReport();
     }
     
     // Input Helper Methods
@@ -385,6 +465,11 @@ public class BankingApp {
         }
     }
     
+    // Currency symbol of the logged-in account
+    private static String currentSymbol() throws AccountNotFoundException {
+        return FxRateTable.symbol(bankingService.getAccount(currentLoggedInAccount).getCurrency());
+    }
+    
     private static double getDoubleInput(String prompt) {
         while (true) {
             try {
@@ -0,0 +1,304 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BankingLoadClient - bundled load client for BankingServer
+ *
+ * Usage:
+ *   java BankingLoadClient load [workers] [seconds] [accounts] [port]
+ *       creates accounts, logs them in, then drives a mix of balance, deposit,
+ *       withdraw, transfer and history requests and reports throughput
+ *   java BankingLoadClient idle [connections] [holdSeconds] [port]
+ *       opens many keep-alive connections, leaves them idle and reports how
+ *       much server heap and how many server threads they cost
+ */
+public class BankingLoadClient {
+    private static final int DEFAULT_PORT = 8080;
+    private static final Pattern NUMBER_FIELD = Pattern.compile("\"(\\w+)\":(-?[0-9.]+)");
+    private static final Pattern STRING_FIELD = Pattern.compile("\"(\\w+)\":\"([^\"]*)\"");
+    private static final long SIGNUP_RETRY_MILLIS = 500;
+
+    // Status buckets reported at the end of a load run
+    private static final int OK = 0;
+    private static final int CLIENT_ERROR = 1;
+    private static final int RATE_LIMITED = 2;
+    private static final int SERVER_ERROR = 3;
+    private static final int IO_ERROR = 4;
+
+    private final String baseUrl;
+    private final HttpClient client;
+
+    public BankingLoadClient(int port) {
+        this.baseUrl = "http://127.0.0.1:" + port;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "load";
+        if ("idle".equals(mode)) {
+            int connections = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+            int holdSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+            int port = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PORT;
+            new BankingLoadClient(port).runIdle(connections, holdSeconds, port);
+        } else {
+            int workers = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+            int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+            int accounts = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+            int port = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_PORT;
+            new BankingLoadClient(port).runLoad(workers, seconds, accounts);
+        }
+    }
+
+    /**
+     * Closed-loop load: each worker sends its next request as soon as the last returns
+     */
+    public void runLoad(int workers, int seconds, int accountCount) throws Exception {
+        System.out.println("Creating and logging in " + accountCount + " accounts...");
+        String[] accounts = new String[accountCount];
+        String[] tokens = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = field(createAccount("Load Customer " + i), "accountNumber");
+            tokens[i] = field(post("/login", null, "accountNumber", accounts[i], "password", "loadtest1"), "token");
+        }
+
+        AtomicLongArray outcomes = new AtomicLongArray(5);
+        long[][] latencies = new long[workers][];
+        ExecutorService executor = BankingServer.newRequestExecutor();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        System.out.println("Running " + workers + " workers for " + seconds + "s...");
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            final int worker = w;
+            futures.add(executor.submit(() -> {
+                long[] samples = new long[1 << 16];
+                int count = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    int index = random.nextInt(accounts.length);
+                    long start = System.nanoTime();
+                    int outcome = randomOperation(random, index, accounts, tokens);
+                    long elapsed = System.nanoTime() - start;
+                    outcomes.incrementAndGet(outcome);
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = elapsed;
+                }
+                latencies[worker] = Arrays.copyOf(samples, count);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        long total = 0;
+        for (long[] samples : latencies) {
+            total += samples.length;
+        }
+        long[] all = new long[(int) total];
+        int offset = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 0, all, offset, samples.length);
+            offset += samples.length;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("Requests: %d  (%.0f req/s)%n", total, total / (double) seconds);
+        System.out.printf("OK: %d  4xx: %d  rate limited: %d  5xx: %d  I/O errors: %d%n",
+                outcomes.get(OK), outcomes.get(CLIENT_ERROR), outcomes.get(RATE_LIMITED),
+                outcomes.get(SERVER_ERROR), outcomes.get(IO_ERROR));
+        if (all.length > 0) {
+            System.out.printf("Latency ms  p50: %.3f  p99: %.3f  max: %.3f%n",
+                    all[(int) (all.length * 0.50)] / 1e6, all[(int) (all.length * 0.99)] / 1e6,
+                    all[all.length - 1] / 1e6);
+        }
+    }
+
+    private int randomOperation(ThreadLocalRandom random, int index, String[] accounts, String[] tokens) {
+        String token = tokens[index];
+        try {
+            int roll = random.nextInt(100);
+            HttpResponse<String> response;
+            if (roll < 40) {
+                response = send("GET", "/balance", token);
+            } else if (roll < 60) {
+                response = send("POST", "/deposit", token, "amount", "10");
+            } else if (roll < 75) {
+                response = send("POST", "/withdraw", token, "amount", "10");
+            } else if (roll < 90) {
+                String to = accounts[(index + 1 + random.nextInt(accounts.length - 1)) % accounts.length];
+                response = send("POST", "/transfer", token, "to", to, "amount", "5");
+            } else {
+                response = send("GET", "/history", token);
+            }
+            int status = response.statusCode();
+            if (status < 300) {
+                return OK;
+            } else if (status == 429) {
+                return RATE_LIMITED;
+            } else if (status < 500) {
+                return CLIENT_ERROR;
+            }
+            return SERVER_ERROR;
+        } catch (IOException | InterruptedException e) {
+            return IO_ERROR;
+        }
+    }
+
+    /**
+     * Park many idle keep-alive connections on the server and measure their cost
+     */
+    public void runIdle(int connections, int holdSeconds, int port) throws Exception {
+        String before = get("/stats");
+        System.out.println("Server before: " + before);
+
+        List<Socket> sockets = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                Socket socket = new Socket("127.0.0.1", port);
+                OutputStream out = socket.getOutputStream();
+                out.write(("GET /stats HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: keep-alive\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                readResponse(new BufferedInputStream(socket.getInputStream()));
+                sockets.add(socket);
+            }
+
+            System.out.println("Holding " + sockets.size() + " idle connections for " + holdSeconds + "s...");
+            Thread.sleep(TimeUnit.SECONDS.toMillis(holdSeconds));
+            System.gc();
+
+            String after = get("/stats");
+            System.out.println("Server after:  " + after);
+
+            double heapDelta = number(after, "usedHeapBytes") - number(before, "usedHeapBytes");
+            double threadDelta = number(after, "liveThreads") - number(before, "liveThreads");
+            System.out.printf("Idle connections: %d  heap delta: %.1f KB (%.0f bytes/connection)  thread delta: %.0f%n",
+                    sockets.size(), heapDelta / 1024, heapDelta / sockets.size(), threadDelta);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    // Reads one HTTP/1.1 response with a Content-Length body, leaving the connection open
+    private static void readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream headers = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed by server");
+            }
+            headers.write(b);
+            matched = (b == '\r' || b == '\n') ? matched + 1 : 0;
+        }
+        Matcher length = Pattern.compile("(?i)content-length:\\s*(\\d+)")
+                .matcher(headers.toString(StandardCharsets.US_ASCII));
+        int remaining = length.find() ? Integer.parseInt(length.group(1)) : 0;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    break;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    // HTTP helpers
+
+    private String get(String path) throws IOException, InterruptedException {
+        return send("GET", path, null).body();
+    }
+
+    // Sign-ups are rate-limited per client address, so wait for the bucket to refill on a 429
+    private String createAccount(String name) throws IOException, InterruptedException {
+        while (true) {
+            HttpResponse<String> response = send("POST", "/accounts", null, "name", name, "type", "SAVINGS",
+                                                 "initialDeposit", "100000", "password", "loadtest1");
+            if (response.statusCode() != 429) {
+                if (response.statusCode() >= 300) {
+                    throw new IOException("/accounts failed: " + response.statusCode() + " " + response.body());
+                }
+                return response.body();
+            }
+            Thread.sleep(SIGNUP_RETRY_MILLIS);
+        }
+    }
+
+    private String post(String path, String token, String... params) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", path, token, params);
+        if (response.statusCode() >= 300) {
+            throw new IOException(path + " failed: " + response.statusCode() + " " + response.body());
+        }
+        return response.body();
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String... params)
+            throws IOException, InterruptedException {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i + 1 < params.length; i += 2) {
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(URLEncoder.encode(params[i], StandardCharsets.UTF_8)).append('=')
+                .append(URLEncoder.encode(params[i + 1], StandardCharsets.UTF_8));
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, "GET".equals(method) ? HttpRequest.BodyPublishers.noBody()
+                                                     : HttpRequest.BodyPublishers.ofString(form.toString()));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String field(String json, String name) {
+        Matcher matcher = STRING_FIELD.matcher(json);
+        while (matcher.find()) {
+            if (matcher.group(1).equals(name)) {
+                return matcher.group(2);
+            }
+        }
+        return null;
+    }
+
+    private static double number(String json, String name) {
+        Matcher matcher = NUMBER_FIELD.matcher(json);
+        while (matcher.find()) {
+            if (matcher.group(1).equals(name)) {
+                return Double.parseDouble(matcher.group(2));
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,453 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BankingServer - local HTTP front end for the banking services
+ * Exposes login, balance, deposit, withdraw, transfer and history as small
+ * JSON endpoints. Each request runs on its own virtual thread when the JDK
+ * supports them (21+), otherwise on a bounded platform thread pool. Idle
+ * keep-alive connections are parked in the server's selector and hold no thread.
+ *
+ * Usage: java BankingServer [port]
+ *
+ *   POST /accounts  name, email, phone, address, type, initialDeposit, password[, currency]
+ *                   (rate-limited per client address and globally: each one runs PBKDF2)
+ *   POST /login     accountNumber, password     -> {"token": "..."}
+ *   GET  /balance   (Authorization: Bearer t)   -> {"accountNumber": "...", "balance": 0.0}
+ *   POST /deposit   amount
+ *   POST /withdraw  amount
+ *   POST /transfer  to, amount
+ *                   (deposit, withdraw and transfer take an optional Idempotency-Key
+ *                   header; a repeat of a completed request is answered without posting again)
+ *   GET  /history
+ *   POST /logout
+ *   GET  /stats     server heap, threads and session counts, plus totals from the
+ *                   reporting read model and how far it trails the write side
+ *   GET  /balances  [top, min, currency]: the top balances, the count at or above
+ *                   min and p50/p90/p99, from the balance index (no full sort)
+ *   GET  /metrics   per-operation call counts and p50/p99/p999/max latency
+ *   GET  /velocity  velocity monitor counters, rules and the most recent flags
+ *
+ * While running, the metrics are also appended to data/metrics.csv every minute.
+ */
+public class BankingServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int FALLBACK_POOL_SIZE = 200;
+    private static final String METRICS_FILE = "data/metrics.csv";
+    private static final long METRICS_DUMP_SECONDS = 60;
+
+    private final BankingService bankingService;
+    private final RateLimitedBankingService limitedService;
+    private final SessionManager sessionManager;
+    private final ReportingReadModel readModel;
+    private final BalanceIndex balanceIndex;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public BankingServer(BankingService bankingService, int port) throws IOException {
+        AuthenticationService authService = new AuthenticationService(bankingService);
+        this.bankingService = bankingService;
+        this.limitedService = new RateLimitedBankingService(bankingService, authService);
+        this.sessionManager = new SessionManager(authService);
+        this.readModel = new ReportingReadModel(bankingService);
+        this.balanceIndex = new BalanceIndex(bankingService);
+        this.executor = newRequestExecutor();
+
+        // Bound to loopback only: this front end is for local clients
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(executor);
+        server.createContext("/accounts", this::handleCreateAccount);
+        server.createContext("/login", this::handleLogin);
+        server.createContext("/logout", this::handleLogout);
+        server.createContext("/balance", this::handleBalance);
+        server.createContext("/deposit", this::handleDeposit);
+        server.createContext("/withdraw", this::handleWithdraw);
+        server.createContext("/transfer", this::handleTransfer);
+        server.createContext("/history", this::handleHistory);
+        server.createContext("/stats", this::handleStats);
+        server.createContext("/balances", this::handleBalances);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/velocity", this::handleVelocity);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        BankingService service = BankingService.open();
+        service.setFxRates(FxRateTable.open());
+        service.setVelocityMonitor(VelocityMonitor.open());
+        service.setIdempotencyCache(IdempotencyCache.open());
+        BankingServer bankingServer = new BankingServer(service, port);
+        bankingServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(bankingServer::stop)); // writes the queued idempotency keys
+        MetricsRegistry.startPeriodicDump(METRICS_FILE, METRICS_DUMP_SECONDS);
+        System.out.println("🏦 Banking server listening on http://127.0.0.1:" + bankingServer.getPort());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        readModel.close();
+        balanceIndex.close();
+        try {
+            bankingService.getIdempotencyCache().close();
+        } catch (IOException e) {
+            System.err.println("❌ Could not close the idempotency journal: " + e.getMessage());
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    /**
+     * One virtual thread per request where available, looked up reflectively
+     * so the code still compiles and runs on JDK 17
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(FALLBACK_POOL_SIZE);
+        }
+    }
+
+    // Request handlers
+
+    private void handleCreateAccount(HttpExchange exchange) throws IOException {
+        handle(exchange, "POST", () -> {
+            String client = exchange.getRemoteAddress().getAddress().getHostAddress();
+            Map<String, String> params = parameters(exchange);
+            String password = required(params, "password");
+            if (password.length() < 6) {
+                throw new IllegalArgumentException("Password must be at least 6 characters long");
+            }
+            String accountType = "CURRENT".equalsIgnoreCase(params.get("type")) ? "CURRENT" : "SAVINGS";
+            double initialDeposit = number(params, "initialDeposit", 0);
+            String accountNumber = limitedService.createAccount(client, required(params, "name"),
+                    params.getOrDefault("email", ""), params.getOrDefault("phone", ""),
+                    params.getOrDefault("address", ""), accountType, initialDeposit, password,
+                    params.getOrDefault("currency", FxRateTable.BASE_CURRENCY).toUpperCase(Locale.ROOT));
+            return "{\"accountNumber\":" + quote(accountNumber) + "}";
+        });
+    }
+
+    private void handleLogin(HttpExchange exchange) throws IOException {
+        handle(exchange, "POST", () -> {
+            Map<String, String> params = parameters(exchange);
+            String accountNumber = required(params, "accountNumber");
+            limitedService.getLoginLimiter().acquire(accountNumber);
+            String token = sessionManager.login(accountNumber, required(params, "password"));
+            return "{\"token\":" + quote(token) + "}";
+        });
+    }
+
+    private void handleLogout(HttpExchange exchange) throws IOException {
+        handle(exchange, "POST", () -> {
+            sessionManager.logout(bearerToken(exchange));
+            return "{\"status\":\"logged out\"}";
+        });
+    }
+
+    private void handleBalance(HttpExchange exchange) throws IOException {
+        handle(exchange, "GET", () -> {
+            String accountNumber = authenticate(exchange);
+            return balanceJson(accountNumber, limitedService.getBalance(accountNumber));
+        });
+    }
+
+    private void handleDeposit(HttpExchange exchange) throws IOException {
+        handle(exchange, "POST", () -> {
+            String accountNumber = authenticate(exchange);
+            limitedService.deposit(accountNumber, amount(parameters(exchange)), idempotencyKey(exchange));
+            return balanceJson(accountNumber, bankingService.getBalance(accountNumber));
+        });
+    }
+
+    private void handleWithdraw(HttpExchange exchange) throws IOException {
+        handle(exchange, "POST", () -> {
+            String accountNumber = authenticate(exchange);
+            limitedService.withdraw(accountNumber, amount(parameters(exchange)), idempotencyKey(exchange));
+            return balanceJson(accountNumber, bankingService.getBalance(accountNumber));
+        });
+    }
+
+    private void handleTransfer(HttpExchange exchange) throws IOException {
+        handle(exchange, "POST", () -> {
+            String accountNumber = authenticate(exchange);
+            Map<String, String> params = parameters(exchange);
+            limitedService.transfer(accountNumber, required(params, "to"), amount(params), idempotencyKey(exchange));
+            return balanceJson(accountNumber, bankingService.getBalance(accountNumber));
+        });
+    }
+
+    private void handleHistory(HttpExchange exchange) throws IOException {
+        handle(exchange, "GET", () -> {
+            String accountNumber = authenticate(exchange);
+            List<Transaction> transactions = limitedService.getTransactionHistory(accountNumber);
+
+            StringBuilder json = new StringBuilder("{\"accountNumber\":").append(quote(accountNumber))
+                    .append(",\"transactions\":[");
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"id\":").append(quote(transaction.getTransactionId()))
+                    .append(",\"type\":").append(quote(transaction.getTransactionType()))
+                    .append(",\"amount\":").append(transaction.getAmount())
+                    .append(",\"balanceAfter\":").append(transaction.getBalanceAfter())
+                    .append(",\"timestamp\":").append(quote(transaction.getTimestamp().toString()))
+                    .append('}');
+            }
+            return json.append("]}").toString();
+        });
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        handle(exchange, "GET", () -> {
+            Runtime runtime = Runtime.getRuntime();
+            long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+            ReportingReadModel.Statistics stats = readModel.getStatistics();
+            return "{\"usedHeapBytes\":" + usedHeap +
+                   ",\"liveThreads\":" + ManagementFactory.getThreadMXBean().getThreadCount() +
+                   ",\"activeSessions\":" + sessionManager.getActiveSessionCount() +
+                   ",\"accounts\":" + stats.getTotalAccounts() +
+                   ",\"activeAccounts\":" + stats.getActiveAccounts() +
+                   ",\"totalBalance\":" + stats.getTotalBalance() +
+                   ",\"readModelSequence\":" + stats.getAppliedSequence() +
+                   ",\"readModelPendingEvents\":" + readModel.getPendingEvents() +
+                   ",\"readModelStalenessMillis\":" + readModel.getStalenessMillis() + "}";
+        });
+    }
+
+    private void handleBalances(HttpExchange exchange) throws IOException {
+        handle(exchange, "GET", () -> {
+            Map<String, String> params = parameters(exchange);
+            int top = Math.min(1000, Integer.parseInt(params.getOrDefault("top", "10")));
+            double min = number(params, "min", 0);
+            String currency = params.getOrDefault("currency", FxRateTable.BASE_CURRENCY).toUpperCase(Locale.ROOT);
+            StringBuilder json = new StringBuilder("{\"currency\":").append(quote(currency))
+                    .append(",\"accounts\":").append(balanceIndex.size(currency))
+                    .append(",\"atLeastMin\":").append(balanceIndex.countBetween(min, Double.POSITIVE_INFINITY, currency))
+                    .append(",\"p50\":").append(balanceIndex.percentile(50, currency))
+                    .append(",\"p90\":").append(balanceIndex.percentile(90, currency))
+                    .append(",\"p99\":").append(balanceIndex.percentile(99, currency))
+                    .append(",\"top\":[");
+            List<BalanceIndex.Entry> entries = balanceIndex.top(top, currency);
+            for (int i = 0; i < entries.size(); i++) {
+                json.append(i == 0 ? "" : ",").append(balanceJson(entries.get(i).getAccountNumber(),
+                                                                  entries.get(i).getBalance()));
+            }
+            return json.append("]}").toString();
+        });
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        handle(exchange, "GET", MetricsRegistry::toJson);
+    }
+
+    private void handleVelocity(HttpExchange exchange) throws IOException {
+        handle(exchange, "GET", () -> {
+            VelocityMonitor monitor = bankingService.getVelocityMonitor();
+            if (monitor == null) {
+                return "{\"enabled\":false}";
+            }
+            StringBuilder json = new StringBuilder("{\"enabled\":true")
+                    .append(",\"checked\":").append(monitor.getCheckedCount())
+                    .append(",\"flagged\":").append(monitor.getFlaggedCount())
+                    .append(",\"blocked\":").append(monitor.getBlockedCount())
+                    .append(",\"trackedAccounts\":").append(monitor.getTrackedAccountCount())
+                    .append(",\"rules\":[");
+            List<VelocityMonitor.Rule> rules = monitor.getRules();
+            for (int i = 0; i < rules.size(); i++) {
+                json.append(i == 0 ? "" : ",").append(quote(rules.get(i).getAction() + " over " + rules.get(i)));
+            }
+            json.append("],\"recentFlags\":[");
+            List<String> flags = monitor.getRecentFlags();
+            for (int i = 0; i < flags.size(); i++) {
+                json.append(i == 0 ? "" : ",").append(quote(flags.get(i)));
+            }
+            return json.append("]}").toString();
+        });
+    }
+
+    // Request plumbing
+
+    private interface Action {
+        String run() throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, String method, Action action) throws IOException {
+        int status = 200;
+        String body;
+        if (!method.equals(exchange.getRequestMethod())) {
+            status = 405;
+            body = error("Use " + method);
+        } else {
+            try {
+                body = action.run();
+            } catch (InvalidCredentialsException e) {
+                status = 401;
+                body = error(e.getMessage());
+            } catch (AccountNotFoundException e) {
+                status = 404;
+                body = error(e.getMessage());
+            } catch (InsufficientBalanceException | AccountInactiveException e) {
+                status = 409;
+                body = error(e.getMessage());
+            } catch (InvalidAmountException | IllegalArgumentException e) {
+                status = 400;
+                body = error(e.getMessage());
+            } catch (VelocityLimitExceededException e) {
+                status = 403;
+                body = error(e.getMessage());
+            } catch (RateLimitExceededException e) {
+                status = 429;
+                body = error(e.getMessage());
+            } catch (Exception e) {
+                status = 500;
+                body = error("Internal error: " + e.getMessage());
+            }
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String authenticate(HttpExchange exchange) throws InvalidCredentialsException {
+        return sessionManager.validateSession(bearerToken(exchange));
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            return header.substring(7).trim();
+        }
+        return null;
+    }
+
+    private static String idempotencyKey(HttpExchange exchange) {
+        return exchange.getRequestHeaders().getFirst("Idempotency-Key");
+    }
+
+    // Query string and form body parameters; body values win
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseInto(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            parseInto(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseInto(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                           URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static double amount(Map<String, String> params) {
+        required(params, "amount");
+        return number(params, "amount", 0);
+    }
+
+    // A finite number, or defaultValue when the parameter is absent; NaN and Infinity are rejected
+    private static double number(Map<String, String> params, String name, double defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            number = Double.NaN;
+        }
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+        return number;
+    }
+
+    private static String balanceJson(String accountNumber, double balance) {
+        return "{\"accountNumber\":" + quote(accountNumber) + ",\"balance\":" + balance + "}";
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
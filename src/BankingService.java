@@ -1,60 +1,173 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * BankingService class - Core business logic using Collections Framework
  * Demonstrates HashMap, ArrayList, and various collection operations
+ * Safe for concurrent use: accounts and customers live in ConcurrentHashMaps,
+ * each Account guards its own balance, and the global ledger has its own lock.
+ * Every mutation is also appended to an EventStore while the account's lock is
+ * held, so the store's per-account event order matches the balance updates.
+ * The event is appended after the change is validated and before it is applied
+ * (or the change is undone when the append fails), so a failed write never
+ * leaves a change in memory that the store does not have.
  */
 public class BankingService {
-    // HashMap to store accounts with account number as key
-    private HashMap<String, Account> accounts;
+    // ConcurrentHashMap to store accounts with account number as key
+    private Map<String, Account> accounts;
     
-    // HashMap to store customers with customer ID as key
-    private HashMap<String, Customer> customers;
+    // ConcurrentHashMap to store customers with customer ID as key
+    private Map<String, Customer> customers;
     
-    // ArrayList to store all transactions across all accounts
+    // ArrayList to store all transactions across all accounts (guarded by itself)
     private ArrayList<Transaction> allTransactions;
     
+    // Account numbers and customer IDs in order, for cursor pages over the maps above;
+    // a key is added after its map entry, so every key in these sets can be looked up
+    private NavigableSet<String> accountNumbers;
+    private NavigableSet<String> customerIds;
+    
+    // Largest page the paged listings return, and how much of the ledger one lock hold scans
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int LEDGER_SCAN_CHUNK = 4096;
+    
     // Counter for generating unique account numbers
-    private static int accountCounter = 1000;
-    private static int customerCounter = 1000;
+    private static final AtomicInteger accountCounter = new AtomicInteger(1000);
+    private static final AtomicInteger customerCounter = new AtomicInteger(1000);
+    
+    // Per-operation call counts and latencies (see MetricsRegistry)
+    private static final OperationMetrics CREATE_ACCOUNT_METRICS = MetricsRegistry.operation("banking.createAccount");
+    private static final OperationMetrics AUTHENTICATE_METRICS = MetricsRegistry.operation("banking.authenticate");
+    private static final OperationMetrics DEPOSIT_METRICS = MetricsRegistry.operation("banking.deposit");
+    private static final OperationMetrics WITHDRAW_METRICS = MetricsRegistry.operation("banking.withdraw");
+    private static final OperationMetrics TRANSFER_METRICS = MetricsRegistry.operation("banking.transfer");
+    private static final OperationMetrics BALANCE_METRICS = MetricsRegistry.operation("banking.getBalance");
+    private static final OperationMetrics HISTORY_METRICS = MetricsRegistry.operation("banking.getHistory");
+    private static final OperationMetrics CHANGE_PASSWORD_METRICS = MetricsRegistry.operation("banking.changePassword");
+    
+    // Recently verified credentials, so repeat logins skip the slow password hash
+    private CredentialCache credentialCache;
+    
+    // Append-only event history every account's state can be rebuilt from
+    private EventStore eventStore;
+    
+    // Postings by client idempotency key, so a retried request is not posted twice; in memory
+    // unless replaced (BankingApp and BankingServer journal it to data/idempotency.log)
+    private IdempotencyCache idempotencyCache;
+    
+    // Optional sliding-window limits on withdrawals and transfers (null: no checks)
+    private volatile VelocityMonitor velocityMonitor;
+    
+    // Exchange rates for transfers between accounts in different currencies
+    private volatile FxRateTable fxRates;
+    
+    // Where BankingApp and BankingServer keep their event store
+    public static final String DEFAULT_EVENT_DIRECTORY = "data/events";
     
     // Constructor
     public BankingService() {
-        this.accounts = new HashMap<>();
-        this.customers = new HashMap<>();
+        this(new EventStore());
+    }
+    
+    // Constructor with a (possibly recovered) event store; sample data only for an empty store
+    public BankingService(EventStore eventStore) {
+        this.accounts = new ConcurrentHashMap<>();
+        this.customers = new ConcurrentHashMap<>();
         this.allTransactions = new ArrayList<>();
-        initializeSampleData();
+        this.accountNumbers = new ConcurrentSkipListSet<>();
+        this.customerIds = new ConcurrentSkipListSet<>();
+        this.credentialCache = new CredentialCache();
+        this.eventStore = eventStore;
+        this.idempotencyCache = new IdempotencyCache();
+        this.fxRates = new FxRateTable();
+        if (eventStore.getAccountCount() == 0) {
+            initializeSampleData();
+        }
+    }
+    
+    /**
+     * Service on a persistent event store in the given directory: a new store gets
+     * the sample data, an existing one is rebuilt with loadFromEvents
+     */
+    public static BankingService open(String eventDirectory) throws IOException {
+        EventStore store = EventStore.open(eventDirectory);
+        boolean existing = store.getAccountCount() > 0;
+        BankingService service = new BankingService(store);
+        if (existing) {
+            service.loadFromEvents();
+        }
+        return service;
+    }
+    
+    public static BankingService open() throws IOException {
+        return open(DEFAULT_EVENT_DIRECTORY);
     }
     
     // Account Management Methods
     public String createAccount(String customerName, String email, String phone, String address,
                               String accountType, double initialDeposit, String password) 
                               throws InvalidAmountException {
-        
-        if (initialDeposit < 0) {
-            throw new InvalidAmountException("Initial deposit cannot be negative", initialDeposit);
-        }
-        
-        // Create customer
-        String customerId = generateCustomerId();
-        Customer customer = new Customer(customerId, customerName, email, phone, address);
-        customers.put(customerId, customer);
-        
-        // Create account
-        String accountNumber = generateAccountNumber();
-        Account account = new Account(accountNumber, password, customer, accountType, initialDeposit);
-        accounts.put(accountNumber, account);
-        
-        // Add initial transaction to global list
-        if (initialDeposit > 0) {
-            List<Transaction> accountTransactions = account.getTransactionHistory();
-            if (!accountTransactions.isEmpty()) {
-                allTransactions.add(accountTransactions.get(accountTransactions.size() - 1));
+        return createAccount(customerName, email, phone, address, accountType, initialDeposit, password,
+                             FxRateTable.BASE_CURRENCY);
+    }
+    
+    // Open an account held in the given currency, which must be in the FX rate table
+    public String createAccount(String customerName, String email, String phone, String address,
+                              String accountType, double initialDeposit, String password, String currency) 
+                              throws InvalidAmountException {
+        long start = CREATE_ACCOUNT_METRICS.start();
+        boolean success = false;
+        try {
+            if (initialDeposit < 0) {
+                throw new InvalidAmountException("Initial deposit cannot be negative", initialDeposit);
             }
+            if (!fxRates.getSnapshot().supports(currency)) {
+                throw new IllegalArgumentException("Unsupported currency: " + currency);
+            }
+            
+            // Create customer
+            String customerId = generateCustomerId();
+            Customer customer = new Customer(customerId, customerName, email, phone, address);
+            customers.put(customerId, customer);
+            customerIds.add(customerId);
+            
+            // Create account; holding its lock while publishing keeps every other
+            // event of the account behind OPENED, and OPENED behind the map entry
+            String accountNumber = generateAccountNumber();
+            Account account = new Account(accountNumber, password, customer, accountType, initialDeposit, currency);
+            synchronized (account) {
+                accounts.put(accountNumber, account);
+                accountNumbers.add(accountNumber);
+                try {
+                    eventStore.append(accountNumber, AccountEvent.Type.OPENED, initialDeposit, accountType);
+                    appendDetails(account);
+                } catch (RuntimeException e) {
+                    forget(account);
+                    throw e;
+                }
+            }
+            
+            // Add initial transaction to global list
+            if (initialDeposit > 0) {
+                List<Transaction> accountTransactions = account.getTransactionHistory();
+                if (!accountTransactions.isEmpty()) {
+                    recordTransaction(accountTransactions.get(accountTransactions.size() - 1));
+                }
+            }
+            
+            success = true;
+            return accountNumber;
+        } finally {
+            CREATE_ACCOUNT_METRICS.record(start, success);
         }
-        
-        return accountNumber;
     }
     
     public Account getAccount(String accountNumber) throws AccountNotFoundException {
@@ -67,78 +180,353 @@ public class BankingService {
     
     public boolean authenticateAccount(String accountNumber, String password) 
                                      throws AccountNotFoundException, InvalidCredentialsException {
-        Account account = getAccount(accountNumber);
-        if (!account.authenticate(password)) {
-            throw new InvalidCredentialsException("Invalid password", accountNumber);
+        long start = AUTHENTICATE_METRICS.start();
+        boolean success = false;
+        try {
+            Account account = getAccount(accountNumber);
+            if (!credentialCache.isVerified(accountNumber, account.getPassword(), password)) {
+                if (!account.authenticate(password)) {
+                    throw new InvalidCredentialsException("Invalid password", accountNumber);
+                }
+                credentialCache.recordVerified(accountNumber, account.getPassword(), password);
+            }
+            success = true;
+            return true;
+        } finally {
+            AUTHENTICATE_METRICS.record(start, success);
         }
-        return true;
+    }
+    
+    public CredentialCache getCredentialCache() {
+        return credentialCache;
+    }
+    
+    public IdempotencyCache getIdempotencyCache() {
+        return idempotencyCache;
+    }
+    
+    // Replace the default in-memory cache, e.g. with one journaled to disk
+    public void setIdempotencyCache(IdempotencyCache idempotencyCache) {
+        this.idempotencyCache = idempotencyCache;
+    }
+    
+    public VelocityMonitor getVelocityMonitor() {
+        return velocityMonitor;
+    }
+    
+    public void setVelocityMonitor(VelocityMonitor velocityMonitor) {
+        this.velocityMonitor = velocityMonitor;
+    }
+    
+    // Velocity rules are written in rupees, so postings in other currencies are converted first
+    private double inBaseCurrency(Account account, double amount) {
+        return fxRates.getSnapshot().convert(amount, account.getCurrency(), FxRateTable.BASE_CURRENCY);
+    }
+    
+    public FxRateTable getFxRates() {
+        return fxRates;
+    }
+    
+    public void setFxRates(FxRateTable fxRates) {
+        this.fxRates = fxRates;
     }
     
     // Transaction Methods
     public void deposit(String accountNumber, double amount) 
                        throws AccountNotFoundException, InvalidAmountException {
-        Account account = getAccount(accountNumber);
-        account.deposit(amount);
-        
-        // Add transaction to global list
-        List<Transaction> transactions = account.getTransactionHistory();
-        if (!transactions.isEmpty()) {
-            allTransactions.add(transactions.get(transactions.size() - 1));
+        deposit(accountNumber, amount, null);
+    }
+    
+    // Deposit under an optional idempotency key; a repeated key returns the original transaction
+    public Transaction deposit(String accountNumber, double amount, String idempotencyKey) 
+                              throws AccountNotFoundException, InvalidAmountException {
+        long start = DEPOSIT_METRICS.start();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        IdempotencyCache.Entry claim = null;
+        boolean success = false;
+        try {
+            claim = idempotencyCache.begin(idempotencyKey, "DEPOSIT|" + accountNumber + "|" + amount);
+            if (claim != null && claim.isCompleted()) {
+                success = true;
+                return claim.getResult();
+            }
+            
+            Account account = getAccount(accountNumber);
+            Transaction transaction;
+            synchronized (account) {
+                account.checkCredit(amount, "Deposit");
+                eventStore.append(accountNumber, AccountEvent.Type.DEPOSITED, amount, null);
+                transaction = account.deposit(amount);
+                if (claim != null) {
+                    idempotencyCache.complete(claim, transaction);
+                }
+            }
+            
+            // Add transaction to global list
+            recordTransaction(transaction);
+            success = true;
+            return transaction;
+        } finally {
+            if (claim != null && !claim.isCompleted()) {
+                idempotencyCache.abandon(claim);
+            }
+            DEPOSIT_METRICS.record(start, success);
+            event.complete("DEPOSIT", accountNumber, null, amount, success);
         }
     }
     
     public void withdraw(String accountNumber, double amount) 
                         throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
-        Account account = getAccount(accountNumber);
-        account.withdraw(amount);
-        
-        // Add transaction to global list
-        List<Transaction> transactions = account.getTransactionHistory();
-        if (!transactions.isEmpty()) {
-            allTransactions.add(transactions.get(transactions.size() - 1));
+        withdraw(accountNumber, amount, null);
+    }
+    
+    // Withdraw under an optional idempotency key; a repeated key returns the original transaction
+    public Transaction withdraw(String accountNumber, double amount, String idempotencyKey) 
+                               throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        long start = WITHDRAW_METRICS.start();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        IdempotencyCache.Entry claim = null;
+        boolean success = false;
+        try {
+            claim = idempotencyCache.begin(idempotencyKey, "WITHDRAW|" + accountNumber + "|" + amount);
+            if (claim != null && claim.isCompleted()) {
+                success = true;
+                return claim.getResult();
+            }
+            
+            Account account = getAccount(accountNumber);
+            VelocityMonitor monitor = velocityMonitor;
+            double rupees = monitor == null ? amount : inBaseCurrency(account, amount);
+            Transaction transaction;
+            synchronized (account) {
+                if (monitor != null) {
+                    monitor.check(accountNumber, rupees);
+                }
+                account.checkDebit(amount, "Withdrawal");
+                eventStore.append(accountNumber, AccountEvent.Type.WITHDRAWN, amount, null);
+                transaction = account.withdraw(amount);
+                if (monitor != null) {
+                    monitor.record(accountNumber, rupees);
+                }
+                if (claim != null) {
+                    idempotencyCache.complete(claim, transaction);
+                }
+            }
+            
+            // Add transaction to global list
+            recordTransaction(transaction);
+            success = true;
+            return transaction;
+        } finally {
+            if (claim != null && !claim.isCompleted()) {
+                idempotencyCache.abandon(claim);
+            }
+            WITHDRAW_METRICS.record(start, success);
+            event.complete("WITHDRAWAL", accountNumber, null, amount, success);
         }
     }
     
     public double getBalance(String accountNumber) throws AccountNotFoundException {
-        Account account = getAccount(accountNumber);
-        return account.getBalance();
+        long start = BALANCE_METRICS.start();
+        boolean success = false;
+        try {
+            Account account = getAccount(accountNumber);
+            double balance = account.getBalance();
+            success = true;
+            return balance;
+        } finally {
+            BALANCE_METRICS.record(start, success);
+        }
     }
     
     public List<Transaction> getTransactionHistory(String accountNumber) throws AccountNotFoundException {
-        Account account = getAccount(accountNumber);
-        return account.getTransactionHistory();
+        long start = HISTORY_METRICS.start();
+        boolean success = false;
+        try {
+            Account account = getAccount(accountNumber);
+            List<Transaction> history = account.getTransactionHistory();
+            success = true;
+            return history;
+        } finally {
+            HISTORY_METRICS.record(start, success);
+        }
     }
     
     // Transfer money between accounts
     public void transfer(String fromAccountNumber, String toAccountNumber, double amount) 
                         throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
-        
-        if (fromAccountNumber.equals(toAccountNumber)) {
-            throw new InvalidAmountException("Cannot transfer to the same account");
+        transfer(fromAccountNumber, toAccountNumber, amount, null);
+    }
+    
+    // Transfer under an optional idempotency key; returns the debit leg, the original one for a repeated key
+    public Transaction transfer(String fromAccountNumber, String toAccountNumber, double amount, String idempotencyKey) 
+                               throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        long start = TRANSFER_METRICS.start();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        IdempotencyCache.Entry claim = null;
+        boolean success = false;
+        try {
+            claim = idempotencyCache.begin(idempotencyKey,
+                                           "TRANSFER|" + fromAccountNumber + "|" + toAccountNumber + "|" + amount);
+            if (claim != null && claim.isCompleted()) {
+                success = true;
+                return claim.getResult();
+            }
+            
+            if (fromAccountNumber.equals(toAccountNumber)) {
+                throw new InvalidAmountException("Cannot transfer to the same account");
+            }
+            
+            Account fromAccount = getAccount(fromAccountNumber);
+            Account toAccount = getAccount(toAccountNumber);
+            
+            // Same-currency transfers never touch the rate table; others convert with
+            // one snapshot, read before any lock is taken
+            boolean converted = !fromAccount.getCurrency().equals(toAccount.getCurrency());
+            double creditAmount = converted
+                    ? fxRates.getSnapshot().convert(amount, fromAccount.getCurrency(), toAccount.getCurrency())
+                    : amount;
+            
+            // Lock both accounts in account-number order so concurrent opposite
+            // transfers cannot deadlock, and nobody sees money in flight
+            Account first = fromAccountNumber.compareTo(toAccountNumber) < 0 ? fromAccount : toAccount;
+            Account second = first == fromAccount ? toAccount : fromAccount;
+            VelocityMonitor monitor = velocityMonitor;
+            double rupees = monitor == null ? amount : inBaseCurrency(fromAccount, amount);
+            
+            Transaction debit;
+            Transaction credit;
+            synchronized (first) {
+                synchronized (second) {
+                    if (!toAccount.isActive()) {
+                        throw new AccountInactiveException("Recipient account is inactive", toAccountNumber);
+                    }
+                    if (monitor != null) {
+                        monitor.check(fromAccountNumber, rupees);
+                    }
+                    
+                    fromAccount.checkDebit(amount, "Transfer");
+                    toAccount.checkCredit(creditAmount, "Transfer");
+                    
+                    // Both events first; if the credit cannot be journaled, the debit is
+                    // reversed in the store too and neither balance changes
+                    eventStore.append(fromAccountNumber, AccountEvent.Type.TRANSFERRED_OUT, amount, toAccountNumber);
+                    try {
+                        eventStore.append(toAccountNumber, AccountEvent.Type.TRANSFERRED_IN, creditAmount,
+                                          fromAccountNumber);
+                    } catch (RuntimeException e) {
+                        eventStore.append(fromAccountNumber, AccountEvent.Type.TRANSFERRED_IN, amount, toAccountNumber);
+                        throw e;
+                    }
+                    
+                    // Debit and credit legs, linked by one transfer reference
+                    String transferReference = converted ? Transaction.newFxTransferReference()
+                                                         : Transaction.newTransferReference();
+                    debit = fromAccount.transferOut(amount, toAccountNumber, transferReference);
+                    credit = toAccount.transferIn(creditAmount, fromAccountNumber, transferReference);
+                    if (monitor != null) {
+                        monitor.record(fromAccountNumber, rupees);
+                    }
+                    if (claim != null) {
+                        idempotencyCache.complete(claim, debit);
+                    }
+                }
+            }
+            
+            // Update global transaction list
+            recordTransaction(debit);
+            recordTransaction(credit);
+            success = true;
+            return debit;
+        } finally {
+            if (claim != null && !claim.isCompleted()) {
+                idempotencyCache.abandon(claim);
+            }
+            TRANSFER_METRICS.record(start, success);
+            event.complete("TRANSFER", fromAccountNumber, toAccountNumber, amount, success);
         }
-        
-        Account fromAccount = getAccount(fromAccountNumber);
-        Account toAccount = getAccount(toAccountNumber);
-        
-        // Perform withdrawal from source account
-        fromAccount.withdraw(amount);
-        
-        // Perform deposit to destination account
-        toAccount.deposit(amount);
-        
-        // Update global transaction list
-        List<Transaction> fromTransactions = fromAccount.getTransactionHistory();
-        List<Transaction> toTransactions = toAccount.getTransactionHistory();
-        
-        if (!fromTransactions.isEmpty()) {
-            allTransactions.add(fromTransactions.get(fromTransactions.size() - 1));
+    }
+    
+    // Append to the global ledger
+    private void recordTransaction(Transaction transaction) {
+        synchronized (allTransactions) {
+            allTransactions.add(transaction);
+        }
+    }
+    
+    // Append a batch to the global ledger under one lock acquisition
+    void recordTransactions(List<Transaction> transactions) {
+        synchronized (allTransactions) {
+            allTransactions.addAll(transactions);
+        }
+    }
+    
+    /**
+     * Add a batch of new accounts from a bulk import: each account is published
+     * with its OPENED event like createAccount, and the batch's initial deposits
+     * reach the ledger with one append
+     */
+    void importAccounts(List<Customer> newCustomers, List<Account> newAccounts) {
+        for (Customer customer : newCustomers) {
+            customers.put(customer.getCustomerId(), customer);
+            customerIds.add(customer.getCustomerId());
         }
-        if (!toTransactions.isEmpty()) {
-            allTransactions.add(toTransactions.get(toTransactions.size() - 1));
+        List<Transaction> deposits = new ArrayList<>();
+        try {
+            for (Account account : newAccounts) {
+                synchronized (account) {
+                    accounts.put(account.getAccountNumber(), account);
+                    accountNumbers.add(account.getAccountNumber());
+                    try {
+                        eventStore.append(account.getAccountNumber(), AccountEvent.Type.OPENED, account.getBalance(),
+                                          account.getAccountType());
+                        appendDetails(account);
+                    } catch (RuntimeException e) {
+                        forget(account);
+                        throw e;
+                    }
+                }
+                deposits.addAll(account.getTransactionHistory());
+            }
+        } finally {
+            // Accounts published before a failed append keep their opening deposits
+            recordTransactions(deposits);
+        }
+    }
+    
+    // Reserve count consecutive account numbers for a bulk import; returns the first
+    int reserveAccountNumbers(int count) {
+        return accountCounter.getAndAdd(count) + 1;
+    }
+    
+    // Reserve count consecutive customer IDs for a bulk import; returns the first
+    int reserveCustomerIds(int count) {
+        return customerCounter.getAndAdd(count) + 1;
+    }
+    
+    /**
+     * Credit the interest computed from the account's balance, reading the balance and
+     * posting under one short hold of the account lock. Returns null when the interest
+     * is zero; the caller adds the transactions to the ledger with recordTransactions.
+     */
+    Transaction accrueInterest(Account account, java.util.function.DoubleUnaryOperator interestOnBalance,
+                               String reference) throws InvalidAmountException {
+        synchronized (account) {
+            double interest = interestOnBalance.applyAsDouble(account.getBalance());
+            if (interest <= 0) {
+                return null;
+            }
+            eventStore.append(account.getAccountNumber(), AccountEvent.Type.DEPOSITED, interest, reference);
+            return account.creditInterest(interest, "Interest " + reference);
         }
     }
     
     // Search and Filter Methods using Collections
+    
+    // Copy of every account; prefer getAccountsPage or streamAccounts for large listings
     public List<Account> getAllAccounts() {
         return new ArrayList<>(accounts.values());
     }
@@ -155,6 +543,7 @@ public class BankingService {
                 .collect(Collectors.toList());
     }
     
+    // Copy of every customer; prefer getCustomersPage or streamCustomers for large listings
     public List<Customer> getAllCustomers() {
         return new ArrayList<>(customers.values());
     }
@@ -166,14 +555,152 @@ public class BankingService {
                 .orElse(null);
     }
     
+    // Copy of the whole ledger under one hold of its lock; prefer getTransactionsPage or
+    // streamTransactions for large listings
     public List<Transaction> getAllTransactions() {
-        return new ArrayList<>(allTransactions);
+        synchronized (allTransactions) {
+            return new ArrayList<>(allTransactions);
+        }
     }
     
+    // Matching transactions in ledger order; the ledger lock is only held a chunk at a time
     public List<Transaction> getTransactionsByType(String transactionType) {
-        return allTransactions.stream()
-                .filter(transaction -> transaction.getTransactionType().equalsIgnoreCase(transactionType))
-                .collect(Collectors.toList());
+        return streamTransactionsByType(transactionType).collect(Collectors.toList());
+    }
+    
+    // Cursor Pages and Lazy Streams
+    
+    /**
+     * Up to limit accounts in account-number order, after the position cursor names
+     * (null for the first page). Accounts opened while a client pages through show up
+     * on a later page if their number sorts after the cursor.
+     */
+    public Page<Account> getAccountsPage(String cursor, int limit) {
+        return keyedPage(accountNumbers, accounts, "A", cursor, limit);
+    }
+    
+    // Up to limit customers in customer-ID order, after the position cursor names
+    public Page<Customer> getCustomersPage(String cursor, int limit) {
+        return keyedPage(customerIds, customers, "C", cursor, limit);
+    }
+    
+    /**
+     * Up to limit transactions in ledger order, after the position cursor names. The
+     * ledger is append-only, so a cursor stays valid while transactions are added.
+     */
+    public Page<Transaction> getTransactionsPage(String cursor, int limit) {
+        return ledgerPage(cursor, limit, null);
+    }
+    
+    /**
+     * Like getTransactionsPage, but only transactions of the given type. Each call scans
+     * a bounded part of the ledger, so a page can hold fewer than limit matches (even
+     * none) while getNextCursor() is still set; keep going until it is null.
+     */
+    public Page<Transaction> getTransactionsPageByType(String transactionType, String cursor, int limit) {
+        return ledgerPage(cursor, limit,
+                          transaction -> transaction.getTransactionType().equalsIgnoreCase(transactionType));
+    }
+    
+    // Accounts in account-number order, looked up one at a time as the stream is consumed
+    public Stream<Account> streamAccounts() {
+        return accountNumbers.stream().map(accounts::get).filter(Objects::nonNull);
+    }
+    
+    public Stream<Customer> streamCustomers() {
+        return customerIds.stream().map(customers::get).filter(Objects::nonNull);
+    }
+    
+    /**
+     * Transactions in ledger order, read a page at a time as the stream is consumed;
+     * transactions added before the stream reaches the end are included
+     */
+    public Stream<Transaction> streamTransactions() {
+        Iterator<Transaction> iterator = new Iterator<Transaction>() {
+            private Iterator<Transaction> page = Collections.emptyIterator();
+            private String cursor;
+            private boolean done;
+            
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && !done) {
+                    Page<Transaction> next = getTransactionsPage(cursor, MAX_PAGE_SIZE);
+                    page = next.getItems().iterator();
+                    cursor = next.getNextCursor();
+                    done = cursor == null;
+                }
+                return page.hasNext();
+            }
+            
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                                    Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
+    public Stream<Transaction> streamTransactionsByType(String transactionType) {
+        return streamTransactions()
+                .filter(transaction -> transaction.getTransactionType().equalsIgnoreCase(transactionType));
+    }
+    
+    // Also pages ReportingReadModel's account views, which are keyed the same way
+    static <T> Page<T> keyedPage(NavigableSet<String> keys, Map<String, T> values, String kind,
+                                         String cursor, int limit) {
+        int size = pageSize(limit);
+        String after = Page.decode(kind, cursor);
+        Iterator<String> iterator = (after == null ? keys : keys.tailSet(after, false)).iterator();
+        List<T> items = new ArrayList<>(Math.min(size, 64));
+        String last = after;
+        while (items.size() < size && iterator.hasNext()) {
+            String key = iterator.next();
+            T value = values.get(key);
+            if (value != null) {
+                items.add(value);
+                last = key;
+            }
+        }
+        return new Page<>(items, iterator.hasNext() ? Page.encode(kind, last) : null);
+    }
+    
+    // Scans at most LEDGER_SCAN_CHUNK ledger entries from the cursor's position, under one lock hold
+    private Page<Transaction> ledgerPage(String cursor, int limit, java.util.function.Predicate<Transaction> filter) {
+        int size = pageSize(limit);
+        String after = Page.decode("T", cursor);
+        int position;
+        try {
+            position = after == null ? 0 : Integer.parseInt(after);
+        } catch (NumberFormatException e) {
+            position = -1;
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        List<Transaction> items = new ArrayList<>(Math.min(size, 64));
+        boolean more;
+        synchronized (allTransactions) {
+            int end = (int) Math.min(allTransactions.size(), (long) position + LEDGER_SCAN_CHUNK);
+            for (; position < end && items.size() < size; position++) {
+                Transaction transaction = allTransactions.get(position);
+                if (filter == null || filter.test(transaction)) {
+                    items.add(transaction);
+                }
+            }
+            more = position < allTransactions.size();
+        }
+        return new Page<>(items, more ? Page.encode("T", Integer.toString(position)) : null);
+    }
+    
+    private static int pageSize(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + limit);
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
     }
     
     // Statistics Methods
@@ -181,13 +708,22 @@ public class BankingService {
         return accounts.size();
     }
     
+    public int getTotalTransactionsCount() {
+        synchronized (allTransactions) {
+            return allTransactions.size();
+        }
+    }
+    
     public int getActiveAccountsCount() {
         return (int) accounts.values().stream().filter(Account::isActive).count();
     }
     
+    // Total of all balances in rupees, other currencies converted at current rates
     public double getTotalBalance() {
+        FxRateTable.Snapshot rates = fxRates.getSnapshot();
         return accounts.values().stream()
-                .mapToDouble(Account::getBalance)
+                .mapToDouble(account -> rates.convert(account.getBalance(), account.getCurrency(),
+                                                      FxRateTable.BASE_CURRENCY))
                 .sum();
     }
     
@@ -202,9 +738,11 @@ public class BankingService {
     
     public Map<String, Integer> getTransactionTypeDistribution() {
         Map<String, Integer> distribution = new HashMap<>();
-        for (Transaction transaction : allTransactions) {
-            String type = transaction.getTransactionType();
-            distribution.put(type, distribution.getOrDefault(type, 0) + 1);
+        synchronized (allTransactions) {
+            for (Transaction transaction : allTransactions) {
+                String type = transaction.getTransactionType();
+                distribution.put(type, distribution.getOrDefault(type, 0) + 1);
+            }
         }
         return distribution;
     }
@@ -212,31 +750,181 @@ public class BankingService {
     // Account Management
     public void deactivateAccount(String accountNumber) throws AccountNotFoundException {
         Account account = getAccount(accountNumber);
-        account.setActive(false);
+        synchronized (account) {
+            eventStore.append(accountNumber, AccountEvent.Type.DEACTIVATED, 0, null);
+            account.setActive(false);
+        }
     }
     
     public void activateAccount(String accountNumber) throws AccountNotFoundException {
         Account account = getAccount(accountNumber);
-        account.setActive(true);
+        synchronized (account) {
+            eventStore.append(accountNumber, AccountEvent.Type.ACTIVATED, 0, null);
+            account.setActive(true);
+        }
     }
     
     public boolean changePassword(String accountNumber, String oldPassword, String newPassword) 
                                  throws AccountNotFoundException, InvalidCredentialsException {
-        Account account = getAccount(accountNumber);
-        if (!account.authenticate(oldPassword)) {
-            throw new InvalidCredentialsException("Current password is incorrect", accountNumber);
+        long start = CHANGE_PASSWORD_METRICS.start();
+        boolean success = false;
+        try {
+            Account account = getAccount(accountNumber);
+            if (!account.authenticate(oldPassword)) {
+                throw new InvalidCredentialsException("Current password is incorrect", accountNumber);
+            }
+            // Hashed before taking the lock; the new hash is undone if it cannot be journaled
+            String passwordHash = PasswordHasher.hash(newPassword);
+            synchronized (account) {
+                String previousHash = account.getPassword();
+                account.setPasswordHash(passwordHash);
+                try {
+                    eventStore.append(accountNumber, AccountEvent.Type.PASSWORD_CHANGED, 0, null);
+                    appendDetails(account);
+                } catch (RuntimeException e) {
+                    account.setPasswordHash(previousHash);
+                    throw e;
+                }
+            }
+            credentialCache.invalidate(accountNumber);
+            success = true;
+            return true;
+        } finally {
+            CHANGE_PASSWORD_METRICS.record(start, success);
+        }
+    }
+    
+    // Replace all in-memory data with previously persisted data (e.g. from FileHandler)
+    public void loadData(Map<String, Customer> loadedCustomers, Map<String, Account> loadedAccounts,
+                         List<Transaction> loadedTransactions) {
+        customerIds.clear();
+        customers.clear();
+        customers.putAll(loadedCustomers);
+        customerIds.addAll(loadedCustomers.keySet());
+        accountNumbers.clear();
+        accounts.clear();
+        accounts.putAll(loadedAccounts);
+        accountNumbers.addAll(loadedAccounts.keySet());
+        synchronized (allTransactions) {
+            allTransactions.clear();
+            allTransactions.addAll(loadedTransactions);
+        }
+        credentialCache.clear();
+        
+        // An in-memory event store follows the data it is replaced with; a persistent
+        // one is the durable history and only learns about accounts it has never seen
+        if (!eventStore.isPersistent()) {
+            eventStore.clear();
+        }
+        for (Account account : loadedAccounts.values()) {
+            AccountState state = eventStore.getState(account.getAccountNumber());
+            if (state == null) {
+                eventStore.append(account.getAccountNumber(), AccountEvent.Type.OPENED, account.getBalance(),
+                                  account.getAccountType());
+                if (!account.isActive()) {
+                    eventStore.append(account.getAccountNumber(), AccountEvent.Type.DEACTIVATED, 0, null);
+                }
+            }
+            if (state == null || state.getDetails() == null) {
+                appendDetails(account);
+            }
+        }
+        
+        // Keep generated IDs ahead of everything that was loaded
+        for (String customerId : loadedCustomers.keySet()) {
+            customerCounter.accumulateAndGet(idSuffix(customerId, "CUST"), Math::max);
+        }
+        for (String accountNumber : loadedAccounts.keySet()) {
+            accountCounter.accumulateAndGet(idSuffix(accountNumber, "ACC"), Math::max);
+        }
+    }
+    
+    /**
+     * Set every known account's balance and status from the event store, e.g. after
+     * loadData on restart, since the store is the authoritative history
+     */
+    public int restoreFromEvents() {
+        int restored = 0;
+        for (Account account : accounts.values()) {
+            AccountState state = eventStore.getState(account.getAccountNumber());
+            if (state != null) {
+                account.restoreState(state.getBalance(), state.isActive());
+                restored++;
+            }
+        }
+        return restored;
+    }
+    
+    /**
+     * Replace all in-memory data with the accounts and customers the event store
+     * itself records (the latest DETAILS event of each account), then restore
+     * balances and status from it. Used on restart and standby promotion, so no
+     * data files are read; the transaction ledger starts empty.
+     */
+    public int loadFromEvents() {
+        Map<String, Customer> loadedCustomers = new HashMap<>();
+        Map<String, Account> loadedAccounts = new HashMap<>();
+        for (AccountState state : eventStore.getStates()) {
+            if (state.getDetails() == null) {
+                continue;
+            }
+            String[] records = new String(Base64.getUrlDecoder().decode(state.getDetails()),
+                                          StandardCharsets.UTF_8).split("\n", 2);
+            Customer customer = records.length == 2 ? Customer.fromFileString(records[0]) : null;
+            if (customer == null) {
+                continue;
+            }
+            Customer known = loadedCustomers.putIfAbsent(customer.getCustomerId(), customer);
+            if (known != null) {
+                customer = known;
+            }
+            Account account = Account.fromFileString(records[1], customer);
+            if (account != null) {
+                loadedAccounts.put(account.getAccountNumber(), account);
+            }
         }
-        account.setPassword(newPassword);
-        return true;
+        loadData(loadedCustomers, loadedAccounts, new ArrayList<>());
+        return restoreFromEvents();
+    }
+    
+    public EventStore getEventStore() {
+        return eventStore;
+    }
+    
+    // Undo publishing a new account whose OPENED event could not be appended
+    private void forget(Account account) {
+        accountNumbers.remove(account.getAccountNumber());
+        accounts.remove(account.getAccountNumber());
+        String customerId = account.getCustomer().getCustomerId();
+        if (accounts.values().stream().noneMatch(other -> other.getCustomer().getCustomerId().equals(customerId))) {
+            customerIds.remove(customerId);
+            customers.remove(customerId);
+        }
+    }
+    
+    // Record the account's customer and account lines so the store can rebuild it; caller holds the account lock
+    private void appendDetails(Account account) {
+        String records = account.getCustomer().toFileString() + "\n" + account.toFileString();
+        eventStore.append(account.getAccountNumber(), AccountEvent.Type.DETAILS, 0,
+                          Base64.getUrlEncoder().withoutPadding()
+                                .encodeToString(records.getBytes(StandardCharsets.UTF_8)));
     }
     
     // Utility Methods
+    private static int idSuffix(String id, String prefix) {
+        try {
+            return id.startsWith(prefix) ? Integer.parseInt(id.substring(prefix.length())) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
     private String generateAccountNumber() {
-        return "ACC" + String.format("%06d", ++accountCounter);
+        return "ACC" + String.format("%06d", accountCounter.incrementAndGet());
     }
     
     private String generateCustomerId() {
-        return "CUST" + String.format("%06d", ++customerCounter);
+        return "CUST" + String.format("%06d", customerCounter.incrementAndGet());
     }
     
     // Initialize with sample data for testing
@@ -259,44 +947,57 @@ public class BankingService {
     
     // Display all accounts in tabular format
     public void displayAllAccounts() {
-        if (accounts.isEmpty()) {
+        displayAllAccounts(Integer.MAX_VALUE, () -> true);
+    }
+    
+    // Display all accounts in pages of pageSize rows; nextPage decides whether to go on after each
+    public void displayAllAccounts(int pageSize, BooleanSupplier nextPage) {
+        int total = getTotalAccountsCount();
+        if (total == 0) {
             System.out.println("No accounts found.");
             return;
         }
         
-        System.out.println("┌─────────────┬─────────────────────┬─────────────┬─────────────┬──────────┐");
-        System.out.println("│ Account No  │    Customer Name    │    Type     │   Balance   │  Status  │");
-        System.out.println("├─────────────┼─────────────────────┼─────────────┼─────────────┼──────────┤");
-        
-        for (Account account : accounts.values()) {
-            System.out.printf("│ %-11s │ %-19s │ %-11s │ %11.2f │ %-8s │%n",
-                    account.getAccountNumber(),
-                    account.getCustomer().getName(),
-                    account.getAccountType(),
-                    account.getBalance(),
-                    account.isActive() ? "Active" : "Inactive");
-        }
-        
-        System.out.println("└─────────────┴─────────────────────┴─────────────┴─────────────┴──────────┘");
-        System.out.println("Total Accounts: " + accounts.size());
+        // Read page by page in account-number order instead of copying every account first
+        TableWriter table = new TableWriter(11, 19, 11, 11, 8);
+        table.pages(this::getAccountsPage, total, pageSize, new String[] {"│ Account No  │    Customer Name    │    Type     │   Balance   │  Status  │"},
+                (row, account) -> row.row().text(account.getAccountNumber()).text(account.getCustomer().getName())
+                                     .text(account.getAccountType()).amount(account.getBalance())
+                                     .text(account.isActive() ? "Active" : "Inactive").end(),
+                nextPage);
+        System.out.println("Total Accounts: " + getTotalAccountsCount());
     }
     
     // Display banking statistics
     public void displayBankingStatistics() {
+        printStatistics(getTotalAccountsCount(), getActiveAccountsCount(), customers.size(), getTotalBalance(),
+                        Collections.emptyMap(), "Total Transactions:", getTotalTransactionsCount(),
+                        getAccountTypeDistribution());
+    }
+    
+    // The statistics box, shared with ReportingReadModel; balanceByCurrency is listed only if it has several currencies
+    static void printStatistics(int accounts, int activeAccounts, int customers, double totalBalance,
+                                Map<String, Double> balanceByCurrency, String countLabel, long count,
+                                Map<String, Integer> accountTypeCounts) {
         System.out.println("┌─────────────────────────────────────────────────────────┐");
         System.out.println("│                 BANKING STATISTICS                      │");
         System.out.println("├─────────────────────────────────────────────────────────┤");
-        System.out.printf("│ Total Accounts:        %-28d │%n", getTotalAccountsCount());
-        System.out.printf("│ Active Accounts:       %-28d │%n", getActiveAccountsCount());
-        System.out.printf("│ Total Customers:       %-28d │%n", customers.size());
-        System.out.printf("│ Total Balance:         ₹%-27.2f │%n", getTotalBalance());
-        System.out.printf("│ Total Transactions:    %-28d │%n", allTransactions.size());
+        System.out.printf("│ Total Accounts:        %-28d │%n", accounts);
+        System.out.printf("│ Active Accounts:       %-28d │%n", activeAccounts);
+        System.out.printf("│ Total Customers:       %-28d │%n", customers);
+        System.out.printf("│ Total Balance:         ₹%-27.2f │%n", totalBalance);
+        if (balanceByCurrency.size() > 1) {
+            for (Map.Entry<String, Double> entry : balanceByCurrency.entrySet()) {
+                System.out.printf("│   %-3s:                 %-28s │%n", entry.getKey(),
+                                  FxRateTable.format(entry.getValue(), entry.getKey()));
+            }
+        }
+        System.out.printf("│ %-23s%-28d │%n", countLabel, count);
         System.out.println("├─────────────────────────────────────────────────────────┤");
         
         // Account type distribution
-        Map<String, Integer> accountDist = getAccountTypeDistribution();
         System.out.println("│ Account Type Distribution:                              │");
-        for (Map.Entry<String, Integer> entry : accountDist.entrySet()) {
+        for (Map.Entry<String, Integer> entry : accountTypeCounts.entrySet()) {
             System.out.printf("│   %-12s:      %-28d │%n", entry.getKey(), entry.getValue());
         }
         
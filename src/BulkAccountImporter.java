@@ -0,0 +1,556 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BulkAccountImporter class - onboards customers and accounts from a CSV file
+ * One row per account, with an optional header:
+ *   name,email,phone,address,accountType,initialDeposit,password
+ * Fields may be double-quoted. The password is normally a PBKDF2 hash carried
+ * over from the old system; a plain one is hashed here, at about 50 ms per row.
+ *
+ * The import is a pipeline of stages joined by bounded queues, so memory stays
+ * flat however large the file:
+ *   read      one thread cuts the file into chunks of CHUNK_SIZE lines
+ *   validate  one thread per core parses and checks each row; bad rows go to
+ *             the reject file (<csv>.rejects) with their line number and reason
+ *   insert    reserves one block of account numbers and customer IDs per chunk,
+ *             then hands the chunk to BankingService.importAccounts in one batch
+ * importAccounts journals each account's OPENED and DETAILS events, so from the
+ * command line the accounts land in the event store that BankingService.open()
+ * rebuilds the app from (data/events, or <dataDirectory>/events). Run it while
+ * the app and server are stopped, as only one process may append to the store.
+ * Commas inside fields become spaces, as the stored records are comma-separated.
+ *
+ * Usage: java BulkAccountImporter <csv> [dataDirectory]
+ *        java BulkAccountImporter bench [rows]
+ */
+public class BulkAccountImporter {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int FIELDS = 7;
+    private static final int MAX_FIELD_LENGTH = 200;
+    private static final String HEADER_PREFIX = "name,";
+
+    private static final OperationMetrics BATCH_METRICS = MetricsRegistry.operation("import.batch");
+
+    private final Sink sink;
+    private final int validators;
+
+    // Constructor - imports into a running BankingService
+    public BulkAccountImporter(BankingService bankingService) {
+        this(new ServiceSink(bankingService), Runtime.getRuntime().availableProcessors());
+    }
+
+    private BulkAccountImporter(Sink sink, int validators) {
+        this.sink = sink;
+        this.validators = validators;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java BulkAccountImporter <csv> [dataDirectory]");
+            System.out.println("       java BulkAccountImporter bench [rows]");
+            return;
+        }
+        if (args[0].equals("bench")) {
+            bench(args.length > 1 ? Integer.parseInt(args[1]) : 200_000);
+            return;
+        }
+        String eventDirectory = args.length > 1 ? new File(args[1], "events").getPath()
+                                                : BankingService.DEFAULT_EVENT_DIRECTORY;
+        BankingService service = BankingService.open(eventDirectory);
+        BulkAccountImporter importer = new BulkAccountImporter(service);
+        try {
+            System.out.println("📦 " + importer.importFile(new File(args[0])) + ", " + service.getTotalAccountsCount()
+                               + " accounts in " + eventDirectory);
+        } finally {
+            importer.close();
+            service.getEventStore().sync();
+            service.getEventStore().close();
+        }
+    }
+
+    /**
+     * Import every row of the file; rejected rows are written to <file>.rejects
+     */
+    public ImportSummary importFile(File csv) throws IOException {
+        long start = System.nanoTime();
+        ImportSummary summary = new ImportSummary();
+        BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(validators * 2);
+        BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(validators * 2);
+        int inserters = sink.getParallelism();
+        AtomicInteger validatorsLeft = new AtomicInteger(validators);
+        ExecutorService stages = Executors.newFixedThreadPool(1 + validators + inserters, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(csv),
+                                                                              StandardCharsets.UTF_8), 1 << 16);
+             Writer rejects = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(csv.getPath() + ".rejects"), StandardCharsets.UTF_8), 1 << 16)) {
+            CompletionService<Void> running = new ExecutorCompletionService<>(stages);
+            running.submit(() -> {
+                read(reader, chunks, summary);
+                for (int i = 0; i < validators; i++) {
+                    chunks.put(Chunk.END);
+                }
+                return null;
+            });
+            for (int i = 0; i < validators; i++) {
+                running.submit(() -> {
+                    for (Chunk chunk = chunks.take(); chunk != Chunk.END; chunk = chunks.take()) {
+                        batches.put(validate(chunk, rejects, summary));
+                    }
+                    if (validatorsLeft.decrementAndGet() == 0) {
+                        for (int j = 0; j < inserters; j++) {
+                            batches.put(Batch.END);
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (int i = 0; i < inserters; i++) {
+                running.submit(() -> {
+                    for (Batch batch = batches.take(); batch != Batch.END; batch = batches.take()) {
+                        insert(batch, summary);
+                    }
+                    return null;
+                });
+            }
+            // In completion order, so the first failure surfaces while the others wait on a queue
+            for (int i = 0; i < 1 + validators + inserters; i++) {
+                running.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Import failed", e.getCause());
+        } finally {
+            // A failed stage leaves the others blocked on a queue
+            stages.shutdownNow();
+            sink.flush();
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    /**
+     * Release the sink
+     */
+    public void close() throws IOException {
+        sink.close();
+    }
+
+    // Stage 1: cut the file into chunks of lines
+    private static void read(BufferedReader reader, BlockingQueue<Chunk> chunks, ImportSummary summary)
+            throws IOException, InterruptedException {
+        long lineNumber = 0;
+        String[] lines = new String[CHUNK_SIZE];
+        long[] lineNumbers = new long[CHUNK_SIZE];
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.regionMatches(true, 0, HEADER_PREFIX, 0, HEADER_PREFIX.length())) {
+                continue;
+            }
+            if (line.isEmpty()) {
+                continue;
+            }
+            lines[count] = line;
+            lineNumbers[count++] = lineNumber; // skipped lines leave gaps, so each row keeps its own
+            if (count == CHUNK_SIZE) {
+                chunks.put(new Chunk(lines, lineNumbers, count));
+                lines = new String[CHUNK_SIZE];
+                lineNumbers = new long[CHUNK_SIZE];
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            chunks.put(new Chunk(lines, lineNumbers, count));
+        }
+        summary.linesRead = lineNumber;
+    }
+
+    // Stage 2: parse and check every row of a chunk
+    private static Batch validate(Chunk chunk, Writer rejects, ImportSummary summary) throws IOException {
+        Batch batch = new Batch(chunk.count);
+        String[] fields = new String[FIELDS];
+        StringBuilder rejected = null;
+        for (int i = 0; i < chunk.count; i++) {
+            String line = chunk.lines[i];
+            String reason = parse(line, fields);
+            if (reason == null) {
+                reason = check(fields);
+            }
+            if (reason != null) {
+                if (rejected == null) {
+                    rejected = new StringBuilder();
+                }
+                rejected.append(chunk.lineNumbers[i]).append(',').append(reason).append(',').append(line).append('\n');
+                continue;
+            }
+            String password = fields[6];
+            if (!PasswordHasher.isHashed(password)) {
+                password = PasswordHasher.hash(password);
+                summary.passwordsHashed.incrementAndGet();
+            }
+            batch.add(fields[0], fields[1], fields[2], fields[3], fields[4].toUpperCase(Locale.ROOT),
+                      Double.parseDouble(fields[5]), password);
+        }
+        if (rejected != null) {
+            synchronized (rejects) {
+                rejects.write(rejected.toString());
+            }
+            summary.rejected.addAndGet(chunk.count - batch.size);
+        }
+        return batch;
+    }
+
+    // Split one CSV line into fields; returns why it cannot be, or null
+    static String parse(String line, String[] fields) {
+        int field = 0;
+        int i = 0;
+        int length = line.length();
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            value.setLength(0);
+            if (i < length && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        return "unterminated quote";
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < length && line.charAt(i) == '"') {
+                            value.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        value.append(c == ',' ? ' ' : c);
+                    }
+                }
+                if (i < length && line.charAt(i) != ',') {
+                    return "text after closing quote";
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) {
+                    end = length;
+                }
+                value.append(line, i, end);
+                i = end;
+            }
+            if (field == FIELDS) {
+                return "more than " + FIELDS + " fields";
+            }
+            fields[field++] = value.toString().trim();
+            if (i >= length) {
+                break;
+            }
+            i++; // the comma
+        }
+        return field == FIELDS ? null : "expected " + FIELDS + " fields but found " + field;
+    }
+
+    // The same rules the interactive account form implies, plus sane formats
+    static String check(String[] fields) {
+        for (String field : fields) {
+            if (field.length() > MAX_FIELD_LENGTH) {
+                return "field longer than " + MAX_FIELD_LENGTH + " characters";
+            }
+        }
+        if (fields[0].isEmpty()) {
+            return "missing name";
+        }
+        String email = fields[1];
+        int at = email.indexOf('@');
+        if (at <= 0 || at != email.lastIndexOf('@') || email.indexOf('.', at) < at + 2
+                || email.endsWith(".") || email.indexOf(' ') >= 0) {
+            return "invalid email";
+        }
+        String phone = fields[2];
+        int digits = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (!(i == 0 && c == '+')) {
+                return "invalid phone";
+            }
+        }
+        if (digits < 7 || digits > 15) {
+            return "invalid phone";
+        }
+        if (fields[3].isEmpty()) {
+            return "missing address";
+        }
+        if (!fields[4].equalsIgnoreCase("SAVINGS") && !fields[4].equalsIgnoreCase("CURRENT")) {
+            return "account type must be SAVINGS or CURRENT";
+        }
+        try {
+            double deposit = Double.parseDouble(fields[5]);
+            if (!(deposit >= 0) || Double.isInfinite(deposit)) {
+                return "initial deposit cannot be negative";
+            }
+        } catch (NumberFormatException e) {
+            return "invalid initial deposit";
+        }
+        if (!PasswordHasher.isHashed(fields[6]) && fields[6].length() < 6) {
+            return "password must be at least 6 characters long";
+        }
+        return null;
+    }
+
+    // Stage 3: number the batch's rows from one reserved block and hand it to the sink
+    private void insert(Batch batch, ImportSummary summary) throws IOException {
+        if (batch.size == 0) {
+            return;
+        }
+        long start = BATCH_METRICS.start();
+        boolean success = false;
+        try {
+            batch.firstAccountNumber = sink.reserveAccountNumbers(batch.size);
+            batch.firstCustomerId = sink.reserveCustomerIds(batch.size);
+            sink.insert(batch);
+            summary.imported.addAndGet(batch.size);
+            success = true;
+        } finally {
+            BATCH_METRICS.record(start, success);
+        }
+    }
+
+    // Zero-padded to six digits like BankingService's generated IDs, without String.format
+    static String id(String prefix, int number) {
+        StringBuilder id = new StringBuilder(prefix.length() + 10).append(prefix);
+        for (int pad = 100_000; pad > 1 && number < pad; pad /= 10) {
+            id.append('0');
+        }
+        return id.append(number).toString();
+    }
+
+    /**
+     * Sink interface - where numbered batches go
+     */
+    interface Sink {
+        int reserveAccountNumbers(int count);
+
+        int reserveCustomerIds(int count);
+
+        void insert(Batch batch) throws IOException;
+
+        void flush() throws IOException;
+
+        void close() throws IOException;
+
+        int getParallelism();
+    }
+
+    // Straight into a running BankingService
+    private static final class ServiceSink implements Sink {
+        private final BankingService bankingService;
+
+        ServiceSink(BankingService bankingService) {
+            this.bankingService = bankingService;
+        }
+
+        @Override
+        public int reserveAccountNumbers(int count) {
+            return bankingService.reserveAccountNumbers(count);
+        }
+
+        @Override
+        public int reserveCustomerIds(int count) {
+            return bankingService.reserveCustomerIds(count);
+        }
+
+        @Override
+        public void insert(Batch batch) {
+            List<Customer> customers = new ArrayList<>(batch.size);
+            List<Account> accounts = new ArrayList<>(batch.size);
+            for (int i = 0; i < batch.size; i++) {
+                Customer customer = new Customer(id("CUST", batch.firstCustomerId + i), batch.names[i],
+                                                 batch.emails[i], batch.phones[i], batch.addresses[i]);
+                customers.add(customer);
+                accounts.add(Account.withPasswordHash(id("ACC", batch.firstAccountNumber + i), batch.passwords[i],
+                                                      customer, batch.types[i], batch.deposits[i]));
+            }
+            bankingService.importAccounts(customers, accounts);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public int getParallelism() {
+            return 2;
+        }
+    }
+
+    // A run of raw lines; END tells a validator to stop
+    private static final class Chunk {
+        static final Chunk END = new Chunk(new String[0], new long[0], 0);
+
+        final String[] lines;
+        final long[] lineNumbers; // in the file, counting the header and blank lines
+        final int count;
+
+        Chunk(String[] lines, long[] lineNumbers, int count) {
+            this.lines = lines;
+            this.lineNumbers = lineNumbers;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Batch class - the valid rows of one chunk, column by column
+     */
+    static final class Batch {
+        static final Batch END = new Batch(0);
+
+        final String[] names;
+        final String[] emails;
+        final String[] phones;
+        final String[] addresses;
+        final String[] types;
+        final double[] deposits;
+        final String[] passwords;
+        int size;
+        int firstAccountNumber;
+        int firstCustomerId;
+
+        Batch(int capacity) {
+            names = new String[capacity];
+            emails = new String[capacity];
+            phones = new String[capacity];
+            addresses = new String[capacity];
+            types = new String[capacity];
+            deposits = new double[capacity];
+            passwords = new String[capacity];
+        }
+
+        void add(String name, String email, String phone, String address, String type, double deposit, String password) {
+            names[size] = name;
+            emails[size] = email;
+            phones[size] = phone;
+            addresses[size] = address;
+            types[size] = type;
+            deposits[size] = deposit;
+            passwords[size] = password;
+            size++;
+        }
+    }
+
+    /**
+     * ImportSummary class - what one import did
+     */
+    public static final class ImportSummary {
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong passwordsHashed = new AtomicLong();
+        private volatile long linesRead;
+        private long elapsedNanos;
+
+        public long getImported() {
+            return imported.get();
+        }
+
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        public long getPasswordsHashed() {
+            return passwordsHashed.get();
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (getImported() + getRejected()) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d lines: %,d imported, %,d rejected, %,d passwords hashed, %,d ms (%,.0f rows/s)",
+                                 linesRead, getImported(), getRejected(), getPasswordsHashed(),
+                                 TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getRowsPerSecond());
+        }
+    }
+
+    // Generated portfolio with pre-hashed passwords and one bad row in a hundred
+    private static void bench(int rows) throws IOException {
+        MetricsRegistry.setEnabled(false);
+        File directory = Files.createTempDirectory("bulk-import-bench").toFile();
+        File csv = new File(directory, "portfolio.csv");
+        String passwordHash = PasswordHasher.hash("bench123");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csv), StandardCharsets.UTF_8),
+                                                1 << 16)) {
+            writer.write("name,email,phone,address,accountType,initialDeposit,password\n");
+            for (int i = 0; i < rows; i++) {
+                String email = i % 100 == 99 ? "not-an-email" : "customer" + i + "@example.com";
+                writer.write("Customer " + i + "," + email + "," + (9_000_000_000L + i) + ",\"" + (i % 500 + 1)
+                             + " Main St, City\"," + (i % 3 == 0 ? "CURRENT" : "SAVINGS") + "," + (i % 10_000) + ".50,"
+                             + passwordHash + "\n");
+            }
+        }
+        System.out.printf("%,d rows (%,d MB), %d CPUs%n", rows, csv.length() >> 20, Runtime.getRuntime().availableProcessors());
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        File eventDirectory = new File(directory, "events");
+        BankingService journaled = BankingService.open(eventDirectory.getPath());
+        ImportSummary summary = new BulkAccountImporter(journaled).importFile(csv);
+        journaled.getEventStore().close();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println("  into the event store: " + summary);
+        System.out.printf("  heap: %,d MB before, %,d MB after, %,d MB max%n", heapBefore >> 20, heapAfter >> 20,
+                          runtime.maxMemory() >> 20);
+
+        BankingService service = new BankingService();
+        System.out.println("  into memory only:     " + new BulkAccountImporter(service).importFile(csv)
+                           + ", " + service.getTotalAccountsCount() + " accounts");
+
+        for (File file : eventDirectory.listFiles()) {
+            file.delete();
+        }
+        eventDirectory.delete();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+}
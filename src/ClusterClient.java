@@ -0,0 +1,171 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ClusterClient class - one connection to a ShardNode or ShardRouter
+ * The wire protocol is one tab-separated line per request and per reply:
+ *   request:  COMMAND \t arg \t arg ...
+ *   reply:    OK [\t value]   or   ERR \t ExceptionName \t message
+ * A connection carries one request at a time, so each thread uses its own client.
+ * An IOException means the outcome is unknown; an ERR reply means the request
+ * was refused and nothing changed. A reply that takes longer than the read
+ * timeout is such an IOException (SocketTimeoutException): the connection is
+ * dropped, so a late reply can never be taken for the next request's.
+ */
+public class ClusterClient implements Closeable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10_000;
+
+    private final String host;
+    private final int port;
+    private final int readTimeoutMillis;
+    private Socket socket;
+    private BufferedReader in;
+    private BufferedWriter out;
+
+    // Constructor - connects lazily on the first request
+    public ClusterClient(String host, int port) {
+        this(host, port, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    public ClusterClient(String host, int port, int readTimeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    // Parse "host:port"
+    public static ClusterClient forAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        return new ClusterClient(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    /**
+     * Send one request and return the reply fields (reply[0] is OK or ERR); reconnects
+     * after a failed connection, but never resends a request that may have been applied
+     */
+    public String[] call(String... fields) throws IOException {
+        if (socket == null) {
+            connect();
+        }
+        try {
+            out.write(String.join("\t", fields));
+            out.newLine();
+            out.flush();
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("Connection closed by " + host + ":" + port);
+            }
+            return line.split("\t", -1);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        Socket connection = new Socket();
+        try {
+            connection.setTcpNoDelay(true);
+            connection.setSoTimeout(readTimeoutMillis);
+            connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8));
+            socket = connection;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    // Typed calls, with ERR replies turned back into the banking exceptions
+
+    public String createAccount(String customerName, String email, String phone, String address,
+                                String accountType, double initialDeposit, String password)
+            throws IOException, InvalidAmountException {
+        try {
+            return value(call("CREATE", customerName, email, phone, address, accountType,
+                              String.valueOf(initialDeposit), password));
+        } catch (AccountNotFoundException | InsufficientBalanceException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public double getBalance(String accountNumber) throws IOException, AccountNotFoundException {
+        try {
+            return Double.parseDouble(value(call("BALANCE", accountNumber)));
+        } catch (InsufficientBalanceException | InvalidAmountException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void deposit(String accountNumber, double amount)
+            throws IOException, AccountNotFoundException, InvalidAmountException {
+        try {
+            value(call("DEPOSIT", accountNumber, String.valueOf(amount)));
+        } catch (InsufficientBalanceException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void withdraw(String accountNumber, double amount)
+            throws IOException, AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        value(call("WITHDRAW", accountNumber, String.valueOf(amount)));
+    }
+
+    public void transfer(String fromAccountNumber, String toAccountNumber, double amount)
+            throws IOException, AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        value(call("TRANSFER", fromAccountNumber, toAccountNumber, String.valueOf(amount)));
+    }
+
+    /**
+     * The value of an OK reply ("" if none); an ERR reply is rethrown as its exception
+     */
+    public static String value(String[] reply)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        if (reply[0].equals("OK")) {
+            return reply.length > 1 ? reply[1] : "";
+        }
+        String type = reply.length > 1 ? reply[1] : "";
+        String message = reply.length > 2 ? reply[2] : "Request failed";
+        switch (type) {
+            case "AccountNotFoundException":
+                throw new AccountNotFoundException(message);
+            case "InsufficientBalanceException":
+                throw new InsufficientBalanceException(message);
+            case "InvalidAmountException":
+                throw new InvalidAmountException(message);
+            case "AccountInactiveException":
+                throw new AccountInactiveException(message);
+            case "IllegalArgumentException":
+                throw new IllegalArgumentException(message);
+            default:
+                throw new IllegalStateException(type + ": " + message);
+        }
+    }
+
+    // Error reply for an exception, keeping it on one line
+    public static String error(Exception e) {
+        String message = String.valueOf(e.getMessage()).replace('\t', ' ').replace('\n', ' ');
+        return "ERR\t" + e.getClass().getSimpleName() + "\t" + message;
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+            socket = null;
+        }
+    }
+}
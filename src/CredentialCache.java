@@ -0,0 +1,162 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * CredentialCache class - bounded, time-limited cache of recently verified credentials
+ * Lets repeat logins skip the slow PBKDF2 check. Only keyed HMAC digests are kept,
+ * never plain text, and each digest is bound to the stored password hash so any
+ * password change makes old entries useless.
+ */
+public class CredentialCache {
+    private static final int DEFAULT_CAPACITY = 10000;
+    private static final long DEFAULT_TTL = 300000; // 5 minutes in milliseconds
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final int capacity;
+    private final long ttlMillis;
+    private final SecretKeySpec macKey;
+    private final ThreadLocal<Mac> macs;
+    private final LinkedHashMap<String, CachedCredential> entries;
+    private volatile boolean enabled = true;
+
+    private long hits;
+    private long misses;
+
+    public CredentialCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL);
+    }
+
+    public CredentialCache(int capacity, long ttlMillis) {
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+
+        // Per-process random key: digests are worthless outside this JVM
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.macKey = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+
+        // Access-ordered map gives LRU eviction once capacity is reached
+        this.entries = new LinkedHashMap<String, CachedCredential>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCredential> eldest) {
+                return size() > CredentialCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Check whether this password was recently verified against the given stored hash
+     */
+    public boolean isVerified(String accountNumber, String storedHash, String password) {
+        if (!enabled || password == null) {
+            return false;
+        }
+
+        CachedCredential cached;
+        synchronized (this) {
+            cached = entries.get(accountNumber);
+            if (cached != null && System.currentTimeMillis() >= cached.expiresAt) {
+                entries.remove(accountNumber);
+                cached = null;
+            }
+            if (cached == null) {
+                misses++;
+                return false;
+            }
+        }
+
+        boolean matches = MessageDigest.isEqual(cached.digest, digest(storedHash, password));
+        synchronized (this) {
+            if (matches) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Remember a credential that has just passed full verification
+     */
+    public void recordVerified(String accountNumber, String storedHash, String password) {
+        if (!enabled || password == null) {
+            return;
+        }
+
+        CachedCredential cached = new CachedCredential(digest(storedHash, password),
+                                                       System.currentTimeMillis() + ttlMillis);
+        synchronized (this) {
+            entries.put(accountNumber, cached);
+        }
+    }
+
+    /**
+     * Drop any cached credential for an account (called on password change)
+     */
+    public synchronized void invalidate(String accountNumber) {
+        entries.remove(accountNumber);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    private byte[] digest(String storedHash, String password) {
+        Mac mac = macs.get();
+        mac.update(storedHash.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Credential digest unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    // Digest and absolute expiry of one verified credential
+    private static class CachedCredential {
+        private final byte[] digest;
+        private final long expiresAt;
+
+        CachedCredential(byte[] digest, long expiresAt) {
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -88,9 +88,9 @@ public class Customer {
         return customerId + "," + name + "," + email + "," + phone + "," + address;
     }
     
-    // Static method to create customer from file string
+    // Static method to create customer from file string; the address is last and may hold commas
     public static Customer fromFileString(String fileString) {
-        String[] parts = fileString.split(",");
+        String[] parts = fileString.split(",", 5);
         if (parts.length == 5) {
             return new Customer(parts[0], parts[1], parts[2], parts[3], parts[4]);
         }
@@ -7,12 +7,38 @@ import java.util.Map;
 /**
  * FileHandler class for data persistence
  * Demonstrates file I/O operations for saving and loading banking data
+ * Files live in data/ under the working directory, or in the directory named by
+ * the banking.dataDir system property (read once, when the class loads).
  */
 public class FileHandler {
-    private static final String DATA_DIR = "data/";
+    public static final String DATA_DIR_PROPERTY = "banking.dataDir";
+    private static final String DATA_DIR = dataDirectory();
     private static final String CUSTOMERS_FILE = DATA_DIR + "customers.txt";
     private static final String ACCOUNTS_FILE = DATA_DIR + "accounts.txt";
     private static final String TRANSACTIONS_FILE = DATA_DIR + "transactions.txt";
+    private static final String ARCHIVE_DIR = DATA_DIR + "archive/";
+    private static final BackupStore BACKUPS = new BackupStore(DATA_DIR + "backups/");
+    private static TransactionArchive archive; // opened on first use
+    
+    // Per-call counts and latencies of every file operation (see MetricsRegistry)
+    private static final OperationMetrics SAVE_CUSTOMERS_METRICS = MetricsRegistry.operation("file.saveCustomers");
+    private static final OperationMetrics LOAD_CUSTOMERS_METRICS = MetricsRegistry.operation("file.loadCustomers");
+    private static final OperationMetrics SAVE_ACCOUNTS_METRICS = MetricsRegistry.operation("file.saveAccounts");
+    private static final OperationMetrics LOAD_ACCOUNTS_METRICS = MetricsRegistry.operation("file.loadAccounts");
+    private static final OperationMetrics SAVE_TRANSACTIONS_METRICS = MetricsRegistry.operation("file.saveTransactions");
+    private static final OperationMetrics LOAD_TRANSACTIONS_METRICS = MetricsRegistry.operation("file.loadTransactions");
+    private static final OperationMetrics BACKUP_METRICS = MetricsRegistry.operation("file.backupData");
+    private static final OperationMetrics EXPORT_METRICS = MetricsRegistry.operation("file.exportStatement");
+    
+    private static String dataDirectory() {
+        String directory = System.getProperty(DATA_DIR_PROPERTY, "data/");
+        return directory.endsWith("/") ? directory : directory + "/";
+    }
+    
+    // Directory every data file is read from and written to, ending in '/'
+    public static String getDataDirectory() {
+        return DATA_DIR;
+    }
     
     // Initialize data directory
     static {
@@ -29,16 +55,22 @@ public class FileHandler {
     
     // Save customers to file
     public static boolean saveCustomers(Map<String, Customer> customers) {
+        long start = SAVE_CUSTOMERS_METRICS.start();
+        FileOperationEvent event = new FileOperationEvent();
+        event.begin();
+        boolean saved = true;
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(CUSTOMERS_FILE))) {
             for (Customer customer : customers.values()) {
                 writer.write(customer.toFileString());
                 writer.newLine();
             }
-            return true;
         } catch (IOException e) {
             System.err.println("❌ Error saving customers: " + e.getMessage());
-            return false;
+            saved = false;
         }
+        SAVE_CUSTOMERS_METRICS.record(start, saved);
+        event.complete("save", CUSTOMERS_FILE, saved);
+        return saved;
     }
     
     // Load customers from file
@@ -50,6 +82,10 @@ public class FileHandler {
             return customers;
         }
         
+        long start = LOAD_CUSTOMERS_METRICS.start();
+        FileOperationEvent event = new FileOperationEvent();
+        event.begin();
+        boolean loaded = true;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -60,39 +96,56 @@ public class FileHandler {
             }
         } catch (IOException e) {
             System.err.println("❌ Error loading customers: " + e.getMessage());
+            loaded = false;
         }
+        LOAD_CUSTOMERS_METRICS.record(start, loaded);
+        event.complete("load", CUSTOMERS_FILE, loaded);
         
         return customers;
     }
     
     // Save accounts to file
     public static boolean saveAccounts(Map<String, Account> accounts) {
+        long start = SAVE_ACCOUNTS_METRICS.start();
+        FileOperationEvent event = new FileOperationEvent();
+        event.begin();
+        boolean saved = true;
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(ACCOUNTS_FILE))) {
             for (Account account : accounts.values()) {
                 writer.write(account.toFileString());
                 writer.newLine();
             }
-            return true;
         } catch (IOException e) {
             System.err.println("❌ Error saving accounts: " + e.getMessage());
-            return false;
+            saved = false;
         }
+        SAVE_ACCOUNTS_METRICS.record(start, saved);
+        event.complete("save", ACCOUNTS_FILE, saved);
+        return saved;
     }
     
     // Load accounts from file
     public static Map<String, Account> loadAccounts(Map<String, Customer> customers) {
         Map<String, Account> accounts = new HashMap<>();
         File file = new File(ACCOUNTS_FILE);
+        boolean plainTextPasswords = false;
         
         if (!file.exists()) {
             return accounts;
         }
         
+        long start = LOAD_ACCOUNTS_METRICS.start();
+        FileOperationEvent event = new FileOperationEvent();
+        event.begin();
+        boolean loaded = true;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 String[] parts = line.split(",");
                 if (parts.length >= 3) {
+                    if (!PasswordHasher.isHashed(parts[1])) {
+                        plainTextPasswords = true;
+                    }
                     String customerId = parts[2];
                     Customer customer = customers.get(customerId);
                     if (customer != null) {
@@ -105,6 +158,15 @@ public class FileHandler {
             }
         } catch (IOException e) {
             System.err.println("❌ Error loading accounts: " + e.getMessage());
+            plainTextPasswords = false; // never overwrite a file we could not fully read
+            loaded = false;
+        }
+        LOAD_ACCOUNTS_METRICS.record(start, loaded);
+        event.complete("load", ACCOUNTS_FILE, loaded);
+        
+        // Rewrite the file so plain text passwords do not stay on disk after migration
+        if (plainTextPasswords && saveAccounts(accounts)) {
+            System.out.println("🔐 Migrated plain text passwords in " + ACCOUNTS_FILE + " to salted hashes");
         }
         
         return accounts;
@@ -112,16 +174,22 @@ public class FileHandler {
     
     // Save transactions to file
     public static boolean saveTransactions(List<Transaction> transactions) {
+        long start = SAVE_TRANSACTIONS_METRICS.start();
+        FileOperationEvent event = new FileOperationEvent();
+        event.begin();
+        boolean saved = true;
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(TRANSACTIONS_FILE))) {
             for (Transaction transaction : transactions) {
                 writer.write(transaction.toFileString());
                 writer.newLine();
             }
-            return true;
         } catch (IOException e) {
             System.err.println("❌ Error saving transactions: " + e.getMessage());
-            return false;
+            saved = false;
         }
+        SAVE_TRANSACTIONS_METRICS.record(start, saved);
+        event.complete("save", TRANSACTIONS_FILE, saved);
+        return saved;
     }
     
     // Load transactions from file
@@ -133,6 +201,10 @@ public class FileHandler {
             return transactions;
         }
         
+        long start = LOAD_TRANSACTIONS_METRICS.start();
+        FileOperationEvent event = new FileOperationEvent();
+        event.begin();
+        boolean loaded = true;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -143,60 +215,113 @@ public class FileHandler {
             }
         } catch (IOException e) {
             System.err.println("❌ Error loading transactions: " + e.getMessage());
+            loaded = false;
         }
+        LOAD_TRANSACTIONS_METRICS.record(start, loaded);
+        event.complete("load", TRANSACTIONS_FILE, loaded);
         
         return transactions;
     }
     
-    // Backup all data
+    // Move transactions older than the cutoff from transactions.txt into the compressed archive
+    public static int archiveTransactions(java.time.LocalDateTime cutoff) throws IOException {
+        java.time.LocalDateTime sealedBefore = getArchive().getSealedBefore();
+        List<Transaction> recent = new ArrayList<>();
+        List<Transaction> sealed = new ArrayList<>();
+        int leftOver = 0;
+        for (Transaction transaction : loadTransactions()) {
+            // Rows under the watermark are left over from a crash after sealing, unless the archive lacks them
+            if (sealedBefore != null && transaction.getTimestamp().isBefore(sealedBefore) && isArchived(transaction)) {
+                leftOver++;
+            } else {
+                (transaction.getTimestamp().isBefore(cutoff) ? sealed : recent).add(transaction);
+            }
+        }
+        if (sealed.isEmpty() && leftOver == 0) {
+            return 0;
+        }
+        
+        // The segment is on disk before the rows leave transactions.txt
+        if (!sealed.isEmpty()) {
+            getArchive().seal(sealed, cutoff);
+        }
+        if (!saveTransactions(recent)) {
+            throw new IOException("Archived transactions could not be removed from " + TRANSACTIONS_FILE);
+        }
+        return sealed.size();
+    }
+    
+    private static boolean isArchived(Transaction transaction) throws IOException {
+        for (Transaction archived : getArchive().getTransactions(transaction.getAccountNumber(),
+                                                                 transaction.getTimestamp(), transaction.getTimestamp())) {
+            if (archived.getTransactionId().equals(transaction.getTransactionId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Archived transactions of one account between from and to (either may be null)
+    public static List<Transaction> loadArchivedTransactions(String accountNumber,
+                                                             java.time.LocalDateTime from,
+                                                             java.time.LocalDateTime to) throws IOException {
+        return getArchive().getTransactions(accountNumber, from, to);
+    }
+    
+    private static synchronized TransactionArchive getArchive() throws IOException {
+        if (archive == null) {
+            archive = new TransactionArchive(ARCHIVE_DIR);
+        }
+        return archive;
+    }
+    
+    // Backup all data: an incremental backup that stores only new or changed chunks (see BackupStore)
     public static boolean backupData(Map<String, Customer> customers, 
                                    Map<String, Account> accounts, 
                                    List<Transaction> transactions) {
-        
-        String timestamp = java.time.LocalDateTime.now().toString().replace(":", "-");
-        String backupDir = DATA_DIR + "backup_" + timestamp + "/";
-        
-        File backupDirFile = new File(backupDir);
-        if (!backupDirFile.exists()) {
-            backupDirFile.mkdirs();
-        }
-        
+        long start = BACKUP_METRICS.start();
+        FileOperationEvent event = new FileOperationEvent();
+        event.begin();
+        String manifest = BACKUPS.getDirectory().getPath();
+        boolean backedUp = false;
         try {
-            // Backup customers
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(backupDir + "customers.txt"))) {
-                for (Customer customer : customers.values()) {
-                    writer.write(customer.toFileString());
-                    writer.newLine();
-                }
-            }
-            
-            // Backup accounts
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(backupDir + "accounts.txt"))) {
-                for (Account account : accounts.values()) {
-                    writer.write(account.toFileString());
-                    writer.newLine();
-                }
-            }
-            
-            // Backup transactions
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(backupDir + "transactions.txt"))) {
-                for (Transaction transaction : transactions) {
-                    writer.write(transaction.toFileString());
-                    writer.newLine();
-                }
-            }
-            
-            System.out.println("✅ Data backup created: " + backupDir);
+            String name = BACKUPS.backup(customers.values(), accounts.values(), transactions);
+            manifest = new File(BACKUPS.getDirectory(), name + ".manifest").getPath();
+            System.out.printf("✅ Data backup created: %s (%d new chunks, %d bytes written)%n",
+                              name, BACKUPS.getLastChunksWritten(), BACKUPS.getLastBytesWritten());
+            backedUp = true;
             return true;
-            
         } catch (IOException e) {
             System.err.println("❌ Error creating backup: " + e.getMessage());
             return false;
+        } finally {
+            BACKUP_METRICS.record(start, backedUp);
+            // Bytes of the new chunks, including any written before a failure
+            event.complete("backup", manifest, BACKUPS.getLastBytesWritten(), backedUp);
         }
     }
     
+    // Backups written by backupData, for verification and restore
+    public static BackupStore getBackupStore() {
+        return BACKUPS;
+    }
+    
     // Export account statement to file
     public static boolean exportAccountStatement(Account account, String filename) {
+        long start = EXPORT_METRICS.start();
+        FileOperationEvent event = new FileOperationEvent();
+        event.begin();
+        boolean exported = false;
+        try {
+            exported = writeAccountStatement(account, filename);
+            return exported;
+        } finally {
+            EXPORT_METRICS.record(start, exported);
+            event.complete("export", DATA_DIR + filename, exported);
+        }
+    }
+    
+    private static boolean writeAccountStatement(Account account, String filename) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + filename))) {
             writer.write("ACCOUNT STATEMENT");
             writer.newLine();
@@ -211,7 +336,7 @@ public class FileHandler {
             writer.newLine();
             writer.write("Account Type: " + account.getAccountType());
             writer.newLine();
-            writer.write("Current Balance: ₹" + String.format("%.2f", account.getBalance()));
+            writer.write("Current Balance: " + FxRateTable.format(account.getBalance(), account.getCurrency()));
             writer.newLine();
             writer.write("Date Created: " + account.getDateCreated());
             writer.newLine();
@@ -223,7 +348,19 @@ public class FileHandler {
             writer.write("===================");
             writer.newLine();
             
-            List<Transaction> transactions = account.getTransactionHistory();
+            // Archived history first, skipping rows this process archived but still holds in memory
+            List<Transaction> history = account.getTransactionHistory();
+            List<Transaction> transactions = new ArrayList<>();
+            if (new File(ARCHIVE_DIR).exists()) {
+                java.util.Set<String> live = new java.util.HashSet<>();
+                history.forEach(transaction -> live.add(transaction.getTransactionId()));
+                for (Transaction transaction : loadArchivedTransactions(account.getAccountNumber(), null, null)) {
+                    if (!live.contains(transaction.getTransactionId())) {
+                        transactions.add(transaction);
+                    }
+                }
+            }
+            transactions.addAll(history);
             if (transactions.isEmpty()) {
                 writer.write("No transactions found.");
                 writer.newLine();
@@ -283,6 +420,13 @@ public class FileHandler {
     
     // Clean up old backup files (keep only last 5 backups)
     public static void cleanupOldBackups() {
+        try {
+            BACKUPS.prune(5);
+        } catch (IOException e) {
+            System.err.println("❌ Error pruning backups: " + e.getMessage());
+        }
+        
+        // Full-copy backup directories written before backups became incremental
         File dataDir = new File(DATA_DIR);
         File[] backupDirs = dataDir.listFiles((dir, name) -> name.startsWith("backup_"));
         
@@ -0,0 +1,56 @@
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * FileOperationEvent class - JFR event for one FileHandler load, save, backup or export
+ * The byte count is taken from the file when the event is committed, so it costs
+ * nothing when disabled; a backup reports the bytes its BackupStore wrote instead.
+ */
+@Name("banking.FileOperation")
+@Label("Banking File Operation")
+@Category({"Banking", "Persistence"})
+@Description("A FileHandler load, save, backup or statement export")
+@StackTrace(false)
+@Enabled(false)
+public class FileOperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * Fill in the fields and commit, if a recording wants this event
+     */
+    public void complete(String operation, String path, boolean success) {
+        if (shouldCommit()) {
+            complete(operation, path, new File(path).length(), success);
+        }
+    }
+
+    /**
+     * Same, with a byte count the caller measured
+     */
+    public void complete(String operation, String path, long bytes, boolean success) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.path = path;
+            this.bytes = bytes;
+            this.success = success;
+            commit();
+        }
+    }
+}
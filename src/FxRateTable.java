@@ -0,0 +1,299 @@
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FxRateTable class - exchange rates for cross-currency transfers
+ * Rates come from a local file, one currency per line with the rupees one unit
+ * buys ("USD,83.25"); blank lines and lines starting with # are skipped. Rupees
+ * (INR) are the base and always present.
+ *
+ * The rates live in an immutable Snapshot. refresh() builds a new one from the
+ * file and replaces the old with a single volatile write, so readers never lock
+ * and a transfer converts with one consistent set of rates even while a refresh
+ * is under way. A file with a bad line is rejected whole and the old rates stay.
+ *
+ * Usage: java FxRateTable <ratesFile>
+ *        java FxRateTable bench [transfers]
+ */
+public class FxRateTable {
+    public static final String BASE_CURRENCY = "INR";
+    private static final String DEFAULT_FILE = "data/fx_rates.txt";
+
+    private final File file;
+    private volatile Snapshot snapshot;
+    private volatile long loadedModified = -1;
+    private ScheduledExecutorService refresher;
+
+    // Constructor - rates from file, or only the base currency while it does not exist
+    public FxRateTable(File file) throws IOException {
+        this.file = file;
+        this.snapshot = new Snapshot(Collections.singletonMap(BASE_CURRENCY, 1.0), null);
+        refresh();
+    }
+
+    // Only the base currency, for services without a rates file
+    public FxRateTable() {
+        this.file = null;
+        this.snapshot = new Snapshot(Collections.singletonMap(BASE_CURRENCY, 1.0), null);
+    }
+
+    public static FxRateTable open() throws IOException {
+        return new FxRateTable(new File(DEFAULT_FILE));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java FxRateTable <ratesFile> | bench [transfers]");
+            return;
+        }
+        if (args[0].equals("bench")) {
+            bench(args.length > 1 ? Integer.parseInt(args[1]) : 200_000);
+            return;
+        }
+        new FxRateTable(new File(args[0])).getSnapshot().display();
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Load the file into a new snapshot and swap it in; returns the snapshot now in use
+     */
+    public synchronized Snapshot refresh() throws IOException {
+        if (file == null || !file.exists()) {
+            return snapshot;
+        }
+        long modified = file.lastModified();
+        Map<String, Double> rates = new HashMap<>();
+        rates.put(BASE_CURRENCY, 1.0);
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            String currency = parts[0].trim().toUpperCase(Locale.ROOT);
+            double rate;
+            try {
+                rate = parts.length == 2 ? Double.parseDouble(parts[1].trim()) : Double.NaN;
+            } catch (NumberFormatException e) {
+                rate = Double.NaN;
+            }
+            if (currency.length() != 3 || !(rate > 0) || Double.isInfinite(rate)) {
+                throw new IOException("Bad FX rate on line " + lineNumber + " of " + file + ": " + line);
+            }
+            rates.put(currency, rate);
+        }
+        snapshot = new Snapshot(rates, LocalDateTime.now());
+        loadedModified = modified;
+        return snapshot;
+    }
+
+    /**
+     * Re-read the file every period while it keeps changing; bad files are reported
+     * and skipped
+     */
+    public synchronized void startAutoRefresh(long period, TimeUnit unit) {
+        if (refresher != null || file == null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-rate-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            if (file.lastModified() != loadedModified) {
+                try {
+                    refresh();
+                } catch (IOException e) {
+                    System.err.println("❌ FX rates not refreshed: " + e.getMessage());
+                }
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized void stopAutoRefresh() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    // Display symbol of a currency; the code itself for the less common ones
+    public static String symbol(String currency) {
+        switch (currency) {
+            case "INR":
+                return "₹";
+            case "USD":
+                return "$";
+            case "EUR":
+                return "€";
+            case "GBP":
+                return "£";
+            case "JPY":
+                return "¥";
+            default:
+                return currency + " ";
+        }
+    }
+
+    public static String format(double amount, String currency) {
+        return symbol(currency) + String.format("%.2f", amount);
+    }
+
+    /**
+     * Transfer latency between rupee accounts and from rupee to dollar accounts,
+     * with a thread swapping in a new snapshot every millisecond throughout
+     */
+    private static void bench(int transfers) throws Exception {
+        MetricsRegistry.setEnabled(false);
+        File ratesFile = File.createTempFile("fx_rates", ".txt");
+        ratesFile.deleteOnExit();
+        Files.write(ratesFile.toPath(), "USD,83.25\nEUR,90.10\n".getBytes(StandardCharsets.UTF_8));
+        FxRateTable table = new FxRateTable(ratesFile);
+
+        // Built from one precomputed hash; createAccount would run PBKDF2 per account
+        String passwordHash = PasswordHasher.hash("bench123");
+        Map<String, Customer> customers = new HashMap<>();
+        Map<String, Account> accounts = new HashMap<>();
+        int accountCount = 1000;
+        String[] rupee = new String[accountCount];
+        String[] dollar = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            Customer customer = new Customer(String.format("CUST%06d", 1001 + i), "Bench " + i,
+                                             "bench@example.com", "0000000000", "Bench St");
+            customers.put(customer.getCustomerId(), customer);
+            rupee[i] = String.format("ACC%06d", 1001 + i);
+            dollar[i] = String.format("ACC%06d", 1001 + accountCount + i);
+            String fields = "," + passwordHash + "," + customer.getCustomerId() + ",SAVINGS,1.0E12,"
+                            + LocalDate.now() + ",true";
+            accounts.put(rupee[i], Account.fromFileString(rupee[i] + fields, customer));
+            accounts.put(dollar[i], Account.fromFileString(dollar[i] + fields + ",USD", customer));
+        }
+        BankingService service = new BankingService();
+        service.loadData(customers, accounts, new ArrayList<>());
+        service.setFxRates(table);
+
+        Thread swapper = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    table.snapshot = new Snapshot(table.snapshot.getRates(), LocalDateTime.now());
+                    Thread.sleep(1);
+                }
+            } catch (InterruptedException e) {
+                // done
+            }
+        }, "fx-bench-swapper");
+        swapper.setDaemon(true);
+        swapper.start();
+        System.out.printf("%,d transfers per kind over %,d account pairs, snapshot swapped every ms%n",
+                          transfers, accountCount);
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            LatencyHistogram same = run(service, rupee, rupee, transfers);
+            LatencyHistogram cross = run(service, rupee, dollar, transfers);
+            if (round == 1) {
+                print("INR -> INR", same);
+                print("INR -> USD", cross);
+            }
+        }
+        swapper.interrupt();
+    }
+
+    private static LatencyHistogram run(BankingService service, String[] from, String[] to, int transfers)
+            throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        for (int i = 0; i < transfers; i++) {
+            int a = random.nextInt(from.length);
+            int b = (a + 1 + random.nextInt(to.length - 1)) % to.length;
+            long start = System.nanoTime();
+            service.transfer(from[a], to[b], 1 + random.nextInt(5000));
+            histogram.record(System.nanoTime() - start);
+        }
+        return histogram;
+    }
+
+    private static void print(String label, LatencyHistogram histogram) {
+        System.out.printf("  %-12s p50 %6.2f µs   p99 %6.2f µs   p99.9 %7.2f µs%n", label,
+                          histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                          histogram.getValueAtPercentile(99.9) / 1000.0);
+    }
+
+    /**
+     * Snapshot class - one immutable set of rates
+     */
+    public static final class Snapshot {
+        private final Map<String, Double> rupeesPerUnit;
+        private final LocalDateTime loadedAt;
+
+        Snapshot(Map<String, Double> rupeesPerUnit, LocalDateTime loadedAt) {
+            this.rupeesPerUnit = Collections.unmodifiableMap(new HashMap<>(rupeesPerUnit));
+            this.loadedAt = loadedAt;
+        }
+
+        public boolean supports(String currency) {
+            return rupeesPerUnit.containsKey(currency);
+        }
+
+        // Units of to that one unit of from buys
+        public double rate(String from, String to) {
+            Double fromRate = rupeesPerUnit.get(from);
+            Double toRate = rupeesPerUnit.get(to);
+            if (fromRate == null || toRate == null) {
+                throw new IllegalArgumentException("No FX rate from " + from + " to " + to);
+            }
+            return fromRate / toRate;
+        }
+
+        /**
+         * Amount in from converted to to, rounded half-even to two decimals
+         */
+        public double convert(double amount, String from, String to) {
+            if (from.equals(to)) {
+                return amount;
+            }
+            return BigDecimal.valueOf(amount).multiply(BigDecimal.valueOf(rate(from, to)))
+                             .setScale(2, RoundingMode.HALF_EVEN).doubleValue();
+        }
+
+        public Map<String, Double> getRates() {
+            return rupeesPerUnit;
+        }
+
+        // Null for the built-in base-only snapshot
+        public LocalDateTime getLoadedAt() {
+            return loadedAt;
+        }
+
+        public void display() {
+            System.out.println("┌──────────┬──────────────────┐");
+            System.out.println("│ Currency │   Rupees / unit  │");
+            System.out.println("├──────────┼──────────────────┤");
+            for (Map.Entry<String, Double> entry : new TreeMap<>(rupeesPerUnit).entrySet()) {
+                System.out.printf("│ %-8s │ %16.4f │%n", entry.getKey(), entry.getValue());
+            }
+            System.out.println("└──────────┴──────────────────┘");
+            System.out.println("Loaded: " + (loadedAt == null ? "built-in" : loadedAt));
+        }
+    }
+}
@@ -0,0 +1,375 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IdempotencyCache class - bounded, time-limited record of postings by idempotency key
+ * A client that retries a deposit, withdrawal or transfer with the same key gets
+ * the original Transaction back instead of posting it again. A retry arriving
+ * while the original is still running waits for it. Only successful postings are
+ * remembered: after a failure the same key may be tried again. Reusing a key for
+ * a different request is rejected.
+ *
+ * Keys are spread over 16 independently locked, insertion-ordered stripes, so a
+ * lookup is one hash and one short lock. Entries expire after the TTL, and the
+ * oldest are dropped once a stripe is full.
+ *
+ * A cache opened on a file also journals each completed key and reloads the
+ * unexpired keys on open. complete() only queues the record: a writer thread
+ * appends whatever has queued in one write, so postings never wait for the
+ * journal under their account lock. Every COMPACT_INTERVAL_MINUTES the same
+ * thread rewrites the journal without its expired keys, if it has more than
+ * doubled since the last rewrite (so rewriting costs O(1) per key overall). A process crash can forget the keys still queued (the last few
+ * milliseconds of postings); close() writes them. The key is completed in memory
+ * before it is journaled, so a failed journal write is reported but never makes
+ * a retry post the same request again.
+ */
+public class IdempotencyCache {
+    private static final int DEFAULT_CAPACITY = 100_000;
+    private static final long DEFAULT_TTL = 24 * 60 * 60 * 1000L; // 24 hours in milliseconds
+    private static final int STRIPES = 16;
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final String DEFAULT_FILE = "data/idempotency.log";
+    private static final long COMPACT_INTERVAL_MINUTES = 10;
+
+    private final long ttlMillis;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final File journalFile;
+    private final TwoPhaseLog journal;
+    private final ScheduledExecutorService journalWriter;
+    private final ConcurrentLinkedQueue<String[]> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private volatile long journalRecords; // records in the journal file; updated by the writer thread after load
+    private volatile long compactedRecords; // records the last rewrite (or load) kept
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Constructor - in memory only
+    public IdempotencyCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL);
+    }
+
+    public IdempotencyCache(int capacity, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.journalFile = null;
+        this.journal = null;
+        this.journalWriter = null;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(1, capacity / STRIPES));
+        }
+    }
+
+    // Constructor - journaled to (and reloaded from) file
+    public IdempotencyCache(File journalFile, int capacity, long ttlMillis) throws IOException {
+        this.ttlMillis = ttlMillis;
+        this.journalFile = journalFile;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(1, capacity / STRIPES));
+        }
+        this.journal = new TwoPhaseLog(journalFile);
+        load();
+        this.journalWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        journalWriter.scheduleWithFixedDelay(this::compactQuietly, COMPACT_INTERVAL_MINUTES,
+                                             COMPACT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static IdempotencyCache open() throws IOException {
+        return open(DEFAULT_FILE);
+    }
+
+    public static IdempotencyCache open(String journalFile) throws IOException {
+        return new IdempotencyCache(new File(journalFile), DEFAULT_CAPACITY, DEFAULT_TTL);
+    }
+
+    /**
+     * Claim a key for a request. Returns null for a null key, the original entry
+     * (isCompleted()) for a duplicate, otherwise a new pending entry the caller
+     * must complete() or abandon().
+     */
+    public Entry begin(String key, String request) {
+        if (key == null) {
+            return null;
+        }
+        checkKey(key);
+        Stripe stripe = stripeFor(key);
+        while (true) {
+            Entry existing;
+            Entry claimed = null;
+            long now = System.currentTimeMillis();
+            synchronized (stripe) {
+                existing = stripe.entries.get(key);
+                if (existing != null && existing.isExpired(now)) {
+                    stripe.entries.remove(key);
+                    existing = null;
+                }
+                if (existing == null) {
+                    claimed = new Entry(key, request, now + ttlMillis);
+                    stripe.entries.put(key, claimed);
+                }
+            }
+            if (claimed != null) {
+                misses.increment();
+                return claimed;
+            }
+            if (!existing.request.equals(request)) {
+                throw new IllegalArgumentException("Idempotency key " + key + " was already used for a different request");
+            }
+            if (existing.awaitOutcome()) {
+                hits.increment();
+                return existing;
+            }
+            // The original failed and gave the key up; claim it again
+        }
+    }
+
+    /**
+     * Record the posting's result; call while still holding the account's lock.
+     * The journal record is only queued here.
+     */
+    public void complete(Entry entry, Transaction result) {
+        // The posting is already applied: remember it before anything can fail
+        entry.finish(result);
+        if (journal != null) {
+            queued.offer(new String[] {"KEY", entry.key, Long.toString(entry.expiresAt), entry.request,
+                                       result.toFileString()});
+            if (flushQueued.compareAndSet(false, true)) {
+                try {
+                    journalWriter.execute(this::flush);
+                } catch (java.util.concurrent.RejectedExecutionException e) {
+                    flushQueued.set(false); // closed: close() has written or will write the queue
+                }
+            }
+        }
+    }
+
+    // Writer thread: everything queued so far in one append
+    private void flush() {
+        flushQueued.set(false); // before draining, so a record queued after the drain schedules another flush
+        List<String[]> batch = new ArrayList<>();
+        for (String[] record = queued.poll(); record != null; record = queued.poll()) {
+            batch.add(record);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            journal.appendAll(false, batch);
+            journalRecords += batch.size();
+        } catch (IOException e) {
+            // Still deduplicated until a restart, which is all the journal adds
+            System.err.println("❌ Idempotency journal write failed for " + batch.size() + " keys: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Give the key up after a failed posting, so it can be tried again
+     */
+    public void abandon(Entry entry) {
+        Stripe stripe = stripeFor(entry.key);
+        synchronized (stripe) {
+            stripe.entries.remove(entry.key, entry);
+        }
+        entry.finish(null);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public boolean isPersistent() {
+        return journalFile != null;
+    }
+
+    /**
+     * Write the queued keys and close the journal
+     */
+    public void close() throws IOException {
+        if (journal != null) {
+            journalWriter.shutdown();
+            try {
+                journalWriter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flush();
+            journal.close();
+        }
+    }
+
+    // Keys are stored in comma-separated journal records
+    private static void checkKey(String key) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == ',' || Character.isISOControl(c)) {
+                throw new IllegalArgumentException("Idempotency key contains an invalid character");
+            }
+        }
+    }
+
+    private Stripe stripeFor(String key) {
+        return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    // Reload unexpired keys; rewrite the journal when most of it has expired
+    private void load() throws IOException {
+        long now = System.currentTimeMillis();
+        List<String[]> records = journal.readAll();
+        journalRecords = records.size();
+        for (String[] record : records) {
+            if (!isLive(record, now)) {
+                continue;
+            }
+            Transaction result = Transaction.fromFileString(String.join(",", Arrays.copyOfRange(record, 4, record.length)));
+            if (result == null) {
+                continue;
+            }
+            compactedRecords++;
+            Entry entry = new Entry(record[1], record[3], Long.parseLong(record[2]));
+            entry.finish(result);
+            Stripe stripe = stripeFor(entry.key);
+            synchronized (stripe) {
+                stripe.entries.put(entry.key, entry);
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Rewrite the journal without expired keys once it has more than doubled since
+     * the last rewrite; runs on the writer thread every COMPACT_INTERVAL_MINUTES,
+     * and once on open
+     */
+    void compact() throws IOException {
+        if (journalRecords <= 2 * compactedRecords + 1000) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        journal.compact(records -> {
+            List<String[]> live = new ArrayList<>();
+            for (String[] record : records) {
+                if (isLive(record, now)) {
+                    live.add(record);
+                }
+            }
+            journalRecords = live.size();
+            compactedRecords = live.size();
+            return live;
+        });
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("❌ Idempotency journal compaction failed: " + e.getMessage());
+        }
+    }
+
+    private static boolean isLive(String[] record, long now) {
+        return record.length >= 5 && record[0].equals("KEY") && Long.parseLong(record[2]) > now;
+    }
+
+    /**
+     * Entry class - one key's request and, once completed, its result
+     */
+    public static final class Entry {
+        private final String key;
+        private final String request;
+        private final long expiresAt;
+        private Transaction result; // guarded by this
+        private boolean finished;
+
+        Entry(String key, String request, long expiresAt) {
+            this.key = key;
+            this.request = request;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public synchronized boolean isCompleted() {
+            return result != null;
+        }
+
+        public synchronized Transaction getResult() {
+            return result;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        synchronized void finish(Transaction result) {
+            this.result = result;
+            this.finished = true;
+            notifyAll();
+        }
+
+        // Wait for the original posting; true if it succeeded
+        synchronized boolean awaitOutcome() {
+            boolean interrupted = false;
+            while (!finished) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return result != null;
+        }
+    }
+
+    // Insertion order is expiry order, so the eldest entry is the first to go
+    private static final class Stripe {
+        private final LinkedHashMap<String, Entry> entries;
+
+        Stripe(int capacity) {
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, IdempotencyCache.Entry> eldest) {
+                    IdempotencyCache.Entry entry = eldest.getValue();
+                    // A pending posting keeps its key until it finishes
+                    return entry.isCompleted()
+                           && (size() > capacity || entry.isExpired(System.currentTimeMillis()));
+                }
+            };
+        }
+    }
+}
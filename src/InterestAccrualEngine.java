@@ -0,0 +1,389 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * InterestAccrualEngine class - nightly interest run over every active SAVINGS account
+ * A run is for one business date. Its accounts are fixed when it first starts
+ * (interest-DATE.accounts, sorted) and cut into batches of BATCH_SIZE, which
+ * fork/join tasks post in parallel. Each account is credited under a short hold of
+ * its own lock, and each batch reaches the ledger with one append, so live traffic
+ * keeps running during the run.
+ *
+ * Daily interest is balance × rate / days-in-year, computed in whole paise from the
+ * balance in paise and rounded half-even. The event carries the reference
+ * "interest:DATE".
+ *
+ * The checkpoint (interest-DATE.log) records BEGIN and DONE per batch and COMPLETE
+ * at the end. Running a date again skips DONE batches, and a finished date does
+ * nothing. A batch that began but never finished is re-run account by account,
+ * skipping accounts whose events already hold the reference.
+ *
+ * The service must be on a persistent event store: postings reach its logs,
+ * which are forced to disk before a batch is marked DONE, and in-doubt batches
+ * are checked against them with one pass over the log.
+ *
+ * Usage: java InterestAccrualEngine bench [accounts] [rateBasisPoints]
+ */
+public class InterestAccrualEngine {
+    private static final int BATCH_SIZE = 512;
+    private static final String DEFAULT_DIRECTORY = "data/interest/";
+    private static final OperationMetrics BATCH_METRICS = MetricsRegistry.operation("interest.batch");
+
+    private final BankingService bankingService;
+    private final File directory;
+    private final int annualRateBasisPoints;
+    private final int parallelism;
+
+    // Constructor - rate in basis points per year (350 = 3.5%), parallelism in worker threads
+    public InterestAccrualEngine(BankingService bankingService, String directory, int annualRateBasisPoints,
+                                 int parallelism) {
+        if (annualRateBasisPoints < 0) {
+            throw new IllegalArgumentException("Interest rate cannot be negative");
+        }
+        if (!bankingService.getEventStore().isPersistent()) {
+            throw new IllegalArgumentException("Interest runs need a persistent event store");
+        }
+        this.bankingService = bankingService;
+        this.directory = new File(directory);
+        this.annualRateBasisPoints = annualRateBasisPoints;
+        this.parallelism = parallelism;
+    }
+
+    public InterestAccrualEngine(BankingService bankingService, int annualRateBasisPoints) {
+        this(bankingService, DEFAULT_DIRECTORY, annualRateBasisPoints, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || !args[0].equals("bench")) {
+            System.out.println("Usage: java InterestAccrualEngine bench [accounts] [rateBasisPoints]");
+            return;
+        }
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 350;
+        MetricsRegistry.setEnabled(false);
+
+        // Built from one precomputed hash; createAccount would run PBKDF2 per account
+        String passwordHash = PasswordHasher.hash("bench123");
+        Map<String, Customer> customers = new HashMap<>();
+        Map<String, Account> accounts = new HashMap<>();
+        for (int i = 0; i < accountCount; i++) {
+            Customer customer = new Customer(String.format("CUST%06d", 1001 + i), "Bench " + i,
+                                             "bench@example.com", "0000000000", "Bench St");
+            customers.put(customer.getCustomerId(), customer);
+            String type = i % 4 == 3 ? "CURRENT" : "SAVINGS";
+            Account account = Account.fromFileString(String.format("ACC%06d", 1001 + i) + "," + passwordHash + ","
+                    + customer.getCustomerId() + "," + type + "," + (1000 + i * 7.31) + "," + LocalDate.now() + ",true",
+                    customer);
+            accounts.put(account.getAccountNumber(), account);
+        }
+        File directory = Files.createTempDirectory("interest-bench").toFile();
+        EventStore eventStore = EventStore.open(new File(directory, "events").getPath());
+        BankingService service = new BankingService(eventStore);
+        service.loadData(customers, accounts, new ArrayList<>());
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        LocalDate date = LocalDate.now();
+        System.out.printf("%,d accounts (%,d SAVINGS), %d CPUs%n", accountCount, accountCount - accountCount / 4, cores);
+        for (int threads : cores == 1 ? new int[] {1} : new int[] {1, cores}) {
+            InterestAccrualEngine engine = new InterestAccrualEngine(service, directory.getPath(), rate, threads);
+            RunSummary summary = engine.run(date);
+            System.out.printf("  %2d threads: %s%n", threads, summary);
+            date = date.minusDays(1);
+        }
+        RunSummary repeat = new InterestAccrualEngine(service, directory.getPath(), rate, cores).run(date.plusDays(1));
+        System.out.println("  repeated date: " + repeat);
+        eventStore.close();
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Accrue and post one business date's interest; safe to call again for the same
+     * date, after a crash or otherwise
+     */
+    public RunSummary run(LocalDate businessDate) throws IOException {
+        long start = System.nanoTime();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        String reference = "interest:" + businessDate;
+        File accountsFile = new File(directory, "interest-" + businessDate + ".accounts");
+        TwoPhaseLog checkpoint = new TwoPhaseLog(new File(directory, "interest-" + businessDate + ".log"));
+        try {
+            Set<Integer> begun = new HashSet<>();
+            Set<Integer> done = new HashSet<>();
+            long[] previous = new long[2]; // accounts credited, paise, by batches done before this run
+            for (String[] record : checkpoint.readAll()) {
+                switch (record[0]) {
+                    case "BEGIN":
+                        begun.add(Integer.parseInt(record[1]));
+                        break;
+                    case "DONE":
+                        done.add(Integer.parseInt(record[1]));
+                        previous[0] += Long.parseLong(record[2]);
+                        previous[1] += Long.parseLong(record[3]);
+                        break;
+                    case "COMPLETE":
+                        return new RunSummary(businessDate, 0, 0, 0, 0, true, System.nanoTime() - start);
+                    default:
+                        break;
+                }
+            }
+            begun.removeAll(done);
+            Set<String> credited = begun.isEmpty() ? Collections.emptySet() : creditedAccounts(reference);
+
+            List<String> eligible = eligibleAccounts(accountsFile);
+            int batchCount = (eligible.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+            int daysInYear = businessDate.lengthOfYear();
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long[] posted;
+            try {
+                posted = pool.invoke(new BatchTask(eligible, 0, batchCount, done, begun, credited, reference,
+                                                   daysInYear, checkpoint));
+            } finally {
+                pool.shutdown();
+            }
+            checkpoint.append(true, "COMPLETE", String.valueOf(previous[0] + posted[0]),
+                              String.valueOf(previous[1] + posted[1]));
+            return new RunSummary(businessDate, posted[2], posted[0], posted[1], done.size(), false,
+                                  System.nanoTime() - start);
+        } finally {
+            checkpoint.close();
+        }
+    }
+
+    // The run's accounts: saved when it first starts, so a restart sees the same batches
+    private List<String> eligibleAccounts(File accountsFile) throws IOException {
+        if (accountsFile.exists()) {
+            return Files.readAllLines(accountsFile.toPath(), StandardCharsets.UTF_8);
+        }
+        // Already in account-number order
+        List<String> eligible = bankingService.streamAccounts()
+                .filter(account -> account.getAccountType().equalsIgnoreCase("SAVINGS") && account.isActive())
+                .map(Account::getAccountNumber)
+                .collect(Collectors.toList());
+
+        File temp = new File(accountsFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write((String.join("\n", eligible) + (eligible.isEmpty() ? "" : "\n")).getBytes(StandardCharsets.UTF_8));
+            out.getChannel().force(false);
+        }
+        Files.move(temp.toPath(), accountsFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return eligible;
+    }
+
+    /**
+     * One day's interest in paise on a balance in paise, rounded half-even
+     */
+    public long dailyInterestPaise(long balancePaise, int daysInYear) {
+        if (balancePaise <= 0) {
+            return 0;
+        }
+        long denominator = 10_000L * daysInYear;
+        try {
+            long numerator = Math.multiplyExact(balancePaise, (long) annualRateBasisPoints);
+            long quotient = numerator / denominator;
+            long twiceRemainder = 2 * (numerator % denominator);
+            if (twiceRemainder > denominator || (twiceRemainder == denominator && (quotient & 1) == 1)) {
+                quotient++;
+            }
+            return quotient;
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(balancePaise).multiply(BigDecimal.valueOf(annualRateBasisPoints))
+                    .divide(BigDecimal.valueOf(denominator), 0, RoundingMode.HALF_EVEN).longValueExact();
+        }
+    }
+
+    // Credit one batch; returns {accounts credited, paise credited}
+    private long[] postBatch(List<String> accounts, String reference, int daysInYear, Set<String> credited) {
+        long start = BATCH_METRICS.start();
+        boolean success = false;
+        List<Transaction> transactions = new ArrayList<>(accounts.size());
+        long paise = 0;
+        try {
+            for (String accountNumber : accounts) {
+                if (credited.contains(accountNumber)) {
+                    continue;
+                }
+                Account account;
+                try {
+                    account = bankingService.getAccount(accountNumber);
+                } catch (AccountNotFoundException e) {
+                    continue; // closed since the run started
+                }
+                if (!account.isActive()) {
+                    continue;
+                }
+                try {
+                    Transaction transaction = bankingService.accrueInterest(account, balance ->
+                            dailyInterestPaise(Math.round(balance * 100), daysInYear) / 100.0, reference);
+                    if (transaction != null) {
+                        transactions.add(transaction);
+                        paise += Math.round(transaction.getAmount() * 100);
+                    }
+                } catch (InvalidAmountException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            bankingService.recordTransactions(transactions);
+            success = true;
+            return new long[] {transactions.size(), paise};
+        } finally {
+            BATCH_METRICS.record(start, success);
+        }
+    }
+
+    // Accounts whose events already hold the reference, from one pass over the log
+    private Set<String> creditedAccounts(String reference) {
+        Set<String> credited = new HashSet<>();
+        bankingService.getEventStore().forEachEvent(event -> {
+            if (event.getReference().equals(reference)) {
+                credited.add(event.getAccountNumber());
+            }
+        });
+        return credited;
+    }
+
+    // Batches [from, to); splits in half until one batch is left
+    private final class BatchTask extends RecursiveTask<long[]> {
+        private final List<String> eligible;
+        private final int from;
+        private final int to;
+        private final Set<Integer> done;
+        private final Set<Integer> inDoubt;
+        private final Set<String> credited;
+        private final String reference;
+        private final int daysInYear;
+        private final TwoPhaseLog checkpoint;
+
+        BatchTask(List<String> eligible, int from, int to, Set<Integer> done, Set<Integer> inDoubt,
+                  Set<String> credited, String reference, int daysInYear, TwoPhaseLog checkpoint) {
+            this.eligible = eligible;
+            this.from = from;
+            this.to = to;
+            this.done = done;
+            this.inDoubt = inDoubt;
+            this.credited = credited;
+            this.reference = reference;
+            this.daysInYear = daysInYear;
+            this.checkpoint = checkpoint;
+        }
+
+        // {accounts credited, paise credited, accounts examined}
+        @Override
+        protected long[] compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                BatchTask left = new BatchTask(eligible, from, middle, done, inDoubt, credited, reference, daysInYear,
+                                           checkpoint);
+                BatchTask right = new BatchTask(eligible, middle, to, done, inDoubt, credited, reference, daysInYear,
+                                            checkpoint);
+                left.fork();
+                long[] rightResult = right.compute();
+                long[] leftResult = left.join();
+                return new long[] {leftResult[0] + rightResult[0], leftResult[1] + rightResult[1],
+                                   leftResult[2] + rightResult[2]};
+            }
+            if (from == to || done.contains(from)) {
+                return new long[3];
+            }
+            List<String> batch = eligible.subList(from * BATCH_SIZE, Math.min(eligible.size(), (from + 1) * BATCH_SIZE));
+            try {
+                checkpoint.append(false, "BEGIN", String.valueOf(from));
+                long[] posted = postBatch(batch, reference, daysInYear,
+                                          inDoubt.contains(from) ? credited : Collections.<String>emptySet());
+                // The postings must be on disk before the checkpoint says they happened
+                bankingService.getEventStore().sync();
+                checkpoint.append(true, "DONE", String.valueOf(from), String.valueOf(posted[0]), String.valueOf(posted[1]));
+                return new long[] {posted[0], posted[1], batch.size()};
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write interest checkpoint", e);
+            }
+        }
+    }
+
+    /**
+     * RunSummary class - outcome of one interest run
+     */
+    public static final class RunSummary {
+        private final LocalDate businessDate;
+        private final long accountsExamined;
+        private final long accountsCredited;
+        private final long interestPaise;
+        private final int batchesSkipped;
+        private final boolean alreadyComplete;
+        private final long elapsedNanos;
+
+        RunSummary(LocalDate businessDate, long accountsExamined, long accountsCredited, long interestPaise,
+                   int batchesSkipped, boolean alreadyComplete, long elapsedNanos) {
+            this.businessDate = businessDate;
+            this.accountsExamined = accountsExamined;
+            this.accountsCredited = accountsCredited;
+            this.interestPaise = interestPaise;
+            this.batchesSkipped = batchesSkipped;
+            this.alreadyComplete = alreadyComplete;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public LocalDate getBusinessDate() {
+            return businessDate;
+        }
+
+        public long getAccountsExamined() {
+            return accountsExamined;
+        }
+
+        public long getAccountsCredited() {
+            return accountsCredited;
+        }
+
+        public double getInterestTotal() {
+            return interestPaise / 100.0;
+        }
+
+        public int getBatchesSkipped() {
+            return batchesSkipped;
+        }
+
+        public boolean isAlreadyComplete() {
+            return alreadyComplete;
+        }
+
+        public double getAccountsPerSecond() {
+            return elapsedNanos == 0 ? 0 : accountsExamined * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            if (alreadyComplete) {
+                return businessDate + " already complete";
+            }
+            return String.format("%s: %,d accounts, %,d credited ₹%,.2f, %d batches skipped, %d ms (%,.0f accounts/s)",
+                    businessDate, accountsExamined, accountsCredited, getInterestTotal(), batchesSkipped,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getAccountsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram class - fixed-memory, HDR-style latency histogram
+ * Values below 128 are counted exactly; above that every power of two is split
+ * into 64 linear sub-buckets, so any recorded value is within about 1.6% of
+ * its bucket. The whole range of long fits in 3712 counters (about 30 KB).
+ *
+ * The counters are striped: up to STRIPES copies of the bucket array, one per
+ * group of threads (chosen by thread id), summed on read. A stripe is allocated
+ * the first time a thread maps to it, so a histogram only ever written by one
+ * thread stays at 30 KB, and with one CPU there is a single stripe. Recording
+ * is an index computation, one increment in the thread's own stripe, one
+ * striped sum update and a rarely-contended max check - no allocation per sample.
+ */
+public class LatencyHistogram {
+    private static final int EXACT_LIMIT = 128;           // values below this get their own bucket
+    private static final int SUB_BUCKET_BITS = 6;         // 64 sub-buckets per power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_MAGNITUDE = 7;         // log2(EXACT_LIMIT)
+    private static final int BUCKET_COUNT = EXACT_LIMIT + (63 - FIRST_MAGNITUDE) * SUB_BUCKETS;
+    private static final int STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder totalValue = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Record one value (negative values are counted as zero)
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        stripe().incrementAndGet(indexFor(value));
+        totalValue.add(value);
+
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    // The calling thread's stripe, allocated on first use
+    private AtomicLongArray stripe() {
+        int index = 0;
+        if (STRIPES > 1) {
+            long id = Thread.currentThread().getId();
+            index = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+        }
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKET_COUNT));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    // Bucket counts summed over all stripes
+    private long[] counts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    counts[i] += stripe.get(i);
+                }
+            }
+        }
+        return counts;
+    }
+
+    static int indexFor(long value) {
+        if (value < EXACT_LIMIT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT_LIMIT + (magnitude - FIRST_MAGNITUDE) * SUB_BUCKETS + subBucket;
+    }
+
+    // Highest value that maps to the given bucket
+    static long highestValueAt(int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        int offset = index - EXACT_LIMIT;
+        int magnitude = FIRST_MAGNITUDE + offset / SUB_BUCKETS;
+        int subBucket = offset % SUB_BUCKETS;
+        long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        long lowest = (1L << magnitude) + subBucket * width;
+        return lowest + width - 1;
+    }
+
+    /**
+     * Value at the given percentile (0-100), reported as the bucket's upper bound
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = counts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    // Summed from the buckets so recording needs no separate counter
+    public long getCount() {
+        long total = 0;
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    total += stripe.get(i);
+                }
+            }
+        }
+        return total;
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totalValue.sum() / count;
+    }
+
+    /**
+     * Add all of another histogram's samples to this one
+     */
+    public void add(LatencyHistogram other) {
+        long[] counts = other.counts();
+        AtomicLongArray stripe = stripe();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] != 0) {
+                stripe.addAndGet(i, counts[i]);
+            }
+        }
+        totalValue.add(other.totalValue.sum());
+        long otherMax = other.getMax();
+        long max = maxValue.get();
+        while (otherMax > max && !maxValue.compareAndSet(max, otherMax)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Clear all samples (not atomic with respect to concurrent recording)
+     */
+    public void reset() {
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    stripe.set(i, 0);
+                }
+            }
+        }
+        totalValue.reset();
+        maxValue.set(0);
+    }
+}
@@ -0,0 +1,724 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * LedgerReconciliation class - end-of-day check of the ledger against account balances
+ * For every account: opening balance + ledger movements = closing balance, in paise.
+ * For every transfer: exactly one TRANSFER_OUT and one TRANSFER_IN leg with the same
+ * reference and the same amount (cross-currency transfers, FXT references, only need
+ * the two legs, as each is in its own account's currency).
+ *
+ * The ledger is read once. Workers aggregate their own slice (a byte range of
+ * transactions.txt, or a range of an in-memory list) into open-addressing
+ * String→long maps, and the slices are merged at the end. The file path parses each
+ * line in place, without building Transaction objects.
+ *
+ * The opening balances must be those at the start of the ledger that is passed in:
+ * zero for a ledger that goes back to account opening, or the previous day's closing
+ * accounts.txt for one day's transactions.
+ *
+ * Usage: java LedgerReconciliation <openingAccounts|-> <transactions> <closingAccounts> [threads]
+ *        java LedgerReconciliation bench [entries] [accounts]
+ */
+public class LedgerReconciliation {
+    private static final OperationMetrics RUN_METRICS = MetricsRegistry.operation("reconciliation.run");
+    private static final int SLICES_PER_THREAD = 4;
+    private static final int READ_BUFFER = 1 << 20;
+    private static final int LIST_SLICE = 1 << 16;
+    private static final int MAX_REPORTED = 1000;
+    private static final String[] KNOWN_TYPES = {"DEPOSIT", "WITHDRAWAL", "TRANSFER_OUT", "TRANSFER_IN", "INTEREST"};
+    private static final byte[][] KNOWN_TYPE_BYTES = new byte[KNOWN_TYPES.length][];
+
+    static {
+        for (int t = 0; t < KNOWN_TYPES.length; t++) {
+            KNOWN_TYPE_BYTES[t] = KNOWN_TYPES[t].getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private final int parallelism;
+
+    // Constructor
+    public LedgerReconciliation(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public LedgerReconciliation() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 1 && args[0].equals("bench")) {
+            bench(args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000,
+                  args.length > 2 ? Integer.parseInt(args[2]) : 100_000);
+            return;
+        }
+        if (args.length < 3) {
+            System.out.println("Usage: java LedgerReconciliation <openingAccounts|-> <transactions> <closingAccounts> [threads]");
+            System.out.println("       java LedgerReconciliation bench [entries] [accounts]");
+            return;
+        }
+        LedgerReconciliation reconciliation = args.length > 3
+                ? new LedgerReconciliation(Integer.parseInt(args[3])) : new LedgerReconciliation();
+        Map<String, Long> opening = args[0].equals("-") ? new HashMap<>() : readBalances(new File(args[0]));
+        Report report = reconciliation.reconcile(opening, new File(args[1]), readBalances(new File(args[2])));
+        report.display();
+    }
+
+    // Balance sources
+
+    // Current balances of the given accounts, in paise
+    public static Map<String, Long> balancesOf(Collection<Account> accounts) {
+        Map<String, Long> balances = new HashMap<>();
+        for (Account account : accounts) {
+            balances.put(account.getAccountNumber(), Math.round(account.getBalance() * 100));
+        }
+        return balances;
+    }
+
+    // Balances in an accounts.txt file, in hundredths of each account's own currency;
+    // accounts not held in rupees have an eighth, currency, column (see Account.toFileString)
+    public static Map<String, Long> readBalances(File accountsFile) throws IOException {
+        Map<String, Long> balances = new HashMap<>();
+        for (String line : Files.readAllLines(accountsFile.toPath(), StandardCharsets.UTF_8)) {
+            String[] parts = line.split(",");
+            if (parts.length == 7 || parts.length == 8) {
+                balances.put(parts[0], Math.round(Double.parseDouble(parts[4]) * 100));
+            }
+        }
+        return balances;
+    }
+
+    // Reconciliation
+
+    /**
+     * Reconcile an in-memory ledger (e.g. BankingService.getAllTransactions())
+     */
+    public Report reconcile(Map<String, Long> openingPaise, List<Transaction> ledger, Map<String, Long> closingPaise) {
+        long start = RUN_METRICS.start();
+        boolean success = false;
+        try {
+            long began = System.nanoTime();
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            Totals totals;
+            try {
+                totals = pool.invoke(new ListSlice(ledger, 0, ledger.size()));
+            } finally {
+                pool.shutdown();
+            }
+            Report report = compare(openingPaise, totals, closingPaise, System.nanoTime() - began);
+            success = true;
+            return report;
+        } finally {
+            RUN_METRICS.record(start, success);
+        }
+    }
+
+    /**
+     * Reconcile a transactions.txt file, read in parallel byte ranges
+     */
+    public Report reconcile(Map<String, Long> openingPaise, File transactions, Map<String, Long> closingPaise)
+            throws IOException {
+        long start = RUN_METRICS.start();
+        boolean success = false;
+        try {
+            long began = System.nanoTime();
+            long[] boundaries = lineBoundaries(transactions, parallelism * SLICES_PER_THREAD);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            Totals totals;
+            try {
+                totals = pool.invoke(new FileSlices(transactions, boundaries, 0, boundaries.length - 1));
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            } finally {
+                pool.shutdown();
+            }
+            Report report = compare(openingPaise, totals, closingPaise, System.nanoTime() - began);
+            success = true;
+            return report;
+        } finally {
+            RUN_METRICS.record(start, success);
+        }
+    }
+
+    private static Report compare(Map<String, Long> opening, Totals totals, Map<String, Long> closing, long elapsedNanos) {
+        Report report = new Report(totals, elapsedNanos);
+
+        Map<String, Boolean> seen = new HashMap<>();
+        totals.movements.forEach((accountNumber, movement) -> {
+            seen.put(accountNumber, Boolean.TRUE);
+            report.checkAccount(accountNumber, opening.get(accountNumber), movement, closing.get(accountNumber));
+        });
+        for (Map.Entry<String, Long> entry : closing.entrySet()) {
+            if (!seen.containsKey(entry.getKey())) {
+                report.checkAccount(entry.getKey(), opening.get(entry.getKey()), 0, entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Long> entry : opening.entrySet()) {
+            if (!seen.containsKey(entry.getKey()) && !closing.containsKey(entry.getKey())) {
+                report.checkAccount(entry.getKey(), entry.getValue(), 0, null);
+            }
+        }
+
+        totals.transferLegs.forEach((reference, legs) ->
+                report.checkTransfer(reference, legs, totals.transferNet.get(reference)));
+        return report;
+    }
+
+    // File slicing: start offsets of each slice, each just after a newline, then the file length
+    private static long[] lineBoundaries(File file, int slices) throws IOException {
+        long length = file.length();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            for (int i = 1; i < slices; i++) {
+                long position = Math.max(length * i / slices, boundaries.get(boundaries.size() - 1));
+                in.seek(position);
+                int b;
+                while ((b = in.read()) != -1 && b != '\n') {
+                    position++;
+                }
+                long boundary = Math.min(length, position + 1);
+                if (boundary > boundaries.get(boundaries.size() - 1) && boundary < length) {
+                    boundaries.add(boundary);
+                }
+            }
+        }
+        boundaries.add(length);
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    // Signed movement of one ledger entry type: +1 credit, -1 debit, 0 unknown
+    private static int sign(String type) {
+        switch (type) {
+            case "DEPOSIT":
+            case "TRANSFER_IN":
+            case "INTEREST":
+                return 1;
+            case "WITHDRAWAL":
+            case "TRANSFER_OUT":
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
+    // Per-slice aggregation
+
+    // Aggregates of part of the ledger; merged pairwise
+    private static final class Totals {
+        private final StringLongMap movements = new StringLongMap();     // account -> paise
+        private final StringLongMap transferNet = new StringLongMap();   // reference -> out - in, paise
+        private final StringLongMap transferLegs = new StringLongMap();  // reference -> out legs + (in legs << 32)
+        private long entries;
+        private long unknownTypes;
+        private long malformed;
+        private long unlinkedTransferLegs;
+
+        void add(String accountNumber, String type, long paise, String reference) {
+            entries++;
+            int sign = sign(type);
+            if (sign == 0) {
+                unknownTypes++;
+                return;
+            }
+            movements.add(accountNumber, sign * paise);
+            boolean out = type.equals("TRANSFER_OUT");
+            if (out || type.equals("TRANSFER_IN")) {
+                if (reference == null || reference.isEmpty()) {
+                    unlinkedTransferLegs++;
+                } else {
+                    transferNet.add(reference, out ? paise : -paise);
+                    transferLegs.add(reference, out ? 1 : 1L << 32);
+                }
+            }
+        }
+
+        Totals merge(Totals other) {
+            other.movements.forEach(movements::add);
+            other.transferNet.forEach(transferNet::add);
+            other.transferLegs.forEach(transferLegs::add);
+            entries += other.entries;
+            unknownTypes += other.unknownTypes;
+            malformed += other.malformed;
+            unlinkedTransferLegs += other.unlinkedTransferLegs;
+            return this;
+        }
+    }
+
+    private static final class ListSlice extends RecursiveTask<Totals> {
+        private final List<Transaction> ledger;
+        private final int from;
+        private final int to;
+
+        ListSlice(List<Transaction> ledger, int from, int to) {
+            this.ledger = ledger;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > LIST_SLICE) {
+                int middle = (from + to) >>> 1;
+                ListSlice left = new ListSlice(ledger, from, middle);
+                left.fork();
+                Totals right = new ListSlice(ledger, middle, to).compute();
+                return left.join().merge(right);
+            }
+            Totals totals = new Totals();
+            for (int i = from; i < to; i++) {
+                Transaction transaction = ledger.get(i);
+                totals.add(transaction.getAccountNumber(), transaction.getTransactionType(),
+                           Math.round(transaction.getAmount() * 100), transaction.getReference());
+            }
+            return totals;
+        }
+    }
+
+    // Slices [from, to) of the file's boundaries
+    private static final class FileSlices extends RecursiveTask<Totals> {
+        private final File file;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        FileSlices(File file, long[] boundaries, int from, int to) {
+            this.file = file;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                FileSlices left = new FileSlices(file, boundaries, from, middle);
+                left.fork();
+                Totals right = new FileSlices(file, boundaries, middle, to).compute();
+                return left.join().merge(right);
+            }
+            Totals totals = new Totals();
+            if (from < to) {
+                try {
+                    readRange(file, boundaries[from], boundaries[to], totals);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return totals;
+        }
+    }
+
+    // Parse every line in [start, end) of transactions.txt into totals
+    private static void readRange(File file, long start, long end, Totals totals) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER];
+        int[] commas = new int[8];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(start);
+            long remaining = end - start;
+            int filled = 0;
+            while (remaining > 0 || filled > 0) {
+                if (remaining > 0 && filled < buffer.length) {
+                    int read = in.read(buffer, filled, (int) Math.min(buffer.length - filled, remaining));
+                    if (read < 0) {
+                        remaining = 0;
+                    } else {
+                        filled += read;
+                        remaining -= read;
+                    }
+                }
+                int lineStart = 0;
+                for (int i = 0; i < filled; i++) {
+                    if (buffer[i] == '\n') {
+                        parseLine(buffer, lineStart, i, commas, totals);
+                        lineStart = i + 1;
+                    }
+                }
+                if (remaining == 0 && lineStart < filled) {
+                    parseLine(buffer, lineStart, filled, commas, totals); // last line without a newline
+                    lineStart = filled;
+                }
+                if (lineStart == 0 && filled == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2); // a line longer than the buffer
+                    continue;
+                }
+                System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                filled -= lineStart;
+                if (remaining == 0 && filled == 0) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // id,account,type,amount,balanceAfter,timestamp,description[,reference]
+    private static void parseLine(byte[] line, int start, int end, int[] commas, Totals totals) {
+        if (end > start && line[end - 1] == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return;
+        }
+        int count = 0;
+        for (int i = start; i < end && count < commas.length; i++) {
+            if (line[i] == ',') {
+                commas[count++] = i;
+            }
+        }
+        if (count != 6 && count != 7) {
+            totals.malformed++;
+            return;
+        }
+        String accountNumber = new String(line, commas[0] + 1, commas[1] - commas[0] - 1, StandardCharsets.ISO_8859_1);
+        String type = typeName(line, commas[1] + 1, commas[2]);
+        long paise;
+        try {
+            paise = parsePaise(line, commas[2] + 1, commas[3]);
+        } catch (NumberFormatException e) {
+            totals.malformed++;
+            return;
+        }
+        String reference = count == 7
+                ? new String(line, commas[6] + 1, end - commas[6] - 1, StandardCharsets.UTF_8) : null;
+        totals.add(accountNumber, type, paise, reference);
+    }
+
+    // The known type constant spelled by the bytes, without allocating; anything else as a new String
+    private static String typeName(byte[] text, int start, int end) {
+        for (int t = 0; t < KNOWN_TYPES.length; t++) {
+            byte[] known = KNOWN_TYPE_BYTES[t];
+            if (known.length == end - start && Arrays.equals(known, 0, known.length, text, start, end)) {
+                return KNOWN_TYPES[t];
+            }
+        }
+        return new String(text, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    // Decimal amount in paise; plain "123.45" is parsed in place, anything else by Double
+    private static long parsePaise(byte[] text, int start, int end) {
+        long whole = 0;
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        boolean point = false;
+        for (int i = start; i < end; i++) {
+            byte b = text[i];
+            if (b >= '0' && b <= '9') {
+                if (!point) {
+                    whole = whole * 10 + (b - '0');
+                } else if (fractionDigits < 2) {
+                    fraction = fraction * 10 + (b - '0');
+                    fractionDigits++;
+                } else if (fractionDigits == 2) {
+                    roundUp = b >= '5';
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return Math.round(Double.parseDouble(new String(text, start, end - start, StandardCharsets.ISO_8859_1)) * 100);
+            }
+        }
+        if (end == start || whole > Long.MAX_VALUE / 1000) {
+            return Math.round(Double.parseDouble(new String(text, start, end - start, StandardCharsets.ISO_8859_1)) * 100);
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        return whole * 100 + fraction + (roundUp ? 1 : 0);
+    }
+
+    /**
+     * Report class - outcome of one reconciliation
+     */
+    public static final class Report {
+        private final long entries;
+        private final long unknownTypes;
+        private final long malformed;
+        private final long unlinkedTransferLegs;
+        private final long elapsedNanos;
+        private final List<String> discrepancies = new ArrayList<>();
+        private final List<String> unmatchedTransfers = new ArrayList<>();
+        private long accountsChecked;
+        private long transfersChecked;
+        private long discrepancyCount;
+        private long unmatchedTransferCount;
+
+        Report(Totals totals, long elapsedNanos) {
+            this.entries = totals.entries;
+            this.unknownTypes = totals.unknownTypes;
+            this.malformed = totals.malformed;
+            this.unlinkedTransferLegs = totals.unlinkedTransferLegs;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        void checkAccount(String accountNumber, Long openingPaise, long movementPaise, Long closingPaise) {
+            accountsChecked++;
+            long opening = openingPaise == null ? 0 : openingPaise;
+            if (closingPaise != null && opening + movementPaise == closingPaise) {
+                return;
+            }
+            discrepancyCount++;
+            if (discrepancies.size() < MAX_REPORTED) {
+                discrepancies.add(closingPaise == null
+                        ? String.format("%s: %s + %s, but the account no longer exists", accountNumber,
+                                        rupees(opening), rupees(movementPaise))
+                        : String.format("%s: opening %s + ledger %s = %s, balance %s (off by %s)", accountNumber,
+                                        rupees(opening), rupees(movementPaise), rupees(opening + movementPaise),
+                                        rupees(closingPaise), rupees(closingPaise - opening - movementPaise)));
+            }
+        }
+
+        void checkTransfer(String reference, long legs, long netPaise) {
+            transfersChecked++;
+            long outLegs = legs & 0xFFFFFFFFL;
+            long inLegs = legs >>> 32;
+            boolean converted = reference.startsWith(Transaction.FX_TRANSFER_PREFIX);
+            if (outLegs == 1 && inLegs == 1 && (netPaise == 0 || converted)) {
+                return;
+            }
+            unmatchedTransferCount++;
+            if (unmatchedTransfers.size() < MAX_REPORTED) {
+                unmatchedTransfers.add(String.format("%s: %d debit and %d credit legs, net %s", reference, outLegs,
+                                                     inLegs, rupees(netPaise)));
+            }
+        }
+
+        private static String rupees(long paise) {
+            return String.format("₹%,.2f", paise / 100.0);
+        }
+
+        public boolean isClean() {
+            return discrepancyCount == 0 && unmatchedTransferCount == 0 && unknownTypes == 0 && malformed == 0;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getAccountsChecked() {
+            return accountsChecked;
+        }
+
+        public long getTransfersChecked() {
+            return transfersChecked;
+        }
+
+        public long getDiscrepancyCount() {
+            return discrepancyCount;
+        }
+
+        public long getUnmatchedTransferCount() {
+            return unmatchedTransferCount;
+        }
+
+        public long getUnlinkedTransferLegs() {
+            return unlinkedTransferLegs;
+        }
+
+        // The first MAX_REPORTED of each kind
+        public List<String> getDiscrepancies() {
+            return discrepancies;
+        }
+
+        public List<String> getUnmatchedTransfers() {
+            return unmatchedTransfers;
+        }
+
+        public double getEntriesPerSecond() {
+            return elapsedNanos == 0 ? 0 : entries * 1e9 / elapsedNanos;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public void display() {
+            System.out.println("┌─────────────────────────────────────────────────────────┐");
+            System.out.println("│                 LEDGER RECONCILIATION                   │");
+            System.out.println("├─────────────────────────────────────────────────────────┤");
+            System.out.printf("│ Ledger entries:          %,30d │%n", entries);
+            System.out.printf("│ Accounts checked:        %,30d │%n", accountsChecked);
+            System.out.printf("│ Transfers checked:       %,30d │%n", transfersChecked);
+            System.out.printf("│ Balance discrepancies:   %,30d │%n", discrepancyCount);
+            System.out.printf("│ Unmatched transfers:     %,30d │%n", unmatchedTransferCount);
+            System.out.printf("│ Unlinked transfer legs:  %,30d │%n", unlinkedTransferLegs);
+            System.out.printf("│ Unknown types/malformed: %,14d / %,13d │%n", unknownTypes, malformed);
+            System.out.printf("│ Time:                    %,24d ms   │%n", getElapsedMillis());
+            System.out.printf("│ Throughput:              %,22.0f rows/s │%n", getEntriesPerSecond());
+            System.out.println("└─────────────────────────────────────────────────────────┘");
+            System.out.println(isClean() ? "✅ Ledger reconciles" : "❌ Ledger does not reconcile");
+            discrepancies.stream().limit(20).forEach(line -> System.out.println("  ❌ " + line));
+            unmatchedTransfers.stream().limit(20).forEach(line -> System.out.println("  ❌ " + line));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d entries, %,d accounts, %,d transfers: %,d discrepancies, %,d unmatched transfers "
+                                 + "in %,d ms (%,.0f rows/s)", entries, accountsChecked, transfersChecked,
+                                 discrepancyCount, unmatchedTransferCount, getElapsedMillis(), getEntriesPerSecond());
+        }
+    }
+
+    // Open-addressing String -> long map, for aggregation without boxing
+    static final class StringLongMap {
+        private String[] keys = new String[1024];
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(String key, long delta) {
+            int mask = keys.length - 1;
+            int slot = mix(key.hashCode()) & mask;
+            while (true) {
+                String existing = keys[slot];
+                if (existing == null) {
+                    keys[slot] = key;
+                    values[slot] = delta;
+                    if (++size * 2 > keys.length) {
+                        grow();
+                    }
+                    return;
+                }
+                if (existing.equals(key)) {
+                    values[slot] += delta;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        long get(String key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key.hashCode()) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot].equals(key)) {
+                    return values[slot];
+                }
+            }
+            return 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(ObjLongConsumer<String> action) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != null) {
+                    action.accept(keys[slot], values[slot]);
+                }
+            }
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new String[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != null) {
+                    add(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16) * 0x45d9f3b;
+        }
+    }
+
+    // Generated day: opening/closing balances, a ledger of transfers, deposits and
+    // withdrawals, plus two planted errors that must be reported
+    private static void bench(int entryCount, int accountCount) throws IOException {
+        File directory = Files.createTempDirectory("reconciliation-bench").toFile();
+        File ledger = new File(directory, "transactions.txt");
+        long[] balances = new long[accountCount];
+        Random random = new Random(7);
+        Map<String, Long> opening = new HashMap<>();
+        for (int i = 0; i < accountCount; i++) {
+            balances[i] = 1_000_000 + random.nextInt(10_000_000);
+            opening.put(account(i), balances[i]);
+        }
+
+        long writeStart = System.nanoTime();
+        String timestamp = java.time.LocalDateTime.now().toString();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(ledger), 1 << 16)) {
+            int written = 0;
+            int transfer = 0;
+            while (written < entryCount) {
+                int a = random.nextInt(accountCount);
+                long paise = 100 + random.nextInt(50_000);
+                int kind = random.nextInt(4);
+                if (kind < 2 && written + 2 <= entryCount) {
+                    int b = (a + 1 + random.nextInt(accountCount - 1)) % accountCount;
+                    String reference = "TRF" + (++transfer);
+                    balances[a] -= paise;
+                    balances[b] += paise;
+                    writeEntry(writer, written++, a, "TRANSFER_OUT", paise, balances[a], timestamp, reference);
+                    // Planted error: one transfer loses its credit leg (the balance still moved)
+                    if (transfer != 1000) {
+                        writeEntry(writer, written++, b, "TRANSFER_IN", paise, balances[b], timestamp, reference);
+                    } else {
+                        entryCount--;
+                    }
+                } else {
+                    boolean deposit = kind != 3;
+                    balances[a] += deposit ? paise : -paise;
+                    writeEntry(writer, written++, a, deposit ? "DEPOSIT" : "WITHDRAWAL", paise, balances[a], timestamp, null);
+                }
+            }
+        }
+        Map<String, Long> closing = new HashMap<>();
+        for (int i = 0; i < accountCount; i++) {
+            closing.put(account(i), balances[i]);
+        }
+        // Planted error: a balance changed outside the ledger
+        closing.merge(account(accountCount / 2), 1L, Long::sum);
+        long writeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writeStart);
+
+        System.out.printf("%,d ledger entries over %,d accounts (%,d MB, written in %,d ms), %d CPUs%n",
+                          entryCount, accountCount, ledger.length() >> 20, writeMillis,
+                          Runtime.getRuntime().availableProcessors());
+        Report report = new LedgerReconciliation().reconcile(opening, ledger, closing);
+        report.display();
+        System.out.printf("⏳ At this rate 100M entries take about %,.0f s%n", 100_000_000 / report.getEntriesPerSecond());
+
+        ledger.delete();
+        directory.delete();
+    }
+
+    private static String account(int index) {
+        return String.format("ACC%06d", 1001 + index);
+    }
+
+    private static void writeEntry(BufferedWriter writer, int id, int account, String type, long paise, long balance,
+                                   String timestamp, String reference) throws IOException {
+        writer.write("TXN" + id + "," + account(account) + "," + type + "," + (paise / 100.0) + "," + (balance / 100.0)
+                     + "," + timestamp + "," + type.toLowerCase() + (reference == null ? "" : "," + reference));
+        writer.newLine();
+    }
+}
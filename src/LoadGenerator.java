@@ -0,0 +1,300 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator - in-process workload simulator for BankingService
+ * Creates N accounts through createAccount, then drives a configurable mix of
+ * deposits, withdrawals, transfers, history reads and logins against
+ * Zipf-skewed hot accounts, either closed-loop (each thread issues its next
+ * call as soon as the last returns) or open-loop at a fixed target rate.
+ * Open-loop latencies are measured from each call's intended start time, so
+ * a stall shows up in the percentiles instead of silently lowering the rate.
+ *
+ * Usage: java LoadGenerator [key=value ...]
+ *   accounts=1000 threads=4 seconds=30 warmup=5 rate=0 (0 = closed loop)
+ *   zipf=1.0 mix=deposit:30,withdraw:20,transfer:30,history:15,login:5
+ *   label=baseline csv=results.csv
+ */
+public class LoadGenerator {
+    public enum Operation { DEPOSIT, WITHDRAW, TRANSFER, HISTORY, LOGIN }
+
+    private static final String PASSWORD = "loadtest1";
+    private static final double INITIAL_DEPOSIT = 1_000_000;
+    private static final double AMOUNT = 10;
+
+    private final BankingService bankingService;
+    private final AuthenticationService authService;
+    private final int accountCount;
+    private final int threads;
+    private final double targetRate;
+    private final double zipfExponent;
+    private final int[] mixThresholds = new int[Operation.values().length];
+    private final int mixTotal;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] failures = new LongAdder[Operation.values().length];
+
+    private String[] accounts;
+    private ZipfDistribution zipf;
+
+    public LoadGenerator(BankingService bankingService, int accountCount, int threads,
+                         double targetRate, double zipfExponent, Map<Operation, Integer> mix) {
+        this.bankingService = bankingService;
+        this.authService = new AuthenticationService(bankingService);
+        this.accountCount = accountCount;
+        this.threads = threads;
+        this.targetRate = targetRate;
+        this.zipfExponent = zipfExponent;
+
+        int total = 0;
+        for (Operation operation : Operation.values()) {
+            total += mix.getOrDefault(operation, 0);
+            mixThresholds[operation.ordinal()] = total;
+            histograms[operation.ordinal()] = new LatencyHistogram();
+            failures[operation.ordinal()] = new LongAdder();
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Operation mix must have at least one positive weight");
+        }
+        this.mixTotal = total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(new BankingService(),
+                Integer.parseInt(options.getOrDefault("accounts", "1000")),
+                Integer.parseInt(options.getOrDefault("threads", "4")),
+                Double.parseDouble(options.getOrDefault("rate", "0")),
+                Double.parseDouble(options.getOrDefault("zipf", "1.0")),
+                parseMix(options.getOrDefault("mix", "deposit:30,withdraw:20,transfer:30,history:15,login:5")));
+
+        generator.createAccounts();
+        generator.run(Integer.parseInt(options.getOrDefault("warmup", "5")),
+                      Integer.parseInt(options.getOrDefault("seconds", "30")));
+        generator.printReport(Integer.parseInt(options.getOrDefault("seconds", "30")));
+
+        if (options.containsKey("csv")) {
+            generator.appendCsv(options.get("csv"), options.getOrDefault("label", "run"),
+                                Integer.parseInt(options.getOrDefault("seconds", "30")));
+        }
+    }
+
+    public static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new HashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.split(":");
+            if (pair.length == 2) {
+                mix.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+            }
+        }
+        return mix;
+    }
+
+    /**
+     * Create the account population in parallel (each creation runs a password hash)
+     */
+    public void createAccounts() throws Exception {
+        System.out.println("Creating " + accountCount + " accounts on " + threads + " threads...");
+        long start = System.nanoTime();
+
+        String[] created = new String[accountCount];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            futures.add(executor.submit(() -> {
+                for (int i = first; i < accountCount; i += threads) {
+                    created[i] = bankingService.createAccount("Load Customer " + i, "load" + i + "@example.com",
+                            "9000000000", "Load Street", i % 2 == 0 ? "SAVINGS" : "CURRENT",
+                            INITIAL_DEPOSIT, PASSWORD);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Shuffle so the hottest Zipf ranks are not simply the oldest accounts
+        List<String> shuffled = new ArrayList<>(List.of(created));
+        Collections.shuffle(shuffled);
+        this.accounts = shuffled.toArray(new String[0]);
+        this.zipf = new ZipfDistribution(accountCount, zipfExponent);
+
+        System.out.printf("Created %d accounts in %.1f s%n", accountCount, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Run the workload: warm-up first (not recorded), then the measured period
+     */
+    public void run(int warmupSeconds, int seconds) throws Exception {
+        long measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(seconds);
+        long intervalNanos = targetRate > 0 ? (long) (1e9 * threads / targetRate) : 0;
+
+        System.out.println((targetRate > 0 ? "Open loop at " + targetRate + " ops/s" : "Closed loop") +
+                           " on " + threads + " threads, " + warmupSeconds + "s warm-up, " + seconds + "s measured");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long intended = System.nanoTime();
+                while (true) {
+                    if (intervalNanos > 0) {
+                        intended += intervalNanos;
+                        long wait = intended - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        intended = System.nanoTime();
+                    }
+                    if (intended >= end) {
+                        break;
+                    }
+
+                    Operation operation = pickOperation(random);
+                    boolean ok = execute(operation, random);
+                    if (intended >= measureStart) {
+                        histograms[operation.ordinal()].record(System.nanoTime() - intended);
+                        if (!ok) {
+                            failures[operation.ordinal()].increment();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    private Operation pickOperation(ThreadLocalRandom random) {
+        int roll = random.nextInt(mixTotal);
+        for (Operation operation : Operation.values()) {
+            if (roll < mixThresholds[operation.ordinal()]) {
+                return operation;
+            }
+        }
+        return Operation.DEPOSIT;
+    }
+
+    // Returns false when the operation was rejected by business rules
+    private boolean execute(Operation operation, ThreadLocalRandom random) {
+        String account = accounts[zipf.sample(random)];
+        try {
+            switch (operation) {
+                case DEPOSIT:
+                    bankingService.deposit(account, AMOUNT);
+                    break;
+                case WITHDRAW:
+                    bankingService.withdraw(account, AMOUNT);
+                    break;
+                case TRANSFER:
+                    String to = accounts[zipf.sample(random)];
+                    if (to.equals(account)) {
+                        to = accounts[(zipf.sample(random) + 1) % accounts.length];
+                    }
+                    if (to.equals(account)) {
+                        return true;
+                    }
+                    bankingService.transfer(account, to, AMOUNT);
+                    break;
+                case HISTORY:
+                    bankingService.getTransactionHistory(account);
+                    break;
+                case LOGIN:
+                    authService.login(account, PASSWORD);
+                    break;
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    /**
+     * Print throughput and latency percentiles per operation
+     */
+    public void printReport(int seconds) {
+        LatencyHistogram all = new LatencyHistogram();
+        System.out.println("┌────────────┬───────────┬──────────┬──────────┬──────────┬──────────┬──────────┬──────────┐");
+        System.out.println("│ Operation  │  ops/sec  │  errors  │ p50 (us) │ p90 (us) │ p99 (us) │p999 (us) │ max (us) │");
+        System.out.println("├────────────┼───────────┼──────────┼──────────┼──────────┼──────────┼──────────┼──────────┤");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = histograms[operation.ordinal()];
+            if (histogram.getCount() > 0) {
+                printRow(operation.name(), histogram, failures[operation.ordinal()].sum(), seconds);
+                all.add(histogram);
+            }
+        }
+        long totalFailures = 0;
+        for (LongAdder failure : failures) {
+            totalFailures += failure.sum();
+        }
+        System.out.println("├────────────┼───────────┼──────────┼──────────┼──────────┼──────────┼──────────┼──────────┤");
+        printRow("TOTAL", all, totalFailures, seconds);
+        System.out.println("└────────────┴───────────┴──────────┴──────────┴──────────┴──────────┴──────────┴──────────┘");
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, long errors, int seconds) {
+        System.out.printf("│ %-10s │ %9.0f │ %8d │ %8.1f │ %8.1f │ %8.1f │ %8.1f │ %8.1f │%n",
+                name, histogram.getCount() / (double) seconds, errors,
+                histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(90) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3, histogram.getValueAtPercentile(99.9) / 1e3,
+                histogram.getMax() / 1e3);
+    }
+
+    /**
+     * Append one line per operation to a CSV file so runs can be compared across commits
+     */
+    public void appendCsv(String path, String label, int seconds) throws IOException {
+        boolean exists = new File(path).exists();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(path, true))) {
+            if (!exists) {
+                writer.println("timestamp,label,operation,count,ops_per_sec,errors,p50_ns,p90_ns,p99_ns,p999_ns,max_ns");
+            }
+            String timestamp = java.time.LocalDateTime.now().toString();
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram histogram = histograms[operation.ordinal()];
+                writer.printf("%s,%s,%s,%d,%.1f,%d,%d,%d,%d,%d,%d%n", timestamp, label, operation,
+                        histogram.getCount(), histogram.getCount() / (double) seconds,
+                        failures[operation.ordinal()].sum(),
+                        histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                        histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9),
+                        histogram.getMax());
+            }
+        }
+        System.out.println("✅ Results appended to " + path);
+    }
+}
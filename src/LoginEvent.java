@@ -0,0 +1,40 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * LoginEvent class - JFR event for one AuthenticationService.login call
+ * Outcome is SUCCESS, FAILURE, LOCKOUT (this attempt locked the account),
+ * LOCKED (rejected because the account was already locked) or NOT_FOUND.
+ */
+@Name("banking.Login")
+@Label("Banking Login")
+@Category({"Banking", "Authentication"})
+@Description("A login attempt and its outcome")
+@StackTrace(false)
+@Enabled(false)
+public class LoginEvent extends jdk.jfr.Event {
+    @Label("Account")
+    String accountNumber;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Failed Attempts")
+    int failedAttempts;
+
+    /**
+     * Fill in the fields and commit, if a recording wants this event
+     */
+    public void complete(String accountNumber, String outcome, int failedAttempts) {
+        if (shouldCommit()) {
+            this.accountNumber = accountNumber;
+            this.outcome = outcome;
+            this.failedAttempts = failedAttempts;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MetricsRegistry class - process-wide registry of per-operation metrics
+ * Services look up their OperationMetrics once, at class initialisation, and
+ * record into them on every call. The registry renders an admin report with
+ * throughput and p50/p99/p999/max latency, and can append a snapshot of every
+ * operation to a CSV file on a fixed interval.
+ */
+public final class MetricsRegistry {
+    private static final Map<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+    private static final Object dumpLock = new Object();
+
+    private static volatile boolean enabled = true;
+    private static volatile long startedNanos = System.nanoTime();
+    private static long lastDumpNanos = startedNanos; // guarded by dumpLock
+    private static ScheduledExecutorService dumpScheduler;
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Get or create the metrics for an operation name such as "banking.deposit"
+     */
+    public static OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        MetricsRegistry.enabled = enabled;
+    }
+
+    /**
+     * Clear all samples and restart the throughput clock
+     */
+    public static void reset() {
+        synchronized (dumpLock) {
+            for (OperationMetrics metrics : operations.values()) {
+                metrics.reset();
+            }
+            startedNanos = System.nanoTime();
+            lastDumpNanos = startedNanos;
+        }
+    }
+
+    // Seconds covered by the current samples
+    public static double getElapsedSeconds() {
+        return Math.max(1e-9, (System.nanoTime() - startedNanos) / 1e9);
+    }
+
+    /**
+     * Print throughput, error count and latency percentiles of every operation that ran
+     */
+    public static void displayReport() {
+        double seconds = getElapsedSeconds();
+        System.out.println("┌────────────────────────┬──────────┬────────┬──────────┬──────────┬──────────┬──────────┬──────────┐");
+        System.out.println("│ Operation              │  calls   │ errors │ calls/s  │ p50 (ms) │ p99 (ms) │p999 (ms) │ max (ms) │");
+        System.out.println("├────────────────────────┼──────────┼────────┼──────────┼──────────┼──────────┼──────────┼──────────┤");
+        boolean any = false;
+        for (OperationMetrics metrics : operations.values()) {
+            LatencyHistogram latency = metrics.getLatency();
+            long count = latency.getCount();
+            if (count == 0) {
+                continue;
+            }
+            any = true;
+            System.out.printf("│ %-22s │ %8d │ %6d │ %8.1f │ %8.3f │ %8.3f │ %8.3f │ %8.3f │%n",
+                    metrics.getName(), count, metrics.getErrors(), count / seconds,
+                    latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                    latency.getValueAtPercentile(99.9) / 1e6, latency.getMax() / 1e6);
+        }
+        if (!any) {
+            System.out.printf("│ %-97s │%n", "No operations recorded yet.");
+        }
+        System.out.println("└────────────────────────┴──────────┴────────┴──────────┴──────────┴──────────┴──────────┴──────────┘");
+        System.out.printf("Collected over %.0f seconds%s%n", seconds, enabled ? "" : " (recording is disabled)");
+    }
+
+    /**
+     * Render the same data as JSON, for the HTTP front end
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\"elapsedSeconds\":").append(getElapsedSeconds())
+                .append(",\"operations\":[");
+        boolean first = true;
+        for (OperationMetrics metrics : operations.values()) {
+            LatencyHistogram latency = metrics.getLatency();
+            long count = latency.getCount();
+            if (count == 0) {
+                continue;
+            }
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"name\":\"").append(metrics.getName())
+                .append("\",\"count\":").append(count)
+                .append(",\"errors\":").append(metrics.getErrors())
+                .append(",\"p50Nanos\":").append(latency.getValueAtPercentile(50))
+                .append(",\"p99Nanos\":").append(latency.getValueAtPercentile(99))
+                .append(",\"p999Nanos\":").append(latency.getValueAtPercentile(99.9))
+                .append(",\"maxNanos\":").append(latency.getMax())
+                .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Append one line per operation to a CSV file; the rate column covers the
+     * time since the previous dump, the percentiles everything since the last reset
+     */
+    public static void dumpTo(String path) throws IOException {
+        File file = new File(path);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        synchronized (dumpLock) {
+            long now = System.nanoTime();
+            double intervalSeconds = Math.max(1e-9, (now - lastDumpNanos) / 1e9);
+            lastDumpNanos = now;
+            boolean exists = file.exists();
+            try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
+                if (!exists) {
+                    writer.println("timestamp,operation,count,errors,calls_per_sec,p50_ns,p99_ns,p999_ns,max_ns,mean_ns");
+                }
+                String timestamp = java.time.LocalDateTime.now().toString();
+                for (OperationMetrics metrics : operations.values()) {
+                    LatencyHistogram latency = metrics.getLatency();
+                    long count = latency.getCount();
+                    long previous = metrics.swapLastDumpCount(count);
+                    if (count == 0) {
+                        continue;
+                    }
+                    writer.printf("%s,%s,%d,%d,%.1f,%d,%d,%d,%d,%.0f%n", timestamp, metrics.getName(), count,
+                            metrics.getErrors(), (count - previous) / intervalSeconds,
+                            latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+                            latency.getValueAtPercentile(99.9), latency.getMax(), latency.getMean());
+                }
+            }
+        }
+    }
+
+    /**
+     * Dump to the given file every intervalSeconds on a daemon thread, replacing any earlier schedule
+     */
+    public static synchronized void startPeriodicDump(String path, long intervalSeconds) {
+        stopPeriodicDump();
+        dumpScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpScheduler.scheduleAtFixedRate(() -> {
+            try {
+                dumpTo(path);
+            } catch (IOException e) {
+                System.err.println("❌ Error writing metrics: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopPeriodicDump() {
+        if (dumpScheduler != null) {
+            dumpScheduler.shutdown();
+            dumpScheduler = null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page class - one page of a cursor-paginated listing
+ * Items come in the listing's stable order (account number, customer ID or
+ * ledger position). Pass getNextCursor() back to get the page after this one;
+ * it is null on the last page. A cursor names where the page ended, not an
+ * offset, so pages never repeat or skip an item because another was added
+ * before it. Cursors are opaque: clients should not build or edit them.
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    // Constructor
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    // Cursor for the following page; null when this is the last one
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    // Cursor for a position in the listing of the given kind
+    static String encode(String kind, String position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                     .encodeToString((kind + ":" + position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Position a cursor names; null for a null or empty cursor (the first page)
+     */
+    static String decode(String kind, String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            decoded = "";
+        }
+        if (!decoded.startsWith(kind + ":")) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return decoded.substring(kind.length() + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "items=" + items.size() +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
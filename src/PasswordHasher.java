@@ -0,0 +1,79 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PasswordHasher class for salted password hashing
+ * Passwords are stored as PBKDF2 digests in the form pbkdf2$iterations$salt$hash
+ */
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final String SEPARATOR = "$";
+    private static final int ITERATIONS = 100000;
+    private static final int SALT_LENGTH = 16; // bytes
+    private static final int KEY_LENGTH = 256; // bits
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    /**
+     * Hash a plain text password with a fresh random salt
+     */
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, ITERATIONS);
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + SEPARATOR + ITERATIONS + SEPARATOR +
+               encoder.encodeToString(salt) + SEPARATOR + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Verify a plain text password against a stored hash
+     */
+    public static boolean verify(String password, String storedHash) {
+        if (password == null || !isHashed(storedHash)) {
+            return false;
+        }
+
+        String[] parts = storedHash.split("\\$");
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] salt = decoder.decode(parts[2]);
+            byte[] expected = decoder.decode(parts[3]);
+
+            // Constant-time comparison so timing does not leak matching prefixes
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check whether a stored value is already in hashed form
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + SEPARATOR) &&
+               stored.split("\\$").length == 4;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_LENGTH);
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(ALGORITHM);
+            return factory.generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException("Password hashing unavailable: " + e.getMessage(), e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
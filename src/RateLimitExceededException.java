@@ -0,0 +1,28 @@
+/**
+ * Custom exception for rate limiting scenarios
+ * Thrown when an account or the whole bank exceeds its allowed request rate
+ */
+public class RateLimitExceededException extends RuntimeException {
+    private String accountNumber;
+    
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+    
+    public RateLimitExceededException(String message, String accountNumber) {
+        super(message);
+        this.accountNumber = accountNumber;
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    @Override
+    public String getMessage() {
+        if (accountNumber != null && !accountNumber.isEmpty()) {
+            return super.getMessage() + " (Account Number: " + accountNumber + ")";
+        }
+        return super.getMessage();
+    }
+}
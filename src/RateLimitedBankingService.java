@@ -0,0 +1,150 @@
+import java.util.List;
+
+/**
+ * RateLimitedBankingService class - rate-limiting layer in front of BankingService
+ * Every operation first takes a token from the account's bucket and the global
+ * bucket; logins use their own, much stricter limiter to slow brute-force runs.
+ * Opening an account hashes the password with PBKDF2 before there is any account
+ * to charge, so sign-ups are limited per client address and globally instead.
+ */
+public class RateLimitedBankingService {
+    // Default limits: generous for postings, strict for logins
+    private static final double OPERATIONS_PER_ACCOUNT_PER_SECOND = 20;
+    private static final int OPERATION_BURST_PER_ACCOUNT = 40;
+    private static final double OPERATIONS_PER_SECOND = 50000;
+    private static final int OPERATION_BURST = 100000;
+    private static final double LOGINS_PER_ACCOUNT_PER_SECOND = 0.2; // one every 5 seconds
+    private static final int LOGIN_BURST_PER_ACCOUNT = 5;
+    private static final double LOGINS_PER_SECOND = 2000;
+    private static final int LOGIN_BURST = 4000;
+    private static final double SIGNUPS_PER_CLIENT_PER_SECOND = 2;
+    private static final int SIGNUP_BURST_PER_CLIENT = 10;
+    private static final double SIGNUPS_PER_SECOND = 20; // keeps PBKDF2 to a few cores' worth
+    private static final int SIGNUP_BURST = 40;
+
+    private final BankingService bankingService;
+    private final AuthenticationService authService;
+    private final RateLimiter operationLimiter;
+    private final RateLimiter loginLimiter;
+    private final RateLimiter signupLimiter;
+
+    public RateLimitedBankingService(BankingService bankingService, AuthenticationService authService) {
+        this(bankingService, authService,
+             new RateLimiter("operation", OPERATIONS_PER_ACCOUNT_PER_SECOND, OPERATION_BURST_PER_ACCOUNT,
+                             OPERATIONS_PER_SECOND, OPERATION_BURST),
+             new RateLimiter("login", LOGINS_PER_ACCOUNT_PER_SECOND, LOGIN_BURST_PER_ACCOUNT,
+                             LOGINS_PER_SECOND, LOGIN_BURST));
+    }
+
+    public RateLimitedBankingService(BankingService bankingService, AuthenticationService authService,
+                                     RateLimiter operationLimiter, RateLimiter loginLimiter) {
+        this(bankingService, authService, operationLimiter, loginLimiter,
+             new RateLimiter("sign-up", SIGNUPS_PER_CLIENT_PER_SECOND, SIGNUP_BURST_PER_CLIENT,
+                             SIGNUPS_PER_SECOND, SIGNUP_BURST));
+    }
+
+    public RateLimitedBankingService(BankingService bankingService, AuthenticationService authService,
+                                     RateLimiter operationLimiter, RateLimiter loginLimiter,
+                                     RateLimiter signupLimiter) {
+        this.bankingService = bankingService;
+        this.authService = authService;
+        this.operationLimiter = operationLimiter;
+        this.loginLimiter = loginLimiter;
+        this.signupLimiter = signupLimiter;
+    }
+
+    // Charged to the client's address, before the password is hashed
+    public String createAccount(String clientAddress, String customerName, String email, String phone,
+                                String address, String accountType, double initialDeposit, String password,
+                                String currency) throws InvalidAmountException {
+        signupLimiter.acquire(clientAddress);
+        return bankingService.createAccount(customerName, email, phone, address, accountType, initialDeposit,
+                                            password, currency);
+    }
+
+    public boolean login(String accountNumber, String password) throws InvalidCredentialsException,
+                                                                      AccountNotFoundException {
+        loginLimiter.acquire(accountNumber);
+        return authService.login(accountNumber, password);
+    }
+
+    public void deposit(String accountNumber, double amount)
+                       throws AccountNotFoundException, InvalidAmountException {
+        deposit(accountNumber, amount, null);
+    }
+
+    // Retries under the same idempotency key are charged too: a client retrying in a loop is still limited
+    public Transaction deposit(String accountNumber, double amount, String idempotencyKey)
+                              throws AccountNotFoundException, InvalidAmountException {
+        operationLimiter.acquire(accountNumber);
+        return bankingService.deposit(accountNumber, amount, idempotencyKey);
+    }
+
+    public void withdraw(String accountNumber, double amount)
+                        throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        withdraw(accountNumber, amount, null);
+    }
+
+    public Transaction withdraw(String accountNumber, double amount, String idempotencyKey)
+                               throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        operationLimiter.acquire(accountNumber);
+        return bankingService.withdraw(accountNumber, amount, idempotencyKey);
+    }
+
+    // Transfers are charged to the paying account
+    public void transfer(String fromAccountNumber, String toAccountNumber, double amount)
+                        throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        transfer(fromAccountNumber, toAccountNumber, amount, null);
+    }
+
+    public Transaction transfer(String fromAccountNumber, String toAccountNumber, double amount, String idempotencyKey)
+                               throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        operationLimiter.acquire(fromAccountNumber);
+        return bankingService.transfer(fromAccountNumber, toAccountNumber, amount, idempotencyKey);
+    }
+
+    public double getBalance(String accountNumber) throws AccountNotFoundException {
+        operationLimiter.acquire(accountNumber);
+        return bankingService.getBalance(accountNumber);
+    }
+
+    public List<Transaction> getTransactionHistory(String accountNumber) throws AccountNotFoundException {
+        operationLimiter.acquire(accountNumber);
+        return bankingService.getTransactionHistory(accountNumber);
+    }
+
+    public boolean changePassword(String accountNumber, String currentPassword, String newPassword)
+                                 throws AccountNotFoundException, InvalidCredentialsException {
+        loginLimiter.acquire(accountNumber);
+        return authService.changePassword(accountNumber, currentPassword, newPassword);
+    }
+
+    public BankingService getBankingService() {
+        return bankingService;
+    }
+
+    public RateLimiter getOperationLimiter() {
+        return operationLimiter;
+    }
+
+    public RateLimiter getLoginLimiter() {
+        return loginLimiter;
+    }
+
+    public RateLimiter getSignupLimiter() {
+        return signupLimiter;
+    }
+
+    /**
+     * Display rate limiter counters (admin function)
+     */
+    public void displayRateLimitStatus() {
+        System.out.println("┌─────────────────────────────────────────────────────────┐");
+        System.out.println("│                   RATE LIMIT STATUS                     │");
+        System.out.println("├─────────────────────────────────────────────────────────┤");
+        operationLimiter.displayStatus();
+        loginLimiter.displayStatus();
+        signupLimiter.displayStatus();
+        System.out.println("└─────────────────────────────────────────────────────────┘");
+    }
+}
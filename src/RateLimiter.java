@@ -0,0 +1,137 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RateLimiter class - per-key token buckets behind one global bucket
+ * Buckets are created lazily on first use and evicted once they have been
+ * idle (and therefore full) for a while, so memory tracks active keys only.
+ */
+public class RateLimiter {
+    private static final long DEFAULT_IDLE_EVICTION = 60_000_000_000L; // 1 minute in nanoseconds
+    private static final int MIN_SWEEP_INTERVAL = 1024;
+
+    private final String name;
+    private final double perKeyRate;
+    private final int perKeyBurst;
+    private final long idleEvictionNanos;
+    private final TokenBucket globalBucket;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    // Bucket creations since the last idle sweep
+    private final AtomicLong createdSinceSweep = new AtomicLong();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedPerKey = new LongAdder();
+    private final LongAdder rejectedGlobal = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public RateLimiter(String name, double perKeyRate, int perKeyBurst,
+                       double globalRate, int globalBurst) {
+        this(name, perKeyRate, perKeyBurst, globalRate, globalBurst, DEFAULT_IDLE_EVICTION);
+    }
+
+    public RateLimiter(String name, double perKeyRate, int perKeyBurst,
+                       double globalRate, int globalBurst, long idleEvictionNanos) {
+        this.name = name;
+        this.perKeyRate = perKeyRate;
+        this.perKeyBurst = perKeyBurst;
+        this.idleEvictionNanos = idleEvictionNanos;
+        this.globalBucket = new TokenBucket(globalRate, globalBurst);
+    }
+
+    /**
+     * Take a token for the key, or report why not
+     */
+    public boolean tryAcquire(String key) {
+        // One clock read shared by both buckets; per-key bucket first, so a hot
+        // key that is over its own limit never drains the shared global bucket
+        long now = System.nanoTime();
+        if (!bucketFor(key).tryAcquire(now)) {
+            rejectedPerKey.increment();
+            return false;
+        }
+        if (!globalBucket.tryAcquire(now)) {
+            rejectedGlobal.increment();
+            return false;
+        }
+        allowed.increment();
+        return true;
+    }
+
+    /**
+     * Take a token for the key or throw RateLimitExceededException
+     */
+    public void acquire(String key) {
+        if (!tryAcquire(key)) {
+            throw new RateLimitExceededException("Too many " + name + " requests, please retry shortly", key);
+        }
+    }
+
+    private TokenBucket bucketFor(String key) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(perKeyRate, perKeyBurst));
+        long created = createdSinceSweep.incrementAndGet();
+        if (created >= Math.max(MIN_SWEEP_INTERVAL, buckets.size())) {
+            createdSinceSweep.set(0);
+            evictIdleBuckets();
+        }
+        return bucket;
+    }
+
+    /**
+     * Drop buckets that have been full for longer than the idle threshold
+     * (amortised O(1): only runs after as many creations as there are buckets)
+     */
+    public int evictIdleBuckets() {
+        long now = System.nanoTime();
+        int removed = 0;
+        for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+            TokenBucket bucket = entry.getValue();
+            if (bucket.idleNanos(now) >= idleEvictionNanos && buckets.remove(entry.getKey(), bucket)) {
+                removed++;
+            }
+        }
+        evicted.add(removed);
+        return removed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTrackedKeyCount() {
+        return buckets.size();
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getRejectedPerKeyCount() {
+        return rejectedPerKey.sum();
+    }
+
+    public long getRejectedGlobalCount() {
+        return rejectedGlobal.sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    /**
+     * Display limiter counters (admin function)
+     */
+    public void displayStatus() {
+        System.out.printf("│ %-9s allowed: %-9d rejected/account: %-8d │%n",
+                          name, getAllowedCount(), getRejectedPerKeyCount());
+        System.out.printf("│ %-9s rejected/global: %-8d tracked: %-10d │%n",
+                          "", getRejectedGlobalCount(), getTrackedKeyCount());
+    }
+}
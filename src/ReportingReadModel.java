@@ -0,0 +1,537 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * ReportingReadModel class - asynchronously updated, denormalized views for reports
+ *
+ * Subscribes to the BankingService event store's change stream. Appending
+ * threads only enqueue each event; one projector thread applies them to:
+ *   - an account view per account (customer, type, balance, status),
+ *   - a statistics view (running totals and distributions), republished after
+ *     each batch,
+ *   - a window of the RECENT_EVENTS newest events. Counts by event type are
+ *     running totals, so the read model's memory grows with the number of
+ *     accounts, not with the history.
+ * Queries read these views without touching Account monitors, the ledger lock
+ * or the event store partitions. The views trail the write side by the events
+ * still queued: getPendingEvents and getStalenessMillis report how far, and
+ * the "readmodel.lag" metric records enqueue-to-apply time for every event.
+ */
+public class ReportingReadModel implements EventStore.Listener {
+    private static final OperationMetrics LAG_METRICS = MetricsRegistry.operation("readmodel.lag");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10); // guards against a lost wakeup
+    private static final int PUBLISH_BATCH = 1024;
+    private static final int RECENT_EVENTS = 4096; // power of two
+
+    private final BankingService bankingService;
+    private final EventStore eventStore;
+    private final ConcurrentLinkedQueue<Change> queue = new ConcurrentLinkedQueue<>();
+    private final LongAdder enqueued = new LongAdder();
+    private final Thread projector;
+    private volatile boolean projectorParked;
+    private volatile boolean running = true;
+
+    // Views: written only by the projector thread, safe to read from any thread
+    private final ConcurrentSkipListMap<String, AccountView> accountViews = new ConcurrentSkipListMap<>(); // by number
+    private volatile AccountEvent[] recent = new AccountEvent[RECENT_EVENTS]; // ring, indexed by count
+    private volatile long recentCount;
+    private volatile Statistics statistics;
+    private volatile long applied;
+    private volatile long appliedSequence;
+
+    // Projector-only working state
+    private final Map<String, AccountState> states = new HashMap<>();
+    private final Map<String, Integer> accountTypeCounts = new HashMap<>();
+    private final Map<String, Integer> customerAccountCounts = new HashMap<>();
+    private final long[] eventTypeCounts = new long[AccountEvent.Type.values().length];
+    private final Map<String, Double> balanceByCurrency = new HashMap<>(); // each in its own currency
+    private int activeAccounts;
+    private long totalEvents;
+
+    // Constructor - seeds the views from the current history, then follows the change stream
+    public ReportingReadModel(BankingService bankingService) {
+        this.bankingService = bankingService;
+        this.eventStore = bankingService.getEventStore();
+
+        // Subscribe first so nothing is missed; events the seed already covers are skipped
+        eventStore.addListener(this);
+        seed();
+        publishStatistics();
+
+        this.projector = new Thread(this::runProjector, "read-model-projector");
+        projector.setDaemon(true);
+        projector.start();
+    }
+
+    // Change stream (called by appending threads under an event store partition lock)
+
+    @Override
+    public void onAppend(AccountEvent event) {
+        enqueue(new Change(event, System.nanoTime()));
+    }
+
+    @Override
+    public void onClear() {
+        enqueue(new Change(null, System.nanoTime()));
+    }
+
+    private void enqueue(Change change) {
+        queue.offer(change);
+        enqueued.increment();
+        if (projectorParked) {
+            LockSupport.unpark(projector);
+        }
+    }
+
+    // Projector
+
+    private void runProjector() {
+        int batch = 0;
+        while (running) {
+            Change change = queue.poll();
+            if (change == null) {
+                if (batch > 0) {
+                    publishStatistics();
+                    batch = 0;
+                }
+                projectorParked = true;
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                projectorParked = false;
+                continue;
+            }
+
+            if (change.event == null) {
+                reset();
+            } else {
+                apply(change.event);
+            }
+            applied++;
+            if (MetricsRegistry.isEnabled()) {
+                LAG_METRICS.record(change.enqueuedNanos, true);
+            }
+            if (++batch >= PUBLISH_BATCH) {
+                publishStatistics();
+                batch = 0;
+            }
+        }
+    }
+
+    /**
+     * Account views from the store's current states, then the event counts and the
+     * recent window from one pass over the log, instead of reading each account's
+     * history separately. Only events the seeded states include count; later ones
+     * arrive through the queue.
+     */
+    private void seed() {
+        bankingService.streamAccounts().forEach(account -> {
+            AccountState state = eventStore.getState(account.getAccountNumber());
+            if (state != null) {
+                String accountNumber = state.getAccountNumber();
+                states.put(accountNumber, state);
+                AccountView view = newAccountView(accountNumber, null);
+                accountTypeCounts.merge(view.accountType, 1, Integer::sum);
+                customerAccountCounts.merge(view.customerId, 1, Integer::sum);
+                accountViews.put(accountNumber, view.with(state.getBalance(), state.isActive(), state.getVersion()));
+                balanceByCurrency.merge(view.currency, state.getBalance(), Double::sum);
+                activeAccounts += state.isActive() ? 1 : 0;
+                appliedSequence = Math.max(appliedSequence, state.getVersion());
+            }
+        });
+
+        // Partitions are read one after another, so keep the newest events by sequence in a bounded heap
+        PriorityQueue<AccountEvent> newest = new PriorityQueue<>(RECENT_EVENTS + 1,
+                (a, b) -> Long.compare(a.getSequence(), b.getSequence()));
+        eventStore.forEachEvent(event -> {
+            AccountState state = states.get(event.getAccountNumber());
+            if (state != null && event.getSequence() <= state.getVersion()) {
+                eventTypeCounts[event.getType().ordinal()]++;
+                totalEvents++;
+                newest.add(event);
+                if (newest.size() > RECENT_EVENTS) {
+                    newest.poll();
+                }
+            }
+        });
+        while (!newest.isEmpty()) {
+            appendToRecent(newest.poll());
+        }
+    }
+
+    private void apply(AccountEvent event) {
+        String accountNumber = event.getAccountNumber();
+        AccountState state = states.get(accountNumber);
+        if (state != null && event.getSequence() <= state.getVersion()) {
+            return; // already part of the seed
+        }
+
+        double balanceBefore = 0;
+        boolean activeBefore = false;
+        if (state == null) {
+            state = new AccountState(accountNumber);
+            states.put(accountNumber, state);
+        } else {
+            balanceBefore = state.getBalance();
+            activeBefore = state.isActive();
+        }
+        state.apply(event);
+
+        AccountView view = accountViews.get(accountNumber);
+        if (view == null) {
+            view = newAccountView(accountNumber, event);
+            accountTypeCounts.merge(view.accountType, 1, Integer::sum);
+            customerAccountCounts.merge(view.customerId, 1, Integer::sum);
+        }
+        accountViews.put(accountNumber, view.with(state.getBalance(), state.isActive(), event.getSequence()));
+
+        balanceByCurrency.merge(view.currency, state.getBalance() - balanceBefore, Double::sum);
+        activeAccounts += (state.isActive() ? 1 : 0) - (activeBefore ? 1 : 0);
+        eventTypeCounts[event.getType().ordinal()]++;
+        totalEvents++;
+        appendToRecent(event);
+        appliedSequence = Math.max(appliedSequence, event.getSequence());
+    }
+
+    // Customer details never change after opening, so they are copied once from the write side;
+    // event is the account's first one seen, null when seeding
+    private AccountView newAccountView(String accountNumber, AccountEvent event) {
+        String customerId = "";
+        String customerName = "";
+        String accountType = event != null && event.getType() == AccountEvent.Type.OPENED ? event.getReference() : "";
+        String currency = FxRateTable.BASE_CURRENCY;
+        try {
+            Account account = bankingService.getAccount(accountNumber);
+            customerId = account.getCustomer().getCustomerId();
+            customerName = account.getCustomer().getName();
+            accountType = account.getAccountType();
+            currency = account.getCurrency();
+        } catch (AccountNotFoundException e) {
+            // Account replaced by loadData since the event; keep what the event says
+        }
+        return new AccountView(accountNumber, customerId, customerName, accountType, currency, 0, false, 0);
+    }
+
+    // Single writer: store the element before publishing the new count
+    private void appendToRecent(AccountEvent event) {
+        long count = recentCount;
+        recent[(int) (count & (RECENT_EVENTS - 1))] = event;
+        recentCount = count + 1;
+    }
+
+    private void reset() {
+        states.clear();
+        accountViews.clear();
+        accountTypeCounts.clear();
+        customerAccountCounts.clear();
+        Arrays.fill(eventTypeCounts, 0);
+        balanceByCurrency.clear();
+        activeAccounts = 0;
+        totalEvents = 0;
+        recent = new AccountEvent[RECENT_EVENTS];
+        recentCount = 0;
+        publishStatistics();
+    }
+
+    private void publishStatistics() {
+        Map<String, Long> eventCounts = new HashMap<>();
+        for (AccountEvent.Type type : AccountEvent.Type.values()) {
+            eventCounts.put(type.name(), eventTypeCounts[type.ordinal()]);
+        }
+        // Rupee total at the current rates, as BankingService.getTotalBalance computes it
+        FxRateTable.Snapshot rates = bankingService.getFxRates().getSnapshot();
+        double totalBalance = 0;
+        for (Map.Entry<String, Double> entry : balanceByCurrency.entrySet()) {
+            if (rates.supports(entry.getKey())) {
+                totalBalance += rates.convert(entry.getValue(), entry.getKey(), FxRateTable.BASE_CURRENCY);
+            }
+        }
+        statistics = new Statistics(states.size(), activeAccounts, customerAccountCounts.size(), totalBalance,
+                                    new TreeMap<>(balanceByCurrency), totalEvents, new HashMap<>(accountTypeCounts),
+                                    eventCounts, appliedSequence);
+    }
+
+    // Queries - never take write-side locks
+
+    /**
+     * Up to limit account views in account-number order, after the position cursor
+     * names (null for the first page); cursors are the same as BankingService.getAccountsPage
+     */
+    public Page<AccountView> getAccountsPage(String cursor, int limit) {
+        return BankingService.keyedPage(accountViews.navigableKeySet(), accountViews, "A", cursor, limit);
+    }
+
+    public AccountView getAccount(String accountNumber) {
+        return accountViews.get(accountNumber);
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * The newest events applied, up to RECENT_EVENTS, oldest first; the full
+     * history is in the event store
+     */
+    public List<AccountEvent> getRecentTransactions() {
+        return Collections.unmodifiableList(recentEvents(null));
+    }
+
+    // Filters the window in place rather than copying all of it first
+    public List<AccountEvent> getRecentTransactionsByType(AccountEvent.Type type) {
+        return recentEvents(type);
+    }
+
+    private List<AccountEvent> recentEvents(AccountEvent.Type type) {
+        AccountEvent[] current = recent;
+        long end = recentCount;
+        long start = Math.max(0, end - RECENT_EVENTS);
+        AccountEvent[] window = new AccountEvent[(int) (end - start)];
+        for (long i = start; i < end; i++) {
+            window[(int) (i - start)] = current[(int) (i & (RECENT_EVENTS - 1))];
+        }
+        // Slots the projector reused while we copied hold newer events; skip them
+        long from = Math.max(start, recentCount - RECENT_EVENTS);
+        List<AccountEvent> events = new ArrayList<>();
+        for (long i = from; i < end; i++) {
+            AccountEvent event = window[(int) (i - start)];
+            if (event != null && (type == null || event.getType() == type)) { // null only across a reset
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    // Staleness
+
+    // Events appended on the write side but not yet visible here
+    public long getPendingEvents() {
+        return Math.max(0, enqueued.sum() - applied);
+    }
+
+    // Age of the oldest event not yet applied (0 when caught up)
+    public long getStalenessMillis() {
+        Change oldest = queue.peek();
+        return oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.enqueuedNanos);
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Wait until everything appended before this call is visible, e.g. for read-your-writes
+     */
+    public boolean awaitCaughtUp(long timeoutMillis) {
+        long target = enqueued.sum();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (applied < target || statistics.appliedSequence < appliedSequence) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.unpark(projector);
+            LockSupport.parkNanos(50_000);
+        }
+        return true;
+    }
+
+    public void close() {
+        running = false;
+        eventStore.removeListener(this);
+        LockSupport.unpark(projector);
+    }
+
+    // Reports
+
+    public void displayAllAccounts() {
+        displayAllAccounts(Integer.MAX_VALUE, () -> true);
+    }
+
+    /**
+     * All accounts in pages of pageSize rows, read a page at a time in account-number
+     * order rather than copied first; after each page nextPage decides whether to
+     * show the next
+     */
+    public void displayAllAccounts(int pageSize, BooleanSupplier nextPage) {
+        int total = statistics.totalAccounts; // a skip list's size() would walk every view
+        if (total == 0) {
+            System.out.println("No accounts found.");
+            return;
+        }
+
+        TableWriter table = new TableWriter(11, 19, 11, 11, 8);
+        table.pages(this::getAccountsPage, total, pageSize, new String[] {"│ Account No  │    Customer Name    │    Type     │   Balance   │  Status  │"},
+                (row, view) -> row.row().text(view.accountNumber).text(view.customerName).text(view.accountType)
+                                  .amount(view.balance).text(view.active ? "Active" : "Inactive").end(),
+                nextPage);
+        System.out.println("Total Accounts: " + statistics.totalAccounts + stalenessNote());
+    }
+
+    public void displayBankingStatistics() {
+        Statistics stats = statistics;
+        BankingService.printStatistics(stats.totalAccounts, stats.activeAccounts, stats.totalCustomers,
+                                       stats.totalBalance, stats.balanceByCurrency, "Total Events:", stats.totalEvents,
+                                       stats.accountTypeCounts);
+        System.out.println("As of event #" + stats.appliedSequence + stalenessNote());
+    }
+
+    private String stalenessNote() {
+        long pending = getPendingEvents();
+        return pending == 0 ? "" : " (" + pending + " newer events pending, " + getStalenessMillis() + " ms behind)";
+    }
+
+    // Queued change; a null event marks a clear of the event store
+    private static final class Change {
+        private final AccountEvent event;
+        private final long enqueuedNanos;
+
+        Change(AccountEvent event, long enqueuedNanos) {
+            this.event = event;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    /**
+     * Denormalized, immutable account row
+     */
+    public static final class AccountView {
+        private final String accountNumber;
+        private final String customerId;
+        private final String customerName;
+        private final String accountType;
+        private final String currency;
+        private final double balance;
+        private final boolean active;
+        private final long version;
+
+        AccountView(String accountNumber, String customerId, String customerName, String accountType,
+                    String currency, double balance, boolean active, long version) {
+            this.accountNumber = accountNumber;
+            this.customerId = customerId;
+            this.customerName = customerName;
+            this.accountType = accountType;
+            this.currency = currency;
+            this.balance = balance;
+            this.active = active;
+            this.version = version;
+        }
+
+        AccountView with(double balance, boolean active, long version) {
+            return new AccountView(accountNumber, customerId, customerName, accountType, currency, balance, active,
+                                   version);
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public String getCustomerId() {
+            return customerId;
+        }
+
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        public String getAccountType() {
+            return accountType;
+        }
+
+        public String getCurrency() {
+            return currency;
+        }
+
+        // In the account's currency
+        public double getBalance() {
+            return balance;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        // Sequence of the last event applied to this row
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Immutable statistics, consistent as of one applied event sequence
+     */
+    public static final class Statistics {
+        private final int totalAccounts;
+        private final int activeAccounts;
+        private final int totalCustomers;
+        private final double totalBalance;
+        private final Map<String, Double> balanceByCurrency;
+        private final long totalEvents;
+        private final Map<String, Integer> accountTypeCounts;
+        private final Map<String, Long> eventTypeCounts;
+        private final long appliedSequence;
+
+        Statistics(int totalAccounts, int activeAccounts, int totalCustomers, double totalBalance,
+                   Map<String, Double> balanceByCurrency, long totalEvents, Map<String, Integer> accountTypeCounts,
+                   Map<String, Long> eventTypeCounts, long appliedSequence) {
+            this.totalAccounts = totalAccounts;
+            this.activeAccounts = activeAccounts;
+            this.totalCustomers = totalCustomers;
+            this.totalBalance = totalBalance;
+            this.balanceByCurrency = Collections.unmodifiableMap(balanceByCurrency);
+            this.totalEvents = totalEvents;
+            this.accountTypeCounts = Collections.unmodifiableMap(accountTypeCounts);
+            this.eventTypeCounts = Collections.unmodifiableMap(eventTypeCounts);
+            this.appliedSequence = appliedSequence;
+        }
+
+        public int getTotalAccounts() {
+            return totalAccounts;
+        }
+
+        public int getActiveAccounts() {
+            return activeAccounts;
+        }
+
+        public int getTotalCustomers() {
+            return totalCustomers;
+        }
+
+        // In rupees, converted at the rates current when the statistics were published
+        public double getTotalBalance() {
+            return totalBalance;
+        }
+
+        // Sum of balances per account currency, unconverted
+        public Map<String, Double> getBalanceByCurrency() {
+            return balanceByCurrency;
+        }
+
+        public long getTotalEvents() {
+            return totalEvents;
+        }
+
+        public Map<String, Integer> getAccountTypeCounts() {
+            return accountTypeCounts;
+        }
+
+        public Map<String, Long> getEventTypeCounts() {
+            return eventTypeCounts;
+        }
+
+        public long getAppliedSequence() {
+            return appliedSequence;
+        }
+    }
+}
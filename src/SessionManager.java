@@ -0,0 +1,211 @@
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SessionManager class for token-based sessions
+ * Issues opaque tokens after a successful login so later requests only need a
+ * single hash lookup instead of re-running password authentication.
+ */
+public class SessionManager {
+    private static final int DEFAULT_MAX_SESSIONS = 100000;
+    private static final long DEFAULT_IDLE_TIMEOUT = 900000; // 15 minutes in milliseconds
+    private static final long DEFAULT_ABSOLUTE_TIMEOUT = 28800000; // 8 hours in milliseconds
+    private static final int TOKEN_BYTES = 32;
+
+    private final AuthenticationService authService;
+    private final int maxSessions;
+    private final long idleTimeout;
+    private final long absoluteTimeout;
+    private final SecureRandom random = new SecureRandom();
+
+    // Token -> session, validated without locking
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    // Sessions in eviction order; scanned second-chance style to approximate LRU
+    // Removed sessions stay queued until skipped by eviction or swept by compaction
+    private final ConcurrentLinkedQueue<Session> evictionQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedSessions = new AtomicInteger();
+
+    public SessionManager(AuthenticationService authService) {
+        this(authService, DEFAULT_MAX_SESSIONS, DEFAULT_IDLE_TIMEOUT, DEFAULT_ABSOLUTE_TIMEOUT);
+    }
+
+    public SessionManager(AuthenticationService authService, int maxSessions,
+                          long idleTimeout, long absoluteTimeout) {
+        this.authService = authService;
+        this.maxSessions = maxSessions;
+        this.idleTimeout = idleTimeout;
+        this.absoluteTimeout = absoluteTimeout;
+    }
+
+    /**
+     * Authenticate once and issue a session token
+     */
+    public String login(String accountNumber, String password) throws InvalidCredentialsException,
+                                                                      AccountNotFoundException {
+        if (!authService.login(accountNumber, password)) {
+            throw new InvalidCredentialsException("Login failed", accountNumber);
+        }
+        return createSession(accountNumber);
+    }
+
+    /**
+     * Resolve a token to its account number, refreshing the idle timer
+     */
+    public String validateSession(String token) throws InvalidCredentialsException {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            throw new InvalidCredentialsException("Invalid session");
+        }
+
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now, idleTimeout, absoluteTimeout)) {
+            removeSession(session);
+            throw new InvalidCredentialsException("Session expired", session.accountNumber);
+        }
+
+        session.lastAccessedAt = now;
+        session.referenced = true;
+        return session.accountNumber;
+    }
+
+    /**
+     * End a single session
+     */
+    public void logout(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session != null) {
+            removeSession(session);
+        }
+    }
+
+    /**
+     * End every session of an account (e.g. after a password change)
+     */
+    public int invalidateAccountSessions(String accountNumber) {
+        int removed = 0;
+        for (Session session : sessions.values()) {
+            if (session.accountNumber.equals(accountNumber) && removeSession(session)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all idle or expired sessions, returning how many were dropped
+     */
+    public int purgeExpiredSessions() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Session session : sessions.values()) {
+            if (session.isExpired(now, idleTimeout, absoluteTimeout) && removeSession(session)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    private String createSession(String accountNumber) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Session session = new Session(token, accountNumber, System.currentTimeMillis());
+        sessions.put(token, session);
+        evictionQueue.add(session);
+        compactEvictionQueueIfNeeded();
+
+        while (sessions.size() > maxSessions) {
+            if (!evictOne()) {
+                break;
+            }
+        }
+        return token;
+    }
+
+    // Second-chance (CLOCK) eviction: recently used sessions go round again
+    private boolean evictOne() {
+        long now = System.currentTimeMillis();
+        Session candidate;
+        while ((candidate = evictionQueue.poll()) != null) {
+            if (!sessions.containsKey(candidate.token)) {
+                queuedSessions.decrementAndGet();
+                continue; // already logged out or expired
+            }
+            if (candidate.referenced && !candidate.isExpired(now, idleTimeout, absoluteTimeout)) {
+                candidate.referenced = false;
+                evictionQueue.add(candidate);
+                continue;
+            }
+            queuedSessions.decrementAndGet();
+            sessions.remove(candidate.token, candidate);
+            return true;
+        }
+        return false;
+    }
+
+    // Keeps logout-heavy workloads from growing the queue without bound (amortised O(1))
+    private void compactEvictionQueueIfNeeded() {
+        int queued = queuedSessions.incrementAndGet();
+        if (queued > 2 * sessions.size() + 1024) {
+            synchronized (evictionQueue) {
+                evictionQueue.removeIf(session -> !sessions.containsKey(session.token));
+                queuedSessions.set(evictionQueue.size());
+            }
+        }
+    }
+
+    private boolean removeSession(Session session) {
+        return sessions.remove(session.token, session);
+    }
+
+    /**
+     * Display a summary of live sessions per account (admin function)
+     */
+    public void displaySessionStatus() {
+        Map<String, Integer> perAccount = new HashMap<>();
+        for (Session session : sessions.values()) {
+            perAccount.merge(session.accountNumber, 1, Integer::sum);
+        }
+
+        System.out.println("┌─────────────────────────────────────────────────────────┐");
+        System.out.println("│                    SESSION STATUS                       │");
+        System.out.println("├─────────────────────────────────────────────────────────┤");
+        System.out.printf("│ Active Sessions:       %-28d     │%n", sessions.size());
+        for (Map.Entry<String, Integer> entry : perAccount.entrySet()) {
+            System.out.printf("│   %-15s: %-6d session(s)                     │%n",
+                              entry.getKey(), entry.getValue());
+        }
+        System.out.println("└─────────────────────────────────────────────────────────┘");
+    }
+
+    // One issued session token
+    private static class Session {
+        private final String token;
+        private final String accountNumber;
+        private final long createdAt;
+        private volatile long lastAccessedAt;
+        private volatile boolean referenced;
+
+        Session(String token, String accountNumber, long createdAt) {
+            this.token = token;
+            this.accountNumber = accountNumber;
+            this.createdAt = createdAt;
+            this.lastAccessedAt = createdAt;
+        }
+
+        boolean isExpired(long now, long idleTimeout, long absoluteTimeout) {
+            return now - lastAccessedAt >= idleTimeout || now - createdAt >= absoluteTimeout;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ShardNode class - one banking process in a multi-process deployment
+ * Owns the account numbers index * ACCOUNT_RANGE ... (index + 1) * ACCOUNT_RANGE - 1
+ * in its own data directory (a ShardedBankingService over local shards), and
+ * serves ClusterClient's line protocol on a loopback port. ShardRouter sends it
+ * single-account requests and, for transfers between nodes, its half of a
+ * two-phase commit:
+ *   PREPARE_DEBIT / PREPARE_CREDIT  reserve the funds or pin the account, force a
+ *                                   PREPARED record to twophase.log, then vote OK
+ *   COMMIT / ABORT                  apply or release it; both may be repeated
+ * On restart every PREPARED transfer without an outcome is either recognised as
+ * already applied (its event carries the transfer id) or prepared again, and
+ * waits for the router to resend the decision.
+ *
+ * Each transfer id is prepared, committed or aborted under its own monitor, so a
+ * repeated request racing the first cannot apply it twice, and an aborted id
+ * refuses a PREPARE that arrives after its ABORT. Every COMPACT_EVERY outcomes
+ * (and on restart) twophase.log is rewritten with only the votes still in doubt
+ * and the newest OUTCOMES_KEPT commits and aborts, which answer a decision the
+ * router resends or a vote that comes late.
+ *
+ * Usage: java ShardNode <index> <port> <dataDirectory> [shards]
+ */
+public class ShardNode {
+    public static final int ACCOUNT_RANGE = 1_000_000;
+    private static final int DEFAULT_SHARDS = 4;
+    private static final int COMPACT_EVERY = 10_000;
+    private static final int OUTCOMES_KEPT = 10_000;
+
+    private final int index;
+    private final ShardedBankingService service;
+    private final TwoPhaseLog log;
+    private final Map<String, Participant> transfers = new ConcurrentHashMap<>(); // by router transfer id
+    private final AtomicInteger preparedCount = new AtomicInteger();
+    private final AtomicInteger outcomesSinceCompaction = new AtomicInteger();
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private volatile boolean running = true;
+
+    // Constructor - opens (or recovers) the node's data and binds its port; call start() to serve
+    public ShardNode(int index, int port, String dataDirectory, int shardCount) throws IOException {
+        this.index = index;
+        this.service = ShardedBankingService.open(dataDirectory, shardCount);
+        service.startNumberingAt(index * ACCOUNT_RANGE + 1001);
+        this.log = new TwoPhaseLog(new File(dataDirectory, "twophase.log"));
+        recover();
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-node-" + index + "-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java ShardNode <index> <port> <dataDirectory> [shards]");
+            return;
+        }
+        int shardCount = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_SHARDS;
+        ShardNode node = new ShardNode(Integer.parseInt(args[0]), Integer.parseInt(args[1]), args[2], shardCount);
+        Runtime.getRuntime().addShutdownHook(new Thread(node::stop));
+        node.start();
+        System.out.printf("🏦 Shard node %d listening on 127.0.0.1:%d (accounts from ACC%06d, %d shards)%n",
+                node.index, node.getPort(), node.index * ACCOUNT_RANGE + 1001, node.service.getShardCount());
+    }
+
+    /**
+     * Index of the node owning an account number, or -1 if it is not one of ours
+     */
+    public static int nodeIndexFor(String accountNumber) {
+        if (accountNumber == null || !accountNumber.startsWith("ACC")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(accountNumber.substring(3)) / ACCOUNT_RANGE;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public void start() {
+        // Not a daemon: it keeps the process alive until stop() closes the socket
+        new Thread(this::acceptConnections, "shard-node-" + index + "-acceptor").start();
+    }
+
+    /**
+     * Stop serving and save the node's files; safe to call more than once
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverSocket.close();
+            connections.shutdownNow();
+            service.saveAll();
+            service.close();
+            log.close();
+        } catch (IOException e) {
+            System.err.println("❌ Error stopping shard node " + index + ": " + e.getMessage());
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public ShardedBankingService getService() {
+        return service;
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("❌ Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(handle(line.split("\t", -1)));
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away; anything it sent has been answered or not applied
+        }
+    }
+
+    // Execute one request and return the reply line
+    private String handle(String[] request) {
+        try {
+            switch (request[0]) {
+                case "PING":
+                    return "OK\t" + index;
+                case "CREATE":
+                    return "OK\t" + service.createAccount(request[1], request[2], request[3], request[4], request[5],
+                                                          Double.parseDouble(request[6]), request[7]);
+                case "IMPORT":
+                    return "OK\t" + importAccount(request[1], request[2]);
+                case "BALANCE":
+                    return "OK\t" + service.getBalance(request[1]);
+                case "DEPOSIT":
+                    service.deposit(request[1], Double.parseDouble(request[2]));
+                    return "OK";
+                case "WITHDRAW":
+                    service.withdraw(request[1], Double.parseDouble(request[2]));
+                    return "OK";
+                case "TRANSFER":
+                    service.transfer(request[1], request[2], Double.parseDouble(request[3]));
+                    return "OK";
+                case "PREPARE_DEBIT":
+                    prepare(request[1], true, request[2], request[3], Double.parseDouble(request[4]));
+                    return "OK";
+                case "PREPARE_CREDIT":
+                    prepare(request[1], false, request[2], request[3], Double.parseDouble(request[4]));
+                    return "OK";
+                case "COMMIT":
+                    commit(request[1]);
+                    return "OK";
+                case "ABORT":
+                    abort(request[1]);
+                    return "OK";
+                case "SAVE":
+                    return service.saveAll() ? "OK" : "ERR\tIOException\tSave failed";
+                case "STATS":
+                    return "OK\taccounts=" + service.getTotalAccountsCount() + ",prepared=" + preparedCount.get();
+                default:
+                    return "ERR\tIllegalArgumentException\tUnknown command " + request[0];
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return "ERR\tIllegalArgumentException\tMissing arguments for " + request[0];
+        } catch (Exception e) {
+            return ClusterClient.error(e);
+        }
+    }
+
+    // Take over an account written elsewhere (account and customer in file format)
+    private String importAccount(String accountLine, String customerLine) {
+        Customer customer = Customer.fromFileString(customerLine);
+        Account account = customer == null ? null : Account.fromFileString(accountLine, customer);
+        if (account == null) {
+            throw new IllegalArgumentException("Malformed account or customer line");
+        }
+        if (nodeIndexFor(account.getAccountNumber()) != index) {
+            throw new IllegalArgumentException(account.getAccountNumber() + " does not belong to node " + index);
+        }
+        service.addAccount(account);
+        return account.getAccountNumber();
+    }
+
+    // Two-phase participant
+
+    // The event reference names the transfer, so recovery can tell whether it was applied
+    private static String reference(String counterparty, String transferId) {
+        return counterparty + "#" + transferId;
+    }
+
+    private void prepare(String transferId, boolean debit, String accountNumber, String counterparty, double amount)
+            throws Exception {
+        Participant transfer = transfers.computeIfAbsent(transferId, id -> new Participant());
+        synchronized (transfer) {
+            switch (transfer.state) {
+                case PREPARED:
+                case COMMITTED:
+                    return; // repeated vote
+                case ABORTED:
+                    // A vote that arrives after its abort must not reserve anything again
+                    throw new IllegalStateException("Transfer " + transferId + " was already aborted on node " + index);
+                default:
+                    vote(transferId, transfer, debit, accountNumber, counterparty, amount);
+            }
+        }
+    }
+
+    // Reserve the funds or pin the account and force the vote to the log; caller holds transfer's monitor
+    private void vote(String transferId, Participant transfer, boolean debit, String accountNumber,
+                      String counterparty, double amount) throws Exception {
+        String reference = reference(counterparty, transferId);
+        // The router's transfer id is the same on both nodes, so it links the two legs
+        long localId = debit ? service.prepareDebit(accountNumber, counterparty, reference, transferId, amount)
+                             : service.prepareCredit(accountNumber, counterparty, reference, transferId, amount);
+        try {
+            log.append(true, "PREPARED", transferId, debit ? "DEBIT" : "CREDIT", accountNumber, counterparty,
+                       String.valueOf(amount));
+        } catch (IOException e) {
+            service.abortPrepared(accountNumber, localId);
+            throw e;
+        }
+        transfer.prepared(accountNumber, localId, debit);
+        preparedCount.incrementAndGet();
+    }
+
+    private void commit(String transferId) throws IOException {
+        Participant transfer = transfers.get(transferId);
+        if (transfer == null) {
+            throw new IllegalStateException("Transfer " + transferId + " was never prepared on node " + index);
+        }
+        synchronized (transfer) {
+            switch (transfer.state) {
+                case COMMITTED:
+                    return; // repeated decision
+                case PREPARED:
+                    break;
+                default:
+                    throw new IllegalStateException("Transfer " + transferId + " is " + transfer.state
+                                                    + " on node " + index + ", not prepared");
+            }
+            // If the shard cannot journal the commit, the transfer stays prepared and the
+            // router resends the decision
+            service.commitPrepared(transfer.accountNumber, transfer.localId, transfer.debit);
+            transfer.state = State.COMMITTED;
+            preparedCount.decrementAndGet();
+            // Applied even if this write fails; its event carries the transfer id for recovery
+            log.append(false, "COMMITTED", transferId);
+        }
+        outcomeLogged();
+    }
+
+    // Aborting an unknown transfer is fine: the router presumes abort for anything it never decided.
+    // The abort is remembered either way, so a vote arriving late is refused.
+    private void abort(String transferId) throws IOException {
+        Participant transfer = transfers.computeIfAbsent(transferId, id -> new Participant());
+        synchronized (transfer) {
+            switch (transfer.state) {
+                case ABORTED:
+                case COMMITTED:
+                    return; // repeated, or a decision the router never sends for a committed transfer
+                case PREPARED:
+                    service.abortPrepared(transfer.accountNumber, transfer.localId);
+                    preparedCount.decrementAndGet();
+                    break;
+                default:
+                    break;
+            }
+            transfer.state = State.ABORTED;
+            log.append(false, "ABORTED", transferId);
+        }
+        outcomeLogged();
+    }
+
+    private void outcomeLogged() {
+        if (outcomesSinceCompaction.incrementAndGet() >= COMPACT_EVERY) {
+            outcomesSinceCompaction.set(0);
+            try {
+                compactLog();
+            } catch (IOException e) {
+                System.err.println("❌ Error compacting twophase.log of shard node " + index + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rewrite twophase.log with the votes still in doubt and the newest OUTCOMES_KEPT
+     * commits and aborts; older outcomes are forgotten here and in memory, as the
+     * router only resends a decision until the node acknowledges it
+     */
+    private void compactLog() throws IOException {
+        log.compact(records -> {
+            Map<String, String[]> inDoubt = new LinkedHashMap<>();
+            List<String[]> outcomes = new ArrayList<>();
+            for (String[] record : records) {
+                switch (record[0]) {
+                    case "PREPARED":
+                        inDoubt.put(record[1], record);
+                        break;
+                    case "COMMITTED":
+                    case "ABORTED":
+                        inDoubt.remove(record[1]);
+                        outcomes.add(record);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            int firstKept = Math.max(0, outcomes.size() - OUTCOMES_KEPT);
+            for (String[] record : outcomes.subList(0, firstKept)) {
+                transfers.computeIfPresent(record[1], (id, transfer) -> transfer.isFinished() ? null : transfer);
+            }
+            List<String[]> kept = new ArrayList<>(inDoubt.values());
+            kept.addAll(outcomes.subList(firstKept, outcomes.size()));
+            return kept;
+        });
+    }
+
+    // Re-establish every vote that has no outcome yet
+    private void recover() throws IOException {
+        Map<String, String[]> inDoubt = new LinkedHashMap<>();
+        for (String[] record : log.readAll()) {
+            switch (record[0]) {
+                case "PREPARED":
+                    inDoubt.put(record[1], record);
+                    break;
+                case "COMMITTED":
+                    inDoubt.remove(record[1]);
+                    transfers.computeIfAbsent(record[1], id -> new Participant()).state = State.COMMITTED;
+                    break;
+                case "ABORTED":
+                    inDoubt.remove(record[1]);
+                    transfers.computeIfAbsent(record[1], id -> new Participant()).state = State.ABORTED;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        Set<String> applied = appliedReferences(inDoubt.values());
+        for (String[] record : inDoubt.values()) {
+            String transferId = record[1];
+            boolean debit = record[2].equals("DEBIT");
+            String accountNumber = record[3];
+            String reference = reference(record[4], transferId);
+            double amount = Double.parseDouble(record[5]);
+            Participant transfer = new Participant();
+            transfers.put(transferId, transfer);
+            if (applied.contains(accountNumber + "|" + reference)) {
+                transfer.state = State.COMMITTED;
+                log.append(false, "COMMITTED", transferId);
+                continue;
+            }
+            try {
+                long localId = debit ? service.prepareDebit(accountNumber, record[4], reference, transferId, amount)
+                                     : service.prepareCredit(accountNumber, record[4], reference, transferId, amount);
+                transfer.prepared(accountNumber, localId, debit);
+                preparedCount.incrementAndGet();
+            } catch (Exception e) {
+                System.err.println("❌ Cannot restore prepared transfer " + transferId + ": " + e.getMessage());
+            }
+        }
+        if (preparedCount.get() > 0) {
+            System.out.println("⏳ " + preparedCount.get() + " prepared transfers await the router's decision");
+        }
+        compactLog();
+    }
+
+    /**
+     * "account|reference" of each in-doubt vote whose event already reached its shard
+     * (the commit was applied but not logged), found in one pass over each shard
+     * that holds such a vote; nothing is read when no vote is in doubt
+     */
+    private Set<String> appliedReferences(Collection<String[]> inDoubt) {
+        Map<AccountShard, Set<String>> wanted = new HashMap<>();
+        for (String[] record : inDoubt) {
+            wanted.computeIfAbsent(service.shardFor(record[3]), shard -> new HashSet<>())
+                  .add(record[3] + "|" + reference(record[4], record[1]));
+        }
+        Set<String> applied = new HashSet<>();
+        for (Map.Entry<AccountShard, Set<String>> entry : wanted.entrySet()) {
+            Set<String> keys = entry.getValue();
+            entry.getKey().getEventStore().forEachEvent(event -> {
+                String key = event.getAccountNumber() + "|" + event.getReference();
+                if (keys.contains(key)) {
+                    applied.add(key);
+                }
+            });
+        }
+        return applied;
+    }
+
+    private enum State {
+        NEW, PREPARED, COMMITTED, ABORTED
+    }
+
+    // This node's half of one transfer. Every step on it runs under its monitor, so a
+    // repeated or late request waits for the one in progress instead of applying twice,
+    // and the transfers map is never locked across a shard call.
+    private static final class Participant {
+        private volatile State state = State.NEW;
+        private String accountNumber;
+        private long localId;
+        private boolean debit;
+
+        void prepared(String accountNumber, long localId, boolean debit) {
+            this.accountNumber = accountNumber;
+            this.localId = localId;
+            this.debit = debit;
+            this.state = State.PREPARED;
+        }
+
+        boolean isFinished() {
+            State current = state;
+            return current == State.COMMITTED || current == State.ABORTED;
+        }
+    }
+}
@@ -0,0 +1,531 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * ShardRouter class - front door and transfer coordinator for several ShardNodes
+ * Clients speak ClusterClient's protocol to the router, which forwards each
+ * request to the node owning the account (see ShardNode.nodeIndexFor) and
+ * spreads new accounts round-robin over the nodes.
+ *
+ * A transfer between two nodes is a durable two-phase commit:
+ *   1. BEGIN is logged, then the source votes (PREPARE_DEBIT) and the destination
+ *      votes (PREPARE_CREDIT); a refusal or lost node aborts both
+ *   2. COMMIT is forced to coordinator.log - from here on the transfer will happen -
+ *      and sent to both nodes; DONE is logged once both acknowledged
+ * Decisions a node missed are resent every second until acknowledged. On restart
+ * the router resends COMMIT for every committed but unfinished transfer and ABORT
+ * for every transfer it never decided (presumed abort). Every COMPACT_EVERY
+ * finished transfers (and on restart) coordinator.log is rewritten with only the
+ * unfinished ones and a LAST_ID record, so transfer ids are never reused.
+ *
+ * Usage: java ShardRouter <port> <dataDirectory> <node host:port> [<node host:port> ...]
+ *        java ShardRouter bench [maxNodes] [threads] [seconds] [accounts]
+ */
+public class ShardRouter {
+    private static final OperationMetrics FORWARD_METRICS = MetricsRegistry.operation("router.forward");
+    private static final OperationMetrics TWO_PHASE_METRICS = MetricsRegistry.operation("router.transfer.twoPhase");
+    private static final long REDELIVERY_SECONDS = 1;
+    private static final int COMPACT_EVERY = 10_000;
+
+    private final List<String> nodeAddresses;
+    private final TwoPhaseLog log;
+    private final AtomicLong transferIds = new AtomicLong();
+    private final AtomicInteger doneSinceCompaction = new AtomicInteger();
+    private final AtomicInteger nextCreateNode = new AtomicInteger();
+    private final Map<String, Decision> undelivered = new ConcurrentHashMap<>();
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final ScheduledExecutorService redelivery;
+    private volatile boolean running = true;
+
+    // Constructor - recovers the coordinator log and binds the port; call start() to serve
+    public ShardRouter(int port, String dataDirectory, List<String> nodeAddresses) throws IOException {
+        if (nodeAddresses.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        this.nodeAddresses = new ArrayList<>(nodeAddresses);
+        this.log = new TwoPhaseLog(new File(dataDirectory, "coordinator.log"));
+        recover();
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "router-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.redelivery = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "router-redelivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("bench")) {
+            runBenchmark(args);
+            return;
+        }
+        if (args.length < 3) {
+            System.out.println("Usage: java ShardRouter <port> <dataDirectory> <node host:port> [<node host:port> ...]");
+            System.out.println("       java ShardRouter bench [maxNodes] [threads] [seconds] [accounts]");
+            return;
+        }
+        List<String> nodes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            nodes.add(args[i]);
+        }
+        ShardRouter router = new ShardRouter(Integer.parseInt(args[0]), args[1], nodes);
+        Runtime.getRuntime().addShutdownHook(new Thread(router::stop));
+        router.start();
+        System.out.println("🔀 Router listening on 127.0.0.1:" + router.getPort() + " for " + nodes.size() + " nodes");
+    }
+
+    public void start() {
+        // Not a daemon: it keeps the process alive until stop() closes the socket
+        new Thread(this::acceptConnections, "router-acceptor").start();
+        redelivery.scheduleWithFixedDelay(this::redeliver, REDELIVERY_SECONDS, REDELIVERY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverSocket.close();
+            connections.shutdownNow();
+            redelivery.shutdownNow();
+            log.close();
+        } catch (IOException e) {
+            System.err.println("❌ Error stopping router: " + e.getMessage());
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Transfers whose decision has not reached every node yet
+    public int getUndeliveredCount() {
+        return undelivered.size();
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("❌ Error accepting connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // One client connection; it gets its own connection to every node
+    private void serve(Socket socket) {
+        ClusterClient[] nodes = newNodeClients();
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(handle(line.split("\t", -1), nodes));
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            for (ClusterClient node : nodes) {
+                node.close();
+            }
+        }
+    }
+
+    private ClusterClient[] newNodeClients() {
+        ClusterClient[] nodes = new ClusterClient[nodeAddresses.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = ClusterClient.forAddress(nodeAddresses.get(i));
+        }
+        return nodes;
+    }
+
+    private String handle(String[] request, ClusterClient[] nodes) {
+        try {
+            switch (request[0]) {
+                case "PING":
+                    return "OK\trouter";
+                case "CREATE":
+                    return forward(nodes, Math.floorMod(nextCreateNode.getAndIncrement(), nodes.length), request);
+                case "IMPORT":
+                    return forward(nodes, nodeFor(request[1].split(",", 2)[0]), request);
+                case "BALANCE":
+                case "DEPOSIT":
+                case "WITHDRAW":
+                    return forward(nodes, nodeFor(request[1]), request);
+                case "TRANSFER":
+                    int source = nodeFor(request[1]);
+                    int destination = nodeFor(request[2]);
+                    return source == destination ? forward(nodes, source, request)
+                                                 : transfer(nodes, source, destination, request);
+                case "SAVE":
+                    for (int i = 0; i < nodes.length; i++) {
+                        String reply = forward(nodes, i, request);
+                        if (!reply.startsWith("OK")) {
+                            return reply;
+                        }
+                    }
+                    return "OK";
+                case "STATS":
+                    return "OK\tnodes=" + nodes.length + ",undelivered=" + undelivered.size();
+                default:
+                    return "ERR\tIllegalArgumentException\tUnknown command " + request[0];
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return "ERR\tIllegalArgumentException\tMissing arguments for " + request[0];
+        } catch (Exception e) {
+            return ClusterClient.error(e);
+        }
+    }
+
+    private int nodeFor(String accountNumber) throws AccountNotFoundException {
+        int node = ShardNode.nodeIndexFor(accountNumber);
+        if (node < 0 || node >= nodeAddresses.size()) {
+            throw new AccountNotFoundException("Account not found", accountNumber);
+        }
+        return node;
+    }
+
+    private String forward(ClusterClient[] nodes, int node, String[] request) {
+        long start = FORWARD_METRICS.start();
+        try {
+            String reply = String.join("\t", nodes[node].call(request));
+            FORWARD_METRICS.record(start, true);
+            return reply;
+        } catch (IOException e) {
+            FORWARD_METRICS.record(start, false);
+            return "ERR\tIllegalStateException\tNode " + node + " unavailable, outcome unknown: " + e.getMessage();
+        }
+    }
+
+    // Two-phase transfer between nodes; request is TRANSFER from to amount
+    private String transfer(ClusterClient[] nodes, int source, int destination, String[] request) throws IOException {
+        long start = TWO_PHASE_METRICS.start();
+        boolean success = false;
+        String transferId = "tx" + transferIds.incrementAndGet();
+        String from = request[1];
+        String to = request[2];
+        String amount = request[3];
+        try {
+            log.append(false, "BEGIN", transferId, String.valueOf(source), String.valueOf(destination));
+
+            // Phase 1: collect both votes
+            String refusal = vote(nodes, source, "PREPARE_DEBIT", transferId, from, to, amount);
+            if (refusal == null) {
+                refusal = vote(nodes, destination, "PREPARE_CREDIT", transferId, to, from, amount);
+            }
+            if (refusal != null) {
+                deliver(nodes, new Decision(transferId, false, source, destination));
+                return refusal;
+            }
+
+            // Phase 2: the forced COMMIT record is the point of no return
+            log.append(true, "COMMIT", transferId, String.valueOf(source), String.valueOf(destination));
+            deliver(nodes, new Decision(transferId, true, source, destination));
+            success = true;
+            return "OK";
+        } finally {
+            TWO_PHASE_METRICS.record(start, success);
+        }
+    }
+
+    // null for a yes vote, otherwise the reply to pass back to the client
+    private String vote(ClusterClient[] nodes, int node, String... request) {
+        try {
+            String[] reply = nodes[node].call(request);
+            return reply[0].equals("OK") ? null : String.join("\t", reply);
+        } catch (IOException e) {
+            return "ERR\tIllegalStateException\tNode " + node + " unavailable, transfer aborted: " + e.getMessage();
+        }
+    }
+
+    // Send a decision to both nodes, leaving it for redelivery if either did not acknowledge
+    private void deliver(ClusterClient[] nodes, Decision decision) throws IOException {
+        if (sendDecision(nodes, decision)) {
+            log.append(false, "DONE", decision.transferId);
+            finished();
+        } else {
+            undelivered.put(decision.transferId, decision);
+        }
+    }
+
+    private boolean sendDecision(ClusterClient[] nodes, Decision decision) {
+        boolean acknowledged = true;
+        for (int node : new int[] {decision.source, decision.destination}) {
+            try {
+                String[] reply = nodes[node].call(decision.commit ? "COMMIT" : "ABORT", decision.transferId);
+                acknowledged &= reply[0].equals("OK");
+            } catch (IOException e) {
+                acknowledged = false;
+            }
+        }
+        return acknowledged;
+    }
+
+    private void redeliver() {
+        if (undelivered.isEmpty()) {
+            return;
+        }
+        ClusterClient[] nodes = newNodeClients();
+        try {
+            for (Decision decision : undelivered.values()) {
+                if (sendDecision(nodes, decision)) {
+                    undelivered.remove(decision.transferId);
+                    log.append(false, "DONE", decision.transferId);
+                    finished();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error writing coordinator log: " + e.getMessage());
+        } finally {
+            for (ClusterClient node : nodes) {
+                node.close();
+            }
+        }
+    }
+
+    private void finished() {
+        if (doneSinceCompaction.incrementAndGet() >= COMPACT_EVERY) {
+            doneSinceCompaction.set(0);
+            try {
+                compactLog();
+            } catch (IOException e) {
+                System.err.println("❌ Error compacting coordinator.log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rewrite coordinator.log with the latest record of each unfinished transfer,
+     * after a LAST_ID record holding the highest transfer id so far, which recover()
+     * reads like any other record's id
+     */
+    private void compactLog() throws IOException {
+        log.compact(records -> {
+            Map<String, String[]> unfinished = new LinkedHashMap<>();
+            long lastId = 0;
+            for (String[] record : records) {
+                lastId = Math.max(lastId, Long.parseLong(record[1].substring(2)));
+                switch (record[0]) {
+                    case "BEGIN":
+                    case "COMMIT":
+                        unfinished.put(record[1], record);
+                        break;
+                    case "DONE":
+                        unfinished.remove(record[1]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            List<String[]> kept = new ArrayList<>();
+            kept.add(new String[] {"LAST_ID", "tx" + lastId});
+            kept.addAll(unfinished.values());
+            return kept;
+        });
+    }
+
+    // Queue every unfinished transfer: committed ones to commit, undecided ones to abort
+    private void recover() throws IOException {
+        Map<String, Decision> unfinished = new LinkedHashMap<>();
+        long lastId = 0;
+        for (String[] record : log.readAll()) {
+            String transferId = record[1];
+            lastId = Math.max(lastId, Long.parseLong(transferId.substring(2)));
+            switch (record[0]) {
+                case "BEGIN":
+                    unfinished.put(transferId, new Decision(transferId, false,
+                            Integer.parseInt(record[2]), Integer.parseInt(record[3])));
+                    break;
+                case "COMMIT":
+                    unfinished.put(transferId, new Decision(transferId, true,
+                            Integer.parseInt(record[2]), Integer.parseInt(record[3])));
+                    break;
+                case "DONE":
+                    unfinished.remove(transferId);
+                    break;
+                default:
+                    break;
+            }
+        }
+        transferIds.set(lastId);
+        undelivered.putAll(unfinished);
+        if (!unfinished.isEmpty()) {
+            System.out.println("⏳ Resending decisions for " + unfinished.size() + " unfinished transfers");
+        }
+        compactLog();
+    }
+
+    // Outcome of one cross-node transfer
+    private static final class Decision {
+        private final String transferId;
+        private final boolean commit;
+        private final int source;
+        private final int destination;
+
+        Decision(String transferId, boolean commit, int source, int destination) {
+            this.transferId = transferId;
+            this.commit = commit;
+            this.source = source;
+            this.destination = destination;
+        }
+    }
+
+    // Benchmark: 1, 2, 4 ... node processes behind one router, closed-loop transfers
+
+    private static void runBenchmark(String[] args) throws Exception {
+        int maxNodes = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int accountCount = args.length > 4 ? Integer.parseInt(args[4]) : 10_000;
+        String passwordHash = PasswordHasher.hash("bench123");
+
+        System.out.printf("%d client threads, %d accounts, %d s per run, %d CPUs%n",
+                threads, accountCount, seconds, Runtime.getRuntime().availableProcessors());
+        System.out.println("┌────────┬──────────────┬──────────────┐");
+        System.out.println("│ nodes  │ transfers/s  │ cross-node   │");
+        System.out.println("├────────┼──────────────┼──────────────┤");
+        for (int nodeCount = 1; nodeCount <= maxNodes; nodeCount *= 2) {
+            File dir = Files.createTempDirectory("shard-bench").toFile();
+            List<Process> processes = new ArrayList<>();
+            ShardRouter router = null;
+            try {
+                List<String> addresses = new ArrayList<>();
+                for (int i = 0; i < nodeCount; i++) {
+                    int port = freePort();
+                    File nodeDir = new File(dir, "node-" + i);
+                    nodeDir.mkdirs();
+                    processes.add(new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                            "-cp", System.getProperty("java.class.path"), "ShardNode",
+                            String.valueOf(i), String.valueOf(port), nodeDir.getPath())
+                            .redirectErrorStream(true)
+                            .redirectOutput(new File(dir, "node-" + i + ".log"))
+                            .start());
+                    addresses.add("127.0.0.1:" + port);
+                }
+                for (String address : addresses) {
+                    awaitNode(address);
+                }
+                router = new ShardRouter(0, dir.getPath(), addresses);
+                router.start();
+                int routerPort = router.getPort();
+
+                // Accounts are imported with one precomputed hash; CREATE would run PBKDF2 each
+                String[] accounts = new String[accountCount];
+                try (ClusterClient client = new ClusterClient("127.0.0.1", routerPort)) {
+                    for (int i = 0; i < accountCount; i++) {
+                        int node = i % nodeCount;
+                        int number = node * ShardNode.ACCOUNT_RANGE + 1001 + i / nodeCount;
+                        accounts[i] = String.format("ACC%06d", number);
+                        String customerLine = String.format("CUST%06d", number) + ",Bench " + i
+                                + ",bench@example.com,0000000000,Bench St";
+                        String accountLine = accounts[i] + "," + passwordHash + "," + String.format("CUST%06d", number)
+                                + ",SAVINGS,1000000.0," + LocalDate.now() + ",true";
+                        ClusterClient.value(client.call("IMPORT", accountLine, customerLine));
+                    }
+                }
+
+                LongAdder completed = new LongAdder();
+                LongAdder crossNode = new LongAdder();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+                ExecutorService clients = Executors.newFixedThreadPool(threads);
+                for (int t = 0; t < threads; t++) {
+                    clients.submit(() -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        try (ClusterClient client = new ClusterClient("127.0.0.1", routerPort)) {
+                            while (System.nanoTime() < deadline) {
+                                String from = accounts[random.nextInt(accountCount)];
+                                String to = accounts[random.nextInt(accountCount)];
+                                if (from.equals(to)) {
+                                    continue;
+                                }
+                                client.transfer(from, to, 1);
+                                completed.increment();
+                                if (ShardNode.nodeIndexFor(from) != ShardNode.nodeIndexFor(to)) {
+                                    crossNode.increment();
+                                }
+                            }
+                        }
+                        return null;
+                    });
+                }
+                clients.shutdown();
+                clients.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+
+                long total = completed.sum();
+                System.out.printf("│ %6d │ %12.0f │ %11.1f%% │%n", nodeCount, total / (double) seconds,
+                        total == 0 ? 0 : 100.0 * crossNode.sum() / total);
+            } finally {
+                if (router != null) {
+                    router.stop();
+                }
+                for (Process process : processes) {
+                    process.destroy();
+                    process.waitFor(30, TimeUnit.SECONDS);
+                }
+                try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                    paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+                }
+            }
+        }
+        System.out.println("└────────┴──────────────┴──────────────┘");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitNode(String address) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (System.nanoTime() < deadline) {
+            try (ClusterClient client = ClusterClient.forAddress(address)) {
+                if (client.call("PING")[0].equals("OK")) {
+                    return;
+                }
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Node at " + address + " did not start");
+    }
+}
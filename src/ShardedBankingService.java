@@ -0,0 +1,519 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ShardedBankingService class - the account space hash-partitioned over AccountShards
+ * Each account number maps to one shard, and every change to it runs on that
+ * shard's own thread, so unrelated accounts never contend. Calls block until
+ * their shard has applied them, like BankingService.
+ *
+ * A transfer between two shards is coordinated by the calling thread in two
+ * phases: both shards prepare concurrently (the source reserves the amount,
+ * the destination pins the account), then both commit, or both abort if either
+ * refused. A shard thread never waits on another shard, so the protocol cannot
+ * deadlock. The decision is not logged, so a crash between the two commits can
+ * leave one side applied; the event stores make that visible on restart.
+ *
+ * Usage: java ShardedBankingService bench [maxShards] [threads] [seconds] [accounts]
+ *   runs a transfer workload at 1, 2, 4 ... maxShards shards and prints throughput
+ */
+public class ShardedBankingService {
+    private static final OperationMetrics DEPOSIT_METRICS = MetricsRegistry.operation("sharded.deposit");
+    private static final OperationMetrics WITHDRAW_METRICS = MetricsRegistry.operation("sharded.withdraw");
+    private static final OperationMetrics LOCAL_TRANSFER_METRICS = MetricsRegistry.operation("sharded.transfer.local");
+    private static final OperationMetrics CROSS_TRANSFER_METRICS = MetricsRegistry.operation("sharded.transfer.crossShard");
+
+    private final AccountShard[] shards;
+    private final AtomicInteger accountCounter = new AtomicInteger(1000);
+    private final AtomicInteger customerCounter = new AtomicInteger(1000);
+    private final AtomicLong transferIds = new AtomicLong();
+
+    // Constructor - in-memory shards
+    public ShardedBankingService(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.shards = new AccountShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new AccountShard(i);
+        }
+    }
+
+    private ShardedBankingService(AccountShard[] shards) {
+        this.shards = shards;
+        for (AccountShard shard : shards) {
+            for (Account account : shard.getAccounts()) {
+                accountCounter.accumulateAndGet(idSuffix(account.getAccountNumber(), "ACC"), Math::max);
+                customerCounter.accumulateAndGet(idSuffix(account.getCustomer().getCustomerId(), "CUST"), Math::max);
+            }
+        }
+    }
+
+    /**
+     * Open (or create) shards persisted as directory/shard-0 ... shard-(N-1);
+     * an existing layout keeps its shard count, since it decides where accounts live
+     */
+    public static ShardedBankingService open(String directory, int shardCount) throws IOException {
+        File dir = new File(directory);
+        File[] existing = dir.listFiles((d, name) -> name.startsWith("shard-"));
+        if (existing != null && existing.length > 0) {
+            shardCount = existing.length;
+        }
+        AccountShard[] shards = new AccountShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = AccountShard.open(i, new File(dir, "shard-" + i).getPath());
+        }
+        return new ShardedBankingService(shards);
+    }
+
+    public AccountShard shardFor(String accountNumber) {
+        return shards[Math.floorMod(accountNumber.hashCode(), shards.length)];
+    }
+
+    // Account Management Methods
+    public String createAccount(String customerName, String email, String phone, String address,
+                                String accountType, double initialDeposit, String password)
+                                throws InvalidAmountException {
+        if (initialDeposit < 0) {
+            throw new InvalidAmountException("Initial deposit cannot be negative", initialDeposit);
+        }
+        Customer customer = new Customer("CUST" + String.format("%06d", customerCounter.incrementAndGet()),
+                                         customerName, email, phone, address);
+        String accountNumber = "ACC" + String.format("%06d", accountCounter.incrementAndGet());
+        AccountShard shard = shardFor(accountNumber);
+        try {
+            await(shard.submit(() -> shard.createAccount(accountNumber, customer, accountType, initialDeposit, password)));
+        } catch (AccountNotFoundException | InsufficientBalanceException e) {
+            throw new IllegalStateException(e); // opening an account checks neither
+        }
+        return accountNumber;
+    }
+
+    /**
+     * Move an existing account (e.g. from BankingService.getAllAccounts) onto its shard
+     */
+    public void addAccount(Account account) {
+        String accountNumber = account.getAccountNumber();
+        AccountShard shard = shardFor(accountNumber);
+        join(shard.submit(() -> {
+            shard.addAccount(account);
+            return null;
+        }));
+        accountCounter.accumulateAndGet(idSuffix(accountNumber, "ACC"), Math::max);
+        customerCounter.accumulateAndGet(idSuffix(account.getCustomer().getCustomerId(), "CUST"), Math::max);
+    }
+
+    public Account getAccount(String accountNumber) throws AccountNotFoundException {
+        return shardFor(accountNumber).getAccount(accountNumber);
+    }
+
+    public double getBalance(String accountNumber) throws AccountNotFoundException {
+        return getAccount(accountNumber).getBalance();
+    }
+
+    public List<Transaction> getTransactionHistory(String accountNumber) throws AccountNotFoundException {
+        return getAccount(accountNumber).getTransactionHistory();
+    }
+
+    // Transaction Methods
+    public void deposit(String accountNumber, double amount) throws AccountNotFoundException, InvalidAmountException {
+        long start = DEPOSIT_METRICS.start();
+        boolean success = false;
+        try {
+            AccountShard shard = shardFor(accountNumber);
+            await(shard.submit(() -> shard.deposit(accountNumber, amount)));
+            success = true;
+        } catch (InsufficientBalanceException e) {
+            throw new IllegalStateException(e); // deposits never check balances
+        } finally {
+            DEPOSIT_METRICS.record(start, success);
+        }
+    }
+
+    public void withdraw(String accountNumber, double amount)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        long start = WITHDRAW_METRICS.start();
+        boolean success = false;
+        try {
+            AccountShard shard = shardFor(accountNumber);
+            await(shard.submit(() -> shard.withdraw(accountNumber, amount)));
+            success = true;
+        } finally {
+            WITHDRAW_METRICS.record(start, success);
+        }
+    }
+
+    public void transfer(String fromAccountNumber, String toAccountNumber, double amount)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new InvalidAmountException("Cannot transfer to the same account");
+        }
+        AccountShard source = shardFor(fromAccountNumber);
+        AccountShard destination = shardFor(toAccountNumber);
+        if (source == destination) {
+            long start = LOCAL_TRANSFER_METRICS.start();
+            boolean success = false;
+            try {
+                await(source.submit(() -> {
+                    source.transferLocal(fromAccountNumber, toAccountNumber, amount);
+                    return null;
+                }));
+                success = true;
+            } finally {
+                LOCAL_TRANSFER_METRICS.record(start, success);
+            }
+            return;
+        }
+
+        long start = CROSS_TRANSFER_METRICS.start();
+        boolean success = false;
+        try {
+            transferAcrossShards(source, destination, fromAccountNumber, toAccountNumber, amount);
+            success = true;
+        } finally {
+            CROSS_TRANSFER_METRICS.record(start, success);
+        }
+    }
+
+    private void transferAcrossShards(AccountShard source, AccountShard destination, String fromAccountNumber,
+                                      String toAccountNumber, double amount)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        long transferId = transferIds.incrementAndGet();
+        String transferReference = Transaction.newTransferReference();
+
+        // Phase 1: both shards vote by preparing
+        Future<Object> debit = source.submit(() -> {
+            source.prepareDebit(transferId, fromAccountNumber, toAccountNumber, toAccountNumber, transferReference,
+                                amount);
+            return null;
+        });
+        Future<Object> credit = destination.submit(() -> {
+            destination.prepareCredit(transferId, toAccountNumber, fromAccountNumber, fromAccountNumber,
+                                      transferReference, amount);
+            return null;
+        });
+        Exception refusal = null;
+        for (Future<Object> vote : List.of(debit, credit)) {
+            try {
+                await(vote);
+            } catch (AccountNotFoundException | InsufficientBalanceException | InvalidAmountException
+                     | RuntimeException e) {
+                if (refusal == null) {
+                    refusal = e;
+                }
+            }
+        }
+
+        // Phase 2: commit on both, or release whatever was prepared
+        if (refusal != null) {
+            source.submit(() -> {
+                source.abort(transferId);
+                return null;
+            });
+            destination.submit(() -> {
+                destination.abort(transferId);
+                return null;
+            });
+            rethrow(refusal);
+        }
+        Future<Object> debited = source.submit(() -> {
+            source.commitDebit(transferId);
+            return null;
+        });
+        Future<Object> credited = destination.submit(() -> {
+            destination.commitCredit(transferId);
+            return null;
+        });
+        await(debited);
+        await(credited);
+    }
+
+    // Wait for a shard task and surface the banking exception it threw
+    private static <T> T await(Future<T> future)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            rethrow(e.getCause());
+            return null;
+        }
+    }
+
+    private static void rethrow(Throwable cause)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        if (cause instanceof AccountNotFoundException) {
+            throw (AccountNotFoundException) cause;
+        }
+        if (cause instanceof InsufficientBalanceException) {
+            throw (InsufficientBalanceException) cause;
+        }
+        if (cause instanceof InvalidAmountException) {
+            throw (InvalidAmountException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    // Participant side of a transfer coordinated by another process (see ShardNode).
+    // Each returns or takes the id of the transfer as prepared on the account's shard;
+    // the coordinator passes both nodes the same transferReference to link the legs.
+
+    public long prepareDebit(String fromAccountNumber, String counterparty, String reference,
+                             String transferReference, double amount)
+            throws AccountNotFoundException, InsufficientBalanceException, InvalidAmountException {
+        AccountShard shard = shardFor(fromAccountNumber);
+        long transferId = transferIds.incrementAndGet();
+        await(shard.submit(() -> {
+            shard.prepareDebit(transferId, fromAccountNumber, counterparty, reference, transferReference, amount);
+            return null;
+        }));
+        return transferId;
+    }
+
+    public long prepareCredit(String toAccountNumber, String counterparty, String reference,
+                              String transferReference, double amount)
+            throws AccountNotFoundException {
+        AccountShard shard = shardFor(toAccountNumber);
+        long transferId = transferIds.incrementAndGet();
+        try {
+            await(shard.submit(() -> {
+                shard.prepareCredit(transferId, toAccountNumber, counterparty, reference, transferReference, amount);
+                return null;
+            }));
+        } catch (InsufficientBalanceException | InvalidAmountException e) {
+            throw new IllegalStateException(e); // crediting checks neither
+        }
+        return transferId;
+    }
+
+    public void commitPrepared(String accountNumber, long transferId, boolean debit) {
+        AccountShard shard = shardFor(accountNumber);
+        join(shard.submit(() -> {
+            if (debit) {
+                shard.commitDebit(transferId);
+            } else {
+                shard.commitCredit(transferId);
+            }
+            return null;
+        }));
+    }
+
+    public void abortPrepared(String accountNumber, long transferId) {
+        AccountShard shard = shardFor(accountNumber);
+        join(shard.submit(() -> {
+            shard.abort(transferId);
+            return null;
+        }));
+    }
+
+    // Account Management
+    public void deactivateAccount(String accountNumber) throws AccountNotFoundException {
+        setActive(accountNumber, false);
+    }
+
+    public void activateAccount(String accountNumber) throws AccountNotFoundException {
+        setActive(accountNumber, true);
+    }
+
+    private void setActive(String accountNumber, boolean active) throws AccountNotFoundException {
+        AccountShard shard = shardFor(accountNumber);
+        try {
+            await(shard.submit(() -> {
+                shard.setActive(accountNumber, active);
+                return null;
+            }));
+        } catch (InsufficientBalanceException | InvalidAmountException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Queries across all shards
+
+    public List<Account> getAllAccounts() {
+        List<Account> all = new ArrayList<>();
+        for (AccountShard shard : shards) {
+            all.addAll(shard.getAccounts());
+        }
+        return all;
+    }
+
+    public int getTotalAccountsCount() {
+        int total = 0;
+        for (AccountShard shard : shards) {
+            total += shard.getAccountCount();
+        }
+        return total;
+    }
+
+    /**
+     * Every shard's ledger slice; each slice is in its shard's order
+     */
+    public List<Transaction> getAllTransactions() {
+        List<Future<List<Transaction>>> slices = new ArrayList<>();
+        for (AccountShard shard : shards) {
+            slices.add(shard.submit(shard::getLedger));
+        }
+        List<Transaction> all = new ArrayList<>();
+        for (Future<List<Transaction>> slice : slices) {
+            all.addAll(join(slice));
+        }
+        return all;
+    }
+
+    /**
+     * Sum of every shard's balances; each shard is summed consistently, but a
+     * cross-shard transfer committing meanwhile may be counted on one side only
+     */
+    public double getTotalBalance() {
+        List<Future<Double>> totals = new ArrayList<>();
+        for (AccountShard shard : shards) {
+            totals.add(shard.submit(shard::getTotalBalance));
+        }
+        double total = 0;
+        for (Future<Double> shardTotal : totals) {
+            total += join(shardTotal);
+        }
+        return total;
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return await(future);
+        } catch (AccountNotFoundException | InsufficientBalanceException | InvalidAmountException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Issue account numbers from first upwards (and matching customer IDs), e.g. so
+     * several processes own disjoint number ranges; never moves numbering backwards
+     */
+    public void startNumberingAt(int first) {
+        accountCounter.accumulateAndGet(first - 1, Math::max);
+        customerCounter.accumulateAndGet(first - 1, Math::max);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public AccountShard getShard(int index) {
+        return shards[index];
+    }
+
+    /**
+     * Persist every shard (in parallel, each on its own thread)
+     */
+    public boolean saveAll() {
+        List<Future<Boolean>> saved = new ArrayList<>();
+        for (AccountShard shard : shards) {
+            saved.add(shard.submit(shard::save));
+        }
+        boolean all = true;
+        for (Future<Boolean> result : saved) {
+            all &= join(result);
+        }
+        return all;
+    }
+
+    public void close() throws IOException {
+        for (AccountShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    private static int idSuffix(String id, String prefix) {
+        try {
+            return id.startsWith(prefix) ? Integer.parseInt(id.substring(prefix.length())) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Scaling benchmark: closed-loop transfers between random accounts at 1, 2, 4 ... shards
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !args[0].equals("bench")) {
+            System.out.println("Usage: java ShardedBankingService bench [maxShards] [threads] [seconds] [accounts]");
+            return;
+        }
+        int maxShards = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4 * maxShards;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        int accountCount = args.length > 4 ? Integer.parseInt(args[4]) : 10_000;
+        MetricsRegistry.setEnabled(false);
+        String passwordHash = PasswordHasher.hash("bench123");
+
+        System.out.printf("%d client threads, %d accounts, %d s per run, %d CPUs%n",
+                threads, accountCount, seconds, Runtime.getRuntime().availableProcessors());
+        System.out.println("┌────────┬──────────────┬──────────────┐");
+        System.out.println("│ shards │ transfers/s  │ cross-shard  │");
+        System.out.println("├────────┼──────────────┼──────────────┤");
+        for (int shardCount = 1; shardCount <= maxShards; shardCount *= 2) {
+            // Built from one precomputed hash; createAccount would run PBKDF2 per account
+            ShardedBankingService service = new ShardedBankingService(shardCount);
+            String[] accounts = new String[accountCount];
+            for (int i = 0; i < accountCount; i++) {
+                accounts[i] = String.format("ACC%06d", 1001 + i);
+                Customer customer = new Customer(String.format("CUST%06d", 1001 + i), "Bench " + i,
+                                                 "bench@example.com", "0000000000", "Bench St");
+                service.addAccount(Account.fromFileString(accounts[i] + "," + passwordHash + ","
+                        + customer.getCustomerId() + ",SAVINGS,1000000.0," + LocalDate.now() + ",true", customer));
+            }
+
+            LongAdder completed = new LongAdder();
+            LongAdder crossShard = new LongAdder();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            ExecutorService clients = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        String from = accounts[random.nextInt(accountCount)];
+                        String to = accounts[random.nextInt(accountCount)];
+                        if (from.equals(to)) {
+                            continue;
+                        }
+                        try {
+                            service.transfer(from, to, 1);
+                            completed.increment();
+                            if (service.shardFor(from) != service.shardFor(to)) {
+                                crossShard.increment();
+                            }
+                        } catch (Exception e) {
+                            // balances are large enough that transfers are never refused
+                        }
+                    }
+                    return null;
+                });
+            }
+            clients.shutdown();
+            clients.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+            service.close();
+
+            long total = completed.sum();
+            System.out.printf("│ %6d │ %12.0f │ %11.1f%% │%n", shardCount, total / (double) seconds,
+                    total == 0 ? 0 : 100.0 * crossShard.sum() / total);
+        }
+        System.out.println("└────────┴──────────────┴──────────────┘");
+    }
+}
@@ -0,0 +1,368 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StandbyReplica class - warm standby that follows a primary's event store
+ * Tails the primary's partition-N.log files on the shared local filesystem and
+ * replicates every new event into its own EventStore, keeping the primary's
+ * sequence numbers. Offsets are saved next to the standby's store, so a
+ * restart continues where it stopped (anything re-read is skipped).
+ *
+ * While following, the standby answers read-only balance and history queries.
+ * promote() drains the remaining log and returns a BankingService on the
+ * standby's store, rebuilt from the replicated events alone: customer and
+ * account records from each account's latest DETAILS event, balances and status
+ * from its derived state. No data files are read.
+ *
+ * Replication lag is reported as the bytes not yet applied, the time since the
+ * standby was last caught up, and a "standby.lag" metric with the delay from
+ * the primary writing each event to the standby applying it.
+ *
+ * Usage: java StandbyReplica <primaryEventDirectory> <standbyEventDirectory> [port] [pollMillis]
+ *   GET /balance?account=ACC001001   GET /history?account=ACC001001   GET /replication
+ */
+public class StandbyReplica {
+    private static final OperationMetrics LAG_METRICS = MetricsRegistry.operation("standby.lag");
+    private static final int DEFAULT_PORT = 8081;
+    private static final long DEFAULT_POLL_MILLIS = 50;
+    private static final int READ_CHUNK = 1 << 20;
+
+    private final File primaryDirectory;
+    private final EventStore eventStore;
+    private final File offsetsFile; // null when the standby's store is in memory
+    private final Map<String, Long> offsets = new TreeMap<>(); // by log file name; tailer thread only
+    private final byte[] chunk = new byte[READ_CHUNK];
+
+    private volatile long appliedEvents;
+    private volatile long lastAppliedSequence;
+    private volatile long pendingBytes;
+    private volatile long caughtUpAtMillis = System.currentTimeMillis();
+    private volatile boolean following;
+    private Thread tailer;
+
+    // Constructor - offsets are kept in standbyDirectory when the standby's store is persistent
+    public StandbyReplica(String primaryDirectory, EventStore eventStore, String standbyDirectory) throws IOException {
+        this.primaryDirectory = new File(primaryDirectory);
+        this.eventStore = eventStore;
+        this.offsetsFile = standbyDirectory == null ? null : new File(standbyDirectory, "standby.offsets");
+        loadOffsets();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java StandbyReplica <primaryEventDirectory> <standbyEventDirectory> [port] [pollMillis]");
+            return;
+        }
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+        long pollMillis = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_POLL_MILLIS;
+
+        StandbyReplica standby = new StandbyReplica(args[0], EventStore.open(args[1]), args[1]);
+        long start = System.nanoTime();
+        standby.catchUp();
+        System.out.printf("📥 Standby caught up: %d events in %d ms%n", standby.getAppliedEvents(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        standby.start(pollMillis);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(BankingServer.newRequestExecutor());
+        server.createContext("/balance", exchange -> standby.respond(exchange, () -> {
+            String accountNumber = accountParameter(exchange);
+            return "{\"accountNumber\":" + BankingServer.quote(accountNumber)
+                   + ",\"balance\":" + standby.getBalance(accountNumber)
+                   + ",\"lagMillis\":" + standby.getLagMillis() + "}";
+        }));
+        server.createContext("/history", exchange -> standby.respond(exchange, () -> {
+            String accountNumber = accountParameter(exchange);
+            StringBuilder json = new StringBuilder("{\"accountNumber\":").append(BankingServer.quote(accountNumber))
+                    .append(",\"events\":[");
+            List<AccountEvent> events = standby.getHistory(accountNumber);
+            for (int i = 0; i < events.size(); i++) {
+                AccountEvent event = events.get(i);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"sequence\":").append(event.getSequence())
+                    .append(",\"type\":").append(BankingServer.quote(event.getType().name()))
+                    .append(",\"amount\":").append(event.getAmount())
+                    .append(",\"timestamp\":").append(event.getTimestamp())
+                    .append(",\"reference\":").append(BankingServer.quote(event.getReference()))
+                    .append('}');
+            }
+            return json.append("]}").toString();
+        }));
+        server.createContext("/replication", exchange -> standby.respond(exchange, standby::toJson));
+        server.start();
+        System.out.println("📖 Read-only standby listening on http://127.0.0.1:" + port
+                           + " following " + args[0]);
+    }
+
+    // Following
+
+    /**
+     * Follow the primary on a daemon thread, polling every pollMillis
+     */
+    public synchronized void start(long pollMillis) {
+        if (following) {
+            return;
+        }
+        following = true;
+        tailer = new Thread(() -> {
+            while (following) {
+                try {
+                    if (poll() == 0) {
+                        Thread.sleep(pollMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("❌ Error following primary: " + e.getMessage());
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }, "standby-tailer");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    public synchronized void stop() {
+        following = false;
+        if (tailer != null) {
+            tailer.interrupt();
+            try {
+                tailer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            tailer = null;
+        }
+    }
+
+    // Poll until no complete event is left unread
+    public void catchUp() throws IOException {
+        while (poll() > 0) {
+            // keep reading
+        }
+    }
+
+    /**
+     * Read and apply whatever the primary appended since the last poll; returns the
+     * number of complete lines read. Not thread-safe: the tailer thread, or the
+     * caller while the standby is stopped.
+     */
+    public int poll() throws IOException {
+        File[] logs = primaryDirectory.listFiles((dir, name) -> name.startsWith("partition-") && name.endsWith(".log"));
+        if (logs == null) {
+            throw new IOException("Primary event directory not found: " + primaryDirectory);
+        }
+        int lines = 0;
+        long pending = 0;
+        for (File log : logs) {
+            lines += follow(log);
+            pending += Math.max(0, log.length() - offsets.getOrDefault(log.getName(), 0L));
+        }
+        if (lines > 0) {
+            saveOffsets();
+        }
+        pendingBytes = pending;
+        if (pending == 0) {
+            caughtUpAtMillis = System.currentTimeMillis();
+        }
+        return lines;
+    }
+
+    // Apply the complete lines after this log's offset, up to one chunk
+    private int follow(File log) throws IOException {
+        long offset = offsets.getOrDefault(log.getName(), 0L);
+        long length = log.length();
+        if (length < offset) {
+            // The primary cut a torn tail (or the log was replaced); re-read, duplicates are skipped
+            offset = 0;
+        }
+        if (length == offset) {
+            return 0;
+        }
+
+        int read;
+        try (RandomAccessFile file = new RandomAccessFile(log, "r")) {
+            file.seek(offset);
+            read = file.read(chunk, 0, (int) Math.min(chunk.length, length - offset));
+        }
+        int lines = 0;
+        int lineStart = 0;
+        for (int i = 0; i < read; i++) {
+            if (chunk[i] != '\n') {
+                continue;
+            }
+            AccountEvent event = AccountEvent.fromFileString(new String(chunk, lineStart, i - lineStart, StandardCharsets.UTF_8));
+            if (event != null && eventStore.replicate(event)) {
+                appliedEvents++;
+                lastAppliedSequence = Math.max(lastAppliedSequence, event.getSequence());
+                // Primary's write time to now, both wall clock since the timestamp is one
+                long lagMillis = Math.max(0, System.currentTimeMillis() - event.getTimestamp());
+                LAG_METRICS.recordNanos(TimeUnit.MILLISECONDS.toNanos(lagMillis), true);
+            }
+            lineStart = i + 1;
+            lines++;
+        }
+        // A partial last line is read again next time, once the primary has finished it
+        offsets.put(log.getName(), offset + lineStart);
+        return lines;
+    }
+
+    private void loadOffsets() throws IOException {
+        if (offsetsFile == null || !offsetsFile.exists()) {
+            return;
+        }
+        for (String line : Files.readAllLines(offsetsFile.toPath(), StandardCharsets.UTF_8)) {
+            int eq = line.indexOf('=');
+            if (eq > 0) {
+                offsets.put(line.substring(0, eq), Long.parseLong(line.substring(eq + 1)));
+            }
+        }
+    }
+
+    // Written after the events they cover, so a crash can only cause a harmless re-read
+    private void saveOffsets() throws IOException {
+        if (offsetsFile == null) {
+            return;
+        }
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            content.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        File temp = new File(offsetsFile.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Files.move(temp.toPath(), offsetsFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Read-only queries
+
+    public double getBalance(String accountNumber) throws AccountNotFoundException {
+        AccountState state = eventStore.getState(accountNumber);
+        if (state == null) {
+            throw new AccountNotFoundException("Account not found", accountNumber);
+        }
+        return state.getBalance();
+    }
+
+    public List<AccountEvent> getHistory(String accountNumber) throws AccountNotFoundException {
+        List<AccountEvent> events = eventStore.getEvents(accountNumber);
+        if (events.isEmpty()) {
+            throw new AccountNotFoundException("Account not found", accountNumber);
+        }
+        return Collections.unmodifiableList(events);
+    }
+
+    // Replication lag
+
+    // Bytes the primary has written that are not applied here yet
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    // 0 when caught up, otherwise the time since the standby last was
+    public long getLagMillis() {
+        return pendingBytes == 0 ? 0 : System.currentTimeMillis() - caughtUpAtMillis;
+    }
+
+    public long getAppliedEvents() {
+        return appliedEvents;
+    }
+
+    public long getLastAppliedSequence() {
+        return lastAppliedSequence;
+    }
+
+    public String toJson() {
+        return "{\"following\":" + following
+               + ",\"appliedEvents\":" + appliedEvents
+               + ",\"lastAppliedSequence\":" + lastAppliedSequence
+               + ",\"pendingBytes\":" + pendingBytes
+               + ",\"lagMillis\":" + getLagMillis() + "}";
+    }
+
+    // Takeover
+
+    /**
+     * Stop following, apply the rest of the primary's log and become a primary:
+     * returns a BankingService on the standby's store. Call it only once the old
+     * primary has stopped writing.
+     */
+    public BankingService promote() throws IOException {
+        stop();
+        catchUp();
+
+        BankingService service = new BankingService(eventStore);
+        int restored = service.loadFromEvents();
+        System.out.println("✅ Promoted standby: " + restored + " accounts at sequence " + lastAppliedSequence);
+        return service;
+    }
+
+    // HTTP plumbing for main()
+
+    private interface Query {
+        String run() throws Exception;
+    }
+
+    private void respond(HttpExchange exchange, Query query) throws IOException {
+        int status = 200;
+        String body;
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            status = 405;
+            body = "{\"error\":\"Use GET\"}";
+        } else {
+            try {
+                body = query.run();
+            } catch (AccountNotFoundException e) {
+                status = 404;
+                body = "{\"error\":" + BankingServer.quote(e.getMessage()) + "}";
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = "{\"error\":" + BankingServer.quote(e.getMessage()) + "}";
+            } catch (Exception e) {
+                status = 500;
+                body = "{\"error\":" + BankingServer.quote("Internal error: " + e.getMessage()) + "}";
+            }
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String accountParameter(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith("account=")) {
+                    return URLDecoder.decode(pair.substring("account=".length()), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        throw new IllegalArgumentException("Missing parameter: account");
+    }
+}
@@ -0,0 +1,141 @@
+import java.time.LocalDateTime;
+
+/**
+ * StandingOrder class representing a recurring transfer between two accounts
+ * An order has an occurrence time (nextExecution) and the time it is next tried
+ * (dueAt): the two differ while a failed occurrence waits for a retry.
+ */
+public class StandingOrder {
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY
+    }
+
+    private final String orderId;
+    private final String fromAccountNumber;
+    private final String toAccountNumber;
+    private final double amount;
+    private final Frequency frequency;
+    private final int dayOfMonth; // MONTHLY orders keep their day, clamped to short months
+    private LocalDateTime nextExecution;
+    private LocalDateTime dueAt;
+    private int attempts;
+    private volatile boolean active;
+
+    // Constructor
+    public StandingOrder(String orderId, String fromAccountNumber, String toAccountNumber, double amount,
+                         Frequency frequency, LocalDateTime firstExecution) {
+        this(orderId, fromAccountNumber, toAccountNumber, amount, frequency, firstExecution.getDayOfMonth(),
+             firstExecution, firstExecution, 0, true);
+    }
+
+    private StandingOrder(String orderId, String fromAccountNumber, String toAccountNumber, double amount,
+                          Frequency frequency, int dayOfMonth, LocalDateTime nextExecution, LocalDateTime dueAt,
+                          int attempts, boolean active) {
+        this.orderId = orderId;
+        this.fromAccountNumber = fromAccountNumber;
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+        this.frequency = frequency;
+        this.dayOfMonth = dayOfMonth;
+        this.nextExecution = nextExecution;
+        this.dueAt = dueAt;
+        this.attempts = attempts;
+        this.active = active;
+    }
+
+    // Getters
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getFromAccountNumber() {
+        return fromAccountNumber;
+    }
+
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public synchronized LocalDateTime getNextExecution() {
+        return nextExecution;
+    }
+
+    public synchronized LocalDateTime getDueAt() {
+        return dueAt;
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    void cancel() {
+        active = false;
+    }
+
+    // Scheduling, used by StandingOrderScheduler
+
+    // Move on to the following occurrence
+    synchronized void advance() {
+        nextExecution = occurrenceAfter(nextExecution);
+        dueAt = nextExecution;
+        attempts = 0;
+    }
+
+    synchronized LocalDateTime getFollowingExecution() {
+        return occurrenceAfter(nextExecution);
+    }
+
+    // Try the current occurrence again later
+    synchronized void retryAt(LocalDateTime time) {
+        attempts++;
+        dueAt = time;
+    }
+
+    private LocalDateTime occurrenceAfter(LocalDateTime occurrence) {
+        switch (frequency) {
+            case DAILY:
+                return occurrence.plusDays(1);
+            case WEEKLY:
+                return occurrence.plusWeeks(1);
+            default:
+                LocalDateTime nextMonth = occurrence.plusMonths(1);
+                return nextMonth.withDayOfMonth(Math.min(dayOfMonth, nextMonth.toLocalDate().lengthOfMonth()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: ₹%.2f %s → %s, %s, next %s%s", orderId, amount, fromAccountNumber, toAccountNumber,
+                             frequency, getNextExecution(), active ? "" : " (cancelled)");
+    }
+
+    // Method to convert standing order to file string format
+    public synchronized String toFileString() {
+        return orderId + "," + fromAccountNumber + "," + toAccountNumber + "," + amount + "," + frequency + "," +
+               dayOfMonth + "," + nextExecution + "," + dueAt + "," + attempts + "," + active;
+    }
+
+    // Static method to create standing order from file string
+    public static StandingOrder fromFileString(String fileString) {
+        String[] parts = fileString.split(",");
+        if (parts.length == 10) {
+            return new StandingOrder(parts[0], parts[1], parts[2], Double.parseDouble(parts[3]),
+                                     Frequency.valueOf(parts[4]), Integer.parseInt(parts[5]),
+                                     LocalDateTime.parse(parts[6]), LocalDateTime.parse(parts[7]),
+                                     Integer.parseInt(parts[8]), Boolean.parseBoolean(parts[9]));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,522 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StandingOrderScheduler class - executes recurring transfers when they fall due
+ * Orders wait in a priority queue ordered by the time they are next due. When a run
+ * starts, the due orders are taken from the queue in batches of BATCH_SIZE, and a
+ * fixed pool of workers executes each batch through BankingService.transfer. A
+ * million orders due on the first of the month are therefore a few thousand batch
+ * tasks, not a thread per order.
+ *   success                      the order moves to its next occurrence
+ *   InsufficientBalanceException retried after 5, 10, 20, 40 minutes, then that
+ *   or a velocity limit          occurrence is missed; so is one whose retry would
+ *                                fall after the next occurrence
+ *   missing/inactive account     the order is cancelled
+ * After downtime every missed occurrence runs, oldest first, up to MAX_CATCH_UP per
+ * order; older ones are skipped.
+ *
+ * Orders are saved in data/standing_orders.txt. Every change since the last save()
+ * is also appended to standing_orders.log, so a restart resumes from the latest
+ * state. Each occurrence is posted under the idempotency key "order@occurrence", so
+ * with a journaled IdempotencyCache a crash between a transfer and its log record
+ * does not repeat the transfer either, once the journal's writer thread has
+ * written the key (milliseconds after the posting).
+ *
+ * Usage: java StandingOrderScheduler bench [orders] [accounts]
+ */
+public class StandingOrderScheduler {
+    private static final int BATCH_SIZE = 1024;
+    private static final int MAX_RETRIES = 4;
+    private static final Duration FIRST_RETRY = Duration.ofMinutes(5);
+    private static final int MAX_CATCH_UP = 12;
+    private static final long MAX_IDLE_MILLIS = 1000;
+    private static final String DEFAULT_FILE = "data/standing_orders.txt";
+
+    private static final OperationMetrics EXECUTE_METRICS = MetricsRegistry.operation("standingOrder.execute");
+    private static final AtomicInteger orderCounter = new AtomicInteger(1000);
+
+    private final BankingService bankingService;
+    private final Clock clock;
+    private final File file;
+    private final TwoPhaseLog log;
+    private final Map<String, StandingOrder> orders = new ConcurrentHashMap<>();
+    private final PriorityQueue<StandingOrder> queue = new PriorityQueue<>( // guarded by itself
+            Comparator.comparing(StandingOrder::getDueAt).thenComparing(StandingOrder::getOrderId));
+    private final ExecutorService workers;
+    private final int workerCount;
+    private volatile boolean running;
+    private Thread timer;
+
+    // Constructor - loads saved orders and replays the changes logged since
+    public StandingOrderScheduler(BankingService bankingService, String file, Clock clock, int workerCount)
+            throws IOException {
+        this.bankingService = bankingService;
+        this.clock = clock;
+        this.file = new File(file);
+        this.workerCount = workerCount;
+        this.log = new TwoPhaseLog(new File(file.replaceFirst("\\.txt$", "") + ".log"));
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "standing-order-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+
+    public StandingOrderScheduler(BankingService bankingService) throws IOException {
+        this(bankingService, DEFAULT_FILE, Clock.systemDefaultZone(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || !args[0].equals("bench")) {
+            System.out.println("Usage: java StandingOrderScheduler bench [orders] [accounts]");
+            return;
+        }
+        bench(args.length > 1 ? Integer.parseInt(args[1]) : 500_000, args.length > 2 ? Integer.parseInt(args[2]) : 10_000);
+    }
+
+    // Orders
+
+    public String createOrder(String fromAccountNumber, String toAccountNumber, double amount,
+                              StandingOrder.Frequency frequency, LocalDateTime firstExecution)
+            throws AccountNotFoundException, InvalidAmountException {
+        if (amount <= 0) {
+            throw new InvalidAmountException("Standing order amount must be positive", amount);
+        }
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new InvalidAmountException("Cannot transfer to the same account");
+        }
+        bankingService.getAccount(fromAccountNumber);
+        bankingService.getAccount(toAccountNumber);
+
+        StandingOrder order = new StandingOrder(generateOrderId(), fromAccountNumber, toAccountNumber, amount,
+                                                frequency, firstExecution);
+        logStates(List.of(order));
+        orders.put(order.getOrderId(), order);
+        synchronized (queue) {
+            queue.add(order);
+            queue.notifyAll();
+        }
+        return order.getOrderId();
+    }
+
+    // Cancelled orders leave the queue the next time they come due
+    public boolean cancelOrder(String orderId) {
+        StandingOrder order = orders.remove(orderId);
+        if (order == null) {
+            return false;
+        }
+        order.cancel();
+        logStates(List.of(order));
+        return true;
+    }
+
+    public StandingOrder getOrder(String orderId) {
+        return orders.get(orderId);
+    }
+
+    public List<StandingOrder> getOrders(String accountNumber) {
+        List<StandingOrder> result = new ArrayList<>();
+        for (StandingOrder order : orders.values()) {
+            if (order.getFromAccountNumber().equals(accountNumber) || order.getToAccountNumber().equals(accountNumber)) {
+                result.add(order);
+            }
+        }
+        result.sort(Comparator.comparing(StandingOrder::getNextExecution));
+        return result;
+    }
+
+    public int getOrderCount() {
+        return orders.size();
+    }
+
+    private static String generateOrderId() {
+        return "SO" + orderCounter.incrementAndGet();
+    }
+
+    // Execution
+
+    /**
+     * Execute everything due at or before now, batch by batch, until nothing is due
+     */
+    public synchronized RunSummary runDue(LocalDateTime now) {
+        long start = System.nanoTime();
+        RunSummary summary = new RunSummary();
+        Map<String, Integer> catchUps = new ConcurrentHashMap<>();
+        boolean interrupted = false;
+        while (!interrupted) {
+            List<List<StandingOrder>> batches = new ArrayList<>();
+            synchronized (queue) {
+                // A few batches per worker per round; an order is in at most one batch
+                while (batches.size() < workerCount * 4 && !queue.isEmpty() && !queue.peek().getDueAt().isAfter(now)) {
+                    List<StandingOrder> batch = new ArrayList<>(BATCH_SIZE);
+                    while (batch.size() < BATCH_SIZE && !queue.isEmpty() && !queue.peek().getDueAt().isAfter(now)) {
+                        batch.add(queue.poll());
+                    }
+                    batches.add(batch);
+                }
+            }
+            if (batches.isEmpty()) {
+                break;
+            }
+            summary.batches += batches.size();
+
+            List<Future<List<StandingOrder>>> results = new ArrayList<>(batches.size());
+            for (List<StandingOrder> batch : batches) {
+                results.add(workers.submit(() -> executeBatch(batch, now, catchUps, summary)));
+            }
+            // Every batch is waited for, so none is still running when its orders go back
+            List<StandingOrder> requeue = new ArrayList<>();
+            Throwable failure = null;
+            for (int i = 0; i < results.size(); i++) {
+                while (true) {
+                    try {
+                        requeue.addAll(results.get(i).get());
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        // A failed batch keeps its orders, in whatever state they reached
+                        for (StandingOrder order : batches.get(i)) {
+                            if (order.isActive()) {
+                                requeue.add(order);
+                            }
+                        }
+                        if (failure == null) {
+                            failure = e.getCause();
+                        }
+                        break;
+                    }
+                }
+            }
+            synchronized (queue) {
+                queue.addAll(requeue);
+            }
+            if (failure != null) {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Standing order batch failed", failure);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    // Execute one batch; returns the orders that stay scheduled
+    private List<StandingOrder> executeBatch(List<StandingOrder> batch, LocalDateTime now, Map<String, Integer> catchUps,
+                                             RunSummary summary) {
+        List<StandingOrder> scheduled = new ArrayList<>(batch.size());
+        for (StandingOrder order : batch) {
+            if (!order.isActive()) {
+                continue;
+            }
+            long start = EXECUTE_METRICS.start();
+            boolean success = false;
+            try {
+                bankingService.transfer(order.getFromAccountNumber(), order.getToAccountNumber(), order.getAmount(),
+                                        order.getOrderId() + "@" + order.getNextExecution());
+                success = true;
+                summary.executed.increment();
+                advance(order, now, catchUps, summary);
+            } catch (InsufficientBalanceException | VelocityLimitExceededException e) {
+                // Balances change and velocity windows slide, so both are worth retrying
+                LocalDateTime retry = now.plus(FIRST_RETRY.multipliedBy(1L << order.getAttempts()));
+                // A retry never overtakes the next occurrence, so catch-up is not held up
+                if (order.getAttempts() < MAX_RETRIES && retry.isBefore(order.getFollowingExecution())) {
+                    order.retryAt(retry);
+                    summary.retried.increment();
+                } else {
+                    summary.missed.increment();
+                    advance(order, now, catchUps, summary);
+                }
+            } catch (AccountNotFoundException | AccountInactiveException | InvalidAmountException e) {
+                order.cancel();
+                orders.remove(order.getOrderId());
+                summary.cancelled.increment();
+            } finally {
+                EXECUTE_METRICS.record(start, success);
+            }
+            if (order.isActive()) {
+                scheduled.add(order);
+            }
+        }
+        logStates(batch);
+        return scheduled;
+    }
+
+    // Next occurrence; past the catch-up limit the remaining missed ones are skipped
+    private void advance(StandingOrder order, LocalDateTime now, Map<String, Integer> catchUps, RunSummary summary) {
+        order.advance();
+        if (order.getNextExecution().isAfter(now)) {
+            return;
+        }
+        if (catchUps.merge(order.getOrderId(), 1, Integer::sum) >= MAX_CATCH_UP) {
+            while (!order.getNextExecution().isAfter(now)) {
+                order.advance();
+                summary.skipped.increment();
+            }
+        }
+    }
+
+    // Timer thread
+
+    /**
+     * Run due orders on a background thread as the clock reaches them
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        timer = new Thread(() -> {
+            while (running) {
+                LocalDateTime now = LocalDateTime.now(clock);
+                boolean failed = false;
+                try {
+                    RunSummary summary = runDue(now);
+                    if (summary.batches > 0) {
+                        System.out.println("⏳ Standing orders: " + summary);
+                    }
+                } catch (RuntimeException e) {
+                    // The orders are back in the queue; try again after a pause
+                    System.err.println("❌ Standing orders run failed: " + (e.getCause() != null ? e.getCause() : e));
+                    failed = true;
+                }
+                synchronized (queue) {
+                    long waitMillis = MAX_IDLE_MILLIS;
+                    if (!queue.isEmpty() && !failed) {
+                        waitMillis = Math.min(waitMillis, Duration.between(LocalDateTime.now(clock),
+                                                                          queue.peek().getDueAt()).toMillis());
+                    }
+                    if (running && waitMillis > 0) {
+                        try {
+                            queue.wait(waitMillis);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }, "standing-order-timer");
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = timer;
+            timer = null;
+        }
+        if (thread != null) {
+            synchronized (queue) {
+                queue.notifyAll();
+            }
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stop, save and release the workers
+     */
+    public void close() throws IOException {
+        stop();
+        save();
+        workers.shutdown();
+        log.close();
+    }
+
+    // Persistence
+
+    /**
+     * Write every order to the orders file and clear the change log
+     */
+    public void save() throws IOException {
+        synchronized (log) {
+            File temp = new File(file.getPath() + ".tmp");
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp, StandardCharsets.UTF_8))) {
+                for (StandingOrder order : orders.values()) {
+                    writer.write(order.toFileString());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.clear();
+        }
+    }
+
+    private void load() throws IOException {
+        Map<String, StandingOrder> loaded = new HashMap<>();
+        if (file.exists()) {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                StandingOrder order = StandingOrder.fromFileString(line);
+                if (order != null) {
+                    loaded.put(order.getOrderId(), order);
+                }
+            }
+        }
+        for (String[] record : log.readAll()) {
+            if (record[0].equals("STATE")) {
+                StandingOrder order = StandingOrder.fromFileString(String.join(",", Arrays.copyOfRange(record, 1, record.length)));
+                if (order != null) {
+                    loaded.put(order.getOrderId(), order);
+                }
+            }
+        }
+        for (StandingOrder order : loaded.values()) {
+            if (order.isActive()) {
+                orders.put(order.getOrderId(), order);
+                queue.add(order);
+            }
+            orderCounter.accumulateAndGet(Integer.parseInt(order.getOrderId().substring(2)), Math::max);
+        }
+    }
+
+    private void logStates(List<StandingOrder> changed) {
+        List<String[]> records = new ArrayList<>(changed.size());
+        for (StandingOrder order : changed) {
+            records.add(new String[] {"STATE", order.toFileString()});
+        }
+        try {
+            log.appendAll(false, records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot log standing order changes", e);
+        }
+    }
+
+    /**
+     * RunSummary class - what one run of due orders did
+     */
+    public static final class RunSummary {
+        private final LongAdder executed = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder missed = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private int batches;
+        private long elapsedNanos;
+
+        public long getExecuted() {
+            return executed.sum();
+        }
+
+        public long getRetried() {
+            return retried.sum();
+        }
+
+        public long getMissed() {
+            return missed.sum();
+        }
+
+        public long getSkipped() {
+            return skipped.sum();
+        }
+
+        public long getCancelled() {
+            return cancelled.sum();
+        }
+
+        public int getBatches() {
+            return batches;
+        }
+
+        public double getOrdersPerSecond() {
+            long handled = getExecuted() + getRetried() + getMissed() + getCancelled();
+            return elapsedNanos == 0 ? 0 : handled * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d executed, %,d to retry, %,d missed, %,d skipped, %,d cancelled in %,d batches, "
+                                 + "%,d ms (%,.0f orders/s)", getExecuted(), getRetried(), getMissed(), getSkipped(),
+                                 getCancelled(), batches, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                                 getOrdersPerSecond());
+        }
+    }
+
+    // Every order due at midnight on the first of the month
+    private static void bench(int orderCount, int accountCount) throws IOException {
+        MetricsRegistry.setEnabled(false);
+        // Built from one precomputed hash; createAccount would run PBKDF2 per account
+        String passwordHash = PasswordHasher.hash("bench123");
+        Map<String, Customer> customers = new HashMap<>();
+        Map<String, Account> accounts = new HashMap<>();
+        for (int i = 0; i < accountCount; i++) {
+            Customer customer = new Customer(String.format("CUST%06d", 1001 + i), "Bench " + i,
+                                             "bench@example.com", "0000000000", "Bench St");
+            customers.put(customer.getCustomerId(), customer);
+            // Every tenth account cannot cover its orders, to exercise retries
+            double balance = i % 10 == 9 ? 0 : 1_000_000_000;
+            Account account = Account.fromFileString(String.format("ACC%06d", 1001 + i) + "," + passwordHash + ","
+                    + customer.getCustomerId() + ",SAVINGS," + balance + "," + LocalDate.now() + ",true", customer);
+            accounts.put(account.getAccountNumber(), account);
+        }
+        BankingService service = new BankingService();
+        service.loadData(customers, accounts, new ArrayList<>());
+
+        File directory = Files.createTempDirectory("standing-orders-bench").toFile();
+        LocalDateTime firstOfMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        StandingOrderScheduler scheduler = new StandingOrderScheduler(service,
+                new File(directory, "standing_orders.txt").getPath(), Clock.systemDefaultZone(),
+                Runtime.getRuntime().availableProcessors());
+        try {
+            for (int i = 0; i < orderCount; i++) {
+                int from = i % accountCount;
+                int to = (from + 1 + i / accountCount) % accountCount;
+                if (to == from) {
+                    to = (to + 1) % accountCount;
+                }
+                scheduler.createOrder(String.format("ACC%06d", 1001 + from), String.format("ACC%06d", 1001 + to), 10,
+                                      StandingOrder.Frequency.MONTHLY, firstOfMonth);
+            }
+        } catch (AccountNotFoundException | InvalidAmountException e) {
+            throw new IllegalStateException(e);
+        }
+        scheduler.save();
+
+        System.out.printf("%,d monthly orders over %,d accounts due at %s, %d CPUs%n", orderCount, accountCount,
+                          firstOfMonth, Runtime.getRuntime().availableProcessors());
+        System.out.println("  first run:  " + scheduler.runDue(firstOfMonth));
+        System.out.println("  retries:    " + scheduler.runDue(firstOfMonth.plusHours(2)));
+        scheduler.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TokenBucket class - lock-free token bucket
+ * Implemented as a generic cell rate algorithm: the whole bucket state is one
+ * "theoretical arrival time" in an AtomicLong, so acquiring a token is a single
+ * CAS with no locking and no allocation.
+ */
+public class TokenBucket {
+    private final long nanosPerToken;
+    private final long burstNanos; // how far the arrival time may run ahead of now
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double tokensPerSecond, int burst) {
+        if (tokensPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.nanosPerToken = Math.max(1L, (long) (1_000_000_000L / tokensPerSecond));
+        this.burstNanos = nanosPerToken * burst;
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Take one token if available
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Take one token using a caller-supplied System.nanoTime() reading
+     */
+    public boolean tryAcquire(long now) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + nanosPerToken;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A bucket is full once its arrival time is in the past; dropping a full
+     * bucket and recreating it later is indistinguishable from keeping it
+     */
+    public boolean isFull(long now) {
+        return theoreticalArrival.get() - now <= 0;
+    }
+
+    /**
+     * Nanoseconds since the bucket was last drained below full
+     */
+    public long idleNanos(long now) {
+        return now - theoreticalArrival.get();
+    }
+
+    /**
+     * Approximate number of tokens currently available
+     */
+    public int availableTokens() {
+        long ahead = Math.max(0, theoreticalArrival.get() - System.nanoTime());
+        return (int) ((burstNanos - ahead) / nanosPerToken);
+    }
+}
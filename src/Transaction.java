@@ -1,5 +1,5 @@
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Transaction class to represent banking transactions
@@ -8,11 +8,15 @@ import java.time.format.DateTimeFormatter;
 public class Transaction {
     private String transactionId;
     private String accountNumber;
-    private String transactionType; // DEPOSIT, WITHDRAWAL, TRANSFER
+    private String transactionType; // DEPOSIT, WITHDRAWAL, TRANSFER_OUT, TRANSFER_IN, INTEREST
     private double amount;
     private double balanceAfter;
     private LocalDateTime timestamp;
     private String description;
+    private String reference = ""; // shared by both legs of a transfer, empty otherwise
+    
+    private static final AtomicLong transferCounter = new AtomicLong();
+    static final String FX_TRANSFER_PREFIX = "FXT";
     
     // Constructor
     public Transaction(String transactionId, String accountNumber, String transactionType, 
@@ -83,16 +87,45 @@ public class Transaction {
         this.description = description;
     }
     
+    public String getReference() {
+        return reference;
+    }
+    
+    public void setReference(String reference) {
+        this.reference = reference == null ? "" : reference;
+    }
+    
+    // New reference linking the debit and credit legs of one transfer
+    public static String newTransferReference() {
+        return "TRF" + System.currentTimeMillis() + "-" + transferCounter.incrementAndGet();
+    }
+    
+    // Reference for a cross-currency transfer, whose two legs differ in amount
+    public static String newFxTransferReference() {
+        return FX_TRANSFER_PREFIX + System.currentTimeMillis() + "-" + transferCounter.incrementAndGet();
+    }
+    
     // Method to format timestamp for display
     public String getFormattedTimestamp() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-        return timestamp.format(formatter);
+        return timestamp.format(TableWriter.DATE_TIME);
     }
     
     // Method to display transaction details
     public void displayTransaction() {
-        System.out.printf("│ %-12s │ %-10s │ %10.2f │ %10.2f │ %-19s │%n",
-                transactionId, transactionType, amount, balanceAfter, getFormattedTimestamp());
+        TableWriter table = newTable();
+        appendTo(table);
+        table.flush();
+    }
+    
+    // Transaction history table with the columns appendTo fills
+    static TableWriter newTable() {
+        return new TableWriter(19, 12, 10, 10, 19); // "TXN" + millis + up to 3 digits; TRANSFER_OUT
+    }
+    
+    // One row of a newTable() table
+    void appendTo(TableWriter table) {
+        table.row().text(transactionId).text(transactionType).amount(amount).amount(balanceAfter)
+             .date(timestamp, TableWriter.DATE_TIME).end();
     }
     
     @Override
@@ -105,23 +138,28 @@ public class Transaction {
                 ", balanceAfter=" + balanceAfter +
                 ", timestamp=" + timestamp +
                 ", description='" + description + '\'' +
+                ", reference='" + reference + '\'' +
                 '}';
     }
     
-    // Method to convert transaction to file string format
+    // Method to convert transaction to file string format (the reference column only when set)
     public String toFileString() {
         return transactionId + "," + accountNumber + "," + transactionType + "," + 
-               amount + "," + balanceAfter + "," + timestamp + "," + description;
+               amount + "," + balanceAfter + "," + timestamp + "," + description +
+               (reference.isEmpty() ? "" : "," + reference);
     }
     
     // Static method to create transaction from file string
     public static Transaction fromFileString(String fileString) {
         String[] parts = fileString.split(",");
-        if (parts.length == 7) {
+        if (parts.length == 7 || parts.length == 8) {
             Transaction transaction = new Transaction(parts[0], parts[1], parts[2], 
                                                     Double.parseDouble(parts[3]), 
                                                     Double.parseDouble(parts[4]), parts[6]);
             transaction.setTimestamp(LocalDateTime.parse(parts[5]));
+            if (parts.length == 8) {
+                transaction.setReference(parts[7]);
+            }
             return transaction;
         }
         return null;
@@ -0,0 +1,591 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * TransactionArchive class - compressed, indexed storage for sealed transaction history
+ * Old transactions are moved out of transactions.txt into immutable segment files
+ * (segment-000001.txa, ...). A segment groups the transactions by account, in time
+ * order, into blocks of up to BLOCK_SIZE transactions. Each block is encoded
+ * column-wise and compressed with Deflater:
+ *   timestamp     seconds as a zigzag varint delta from the previous one, plus nanos
+ *   type, text    per-block dictionary code, the string only on first use
+ *                 (type, id, description and transfer reference)
+ *   amount        zigzag varint of cents (raw double bits if not whole cents)
+ *   balanceAfter  zigzag varint delta of cents from the previous balance
+ * The account number is stored once per block, in the index. Segments sealed
+ * before transfer references existed ("TXA1") are still read, without them.
+ *
+ * Every segment ends with an index of its blocks (account, offset, length, count,
+ * first and last second) and its seal watermark, the cutoff it was sealed with,
+ * loaded when the archive is opened. Every transactions.txt row older than the
+ * newest watermark was archived, so after a crash between sealing and rewriting
+ * transactions.txt only those leftover rows need to be matched against the archive
+ * ("TXA2" and "TXA1" segments have no watermark). Reading one account's
+ * statement for a time range decompresses only that account's overlapping blocks.
+ *
+ * Usage: java TransactionArchive seal <daysToKeep> | statement <account> [from] [to] | bench [transactions] [accounts]
+ */
+public class TransactionArchive implements Closeable {
+    private static final int MAGIC = 0x54584133; // "TXA3": the trailer carries the seal watermark
+    private static final int MAGIC_V2 = 0x54584132; // "TXA2": records carry a transfer reference
+    private static final int MAGIC_V1 = 0x54584131; // "TXA1": segments sealed before transfer references
+    private static final int BLOCK_SIZE = 256;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".txa";
+
+    private static final OperationMetrics SEAL_METRICS = MetricsRegistry.operation("archive.seal");
+    private static final OperationMetrics READ_METRICS = MetricsRegistry.operation("archive.read");
+
+    private final File directory;
+    private final List<Segment> segments = new ArrayList<>();
+
+    // Constructor - opens every segment in the directory and loads its index
+    public TransactionArchive(String directory) throws IOException {
+        this.directory = new File(directory);
+        if (!this.directory.exists() && !this.directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        String[] names = this.directory.list((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (names != null) {
+            Arrays.sort(names);
+            for (String name : names) {
+                segments.add(new Segment(new File(this.directory, name)));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java TransactionArchive seal <daysToKeep> | statement <account> [from] [to] | "
+                               + "bench [transactions] [accounts]");
+            return;
+        }
+        switch (args[0]) {
+            case "seal": {
+                LocalDateTime cutoff = LocalDateTime.now().minusDays(Long.parseLong(args[1]));
+                int sealed = FileHandler.archiveTransactions(cutoff);
+                System.out.println("📦 Archived " + sealed + " transactions older than " + cutoff);
+                break;
+            }
+            case "statement": {
+                LocalDateTime from = args.length > 2 ? LocalDateTime.parse(args[2]) : null;
+                LocalDateTime to = args.length > 3 ? LocalDateTime.parse(args[3]) : null;
+                for (Transaction transaction : FileHandler.loadArchivedTransactions(args[1], from, to)) {
+                    System.out.println(transaction.toFileString());
+                }
+                break;
+            }
+            case "bench":
+                bench(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000,
+                      args.length > 2 ? Integer.parseInt(args[2]) : 10_000);
+                break;
+            default:
+                System.out.println("❌ Unknown command: " + args[0]);
+        }
+    }
+
+    // Writing
+
+    /**
+     * Write the given transactions, all older than sealedBefore, as a new segment and
+     * return its file. The caller removes them from transactions.txt only after this
+     * returns.
+     */
+    public synchronized File seal(List<Transaction> transactions, LocalDateTime sealedBefore) throws IOException {
+        long start = SEAL_METRICS.start();
+        boolean success = false;
+        try {
+            for (Transaction transaction : transactions) {
+                if (!transaction.getTimestamp().isBefore(sealedBefore)) {
+                    throw new IllegalArgumentException("Transaction " + transaction.getTransactionId()
+                                                       + " is not older than " + sealedBefore);
+                }
+            }
+            Map<String, List<Transaction>> byAccount = new TreeMap<>();
+            for (Transaction transaction : transactions) {
+                byAccount.computeIfAbsent(transaction.getAccountNumber(), key -> new ArrayList<>()).add(transaction);
+            }
+
+            int number = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).number + 1;
+            File file = new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+            File temp = new File(directory, file.getName() + ".tmp");
+            Map<String, List<BlockRef>> index = new TreeMap<>();
+            Deflater deflater = new Deflater();
+            try (FileOutputStream fileOut = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                out.writeInt(MAGIC);
+                for (Map.Entry<String, List<Transaction>> entry : byAccount.entrySet()) {
+                    List<Transaction> history = entry.getValue();
+                    history.sort(Comparator.comparing(Transaction::getTimestamp));
+                    List<BlockRef> blocks = new ArrayList<>();
+                    for (int from = 0; from < history.size(); from += BLOCK_SIZE) {
+                        List<Transaction> block = history.subList(from, Math.min(history.size(), from + BLOCK_SIZE));
+                        byte[] compressed = compress(deflater, encodeBlock(block));
+                        blocks.add(new BlockRef(out.size(), compressed.length, block.size(),
+                                                seconds(block.get(0).getTimestamp()),
+                                                seconds(block.get(block.size() - 1).getTimestamp())));
+                        out.write(compressed);
+                    }
+                    index.put(entry.getKey(), blocks);
+                }
+
+                long indexOffset = out.size();
+                out.writeInt(index.size());
+                for (Map.Entry<String, List<BlockRef>> entry : index.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (BlockRef block : entry.getValue()) {
+                        out.writeLong(block.offset);
+                        out.writeInt(block.length);
+                        out.writeInt(block.count);
+                        out.writeLong(block.firstSecond);
+                        out.writeLong(block.lastSecond);
+                    }
+                }
+                out.writeLong(seconds(sealedBefore));
+                out.writeInt(sealedBefore.getNano());
+                out.writeLong(indexOffset);
+                out.writeInt(MAGIC);
+                out.flush();
+                fileOut.getChannel().force(false);
+            } finally {
+                deflater.end();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            segments.add(new Segment(file));
+            success = true;
+            return file;
+        } finally {
+            SEAL_METRICS.record(start, success);
+        }
+    }
+
+    private static byte[] encodeBlock(List<Transaction> block) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(block.size() * 24);
+        Map<String, Integer> dictionary = new HashMap<>();
+        long previousSecond = seconds(block.get(0).getTimestamp());
+        long previousBalanceCents = 0;
+        for (Transaction transaction : block) {
+            long second = seconds(transaction.getTimestamp());
+            writeVarLong(out, zigzag(second - previousSecond));
+            writeVarLong(out, transaction.getTimestamp().getNano());
+            previousSecond = second;
+
+            writeString(out, dictionary, transaction.getTransactionType());
+            writeMoney(out, transaction.getAmount(), 0);
+            previousBalanceCents = writeMoney(out, transaction.getBalanceAfter(), previousBalanceCents);
+            writeString(out, dictionary, transaction.getTransactionId());
+            writeString(out, dictionary, transaction.getDescription());
+            writeString(out, dictionary, transaction.getReference());
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] compress(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+    }
+
+    // Reading
+
+    /**
+     * Archived transactions of one account, oldest first; from and to (inclusive)
+     * may be null for an open range
+     */
+    public List<Transaction> getTransactions(String accountNumber, LocalDateTime from, LocalDateTime to) throws IOException {
+        long start = READ_METRICS.start();
+        boolean success = false;
+        try {
+            long firstSecond = from == null ? Long.MIN_VALUE : seconds(from);
+            long lastSecond = to == null ? Long.MAX_VALUE : seconds(to);
+            List<Transaction> result = new ArrayList<>();
+            List<Segment> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(segments);
+            }
+            for (Segment segment : snapshot) {
+                List<BlockRef> blocks = segment.index.get(accountNumber);
+                if (blocks == null) {
+                    continue;
+                }
+                for (BlockRef block : blocks) {
+                    if (block.lastSecond < firstSecond || block.firstSecond > lastSecond) {
+                        continue;
+                    }
+                    for (Transaction transaction : segment.readBlock(accountNumber, block)) {
+                        LocalDateTime time = transaction.getTimestamp();
+                        if ((from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to))) {
+                            result.add(transaction);
+                        }
+                    }
+                }
+            }
+            result.sort(Comparator.comparing(Transaction::getTimestamp));
+            success = true;
+            return result;
+        } finally {
+            READ_METRICS.record(start, success);
+        }
+    }
+
+    private static List<Transaction> decodeBlock(String accountNumber, byte[] raw, BlockRef block, boolean withReference)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        List<String> dictionary = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>(block.count);
+        long second = block.firstSecond;
+        long balanceCents = 0;
+        long[] cents = new long[1];
+        for (int i = 0; i < block.count; i++) {
+            second += unzigzag(readVarLong(in));
+            int nanos = (int) readVarLong(in);
+            String type = readString(in, dictionary);
+            double amount = readMoney(in, 0, cents);
+            double balanceAfter = readMoney(in, balanceCents, cents);
+            balanceCents = cents[0];
+            String id = readString(in, dictionary);
+            String description = readString(in, dictionary);
+            String reference = withReference ? readString(in, dictionary) : null;
+
+            Transaction transaction = new Transaction(id, accountNumber, type, amount, balanceAfter, description);
+            transaction.setTimestamp(LocalDateTime.ofEpochSecond(second, nanos, ZoneOffset.UTC));
+            transaction.setReference(reference);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    public synchronized long getArchivedCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            for (List<BlockRef> blocks : segment.index.values()) {
+                for (BlockRef block : blocks) {
+                    count += block.count;
+                }
+            }
+        }
+        return count;
+    }
+
+    public synchronized long getSizeBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.path.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Newest seal watermark: every row of transactions.txt older than this was
+     * archived. Null if no segment carries a watermark.
+     */
+    public synchronized LocalDateTime getSealedBefore() {
+        LocalDateTime newest = null;
+        for (Segment segment : segments) {
+            if (segment.sealedBefore != null && (newest == null || segment.sealedBefore.isAfter(newest))) {
+                newest = segment.sealedBefore;
+            }
+        }
+        return newest;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.file.close();
+        }
+        segments.clear();
+    }
+
+    // Encoding helpers
+
+    // Timestamps are local date-times; their epoch second is taken as if they were UTC
+    private static long seconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in archive block");
+    }
+
+    // Whole cents as a delta from previousCents (tag bit 0), otherwise the raw double (tag 1); returns the cents
+    private static long writeMoney(ByteArrayOutputStream out, double value, long previousCents) {
+        long cents = Math.round(value * 100);
+        if (cents / 100.0 == value) {
+            writeVarLong(out, zigzag(cents - previousCents) << 1);
+            return cents;
+        }
+        writeVarLong(out, 1);
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+        return previousCents;
+    }
+
+    private static double readMoney(DataInputStream in, long previousCents, long[] cents) throws IOException {
+        long tagged = readVarLong(in);
+        if ((tagged & 1) == 1) {
+            cents[0] = previousCents;
+            return Double.longBitsToDouble(in.readLong());
+        }
+        cents[0] = previousCents + unzigzag(tagged >>> 1);
+        return cents[0] / 100.0;
+    }
+
+    // Dictionary code; a new string is written in full right after its code
+    private static void writeString(ByteArrayOutputStream out, Map<String, Integer> dictionary, String value) {
+        Integer code = dictionary.get(value);
+        if (code != null) {
+            writeVarLong(out, code);
+            return;
+        }
+        writeVarLong(out, dictionary.size());
+        dictionary.put(value, dictionary.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(DataInputStream in, List<String> dictionary) throws IOException {
+        int code = (int) readVarLong(in);
+        if (code < dictionary.size()) {
+            return dictionary.get(code);
+        }
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        dictionary.add(value);
+        return value;
+    }
+
+    // One segment file and its block index
+    private static final class Segment {
+        private final int number;
+        private final File path;
+        private final RandomAccessFile file;
+        private final boolean withReferences;
+        private final LocalDateTime sealedBefore;
+        private final Map<String, List<BlockRef>> index = new HashMap<>();
+
+        Segment(File path) throws IOException {
+            String name = path.getName();
+            this.number = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            this.path = path;
+            this.file = new RandomAccessFile(path, "r");
+            long length = file.length();
+            if (length < 16) {
+                file.close();
+                throw new IOException("Truncated archive segment " + path);
+            }
+            file.seek(length - 12);
+            long indexOffset = file.readLong();
+            int magic = file.readInt();
+            if (magic != MAGIC && magic != MAGIC_V2 && magic != MAGIC_V1) {
+                file.close();
+                throw new IOException("Not an archive segment: " + path);
+            }
+            this.withReferences = magic != MAGIC_V1;
+            long indexEnd = length - 12;
+            if (magic == MAGIC) {
+                indexEnd -= 12;
+                file.seek(indexEnd);
+                long second = file.readLong();
+                this.sealedBefore = LocalDateTime.ofEpochSecond(second, file.readInt(), ZoneOffset.UTC);
+            } else {
+                this.sealedBefore = null;
+            }
+            byte[] indexBytes = new byte[(int) (indexEnd - indexOffset)];
+            file.seek(indexOffset);
+            file.readFully(indexBytes);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(indexBytes));
+            int accounts = in.readInt();
+            for (int i = 0; i < accounts; i++) {
+                String accountNumber = in.readUTF();
+                int blockCount = in.readInt();
+                List<BlockRef> blocks = new ArrayList<>(blockCount);
+                for (int b = 0; b < blockCount; b++) {
+                    blocks.add(new BlockRef(in.readLong(), in.readInt(), in.readInt(), in.readLong(), in.readLong()));
+                }
+                index.put(accountNumber, blocks);
+            }
+        }
+
+        List<Transaction> readBlock(String accountNumber, BlockRef block) throws IOException {
+            byte[] compressed = new byte[block.length];
+            synchronized (file) {
+                file.seek(block.offset);
+                file.readFully(compressed);
+            }
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                ByteArrayOutputStream raw = new ByteArrayOutputStream(block.length * 4);
+                byte[] buffer = new byte[8192];
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(buffer);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new EOFException("Truncated archive block for " + accountNumber);
+                    }
+                    raw.write(buffer, 0, n);
+                }
+                return decodeBlock(accountNumber, raw.toByteArray(), block, withReferences);
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt archive block for " + accountNumber, e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    // Location and time range of one compressed block
+    private static final class BlockRef {
+        private final long offset;
+        private final int length;
+        private final int count;
+        private final long firstSecond;
+        private final long lastSecond;
+
+        BlockRef(long offset, int length, int count, long firstSecond, long lastSecond) {
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+            this.firstSecond = firstSecond;
+            this.lastSecond = lastSecond;
+        }
+    }
+
+    // Text ledger vs archive: size on disk and time to read one account's month
+    private static void bench(int transactionCount, int accountCount) throws IOException {
+        File benchDirectory = Files.createTempDirectory("archive-bench").toFile();
+        File text = new File(benchDirectory, "transactions.txt");
+        String[] types = {"DEPOSIT", "WITHDRAWAL", "TRANSFER_IN", "TRANSFER_OUT"};
+        double[] balances = new double[accountCount];
+        List<Transaction> transactions = new ArrayList<>(transactionCount);
+        LocalDateTime time = LocalDateTime.now().minusDays(365);
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < transactionCount; i++) {
+            int account = random.nextInt(accountCount);
+            String type = types[random.nextInt(types.length)];
+            double amount = (1 + random.nextInt(500_00)) / 100.0;
+            balances[account] += type.equals("DEPOSIT") || type.equals("TRANSFER_IN") ? amount : -amount;
+            time = time.plusNanos(random.nextInt(60_000_000) * 1000L);
+            Transaction transaction = new Transaction("TXN" + (1_700_000_000_000L + i) + random.nextInt(1000),
+                    String.format("ACC%06d", 1001 + account), type, amount, balances[account], type.toLowerCase());
+            transaction.setTimestamp(time);
+            transactions.add(transaction);
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(text))) {
+            for (Transaction transaction : transactions) {
+                writer.write(transaction.toFileString());
+                writer.newLine();
+            }
+        }
+
+        try (TransactionArchive archive = new TransactionArchive(new File(benchDirectory, "archive").getPath())) {
+            long sealStart = System.nanoTime();
+            archive.seal(transactions, time.plusSeconds(1));
+            long sealMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sealStart);
+
+            String account = String.format("ACC%06d", 1001 + accountCount / 2);
+            LocalDateTime from = transactions.get(transactionCount / 2).getTimestamp();
+            LocalDateTime to = from.plusDays(30);
+            int rounds = 20;
+            int textMatches = 0;
+            long textStart = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                textMatches = 0;
+                for (String line : Files.readAllLines(text.toPath(), StandardCharsets.UTF_8)) {
+                    if (line.contains("," + account + ",")) {
+                        Transaction transaction = Transaction.fromFileString(line);
+                        if (!transaction.getTimestamp().isBefore(from) && !transaction.getTimestamp().isAfter(to)) {
+                            textMatches++;
+                        }
+                    }
+                }
+            }
+            double textMicros = (System.nanoTime() - textStart) / 1000.0 / rounds;
+            int archiveMatches = 0;
+            long archiveStart = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                archiveMatches = archive.getTransactions(account, from, to).size();
+            }
+            double archiveMicros = (System.nanoTime() - archiveStart) / 1000.0 / rounds;
+
+            System.out.printf("%,d transactions over %,d accounts (sealed in %d ms)%n", transactionCount, accountCount, sealMillis);
+            System.out.printf("  transactions.txt  %,12d bytes   statement %,10.0f µs  (%d rows)%n",
+                              text.length(), textMicros, textMatches);
+            System.out.printf("  archive           %,12d bytes   statement %,10.0f µs  (%d rows)%n",
+                              archive.getSizeBytes(), archiveMicros, archiveMatches);
+        } finally {
+            for (File file : new File(benchDirectory, "archive").listFiles()) {
+                file.delete();
+            }
+            new File(benchDirectory, "archive").delete();
+            text.delete();
+            benchDirectory.delete();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * TransactionEvent class - JFR event for one deposit, withdrawal or transfer
+ * Amounts are recorded as coarse buckets rather than exact values. Disabled
+ * unless a recording uses jfr/banking.jfc; while disabled, begin/complete are
+ * no-ops the JIT removes together with the event allocation.
+ */
+@Name("banking.Transaction")
+@Label("Banking Transaction")
+@Category({"Banking", "Transactions"})
+@Description("A deposit, withdrawal or transfer through BankingService")
+@StackTrace(false)
+@Enabled(false)
+public class TransactionEvent extends jdk.jfr.Event {
+    @Label("Type")
+    String type;
+
+    @Label("Account")
+    String accountNumber;
+
+    @Label("Recipient Account")
+    String toAccountNumber;
+
+    @Label("Amount Bucket")
+    String amountBucket;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * Fill in the fields and commit, if a recording wants this event
+     */
+    public void complete(String type, String accountNumber, String toAccountNumber, double amount, boolean success) {
+        if (shouldCommit()) {
+            this.type = type;
+            this.accountNumber = accountNumber;
+            this.toAccountNumber = toAccountNumber;
+            this.amountBucket = amountBucket(amount);
+            this.success = success;
+            commit();
+        }
+    }
+
+    static String amountBucket(double amount) {
+        if (!(amount > 0)) {
+            return "INVALID";
+        } else if (amount < 100) {
+            return "<100";
+        } else if (amount < 1_000) {
+            return "100-1K";
+        } else if (amount < 10_000) {
+            return "1K-10K";
+        } else if (amount < 100_000) {
+            return "10K-100K";
+        }
+        return ">=100K";
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * TwoPhaseLog class - append-only record of two-phase commit decisions
+ * One comma-separated record per line, e.g. "PREPARED,tx42,DEBIT,ACC001001,...".
+ * ShardRouter logs the coordinator's decisions here and ShardNode its votes;
+ * after a crash both replay the file to finish or undo in-doubt transfers.
+ * Batch jobs use it the same way for their checkpoints.
+ *
+ * append(..., true) forces the record to disk before returning and is used for
+ * records another process will act on (a vote, a commit decision). Plain appends
+ * only reach the OS, which is enough to survive a process crash. compact()
+ * rewrites the file without the records its owner no longer needs.
+ */
+public class TwoPhaseLog {
+    private final File file;
+    private FileOutputStream out; // replaced by compact()
+
+    // Constructor - opens the log for appending, creating it if needed
+    public TwoPhaseLog(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        this.file = file;
+        truncateTornTail(file);
+        this.out = new FileOutputStream(file, true);
+    }
+
+    // Drop a partial last record left by a crash, so the next append starts on a fresh line
+    private static void truncateTornTail(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(file.toPath());
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        if (end < content.length) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+    }
+
+    /**
+     * Every record written so far, oldest first
+     */
+    public List<String[]> readAll() throws IOException {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        String[] lines = content.split("\n", -1);
+        List<String[]> records = new ArrayList<>();
+        for (int i = 0; i < lines.length - 1; i++) { // nothing follows the last newline
+            if (!lines[i].isEmpty()) {
+                records.add(lines[i].split(",", -1));
+            }
+        }
+        return records;
+    }
+
+    public synchronized void append(boolean force, String... fields) throws IOException {
+        out.write((String.join(",", fields) + "\n").getBytes(StandardCharsets.UTF_8));
+        if (force) {
+            out.getChannel().force(false);
+        }
+    }
+
+    // Several records with one write
+    public synchronized void appendAll(boolean force, List<String[]> records) throws IOException {
+        out.write(lines(records));
+        if (force) {
+            out.getChannel().force(false);
+        }
+    }
+
+    /**
+     * Replace the log with the records keep selects from the current ones, e.g. to
+     * drop resolved transfers. Appends wait meanwhile, so keep sees every record
+     * and none is lost; the new file is forced and swapped in atomically.
+     */
+    public synchronized void compact(UnaryOperator<List<String[]>> keep) throws IOException {
+        List<String[]> kept = keep.apply(readAll());
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream tempOut = new FileOutputStream(temp)) {
+            tempOut.write(lines(kept));
+            tempOut.getChannel().force(false);
+        }
+        out.close();
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            out = new FileOutputStream(file, true);
+        }
+    }
+
+    private static byte[] lines(List<String[]> records) {
+        StringBuilder lines = new StringBuilder();
+        for (String[] fields : records) {
+            lines.append(String.join(",", fields)).append('\n');
+        }
+        return lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Drop every record, e.g. once their effect has been saved elsewhere; callers
+     * holding this log's monitor around the save keep concurrent appends out
+     */
+    public synchronized void clear() throws IOException {
+        out.getChannel().truncate(0);
+    }
+
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Custom exception for velocity (fraud) checks
+ * Thrown when a posting would take an account past a blocking VelocityMonitor rule
+ */
+public class VelocityLimitExceededException extends RuntimeException {
+    private String accountNumber;
+
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+
+    public VelocityLimitExceededException(String message, String accountNumber) {
+        super(message);
+        this.accountNumber = accountNumber;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    @Override
+    public String getMessage() {
+        if (accountNumber != null && !accountNumber.isEmpty()) {
+            return super.getMessage() + " (Account Number: " + accountNumber + ")";
+        }
+        return super.getMessage();
+    }
+}
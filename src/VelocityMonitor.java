@@ -0,0 +1,486 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * VelocityMonitor class - per-account sliding-window limits on outgoing money
+ * BankingService consults it, under the account's lock, before every withdrawal
+ * and transfer, and records the posting once it succeeds. For each account it
+ * keeps the count and sum (in paise) of recent postings over three windows, each
+ * a ring of primitive buckets:
+ *   MINUTE  60 one-second buckets
+ *   HOUR    60 one-minute buckets
+ *   DAY     24 one-hour buckets
+ * so a window is exact to within one bucket. Checking and recording touch only a
+ * running total per window, plus the buckets that expired since the account's
+ * last posting (at most a ring's length), which is O(1) per posting.
+ *
+ * A posting that would break a rule is blocked (VelocityLimitExceededException)
+ * or let through and flagged, depending on the rule. Windows are created on an
+ * account's first posting and evicted after a day without one, so memory tracks
+ * active accounts only (about 1.8 KB each).
+ *
+ * Amounts are in rupees: BankingService converts postings from other currencies
+ * before check() and record(). open() reads the rules from data/velocity_rules.txt,
+ * one "window,maxCount,maxAmount,action" line each (e.g. MINUTE,10,100000,BLOCK),
+ * and uses withDefaultRules() while that file does not exist.
+ *
+ * Usage: java VelocityMonitor bench [accounts] [postings]
+ */
+public class VelocityMonitor {
+    public enum Window {
+        MINUTE(60, 1_000L, 0),
+        HOUR(60, 60_000L, 60),
+        DAY(24, 3_600_000L, 120);
+
+        private final int buckets;
+        private final long bucketMillis;
+        private final int offset; // first bucket in AccountWindows' shared arrays
+
+        Window(int buckets, long bucketMillis, int offset) {
+            this.buckets = buckets;
+            this.bucketMillis = bucketMillis;
+            this.offset = offset;
+        }
+
+        public long getMillis() {
+            return buckets * bucketMillis;
+        }
+    }
+
+    public enum Action {
+        FLAG, BLOCK
+    }
+
+    private static final int TOTAL_BUCKETS = 60 + 60 + 24;
+    private static final long IDLE_EVICTION_MILLIS = Window.DAY.getMillis();
+    private static final int MIN_SWEEP_INTERVAL = 1024;
+    private static final int RECENT_FLAGS = 100;
+    private static final int REPORTED_FLAGS = 10;
+    private static final String DEFAULT_FILE = "data/velocity_rules.txt";
+
+    private final List<Rule> rules;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, AccountWindows> windows = new ConcurrentHashMap<>();
+    private final AtomicLong createdSinceSweep = new AtomicLong();
+    private final String[] recentFlags = new String[RECENT_FLAGS]; // ring, guarded by itself
+    private int nextFlag;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder flagged = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    // Constructor
+    public VelocityMonitor(List<Rule> rules, Clock clock) {
+        this.rules = new ArrayList<>(rules);
+        this.clock = clock;
+    }
+
+    public VelocityMonitor(List<Rule> rules) {
+        this(rules, Clock.systemUTC());
+    }
+
+    /**
+     * Limits for retail accounts: block bursts and large daily outflows, flag busy hours
+     */
+    public static VelocityMonitor withDefaultRules() {
+        return new VelocityMonitor(Arrays.asList(
+                new Rule(Window.MINUTE, 10, 100_000, Action.BLOCK),
+                new Rule(Window.HOUR, 30, 200_000, Action.FLAG),
+                new Rule(Window.DAY, 100, 1_000_000, Action.BLOCK)));
+    }
+
+    /**
+     * Rules from data/velocity_rules.txt, or the defaults while it does not exist
+     */
+    public static VelocityMonitor open() throws IOException {
+        return open(new File(DEFAULT_FILE));
+    }
+
+    public static VelocityMonitor open(File file) throws IOException {
+        if (!file.exists()) {
+            return withDefaultRules();
+        }
+        List<Rule> rules = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            try {
+                if (parts.length != 4) {
+                    throw new IllegalArgumentException("expected window,maxCount,maxAmount,action");
+                }
+                double maxAmount = Double.parseDouble(parts[2].trim());
+                if (!(maxAmount >= 0) || Double.isInfinite(maxAmount)) {
+                    throw new IllegalArgumentException("bad amount");
+                }
+                rules.add(new Rule(Window.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)),
+                                   Integer.parseInt(parts[1].trim()), maxAmount,
+                                   Action.valueOf(parts[3].trim().toUpperCase(Locale.ROOT))));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad velocity rule on line " + lineNumber + " of " + file + ": " + line);
+            }
+        }
+        return new VelocityMonitor(rules);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || !args[0].equals("bench")) {
+            System.out.println("Usage: java VelocityMonitor bench [accounts] [postings]");
+            return;
+        }
+        bench(args.length > 1 ? Integer.parseInt(args[1]) : 10_000, args.length > 2 ? Integer.parseInt(args[2]) : 200_000);
+    }
+
+    /**
+     * Check a posting of amount from the account against every rule; throws if a
+     * blocking rule would be broken. Call under the account's lock, then record()
+     * once the posting succeeds.
+     */
+    public void check(String accountNumber, double amount) {
+        checked.increment();
+        long paise = Math.round(amount * 100);
+        Rule broken = null;
+        AccountWindows account = windows.get(accountNumber);
+        if (account == null) {
+            // No postings for a day: only the posting itself counts
+            for (Rule rule : rules) {
+                if (rule.isBrokenBy(1, paise) && (broken == null || rule.action == Action.BLOCK)) {
+                    broken = rule;
+                }
+            }
+        } else {
+            long now = clock.millis();
+            synchronized (account) {
+                for (Rule rule : rules) {
+                    int window = rule.window.ordinal();
+                    account.advance(rule.window, now);
+                    if (rule.isBrokenBy(account.totalCounts[window] + 1, account.totalSums[window] + paise)
+                            && (broken == null || rule.action == Action.BLOCK)) {
+                        broken = rule;
+                    }
+                }
+            }
+        }
+
+        if (broken == null) {
+            return;
+        }
+        if (broken.action == Action.BLOCK) {
+            blocked.increment();
+            throw new VelocityLimitExceededException("Posting exceeds the limit of " + broken, accountNumber);
+        }
+        flagged.increment();
+        synchronized (recentFlags) {
+            recentFlags[nextFlag++ % RECENT_FLAGS] = clock.instant() + " " + accountNumber + " ₹"
+                    + String.format("%.2f", amount) + " over " + broken;
+        }
+    }
+
+    /**
+     * Add a successful posting to the account's windows
+     */
+    public void record(String accountNumber, double amount) {
+        long paise = Math.round(amount * 100);
+        long now = clock.millis();
+        while (true) {
+            AccountWindows account = windowsFor(accountNumber);
+            synchronized (account) {
+                if (account.evicted) {
+                    continue; // swept between lookup and lock; use its replacement
+                }
+                for (Window window : Window.values()) {
+                    account.add(window, now, paise);
+                }
+                account.lastPostingMillis = now;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Current count and sum (in rupees) of the account's postings over a window
+     */
+    public double[] getTotals(String accountNumber, Window window) {
+        AccountWindows account = windows.get(accountNumber);
+        if (account == null) {
+            return new double[] {0, 0};
+        }
+        synchronized (account) {
+            account.advance(window, clock.millis());
+            return new double[] {account.totalCounts[window.ordinal()], account.totalSums[window.ordinal()] / 100.0};
+        }
+    }
+
+    private AccountWindows windowsFor(String accountNumber) {
+        AccountWindows account = windows.get(accountNumber);
+        if (account != null) {
+            return account;
+        }
+
+        account = windows.computeIfAbsent(accountNumber, key -> new AccountWindows(clock.millis()));
+        long created = createdSinceSweep.incrementAndGet();
+        if (created >= Math.max(MIN_SWEEP_INTERVAL, windows.size())) {
+            createdSinceSweep.set(0);
+            evictIdleAccounts();
+        }
+        return account;
+    }
+
+    /**
+     * Drop the windows of accounts without a posting for a day (amortised O(1):
+     * only runs after as many creations as there are tracked accounts)
+     */
+    public int evictIdleAccounts() {
+        long now = clock.millis();
+        int removed = 0;
+        for (Map.Entry<String, AccountWindows> entry : windows.entrySet()) {
+            AccountWindows account = entry.getValue();
+            synchronized (account) {
+                if (now - account.lastPostingMillis >= IDLE_EVICTION_MILLIS && windows.remove(entry.getKey(), account)) {
+                    account.evicted = true;
+                    removed++;
+                }
+            }
+        }
+        evicted.add(removed);
+        return removed;
+    }
+
+    public List<Rule> getRules() {
+        return new ArrayList<>(rules);
+    }
+
+    public int getTrackedAccountCount() {
+        return windows.size();
+    }
+
+    public long getCheckedCount() {
+        return checked.sum();
+    }
+
+    public long getFlaggedCount() {
+        return flagged.sum();
+    }
+
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    // Most recent flags, oldest first
+    public List<String> getRecentFlags() {
+        List<String> flags = new ArrayList<>();
+        synchronized (recentFlags) {
+            for (int i = Math.max(0, nextFlag - RECENT_FLAGS); i < nextFlag; i++) {
+                flags.add(recentFlags[i % RECENT_FLAGS]);
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Display monitor counters (admin function)
+     */
+    public void displayStatus() {
+        System.out.printf("│ velocity  checked: %-9d flagged: %-9d blocked: %-8d │%n",
+                          getCheckedCount(), getFlaggedCount(), getBlockedCount());
+        System.out.printf("│           tracked accounts: %-9d evicted: %-16d │%n",
+                          getTrackedAccountCount(), getEvictedCount());
+    }
+
+    /**
+     * Display the rules, counters and the latest flags in one box (admin function)
+     */
+    public void displayReport() {
+        TableWriter table = new TableWriter(55); // inside the 57-wide box
+        table.line("┌─────────────────────────────────────────────────────────┐");
+        table.line("│                    VELOCITY MONITOR                     │");
+        table.line("├─────────────────────────────────────────────────────────┤");
+        for (Rule rule : rules) {
+            table.row().text(rule.action + " over " + rule).end();
+        }
+        table.flush();
+        displayStatus();
+        List<String> flags = getRecentFlags();
+        table.line("├─────────────────────────────────────────────────────────┤");
+        if (flags.isEmpty()) {
+            table.row().text("No flagged postings.").end();
+        }
+        for (String flag : flags.subList(Math.max(0, flags.size() - REPORTED_FLAGS), flags.size())) {
+            table.row().text(flag).end();
+        }
+        table.line("└─────────────────────────────────────────────────────────┘");
+        table.flush();
+    }
+
+    /**
+     * Rule class - at most maxCount postings and maxAmount rupees per window
+     */
+    public static final class Rule {
+        private final Window window;
+        private final int maxCount;
+        private final long maxPaise;
+        private final Action action;
+
+        public Rule(Window window, int maxCount, double maxAmount, Action action) {
+            this.window = window;
+            this.maxCount = maxCount;
+            this.maxPaise = Math.round(maxAmount * 100);
+            this.action = action;
+        }
+
+        public Window getWindow() {
+            return window;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        boolean isBrokenBy(long count, long paise) {
+            return count > maxCount || paise > maxPaise;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d postings / ₹%.2f per %s", maxCount, maxPaise / 100.0, window.name().toLowerCase());
+        }
+    }
+
+    // Ring buckets of all three windows in two flat arrays, plus each window's running totals
+    private static final class AccountWindows {
+        private final int[] counts = new int[TOTAL_BUCKETS];
+        private final long[] sums = new long[TOTAL_BUCKETS];
+        private final long[] lastBucket = new long[Window.values().length];
+        private final int[] totalCounts = new int[Window.values().length];
+        private final long[] totalSums = new long[Window.values().length];
+        private long lastPostingMillis;
+        private boolean evicted;
+
+        AccountWindows(long createdMillis) {
+            this.lastPostingMillis = createdMillis;
+        }
+
+        // Expire the buckets that have left the window since it last moved
+        void advance(Window window, long now) {
+            int w = window.ordinal();
+            long bucket = now / window.bucketMillis;
+            long steps = bucket - lastBucket[w];
+            if (steps <= 0) {
+                return; // same bucket, or the clock stepped back
+            }
+            if (steps >= window.buckets) {
+                Arrays.fill(counts, window.offset, window.offset + window.buckets, 0);
+                Arrays.fill(sums, window.offset, window.offset + window.buckets, 0);
+                totalCounts[w] = 0;
+                totalSums[w] = 0;
+            } else {
+                for (long b = lastBucket[w] + 1; b <= bucket; b++) {
+                    int slot = window.offset + (int) (b % window.buckets);
+                    totalCounts[w] -= counts[slot];
+                    totalSums[w] -= sums[slot];
+                    counts[slot] = 0;
+                    sums[slot] = 0;
+                }
+            }
+            lastBucket[w] = bucket;
+        }
+
+        void add(Window window, long now, long paise) {
+            advance(window, now);
+            int w = window.ordinal();
+            int slot = window.offset + (int) (lastBucket[w] % window.buckets);
+            counts[slot]++;
+            sums[slot] += paise;
+            totalCounts[w]++;
+            totalSums[w] += paise;
+        }
+    }
+
+    // Withdrawal latency with and without the monitor, one thread, random accounts
+    private static void bench(int accountCount, int postings) throws Exception {
+        MetricsRegistry.setEnabled(false);
+        // Built from one precomputed hash; createAccount would run PBKDF2 per account
+        String passwordHash = PasswordHasher.hash("bench123");
+        Map<String, Customer> customers = new HashMap<>();
+        Map<String, Account> accounts = new HashMap<>();
+        String[] numbers = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            Customer customer = new Customer(String.format("CUST%06d", 1001 + i), "Bench " + i,
+                                             "bench@example.com", "0000000000", "Bench St");
+            customers.put(customer.getCustomerId(), customer);
+            numbers[i] = String.format("ACC%06d", 1001 + i);
+            Account account = Account.fromFileString(numbers[i] + "," + passwordHash + "," + customer.getCustomerId()
+                    + ",SAVINGS,1.0E12," + LocalDate.now() + ",true", customer);
+            accounts.put(account.getAccountNumber(), account);
+        }
+        BankingService service = new BankingService();
+        service.loadData(customers, accounts, new ArrayList<>());
+
+        // The bench posts a day's traffic in seconds, so its limits sit just under the
+        // number of postings the busiest accounts get in one round
+        int busiest = postings / 2 / Math.max(1, accountCount / 10) + postings / 2 / accountCount;
+        List<Rule> rules = Arrays.asList(new Rule(Window.MINUTE, busiest - 10, 1e9, Action.BLOCK),
+                                         new Rule(Window.HOUR, busiest - 20, 1e9, Action.FLAG));
+        VelocityMonitor monitor = null;
+        System.out.printf("%,d withdrawals over %,d accounts, rules: %s%n", postings, accountCount, rules);
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            LatencyHistogram without = run(service, numbers, postings, null);
+            monitor = new VelocityMonitor(rules);
+            LatencyHistogram with = run(service, numbers, postings, monitor);
+            if (round == 1) {
+                print("without monitor", without);
+                print("with monitor", with);
+            }
+        }
+        System.out.printf("  flagged %,d, blocked %,d, tracking %,d accounts%n", monitor.getFlaggedCount(),
+                          monitor.getBlockedCount(), monitor.getTrackedAccountCount());
+    }
+
+    private static LatencyHistogram run(BankingService service, String[] numbers, int postings, VelocityMonitor monitor)
+            throws Exception {
+        service.setVelocityMonitor(monitor);
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        for (int i = 0; i < postings; i++) {
+            // Skewed: a tenth of the accounts get half the postings
+            int index = random.nextBoolean() ? random.nextInt(Math.max(1, numbers.length / 10)) : random.nextInt(numbers.length);
+            long start = System.nanoTime();
+            try {
+                service.withdraw(numbers[index], 1 + random.nextInt(5000));
+            } catch (VelocityLimitExceededException e) {
+                // blocked postings are timed too
+            }
+            histogram.record(System.nanoTime() - start);
+        }
+        return histogram;
+    }
+
+    private static void print(String label, LatencyHistogram histogram) {
+        System.out.printf("  %-16s p50 %6.2f µs   p99 %6.2f µs   p99.9 %7.2f µs%n", label,
+                          histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                          histogram.getValueAtPercentile(99.9) / 1000.0);
+    }
+}
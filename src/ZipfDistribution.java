@@ -0,0 +1,40 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * ZipfDistribution class - skewed rank sampler for hot-account workloads
+ * Rank 0 is the hottest; with exponent 1.0 the top 1% of 100k accounts take
+ * roughly half of all picks. Sampling is a binary search over a precomputed CDF.
+ */
+public class ZipfDistribution {
+    private final double[] cumulative;
+
+    public ZipfDistribution(int size, double exponent) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        this.cumulative = new double[size];
+
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    /**
+     * Draw a rank in [0, size)
+     */
+    public int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+}
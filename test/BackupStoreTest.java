@@ -0,0 +1,64 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The sealed ledger prefix is read back from the manifest by a new store
+ */
+class BackupStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void secondStoreSkipsSealedLedgerChunks() throws Exception {
+        String backups = directory.resolve("backups").toString();
+        List<Transaction> ledger = transactions(0, 3000);
+
+        BackupStore first = new BackupStore(backups);
+        first.backup(Collections.emptyList(), Collections.emptyList(), ledger);
+        assertEquals(3000, first.getLastLinesHashed());
+
+        ledger.addAll(transactions(3000, 10));
+        BackupStore second = new BackupStore(backups);
+        String name = second.backup(Collections.emptyList(), Collections.emptyList(), ledger);
+
+        // Two full chunks (2,048 transactions) are sealed and reused as they are
+        assertEquals(3010 - 2048, second.getLastLinesHashed());
+        assertEquals(1, second.getLastChunksWritten());
+        assertTrue(second.verify(name).isEmpty());
+
+        Path restored = directory.resolve("restored");
+        second.restore(name, restored.toString());
+        List<String> lines = Files.readAllLines(restored.resolve(BackupStore.TRANSACTIONS), StandardCharsets.UTF_8);
+        assertEquals(3010, lines.size());
+        assertEquals(ledger.get(3009).toFileString(), lines.get(3009));
+    }
+
+    @Test
+    void rewrittenLedgerIsHashedAgain() throws Exception {
+        String backups = directory.resolve("backups").toString();
+        new BackupStore(backups).backup(Collections.emptyList(), Collections.emptyList(), transactions(0, 2048));
+
+        BackupStore second = new BackupStore(backups);
+        second.backup(Collections.emptyList(), Collections.emptyList(), transactions(5000, 2048));
+        assertEquals(2048, second.getLastLinesHashed());
+    }
+
+    private static List<Transaction> transactions(int from, int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            transactions.add(new Transaction(String.format("TXN%08d", i), "ACC001001", "DEPOSIT", 10, 10.0 * (i + 1),
+                                             "Deposit " + i));
+        }
+        return transactions;
+    }
+}
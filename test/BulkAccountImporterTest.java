@@ -0,0 +1,64 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Imports land where the app loads from, and rejects name their real lines
+ */
+class BulkAccountImporterTest {
+    private static final String PASSWORD_HASH = PasswordHasher.hash("secret123");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void importedAccountsSurviveReopen() throws Exception {
+        File csv = write("portfolio.csv",
+                         "name,email,phone,address,accountType,initialDeposit,password",
+                         "Asha,asha@example.com,9000000000,\"1 Main St, Pune\",SAVINGS,100," + PASSWORD_HASH);
+        String events = directory.resolve("events").toString();
+        BankingService service = BankingService.open(events);
+        int before = service.getTotalAccountsCount();
+
+        assertEquals(1, new BulkAccountImporter(service).importFile(csv).getImported());
+        service.getEventStore().close();
+
+        BankingService reopened = BankingService.open(events);
+        assertEquals(before + 1, reopened.getTotalAccountsCount());
+        assertEquals("asha@example.com", reopened.findCustomerByName("Asha").getEmail());
+        reopened.getEventStore().close();
+    }
+
+    @Test
+    void rejectLineNumbersCountBlankLines() throws Exception {
+        File csv = write("portfolio.csv",
+                         "name,email,phone,address,accountType,initialDeposit,password",
+                         "Asha,asha@example.com,9000000000,Pune,SAVINGS,100," + PASSWORD_HASH,
+                         "",
+                         "",
+                         "Bad,not-an-email,9000000001,Pune,SAVINGS,5," + PASSWORD_HASH,
+                         "Ravi,ravi@example.com,9000000002,Pune,CURRENT,50," + PASSWORD_HASH);
+
+        BulkAccountImporter.ImportSummary summary = new BulkAccountImporter(new BankingService()).importFile(csv);
+
+        assertEquals(2, summary.getImported());
+        List<String> rejects = Files.readAllLines(new File(csv.getPath() + ".rejects").toPath(), StandardCharsets.UTF_8);
+        assertEquals(1, rejects.size());
+        assertTrue(rejects.get(0).startsWith("5,invalid email,"), rejects.get(0));
+    }
+
+    private File write(String name, String... lines) throws Exception {
+        Path file = directory.resolve(name);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+}
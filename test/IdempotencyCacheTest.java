@@ -0,0 +1,57 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Journal writes leave the posting path, and expired keys leave the journal at runtime
+ */
+class IdempotencyCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void queuedKeysSurviveClose() throws Exception {
+        File journal = directory.resolve("idempotency.log").toFile();
+        IdempotencyCache cache = new IdempotencyCache(journal, 1000, 60_000);
+        for (int i = 0; i < 50; i++) {
+            cache.complete(cache.begin("key-" + i, "DEPOSIT|ACC001001|10.0"), transaction(i));
+        }
+        cache.close();
+
+        IdempotencyCache reopened = new IdempotencyCache(journal, 1000, 60_000);
+        IdempotencyCache.Entry retry = reopened.begin("key-7", "DEPOSIT|ACC001001|10.0");
+        assertTrue(retry.isCompleted());
+        assertEquals("TXN7", retry.getResult().getTransactionId());
+        reopened.close();
+    }
+
+    @Test
+    void compactionDropsExpiredKeysWhileOpen() throws Exception {
+        File journal = directory.resolve("idempotency.log").toFile();
+        IdempotencyCache cache = new IdempotencyCache(journal, 10_000, 200);
+        for (int i = 0; i < 1500; i++) {
+            cache.complete(cache.begin("key-" + i, "DEPOSIT|ACC001001|10.0"), transaction(i));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.readAllLines(journal.toPath()).size() < 1500 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(250); // every key has expired
+
+        cache.compact();
+        assertEquals(0, Files.readAllLines(journal.toPath()).size());
+        cache.complete(cache.begin("fresh", "DEPOSIT|ACC001001|10.0"), transaction(9999));
+        cache.close();
+        assertEquals(1, Files.readAllLines(journal.toPath()).size());
+    }
+
+    private static Transaction transaction(int i) {
+        return new Transaction("TXN" + i, "ACC001001", "DEPOSIT", 10, 10.0 * (i + 1), "Deposit");
+    }
+}
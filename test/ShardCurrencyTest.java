@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Shards move the same amount on both legs of a transfer, so accounts in
+ * other currencies must never reach them
+ */
+class ShardCurrencyTest {
+    private static final String PASSWORD_HASH = PasswordHasher.hash("secret123");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rejectsForeignCurrencyAccount() throws Exception {
+        ShardedBankingService service = new ShardedBankingService(2);
+        Customer customer = new Customer("CUST001001", "Asha", "asha@example.com", "9000000000", "Pune");
+        Account dollars = Account.fromFileString("ACC001001," + PASSWORD_HASH + ",CUST001001,SAVINGS,100.0,"
+                                                 + "2024-01-01,true,USD", customer);
+
+        assertThrows(IllegalArgumentException.class, () -> service.addAccount(dollars));
+        assertThrows(AccountNotFoundException.class, () -> service.getAccount("ACC001001"));
+        service.close();
+    }
+
+    @Test
+    void rupeeAccountsStillTransfer() throws Exception {
+        ShardedBankingService service = new ShardedBankingService(2);
+        String from = service.createAccount("Asha", "asha@example.com", "9000000000", "Pune", "SAVINGS", 500,
+                                            "secret123");
+        String to = service.createAccount("Ravi", "ravi@example.com", "9000000001", "Pune", "SAVINGS", 0,
+                                          "secret123");
+
+        service.transfer(from, to, 120);
+
+        assertEquals(380.0, service.getBalance(from), 1e-9);
+        assertEquals(120.0, service.getBalance(to), 1e-9);
+        service.close();
+    }
+
+    @Test
+    void shardNodeRejectsForeignCurrencyImport() throws Exception {
+        ShardNode node = new ShardNode(0, 0, directory.resolve("node-0").toString(), 2);
+        node.start();
+        try (ClusterClient client = new ClusterClient("127.0.0.1", node.getPort())) {
+            String customerLine = "CUST001001,Asha,asha@example.com,9000000000,Pune";
+            String[] reply = client.call("IMPORT", "ACC001001," + PASSWORD_HASH + ",CUST001001,SAVINGS,100.0,"
+                                                   + "2024-01-01,true,USD", customerLine);
+
+            assertEquals("ERR", reply[0]);
+            assertEquals("IllegalArgumentException", reply[1]);
+            assertEquals("OK", client.call("IMPORT", "ACC001002," + PASSWORD_HASH + ",CUST001001,SAVINGS,100.0,"
+                                                     + "2024-01-01,true", customerLine)[0]);
+        } finally {
+            node.stop();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The participant half of the cluster's two-phase commit
+ */
+class ShardNodeTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void lateVoteAfterAbortReservesNothing() throws Exception {
+        ShardNode node = new ShardNode(0, 0, directory.resolve("node-0").toString(), 2);
+        node.start();
+        try (ClusterClient client = new ClusterClient("127.0.0.1", node.getPort())) {
+            String account = ClusterClient.value(client.call("CREATE", "Asha", "asha@example.com", "9000000000",
+                                                             "Pune", "SAVINGS", "500", "secret123"));
+
+            assertEquals("OK", client.call("ABORT", "tx1")[0]);
+            String[] vote = client.call("PREPARE_DEBIT", "tx1", account, "ACC1001001", "200");
+            assertEquals("ERR", vote[0]);
+
+            // Nothing is held, so the whole balance can still be withdrawn
+            assertEquals("OK", client.call("WITHDRAW", account, "500")[0]);
+        } finally {
+            node.stop();
+        }
+    }
+
+    @Test
+    void repeatedDecisionsApplyOnce() throws Exception {
+        String data = directory.resolve("node-0").toString();
+        ShardNode node = new ShardNode(0, 0, data, 2);
+        node.start();
+        String account;
+        try (ClusterClient client = new ClusterClient("127.0.0.1", node.getPort())) {
+            account = ClusterClient.value(client.call("CREATE", "Asha", "asha@example.com", "9000000000", "Pune",
+                                                      "SAVINGS", "500", "secret123"));
+            assertEquals("OK", client.call("PREPARE_DEBIT", "tx1", account, "ACC1001001", "200")[0]);
+            assertEquals("OK", client.call("PREPARE_DEBIT", "tx1", account, "ACC1001001", "200")[0]);
+            assertEquals("OK", client.call("COMMIT", "tx1")[0]);
+            assertEquals("OK", client.call("COMMIT", "tx1")[0]);
+            assertEquals(300.0, client.getBalance(account), 1e-9);
+        } finally {
+            node.stop();
+        }
+
+        // After a restart the commit is still known and still answered
+        ShardNode restarted = new ShardNode(0, 0, data, 2);
+        restarted.start();
+        try (ClusterClient client = new ClusterClient("127.0.0.1", restarted.getPort())) {
+            assertEquals("OK", client.call("COMMIT", "tx1")[0]);
+            assertEquals(300.0, client.getBalance(account), 1e-9);
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    void silentNodeTimesOut() throws Exception {
+        try (ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> {
+                try {
+                    Socket connection = silent.accept(); // accepts, then never answers
+                    Thread.sleep(5_000);
+                    connection.close();
+                } catch (Exception e) {
+                    // test over
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            ClusterClient client = new ClusterClient("127.0.0.1", silent.getLocalPort(), 200);
+            assertTimeoutPreemptively(Duration.ofSeconds(3),
+                    () -> assertThrows(SocketTimeoutException.class, () -> client.call("PING")));
+            client.close();
+        }
+    }
+}
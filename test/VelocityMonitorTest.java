@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Velocity rules are in rupees, whatever the account's currency
+ */
+class VelocityMonitorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void foreignCurrencyPostingsAreCheckedInRupees() throws Exception {
+        Path rates = directory.resolve("fx_rates.txt");
+        Files.write(rates, Arrays.asList("USD,80"), StandardCharsets.UTF_8);
+        BankingService service = new BankingService();
+        service.setFxRates(new FxRateTable(rates.toFile()));
+        service.setVelocityMonitor(new VelocityMonitor(Collections.singletonList(
+                new VelocityMonitor.Rule(VelocityMonitor.Window.DAY, 100, 10_000, VelocityMonitor.Action.BLOCK))));
+        String dollars = service.createAccount("Asha", "asha@example.com", "9000000000", "Pune", "SAVINGS", 1000,
+                                               "secret123", "USD");
+
+        service.withdraw(dollars, 100); // ₹8,000
+        assertEquals(8000.0, service.getVelocityMonitor().getTotals(dollars, VelocityMonitor.Window.DAY)[1], 1e-9);
+        assertThrows(VelocityLimitExceededException.class, () -> service.withdraw(dollars, 50)); // ₹4,000 more
+        assertEquals(900.0, service.getBalance(dollars), 1e-9);
+    }
+
+    @Test
+    void opensConfiguredRulesOrDefaults() throws Exception {
+        File file = directory.resolve("velocity_rules.txt").toFile();
+        assertEquals(3, VelocityMonitor.open(file).getRules().size());
+
+        Files.write(file.toPath(), Arrays.asList("# window,maxCount,maxAmount,action", "minute,5,2500,flag"),
+                    StandardCharsets.UTF_8);
+        VelocityMonitor monitor = VelocityMonitor.open(file);
+        assertEquals(1, monitor.getRules().size());
+        assertEquals(VelocityMonitor.Action.FLAG, monitor.getRules().get(0).getAction());
+
+        Files.write(file.toPath(), Arrays.asList("HOUR,5,lots,BLOCK"), StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> VelocityMonitor.open(file));
+    }
+}